@@ -32,8 +32,9 @@ package it.geosolutions.imageio.compression;
 import java.util.Iterator;
 
 /**
- * The SPI finder, delegated to retrieve compressors and decompressors for a specific CompressionType format. At the
- * moment, only DEFLATE compression is supported.
+ * The SPI finder, delegated to retrieve compressors and decompressors for a specific CompressionType format. SPIs
+ * extending {@link AbstractCompressionSpi} are matched against their supported compressions, any other SPI is assumed
+ * to support DEFLATE only.
  */
 public class CompressionFinder {
 
@@ -59,7 +60,7 @@ public class CompressionFinder {
         CompressorSpi selectedSPI = null;
         for (Iterator<CompressorSpi> it = iterator; it.hasNext(); ) {
             CompressorSpi spi = it.next();
-            if (level <= spi.getMaxLevel() && level >= spi.getMinLevel()) {
+            if (supports(spi, compressionType) && level <= spi.getMaxLevel() && level >= spi.getMinLevel()) {
                 selectedSPI = spi;
                 break;
             }
@@ -83,10 +84,19 @@ public class CompressionFinder {
             return null;
         }
 
-        if (iterator.hasNext()) {
+        while (iterator.hasNext()) {
             DecompressorSpi spi = iterator.next();
-            return spi.createDecompressor(compressionType);
+            if (supports(spi, compressionType)) {
+                return spi.createDecompressor(compressionType);
+            }
         }
         return null;
     }
+
+    private static boolean supports(CompressionPrioritySpi spi, CompressionType compressionType) {
+        if (spi instanceof AbstractCompressionSpi) {
+            return ((AbstractCompressionSpi) spi).getSupportedCompressions().contains(compressionType);
+        }
+        return compressionType == CompressionType.DEFLATE;
+    }
 }
@@ -29,10 +29,16 @@
  */
 package it.geosolutions.imageio.compression;
 
-/**
- * Simple enum for CompressionType being supported by the Compression SPI machinery. At the moment, only DEFLATE is
- * supported.
- */
+/** Simple enum for CompressionType being supported by the Compression SPI machinery. */
 public enum CompressionType {
-    DEFLATE
+    DEFLATE,
+
+    /** TIFF flavor of LZW, MSB first codes with early code width change */
+    LZW,
+
+    /** PackBits run length encoding */
+    PACKBITS,
+
+    /** WebP images, each compressed buffer holding a complete RIFF WebP file */
+    WEBP
 }
@@ -46,6 +46,12 @@ public interface Compressor {
     default void finish() {}
     ;
 
+    /**
+     * Sets the size and number of interleaved 8 bits bands of the image held by the next inputs, for compressions
+     * coding images rather than byte streams (e.g., WebP). Ignored by default.
+     */
+    default void setImageLayout(int width, int height, int numBands) {}
+
     /**
      * Compress the input source data section selected by srcOffset and srcLength and store the on destData, given
      * destOffset and destLength.
@@ -29,19 +29,46 @@
  */
 package it.geosolutions.imageio.compression;
 
+import java.util.Arrays;
 import java.util.zip.DataFormatException;
 
 /**
  * Interface for byte array Decompressor.
  *
  * <p>Decompressor should be first initialized calling setInput on a source data buffer to be decompressed. Afterwards,
- * the decompress method should be called to decompress the provided source into destData buffer.
+ * the decompress method should be called to decompress the provided source into destData buffer, and done once the
+ * input has been decompressed. The same instance can then be given a new input, until dispose is called.
  */
 public interface Decompressor {
 
     /** Set the input source data buffer to be decompressed */
     void setInput(byte[] srcData);
 
+    /**
+     * Set the input source data to be decompressed as a portion of the given buffer, allowing callers to reuse a larger
+     * buffer across inputs. The default implementation copies the portion when it does not cover the whole buffer.
+     */
+    default void setInput(byte[] srcData, int offset, int length) {
+        setInput(
+                offset == 0 && length == srcData.length
+                        ? srcData
+                        : Arrays.copyOfRange(srcData, offset, offset + length));
+    }
+
+    /**
+     * Returns true if consecutive {@link #decompress(byte[], int, int)} calls on the same input resume where the
+     * previous one stopped, so that the output can be produced in chunks (e.g., one row at a time). Defaults to false.
+     */
+    default boolean isStreaming() {
+        return false;
+    }
+
+    /**
+     * Sets the size and number of interleaved 8 bits bands of the image held by the next inputs, for compressions
+     * coding images rather than byte streams (e.g., WebP). Ignored by default.
+     */
+    default void setImageLayout(int width, int height, int numBands) {}
+
     /**
      * Decompress the source data and put result in the dest data buffer, starting from offset position, with a maximum
      * number of uncompressed bytes
@@ -49,8 +76,17 @@ public interface Decompressor {
     void decompress(byte[] destData, int offset, int maxUncompressedSize) throws DataFormatException;
 
     /**
-     * indicates that the decompression is done and the decompressor should do the needed final operations, i.e.
-     * reset/clean/close/disposal. Do not reuse the decompressor after calling done.
+     * indicates that the decompression of the current input is done and the decompressor should do the needed final
+     * operations, i.e. reset/clean. The decompressor must be ready for a new {@link #setInput(byte[])} call afterwards,
+     * as readers may pool decompressors and reuse them across inputs, reads and threads. Resources to be kept across
+     * inputs and freed only when the decompressor is discarded, e.g. native memory, should be released by
+     * {@link #dispose()}.
      */
     void done();
+
+    /**
+     * Releases the resources held by a decompressor that will not be used anymore, e.g. native memory. No other method
+     * is called after this one. Does nothing by default.
+     */
+    default void dispose() {}
 }
@@ -134,7 +134,8 @@ public class FileImageInputStreamExtImpl extends ImageInputStreamImpl
     }
 
     public void setByteOrder(ByteOrder byteOrder) {
-
+        // the inherited array reads convert bytes according to the field
+        this.byteOrder = byteOrder;
         eraf.setByteOrder(byteOrder);
     }
 
@@ -195,6 +196,26 @@ public class FileImageInputStreamExtImpl extends ImageInputStreamImpl
         this.eraf.setByteOrder(ByteOrder.BIG_ENDIAN);
     }
 
+    /**
+     * Constructs a {@link FileImageInputStreamExtImpl} for subclasses in this package, which may provide their own
+     * access to the given {@link File}.
+     *
+     * @param f a {@link File} to read from.
+     * @param openFile whether to open the underlying {@link EnhancedRandomAccessFile}, subclasses not doing so must
+     *     override all the read methods.
+     * @exception NullPointerException if <code>f</code> is <code>null</code>.
+     */
+    FileImageInputStreamExtImpl(File f, boolean openFile) throws IOException {
+        if (f == null) {
+            throw new NullPointerException("f == null!");
+        }
+        this.file = f;
+        if (openFile) {
+            this.eraf = new EnhancedRandomAccessFile(f, "r", EnhancedRandomAccessFile.DEFAULT_BUFFER_SIZE);
+            this.eraf.setByteOrder(ByteOrder.BIG_ENDIAN);
+        }
+    }
+
     /** Reads an int from the underlying {@link EnhancedRandomAccessFile}. */
     public int read() throws IOException {
         checkClosed();
@@ -260,8 +281,10 @@ public class FileImageInputStreamExtImpl extends ImageInputStreamImpl
         try {
             if (!isClosed) {
                 super.close();
-                eraf.close();
-                eraf = null;
+                if (eraf != null) {
+                    eraf.close();
+                    eraf = null;
+                }
             }
         } finally {
             isClosed = true;
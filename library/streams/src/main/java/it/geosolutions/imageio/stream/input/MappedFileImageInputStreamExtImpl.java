@@ -0,0 +1,487 @@
+/*
+ *    ImageI/O-Ext - OpenSource Java Image translation Library
+ *    http://www.geo-solutions.it/
+ *    https://github.com/geosolutions-it/imageio-ext
+ *    (C) 2026, GeoSolutions
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    either version 3 of the License, or (at your option) any later version.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package it.geosolutions.imageio.stream.input;
+
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import javax.imageio.stream.ImageInputStream;
+
+/**
+ * A {@link FileImageInputStreamExtImpl} reading its {@link File} through memory mapping instead of a buffered
+ * {@link it.geosolutions.imageio.stream.eraf.EnhancedRandomAccessFile}. The file is mapped lazily in segments of
+ * {@link #DEFAULT_SEGMENT_SIZE} bytes, so that files larger than 2GB can be read as well, and reads of primitive arrays
+ * are served with bulk copies out of the mapping, saving the copy through the intermediate buffer.
+ *
+ * <p>The file contents are assumed to be stable during the lifetime of the object, and its length is the one at
+ * construction time. The mapping is released by the garbage collector rather than on {@link #close()}, which on Windows
+ * keeps the file locked until then.
+ *
+ * @author GeoSolutions
+ */
+public class MappedFileImageInputStreamExtImpl extends FileImageInputStreamExtImpl {
+
+    /** Default size of the mapped segments, 1GB */
+    public static final int DEFAULT_SEGMENT_SIZE = 1 << 30;
+
+    private final FileChannel channel;
+
+    private final long length;
+
+    private final int segmentSize;
+
+    /** The mapped segments, null until first accessed */
+    private ByteBuffer[] segments;
+
+    /** Scratch area for the values straddling two segments */
+    private final ByteBuffer scratch = ByteBuffer.allocate(8);
+
+    /** The buffer holding the value being read, as set up by {@link #prepare(int)} */
+    private ByteBuffer current;
+
+    /** The offset in {@link #current} of the value being read */
+    private int offset;
+
+    /**
+     * Constructs a {@link MappedFileImageInputStreamExtImpl} that will read from a given {@link File}.
+     *
+     * @param f a {@link File} to read from.
+     * @exception NullPointerException if <code>f</code> is <code>null</code>.
+     * @exception IOException if the file cannot be opened for reading.
+     */
+    public MappedFileImageInputStreamExtImpl(File f) throws IOException {
+        this(f, DEFAULT_SEGMENT_SIZE);
+    }
+
+    /**
+     * Constructs a {@link MappedFileImageInputStreamExtImpl} that will read from a given {@link File}, mapping it in
+     * segments of the given size.
+     *
+     * @param f a {@link File} to read from.
+     * @param segmentSize size of the mapped segments.
+     * @exception NullPointerException if <code>f</code> is <code>null</code>.
+     * @exception IllegalArgumentException if <code>segmentSize</code> is not positive.
+     * @exception IOException if the file cannot be opened for reading.
+     */
+    public MappedFileImageInputStreamExtImpl(File f, int segmentSize) throws IOException {
+        super(f, false);
+        if (segmentSize <= 0) {
+            throw new IllegalArgumentException("segmentSize <= 0!");
+        }
+        this.segmentSize = segmentSize;
+        this.channel = FileChannel.open(f.toPath(), StandardOpenOption.READ);
+        try {
+            this.length = channel.size();
+            this.segments = new ByteBuffer[Math.toIntExact((length + segmentSize - 1) / segmentSize)];
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /** Returns the segment with the given index, mapping it if needed. */
+    private ByteBuffer getSegment(int index) throws IOException {
+        ByteBuffer segment = segments[index];
+        if (segment == null) {
+            long start = (long) index * segmentSize;
+            segment = channel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(segmentSize, length - start));
+            segment.order(byteOrder);
+            segments[index] = segment;
+        }
+        return segment;
+    }
+
+    /**
+     * Sets up {@link #current} and {@link #offset} for reading a value of the given size at the current position, and
+     * moves past it. Values straddling two segments are copied in the scratch area.
+     */
+    private void prepare(int size) throws IOException {
+        checkClosed();
+        bitOffset = 0;
+        if (streamPos < 0 || streamPos + size > length) {
+            throw new EOFException();
+        }
+        int index = (int) (streamPos / segmentSize);
+        int position = (int) (streamPos - (long) index * segmentSize);
+        ByteBuffer segment = getSegment(index);
+        if (position + size <= segment.limit()) {
+            current = segment;
+            offset = position;
+            streamPos += size;
+        } else {
+            readFully(scratch.array(), 0, size);
+            current = scratch.order(byteOrder);
+            offset = 0;
+        }
+    }
+
+    /**
+     * Sets up {@link #current} and {@link #offset} for a bulk read of up to <code>count</code> values of the given size
+     * at the current position, and moves past them.
+     *
+     * @return the number of values available in the current segment, 0 if the next one straddles two segments.
+     */
+    private int prepareBulk(int count, int size) throws IOException {
+        checkClosed();
+        bitOffset = 0;
+        if (streamPos < 0 || streamPos + (long) count * size > length) {
+            throw new EOFException();
+        }
+        int index = (int) (streamPos / segmentSize);
+        offset = (int) (streamPos - (long) index * segmentSize);
+        current = getSegment(index);
+        int available = Math.min(count, (current.limit() - offset) / size);
+        streamPos += (long) available * size;
+        return available;
+    }
+
+    /** Returns a view of the <code>count</code> values of the given size set up by {@link #prepareBulk(int, int)}. */
+    private ByteBuffer slice(int count, int size) {
+        return current.slice(offset, count * size).order(byteOrder);
+    }
+
+    private static void checkBounds(int arrayLength, int off, int len) {
+        if (off < 0 || len < 0 || off + len > arrayLength || off + len < 0) {
+            throw new IndexOutOfBoundsException("off < 0 || len < 0 || off + len > length!");
+        }
+    }
+
+    public int read() throws IOException {
+        checkClosed();
+        bitOffset = 0;
+        if (streamPos < 0 || streamPos >= length) {
+            return -1;
+        }
+        int index = (int) (streamPos / segmentSize);
+        int value = getSegment(index).get((int) (streamPos - (long) index * segmentSize)) & 0xff;
+        ++streamPos;
+        return value;
+    }
+
+    public int read(byte[] b) throws IOException {
+        return read(b, 0, b.length);
+    }
+
+    public int read(byte[] b, int off, int len) throws IOException {
+        checkClosed();
+        checkBounds(b.length, off, len);
+        bitOffset = 0;
+        if (len == 0) {
+            return 0;
+        }
+        if (streamPos < 0 || streamPos >= length) {
+            return -1;
+        }
+        int read = 0;
+        while (read < len && streamPos < length) {
+            int index = (int) (streamPos / segmentSize);
+            int position = (int) (streamPos - (long) index * segmentSize);
+            ByteBuffer segment = getSegment(index);
+            int n = Math.min(len - read, segment.limit() - position);
+            segment.get(position, b, off + read, n);
+            streamPos += n;
+            read += n;
+        }
+        return read;
+    }
+
+    public void readFully(byte[] b) throws IOException {
+        readFully(b, 0, b.length);
+    }
+
+    public void readFully(byte[] b, int off, int len) throws IOException {
+        int read = read(b, off, len);
+        if (read < len) {
+            throw new EOFException();
+        }
+    }
+
+    public void readFully(short[] s, int off, int len) throws IOException {
+        checkBounds(s.length, off, len);
+        while (len > 0) {
+            int n = prepareBulk(len, 2);
+            if (n > 0) {
+                slice(n, 2).asShortBuffer().get(s, off, n);
+            } else {
+                s[off] = readShort();
+                n = 1;
+            }
+            off += n;
+            len -= n;
+        }
+    }
+
+    public void readFully(char[] c, int off, int len) throws IOException {
+        checkBounds(c.length, off, len);
+        while (len > 0) {
+            int n = prepareBulk(len, 2);
+            if (n > 0) {
+                slice(n, 2).asCharBuffer().get(c, off, n);
+            } else {
+                c[off] = readChar();
+                n = 1;
+            }
+            off += n;
+            len -= n;
+        }
+    }
+
+    public void readFully(int[] i, int off, int len) throws IOException {
+        checkBounds(i.length, off, len);
+        while (len > 0) {
+            int n = prepareBulk(len, 4);
+            if (n > 0) {
+                slice(n, 4).asIntBuffer().get(i, off, n);
+            } else {
+                i[off] = readInt();
+                n = 1;
+            }
+            off += n;
+            len -= n;
+        }
+    }
+
+    public void readFully(long[] l, int off, int len) throws IOException {
+        checkBounds(l.length, off, len);
+        while (len > 0) {
+            int n = prepareBulk(len, 8);
+            if (n > 0) {
+                slice(n, 8).asLongBuffer().get(l, off, n);
+            } else {
+                l[off] = readLong();
+                n = 1;
+            }
+            off += n;
+            len -= n;
+        }
+    }
+
+    public void readFully(float[] f, int off, int len) throws IOException {
+        checkBounds(f.length, off, len);
+        while (len > 0) {
+            int n = prepareBulk(len, 4);
+            if (n > 0) {
+                slice(n, 4).asFloatBuffer().get(f, off, n);
+            } else {
+                f[off] = readFloat();
+                n = 1;
+            }
+            off += n;
+            len -= n;
+        }
+    }
+
+    public void readFully(double[] d, int off, int len) throws IOException {
+        checkBounds(d.length, off, len);
+        while (len > 0) {
+            int n = prepareBulk(len, 8);
+            if (n > 0) {
+                slice(n, 8).asDoubleBuffer().get(d, off, n);
+            } else {
+                d[off] = readDouble();
+                n = 1;
+            }
+            off += n;
+            len -= n;
+        }
+    }
+
+    public byte readByte() throws IOException {
+        int value = read();
+        if (value < 0) {
+            throw new EOFException();
+        }
+        return (byte) value;
+    }
+
+    public int readUnsignedByte() throws IOException {
+        int value = read();
+        if (value < 0) {
+            throw new EOFException();
+        }
+        return value;
+    }
+
+    public short readShort() throws IOException {
+        prepare(2);
+        return current.getShort(offset);
+    }
+
+    public int readUnsignedShort() throws IOException {
+        return readShort() & 0xffff;
+    }
+
+    public char readChar() throws IOException {
+        prepare(2);
+        return current.getChar(offset);
+    }
+
+    public int readInt() throws IOException {
+        prepare(4);
+        return current.getInt(offset);
+    }
+
+    public long readUnsignedInt() throws IOException {
+        return readInt() & 0xffffffffL;
+    }
+
+    public long readLong() throws IOException {
+        prepare(8);
+        return current.getLong(offset);
+    }
+
+    public float readFloat() throws IOException {
+        prepare(4);
+        return current.getFloat(offset);
+    }
+
+    public double readDouble() throws IOException {
+        prepare(8);
+        return current.getDouble(offset);
+    }
+
+    public String readLine() throws IOException {
+        StringBuilder input = new StringBuilder();
+        int c = -1;
+        boolean eol = false;
+        while (!eol) {
+            switch (c = read()) {
+                case -1:
+                case '\n':
+                    eol = true;
+                    break;
+                case '\r':
+                    eol = true;
+                    long cur = getStreamPosition();
+                    if (read() != '\n') {
+                        seek(cur);
+                    }
+                    break;
+                default:
+                    input.append((char) c);
+                    break;
+            }
+        }
+        if (c == -1 && input.length() == 0) {
+            return null;
+        }
+        return input.toString();
+    }
+
+    public String readUTF() throws IOException {
+        bitOffset = 0;
+        ByteOrder oldByteOrder = getByteOrder();
+        setByteOrder(ByteOrder.BIG_ENDIAN);
+        try {
+            return DataInputStream.readUTF(this);
+        } finally {
+            setByteOrder(oldByteOrder);
+        }
+    }
+
+    public ByteOrder getByteOrder() {
+        return byteOrder;
+    }
+
+    public void setByteOrder(ByteOrder byteOrder) {
+        this.byteOrder = byteOrder;
+        if (segments != null) {
+            for (ByteBuffer segment : segments) {
+                if (segment != null) {
+                    segment.order(byteOrder);
+                }
+            }
+        }
+    }
+
+    public long getStreamPosition() throws IOException {
+        checkClosed();
+        return streamPos;
+    }
+
+    public boolean isCached() {
+        return false;
+    }
+
+    public int skipBytes(int n) throws IOException {
+        return (int) skipBytes((long) n);
+    }
+
+    public long skipBytes(long n) throws IOException {
+        checkClosed();
+        bitOffset = 0;
+        if (n <= 0 || streamPos >= length) {
+            return 0;
+        }
+        long skipped = Math.min(n, length - streamPos);
+        streamPos += skipped;
+        return skipped;
+    }
+
+    /**
+     * Returns the length of the underlying file, or <code>-1</code> if the stream has been closed.
+     *
+     * @return the file length as a <code>long</code>, or <code>-1</code>.
+     */
+    public long length() {
+        try {
+            checkClosed();
+            return length;
+        } catch (IOException e) {
+            return -1L;
+        }
+    }
+
+    /** Seeks the current position to pos. */
+    public void seek(long pos) throws IOException {
+        checkClosed();
+        if (pos < flushedPos) {
+            throw new IllegalArgumentException("pos < flushedPos!");
+        }
+        bitOffset = 0;
+        streamPos = pos;
+    }
+
+    /**
+     * Closes the underlying {@link FileChannel} and drops the references to the mapped segments.
+     *
+     * @throws IOException in case something bad happens.
+     */
+    public void close() throws IOException {
+        try {
+            channel.close();
+            segments = null;
+            current = null;
+        } finally {
+            super.close();
+        }
+    }
+
+    /**
+     * Provides a simple description for this {@link ImageInputStream}.
+     *
+     * @return a simple description for this {@link ImageInputStream}.
+     */
+    public String toString() {
+        return "MappedFileImageInputStreamExtImpl which points to " + getFile().toString();
+    }
+}
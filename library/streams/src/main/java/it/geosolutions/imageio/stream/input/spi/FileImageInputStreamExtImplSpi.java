@@ -18,6 +18,7 @@ package it.geosolutions.imageio.stream.input.spi;
 
 import it.geosolutions.imageio.stream.eraf.EnhancedRandomAccessFile;
 import it.geosolutions.imageio.stream.input.FileImageInputStreamExtImpl;
+import it.geosolutions.imageio.stream.input.MappedFileImageInputStreamExtImpl;
 import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.IOException;
@@ -40,6 +41,10 @@ import javax.imageio.stream.ImageInputStream;
  * especially on Windows machines, hence I came up with this {@link ImageInputStream} subclass and this
  * {@link ImageInputStreamSpi} which gives similar performances for most uses but far less problems.
  *
+ * <p>Files can be memory mapped by means of a {@link MappedFileImageInputStreamExtImpl} instead, either all of them by
+ * setting the <code>it.geosolutions.imageio.stream.mmap</code> system property to true, or the ones at least as large
+ * as the number of bytes set by the <code>it.geosolutions.imageio.stream.mmap.threshold</code> one.
+ *
  * @see ImageInputStream
  * @see ImageInputStreamSpi
  * @see ImageIO#createImageInputStream(Object)
@@ -57,6 +62,12 @@ public class FileImageInputStreamExtImplSpi extends ImageInputStreamSpi {
 
     private static final Class<File> inputClass = File.class;
 
+    /** System property enabling memory mapping for all the files */
+    public static final String MMAP_KEY = "it.geosolutions.imageio.stream.mmap";
+
+    /** System property setting the size in bytes from which files are memory mapped */
+    public static final String MMAP_THRESHOLD_KEY = "it.geosolutions.imageio.stream.mmap.threshold";
+
     /**
      * Constructs a blank {@link ImageInputStreamSpi}. It is up to the subclass to initialize instance variables and/or
      * override method implementations in order to provide working versions of all methods.
@@ -107,7 +118,11 @@ public class FileImageInputStreamExtImplSpi extends ImageInputStreamSpi {
         }
 
         try {
-            return new FileImageInputStreamExtImpl((File) input);
+            File file = (File) input;
+            if (isMemoryMapped(file)) {
+                return new MappedFileImageInputStreamExtImpl(file);
+            }
+            return new FileImageInputStreamExtImpl(file);
         } catch (FileNotFoundException e) {
             if (LOGGER.isLoggable(Level.FINE)) LOGGER.log(Level.FINE, e.getLocalizedMessage(), e);
             return null;
@@ -116,4 +131,19 @@ public class FileImageInputStreamExtImplSpi extends ImageInputStreamSpi {
             return null;
         }
     }
+
+    /**
+     * Returns true if the given file should be read through memory mapping, according to the {@link #MMAP_KEY} and
+     * {@link #MMAP_THRESHOLD_KEY} system properties.
+     *
+     * @param file the file to be read.
+     * @return true if the file should be memory mapped.
+     */
+    protected boolean isMemoryMapped(File file) {
+        if (Boolean.getBoolean(MMAP_KEY)) {
+            return true;
+        }
+        Long threshold = Long.getLong(MMAP_THRESHOLD_KEY);
+        return threshold != null && threshold >= 0 && file.length() >= threshold;
+    }
 }
@@ -0,0 +1,195 @@
+/*
+ *    ImageI/O-Ext - OpenSource Java Image translation Library
+ *    http://www.geo-solutions.it/
+ *    https://github.com/geosolutions-it/imageio-ext
+ *    (C) 2026, GeoSolutions
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    either version 3 of the License, or (at your option) any later version.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package it.geosolutions.imageio.stream;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import it.geosolutions.imageio.stream.input.FileImageInputStreamExtImpl;
+import it.geosolutions.imageio.stream.input.MappedFileImageInputStreamExtImpl;
+import it.geosolutions.imageio.stream.input.spi.FileImageInputStreamExtImplSpi;
+import it.geosolutions.resources.TestData;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteOrder;
+import javax.imageio.stream.ImageInputStream;
+import org.junit.Test;
+
+/** Tests the memory mapped {@link MappedFileImageInputStreamExtImpl} against the buffered implementation. */
+public class MappedFileImageInputStreamTest {
+
+    /** Odd sized segments, so that values straddle them */
+    private static final int SEGMENT_SIZE = 13;
+
+    private File createFile() throws IOException {
+        File file = TestData.temp(this, "mapped.bin");
+        try (OutputStream os = new FileOutputStream(file)) {
+            for (int i = 0; i < 1000; i++) {
+                os.write(i * 31 + (i >> 3));
+            }
+            os.write("first line\r\nsecond line\n".getBytes("US-ASCII"));
+        }
+        return file;
+    }
+
+    @Test
+    public void testPrimitives() throws IOException {
+        File file = createFile();
+        for (ByteOrder order : new ByteOrder[] {ByteOrder.BIG_ENDIAN, ByteOrder.LITTLE_ENDIAN}) {
+            try (ImageInputStream expected = new FileImageInputStreamExtImpl(file);
+                    ImageInputStream actual = new MappedFileImageInputStreamExtImpl(file, SEGMENT_SIZE)) {
+                expected.setByteOrder(order);
+                actual.setByteOrder(order);
+                // walk the whole file with all the offsets relative to the segment boundaries
+                for (int start = 0; start < 16; start++) {
+                    expected.seek(start);
+                    actual.seek(start);
+                    assertEquals(expected.readByte(), actual.readByte());
+                    assertEquals(expected.readUnsignedByte(), actual.readUnsignedByte());
+                    assertEquals(expected.readShort(), actual.readShort());
+                    assertEquals(expected.readUnsignedShort(), actual.readUnsignedShort());
+                    assertEquals(expected.readChar(), actual.readChar());
+                    assertEquals(expected.readInt(), actual.readInt());
+                    assertEquals(expected.readUnsignedInt(), actual.readUnsignedInt());
+                    assertEquals(expected.readLong(), actual.readLong());
+                    assertEquals(expected.readFloat(), actual.readFloat(), 0);
+                    assertEquals(expected.readDouble(), actual.readDouble(), 0);
+                    assertEquals(expected.getStreamPosition(), actual.getStreamPosition());
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testArrays() throws IOException {
+        File file = createFile();
+        for (ByteOrder order : new ByteOrder[] {ByteOrder.BIG_ENDIAN, ByteOrder.LITTLE_ENDIAN}) {
+            try (ImageInputStream expected = new FileImageInputStreamExtImpl(file);
+                    ImageInputStream actual = new MappedFileImageInputStreamExtImpl(file, SEGMENT_SIZE)) {
+                expected.setByteOrder(order);
+                actual.setByteOrder(order);
+                for (int start = 0; start < 3; start++) {
+                    expected.seek(start);
+                    actual.seek(start);
+                    byte[] eb = new byte[101], ab = new byte[101];
+                    expected.readFully(eb, 1, 100);
+                    actual.readFully(ab, 1, 100);
+                    assertArrayEquals(eb, ab);
+                    short[] es = new short[51], as = new short[51];
+                    expected.readFully(es, 1, 50);
+                    actual.readFully(as, 1, 50);
+                    assertArrayEquals(es, as);
+                    char[] ec = new char[50], ac = new char[50];
+                    expected.readFully(ec, 0, 50);
+                    actual.readFully(ac, 0, 50);
+                    assertArrayEquals(ec, ac);
+                    int[] ei = new int[40], ai = new int[40];
+                    expected.readFully(ei, 0, 40);
+                    actual.readFully(ai, 0, 40);
+                    assertArrayEquals(ei, ai);
+                    long[] el = new long[20], al = new long[20];
+                    expected.readFully(el, 0, 20);
+                    actual.readFully(al, 0, 20);
+                    assertArrayEquals(el, al);
+                    float[] ef = new float[30], af = new float[30];
+                    expected.readFully(ef, 0, 30);
+                    actual.readFully(af, 0, 30);
+                    assertArrayEquals(ef, af, 0);
+                    double[] ed = new double[20], ad = new double[20];
+                    expected.readFully(ed, 0, 20);
+                    actual.readFully(ad, 0, 20);
+                    assertArrayEquals(ed, ad, 0);
+                    assertEquals(expected.getStreamPosition(), actual.getStreamPosition());
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testEndOfFile() throws IOException {
+        File file = createFile();
+        try (ImageInputStream stream = new MappedFileImageInputStreamExtImpl(file, SEGMENT_SIZE)) {
+            long length = stream.length();
+            assertEquals(file.length(), length);
+            stream.seek(1000);
+            assertEquals("first line", stream.readLine());
+            assertEquals("second line", stream.readLine());
+            assertNull(stream.readLine());
+            assertEquals(-1, stream.read());
+            assertEquals(-1, stream.read(new byte[4], 0, 4));
+
+            stream.seek(length - 6);
+            byte[] b = new byte[10];
+            assertEquals(6, stream.read(b, 0, 10));
+            stream.seek(length - 2);
+            try {
+                stream.readInt();
+                fail("Expected an EOFException");
+            } catch (EOFException e) {
+                // expected
+            }
+            stream.seek(length - 7);
+            try {
+                stream.readFully(new long[1], 0, 1);
+                fail("Expected an EOFException");
+            } catch (EOFException e) {
+                // expected
+            }
+            stream.seek(length - 3);
+            assertEquals(3, stream.skipBytes(10));
+            assertEquals(length, stream.getStreamPosition());
+        }
+    }
+
+    @Test
+    public void testSpiSelection() throws IOException {
+        File file = createFile();
+        FileImageInputStreamExtImplSpi spi = new FileImageInputStreamExtImplSpi();
+        try {
+            ImageInputStream stream = spi.createInputStreamInstance(file, false, null);
+            assertEquals(FileImageInputStreamExtImpl.class, stream.getClass());
+            stream.close();
+
+            System.setProperty(FileImageInputStreamExtImplSpi.MMAP_THRESHOLD_KEY, String.valueOf(file.length() + 1));
+            stream = spi.createInputStreamInstance(file, false, null);
+            assertEquals(FileImageInputStreamExtImpl.class, stream.getClass());
+            stream.close();
+
+            System.setProperty(FileImageInputStreamExtImplSpi.MMAP_THRESHOLD_KEY, String.valueOf(file.length()));
+            stream = spi.createInputStreamInstance(file, false, null);
+            assertTrue(stream instanceof MappedFileImageInputStreamExtImpl);
+            assertEquals(file, ((FileImageInputStreamExtImpl) stream).getFile());
+            stream.close();
+            assertEquals(-1, stream.length());
+
+            System.clearProperty(FileImageInputStreamExtImplSpi.MMAP_THRESHOLD_KEY);
+            System.setProperty(FileImageInputStreamExtImplSpi.MMAP_KEY, "true");
+            stream = spi.createInputStreamInstance(file, false, null);
+            assertTrue(stream instanceof MappedFileImageInputStreamExtImpl);
+            stream.close();
+        } finally {
+            System.clearProperty(FileImageInputStreamExtImplSpi.MMAP_KEY);
+            System.clearProperty(FileImageInputStreamExtImplSpi.MMAP_THRESHOLD_KEY);
+        }
+    }
+}
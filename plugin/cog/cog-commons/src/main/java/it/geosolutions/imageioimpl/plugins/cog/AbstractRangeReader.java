@@ -23,8 +23,17 @@ import java.net.MalformedURLException;
 import java.net.URI;
 import java.net.URL;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.logging.Level;
 import java.util.logging.Logger;
 
 /** @author joshfix Created on 2019-08-21 */
@@ -36,8 +45,79 @@ public abstract class AbstractRangeReader implements RangeReader {
      */
     protected static final Map<String, byte[]> HEADERS_CACHE = new SoftValueHashMap<>();
 
+    /**
+     * Enables the adaptive header fetch, making sure all the IFDs and their tag values are read along the header.
+     * Disabled by default.
+     */
+    public static final String ADAPTIVE_HEADER_KEY = "it.geosolutions.cog.header.adaptive";
+
+    /** The maximum header length the adaptive header fetch is allowed to read */
+    public static final String MAX_HEADER_LENGTH_KEY = "it.geosolutions.cog.header.maxlength";
+
+    /**
+     * The maximum distance, in bytes, past the header of the IFDs and tag values the adaptive header fetch includes.
+     * Farther ones, found in files not laid out as COGs, are read on demand instead.
+     */
+    public static final String MAX_HEADER_GAP_KEY = "it.geosolutions.cog.header.maxgap";
+
+    static final boolean ADAPTIVE_HEADER = Boolean.getBoolean(ADAPTIVE_HEADER_KEY);
+
+    static final long MAX_HEADER_LENGTH = Long.getLong(MAX_HEADER_LENGTH_KEY, 16 * 1024 * 1024);
+
+    static final long MAX_HEADER_GAP = Long.getLong(MAX_HEADER_GAP_KEY, 64 * 1024);
+
+    /** Number of recent header lengths kept per host, and the ones needed before their median is used */
+    static final int HOST_HEADER_WINDOW = 16;
+
+    static final int HOST_HEADER_MIN_SAMPLES = 3;
+
+    /** When the TIFF reader loads the tile offsets and byte counts lazily, they don't need to be in the header */
+    static final boolean LAZY_TILE_ARRAYS = Boolean.getBoolean("it.geosolutions.imageio.tiff.lazy");
+
+    /** Enables hedged range requests, issuing a duplicate request for the ranges slower than usual */
+    public static final String HEDGING_KEY = "it.geosolutions.cog.hedging";
+
+    /** The percentile of the recent range latencies a range request must exceed to get hedged */
+    public static final String HEDGING_PERCENTILE_KEY = "it.geosolutions.cog.hedging.percentile";
+
+    /** The minimum delay, in milliseconds, before a range request gets hedged */
+    public static final String HEDGING_MIN_DELAY_KEY = "it.geosolutions.cog.hedging.mindelay";
+
+    static final boolean HEDGING = Boolean.getBoolean(HEDGING_KEY);
+
+    static final double HEDGING_PERCENTILE = Double.parseDouble(System.getProperty(HEDGING_PERCENTILE_KEY, "95"));
+
+    static final long HEDGING_MIN_DELAY = Long.getLong(HEDGING_MIN_DELAY_KEY, 20);
+
+    /** Number of recent range latencies kept per host, and the ones needed before hedging kicks in */
+    static final int LATENCY_WINDOW = 1000;
+
+    static final int LATENCY_MIN_SAMPLES = 20;
+
+    /** Recent range request latencies, by scheme and host */
+    private static final Map<String, RangeLatencyTracker> LATENCIES = new ConcurrentHashMap<>();
+
+    private static final AtomicLong HEDGED_REQUESTS = new AtomicLong();
+
+    /** Enables sharing range reads in flight among all the readers of the same dataset, process wide */
+    public static final String SHARED_READS_KEY = "it.geosolutions.cog.range.shared";
+
+    static final boolean SHARED_READS = Boolean.parseBoolean(System.getProperty(SHARED_READS_KEY, "true"));
+
+    private static final SharedRangeReads IN_FLIGHT_READS = new SharedRangeReads();
+
+    /** Header lengths learned by the adaptive header fetch, by dataset URI */
+    protected static final Map<String, Integer> LEARNED_HEADER_LENGTHS = new SoftValueHashMap<>();
+
+    /** Recent header lengths learned by the adaptive header fetch, by host */
+    protected static final Map<String, LearnedHeaderLengths> LEARNED_HOST_HEADER_LENGTHS = new ConcurrentHashMap<>();
+
     static {
-        ExtCaches.addListener(() -> HEADERS_CACHE.clear());
+        ExtCaches.addListener(() -> {
+            HEADERS_CACHE.clear();
+            LEARNED_HEADER_LENGTHS.clear();
+            LEARNED_HOST_HEADER_LENGTHS.clear();
+        });
     }
 
     protected BasicAuthURI authUri;
@@ -45,6 +125,8 @@ public abstract class AbstractRangeReader implements RangeReader {
     protected SoftValueHashMap<Long, byte[]> data = new SoftValueHashMap<>(0);
     protected int headerLength;
     protected int headerOffset = 0;
+    protected boolean hedging = HEDGING;
+    protected boolean adaptiveHeader = ADAPTIVE_HEADER;
 
     private static final Logger LOGGER = Logger.getLogger(AbstractRangeReader.class.getName());
 
@@ -52,7 +134,77 @@ public abstract class AbstractRangeReader implements RangeReader {
         this.authUri = authUri;
         // store the underlying uri too to avoid several getUri() calls around on the code
         this.uri = authUri.getUri();
-        this.headerLength = headerLength;
+        this.headerLength = getLearnedHeaderLength(headerLength);
+    }
+
+    /**
+     * Returns the header length learned by the adaptive header fetch for this dataset, or the median of the ones
+     * recently learned for other datasets on the same host, if larger than the provided one.
+     */
+    protected int getLearnedHeaderLength(int headerLength) {
+        if (!adaptiveHeader) {
+            return headerLength;
+        }
+        Integer learned = LEARNED_HEADER_LENGTHS.get(uri.toString());
+        if (learned == null && uri.getHost() != null) {
+            LearnedHeaderLengths hostLengths = LEARNED_HOST_HEADER_LENGTHS.get(uri.getHost());
+            if (hostLengths != null) {
+                learned = hostLengths.getMedian();
+            }
+        }
+        return learned != null ? Math.max(learned, headerLength) : headerLength;
+    }
+
+    /**
+     * Makes sure the header holds all the IFDs, overviews included, and the tag values they reference, like TileOffsets
+     * and TileByteCounts, reading the missing bytes in a single request (or a few ones, when the IFDs themselves are
+     * not in the header). Subclasses should call this method on the header bytes read by {@link #readHeader()}, before
+     * caching them. Does nothing if the adaptive header fetch is disabled, or if the header is not a TIFF header. When
+     * the TIFF reader loads tile offsets and byte counts lazily, those are left out and read on demand instead, as well
+     * as the IFDs and values lying farther than {@link #MAX_HEADER_GAP_KEY} past the header, like the ones following
+     * the image data in files not laid out as COGs.
+     *
+     * @param headerBytes the bytes read from the start of the file
+     * @return the header bytes, extended if needed
+     */
+    protected byte[] completeHeader(byte[] headerBytes) {
+        if (!adaptiveHeader || headerBytes.length < headerOffset + headerLength) {
+            // disabled, or the whole file has already been read
+            return headerBytes;
+        }
+        long required = CogHeaderLayout.getRequiredLength(headerBytes, LAZY_TILE_ARRAYS, MAX_HEADER_GAP);
+        if (required < 0) {
+            return headerBytes;
+        }
+        int initialLength = headerBytes.length;
+        while (required > headerBytes.length && required <= MAX_HEADER_LENGTH) {
+            long start = headerBytes.length;
+            byte[] missing = read(new long[] {start, required - 1}).get(start);
+            if (missing == null || missing.length == 0) {
+                break;
+            }
+            byte[] newHeader = new byte[headerBytes.length + missing.length];
+            System.arraycopy(headerBytes, 0, newHeader, 0, headerBytes.length);
+            System.arraycopy(missing, 0, newHeader, headerBytes.length, missing.length);
+            headerBytes = newHeader;
+            if (missing.length < required - start) {
+                // reached the end of the file
+                break;
+            }
+            required = CogHeaderLayout.getRequiredLength(headerBytes, LAZY_TILE_ARRAYS, MAX_HEADER_GAP);
+        }
+
+        if (headerBytes.length > initialLength) {
+            LOGGER.fine(
+                    "Header of " + uri + " extended from " + initialLength + " to " + headerBytes.length + " bytes");
+            LEARNED_HEADER_LENGTHS.put(uri.toString(), headerBytes.length);
+            if (uri.getHost() != null) {
+                LEARNED_HOST_HEADER_LENGTHS
+                        .computeIfAbsent(uri.getHost(), h -> new LearnedHeaderLengths())
+                        .record(headerBytes.length);
+            }
+        }
+        return headerBytes;
     }
 
     /**
@@ -116,6 +268,164 @@ public abstract class AbstractRangeReader implements RangeReader {
         }
     }
 
+    /**
+     * Blocks until all ranges have been read, without busy waiting, and puts them in the provided map
+     *
+     * @param data the map receiving the bytes of each range, keyed by range start
+     * @param futures the futures of the ranges being read, keyed by range start
+     */
+    protected void awaitCompletion(Map<Long, byte[]> data, Map<Long, CompletableFuture<byte[]>> futures) {
+        for (Map.Entry<Long, CompletableFuture<byte[]>> entry : futures.entrySet()) {
+            try {
+                data.put(entry.getKey(), entry.getValue().join());
+            } catch (CompletionException e) {
+                throw new RuntimeException("Failed to read data from " + uri, e.getCause());
+            }
+        }
+    }
+
+    /**
+     * Reads a range through the provided fetcher, unless a read in flight for the same dataset, from this or any other
+     * reader, already covers it. In that case the bytes of that read are shared. The actual read is hedged as described
+     * in {@link #readHedged(long[], Function)}.
+     *
+     * @param range the range to read
+     * @param fetcher issues a request for the range, returning the future of its bytes
+     * @return the future of the range bytes
+     */
+    protected CompletableFuture<byte[]> readShared(long[] range, Function<long[], CompletableFuture<byte[]>> fetcher) {
+        if (!SHARED_READS) {
+            return readHedged(range, fetcher);
+        }
+        String dataset = authUri.getUser() != null ? authUri.getUser() + "@" + uri : uri.toString();
+        return IN_FLIGHT_READS.read(dataset, range, r -> readHedged(r, fetcher));
+    }
+
+    /** @return the number of range reads that joined a read already in flight, process wide */
+    public static long getSharedReadCount() {
+        return IN_FLIGHT_READS.getSharedCount();
+    }
+
+    /**
+     * Reads a range through the provided fetcher, hedging the request when hedging is enabled: if the range has not
+     * been read after the configured percentile of the recent latencies for the same host, a duplicate request is
+     * issued and whichever completes first wins, the other one being cancelled. Backends should make cancelling the
+     * returned futures abort the underlying request, where possible. The returned future fails only when all the issued
+     * requests failed.
+     *
+     * @param range the range to read
+     * @param fetcher issues a request for the range, returning the future of its bytes
+     * @return the future of the range bytes
+     */
+    protected CompletableFuture<byte[]> readHedged(long[] range, Function<long[], CompletableFuture<byte[]>> fetcher) {
+        if (!hedging) {
+            return fetcher.apply(range);
+        }
+        RangeLatencyTracker tracker = getLatencyTracker();
+        CompletableFuture<byte[]> primary = timedFetch(range, fetcher, tracker);
+        long delay = tracker.getPercentileMillis();
+        if (delay < 0 || primary.isDone()) {
+            // not enough samples yet to tell a slow request apart
+            return primary;
+        }
+        HedgedRead read = new HedgedRead();
+        read.launch(() -> primary);
+        CompletableFuture.delayedExecutor(Math.max(delay, HEDGING_MIN_DELAY), TimeUnit.MILLISECONDS)
+                .execute(() -> read.launch(() -> {
+                    HEDGED_REQUESTS.incrementAndGet();
+                    if (LOGGER.isLoggable(Level.FINE)) {
+                        LOGGER.fine(
+                                "Hedging range " + range[0] + "-" + range[1] + " of " + uri + " after " + delay + "ms");
+                    }
+                    return timedFetch(range, fetcher, tracker);
+                }));
+        return read.result;
+    }
+
+    private static CompletableFuture<byte[]> timedFetch(
+            long[] range, Function<long[], CompletableFuture<byte[]>> fetcher, RangeLatencyTracker tracker) {
+        long start = System.nanoTime();
+        CompletableFuture<byte[]> attempt = fetcher.apply(range);
+        attempt.thenRun(() -> tracker.record(System.nanoTime() - start));
+        return attempt;
+    }
+
+    /** @return the tracker of the recent range latencies for the host of this reader */
+    public RangeLatencyTracker getLatencyTracker() {
+        String key = uri.getScheme() + "://" + uri.getHost();
+        return LATENCIES.computeIfAbsent(
+                key, k -> new RangeLatencyTracker(LATENCY_WINDOW, LATENCY_MIN_SAMPLES, HEDGING_PERCENTILE));
+    }
+
+    /**
+     * Enables or disables the adaptive header fetch for this reader, overriding the {@link #ADAPTIVE_HEADER_KEY} system
+     * property. Should be called before the header is read.
+     */
+    public void setAdaptiveHeader(boolean adaptiveHeader) {
+        this.adaptiveHeader = adaptiveHeader;
+        this.headerLength = getLearnedHeaderLength(headerLength);
+    }
+
+    public boolean isAdaptiveHeader() {
+        return adaptiveHeader;
+    }
+
+    /** Enables or disables hedged range requests for this reader, overriding the {@link #HEDGING_KEY} property */
+    public void setHedging(boolean hedging) {
+        this.hedging = hedging;
+    }
+
+    public boolean isHedging() {
+        return hedging;
+    }
+
+    /** @return the number of hedging requests issued so far, process wide */
+    public static long getHedgedRequestCount() {
+        return HEDGED_REQUESTS.get();
+    }
+
+    /**
+     * The requests issued for a single hedged range. The first successful one completes the result and the others get
+     * cancelled, the result fails only when all the issued requests failed.
+     */
+    private static final class HedgedRead {
+
+        final CompletableFuture<byte[]> result = new CompletableFuture<>();
+
+        private final List<CompletableFuture<byte[]>> attempts = new ArrayList<>(2);
+
+        private int failures;
+
+        HedgedRead() {
+            result.whenComplete((bytes, t) -> cancelAttempts());
+        }
+
+        synchronized void launch(Supplier<CompletableFuture<byte[]>> request) {
+            if (result.isDone()) {
+                return;
+            }
+            CompletableFuture<byte[]> attempt = request.get();
+            attempts.add(attempt);
+            attempt.whenComplete(this::attemptCompleted);
+        }
+
+        private synchronized void attemptCompleted(byte[] bytes, Throwable t) {
+            if (t == null) {
+                result.complete(bytes);
+            } else if (++failures >= attempts.size()) {
+                result.completeExceptionally(t instanceof CompletionException ? t.getCause() : t);
+            }
+        }
+
+        private synchronized void cancelAttempts() {
+            for (CompletableFuture<byte[]> attempt : attempts) {
+                if (!attempt.isDone()) {
+                    attempt.cancel(true);
+                }
+            }
+        }
+    }
+
     @Override
     public void setHeaderLength(int headerLength) {
         this.headerLength = headerLength;
@@ -128,5 +438,36 @@ public abstract class AbstractRangeReader implements RangeReader {
 
     public static void invalidateCache() {
         HEADERS_CACHE.clear();
+        LEARNED_HEADER_LENGTHS.clear();
+        LEARNED_HOST_HEADER_LENGTHS.clear();
+    }
+
+    /**
+     * The header lengths recently learned on a host. Their median is reported, so that a few datasets with an unusually
+     * large header do not make all the others on the same host start with an oversized read.
+     */
+    protected static class LearnedHeaderLengths {
+
+        private final int[] lengths = new int[HOST_HEADER_WINDOW];
+        private int count;
+        private int next;
+
+        synchronized void record(int length) {
+            lengths[next] = length;
+            next = (next + 1) % lengths.length;
+            if (count < lengths.length) {
+                count++;
+            }
+        }
+
+        /** @return the median of the recent lengths, or null if not enough of them have been recorded yet */
+        synchronized Integer getMedian() {
+            if (count < HOST_HEADER_MIN_SAMPLES) {
+                return null;
+            }
+            int[] sorted = Arrays.copyOf(lengths, count);
+            Arrays.sort(sorted);
+            return sorted[(count - 1) / 2];
+        }
     }
 }
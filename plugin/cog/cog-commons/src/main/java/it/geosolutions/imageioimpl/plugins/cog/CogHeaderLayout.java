@@ -0,0 +1,180 @@
+/*
+ *    ImageI/O-Ext - OpenSource Java Image translation Library
+ *    http://www.geo-solutions.it/
+ *    https://github.com/geosolutions-it/imageio-ext
+ *    (C) 2026, GeoSolutions
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    either version 3 of the License, or (at your option) any later version.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package it.geosolutions.imageioimpl.plugins.cog;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Computes how many bytes from the start of a TIFF file are needed to parse all of its IFDs, including the out of line
+ * tag values they reference (e.g., TileOffsets and TileByteCounts). Both classic TIFF and BigTIFF are supported. Since
+ * COG files store all the IFDs, overviews included, before the image data, this is the actual header length.
+ */
+public class CogHeaderLayout {
+
+    /** Number of IFD entries assumed when an IFD has not been read yet */
+    static final int ESTIMATED_IFD_ENTRIES = 32;
+
+    /** Maximum number of IFDs followed, as a protection against loops */
+    static final int MAX_IFDS = 256;
+
+    private CogHeaderLayout() {}
+
+    /**
+     * Returns the number of bytes from the start of the file needed to read all of its IFDs and their tag values, based
+     * on the available header bytes. When an IFD or its entries are not in the available bytes yet, the returned length
+     * covers them (using an estimate of the number of entries, if unknown), so that the method needs to be called again
+     * once the header has been extended.
+     *
+     * @param header the available header bytes
+     * @return the required header length, or -1 if the header is not a valid TIFF header
+     */
+    public static long getRequiredLength(byte[] header) {
+        return getRequiredLength(header, false);
+    }
+
+    /**
+     * Same as {@link #getRequiredLength(byte[])}, optionally skipping the LONG and LONG8 values of the strip/tile
+     * offsets and byte counts, for when they are loaded lazily by the TIFF reader.
+     *
+     * @param header the available header bytes
+     * @param skipTileArrays whether to skip the strip/tile offsets and byte counts values
+     * @return the required header length, or -1 if the header is not a valid TIFF header
+     */
+    public static long getRequiredLength(byte[] header, boolean skipTileArrays) {
+        return getRequiredLength(header, skipTileArrays, Long.MAX_VALUE);
+    }
+
+    /**
+     * Same as {@link #getRequiredLength(byte[], boolean)}, ignoring the IFDs and tag values starting more than <code>
+     * maxGap</code> bytes past the header computed so far. Those are found in files not laid out as COGs, where the
+     * overview IFDs and some metadata follow the image data, which should not be read as part of the header. When an
+     * IFD is ignored, the IFDs following it are ignored as well.
+     *
+     * @param header the available header bytes
+     * @param skipTileArrays whether to skip the strip/tile offsets and byte counts values
+     * @param maxGap the maximum distance from the header end of the IFDs and tag values to be included
+     * @return the required header length, or -1 if the header is not a valid TIFF header
+     */
+    public static long getRequiredLength(byte[] header, boolean skipTileArrays, long maxGap) {
+        if (header.length < 8) {
+            return -1;
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(header);
+        if (header[0] == 'I' && header[1] == 'I') {
+            buffer.order(ByteOrder.LITTLE_ENDIAN);
+        } else if (header[0] != 'M' || header[1] != 'M') {
+            return -1;
+        }
+
+        int magic = buffer.getShort(2);
+        boolean bigTiff = magic == 43;
+        if (!bigTiff && magic != 42) {
+            return -1;
+        }
+        if (bigTiff && header.length < 16) {
+            return 16;
+        }
+        int countSize = bigTiff ? 8 : 2;
+        int entrySize = bigTiff ? 20 : 12;
+        int offsetSize = bigTiff ? 8 : 4;
+
+        long required = bigTiff ? 16 : 8;
+        long ifdOffset = bigTiff ? buffer.getLong(8) : Integer.toUnsignedLong(buffer.getInt(4));
+        Set<Long> visited = new HashSet<>();
+        while (ifdOffset > 0 && visited.size() < MAX_IFDS && visited.add(ifdOffset)) {
+            if (isFar(ifdOffset, header, required, maxGap)) {
+                break;
+            }
+            if (ifdOffset + countSize > header.length) {
+                // the IFD has not been read at all, estimate its size
+                return Math.max(required, ifdOffset + countSize + ESTIMATED_IFD_ENTRIES * entrySize + offsetSize);
+            }
+            long entries = bigTiff ? buffer.getLong((int) ifdOffset) : buffer.getShort((int) ifdOffset) & 0xFFFF;
+            long entriesStart = ifdOffset + countSize;
+            long ifdEnd = entriesStart + entries * entrySize + offsetSize;
+            required = Math.max(required, ifdEnd);
+            if (ifdEnd > header.length) {
+                // the IFD entries are not fully available yet
+                return required;
+            }
+
+            for (long i = 0; i < entries; i++) {
+                int entry = (int) (entriesStart + i * entrySize);
+                int tag = buffer.getShort(entry) & 0xFFFF;
+                int type = buffer.getShort(entry + 2) & 0xFFFF;
+                if (skipTileArrays && isTileArray(tag) && (type == 4 || type == 16)) {
+                    continue;
+                }
+                long count = bigTiff ? buffer.getLong(entry + 4) : Integer.toUnsignedLong(buffer.getInt(entry + 4));
+                long valueLength = count * getTypeSize(type);
+                if (valueLength > offsetSize) {
+                    // the value does not fit in the entry, and is stored at the referenced offset
+                    long valueOffset =
+                            bigTiff ? buffer.getLong(entry + 12) : Integer.toUnsignedLong(buffer.getInt(entry + 8));
+                    if (!isFar(valueOffset, header, required, maxGap)) {
+                        required = Math.max(required, valueOffset + valueLength);
+                    }
+                }
+            }
+            ifdOffset = bigTiff
+                    ? buffer.getLong((int) (ifdEnd - offsetSize))
+                    : Integer.toUnsignedLong(buffer.getInt((int) (ifdEnd - offsetSize)));
+        }
+        return required;
+    }
+
+    /** Returns true if the given offset is more than maxGap bytes past both the available and required header */
+    private static boolean isFar(long offset, byte[] header, long required, long maxGap) {
+        return offset - Math.max(header.length, required) > maxGap;
+    }
+
+    /** Returns true for the StripOffsets, StripByteCounts, TileOffsets and TileByteCounts tags */
+    static boolean isTileArray(int tag) {
+        return tag == 273 || tag == 279 || tag == 324 || tag == 325;
+    }
+
+    /** Returns the size in bytes of a TIFF field type, or 0 for unknown types */
+    static int getTypeSize(int type) {
+        switch (type) {
+            case 1: // BYTE
+            case 2: // ASCII
+            case 6: // SBYTE
+            case 7: // UNDEFINED
+                return 1;
+            case 3: // SHORT
+            case 8: // SSHORT
+                return 2;
+            case 4: // LONG
+            case 9: // SLONG
+            case 11: // FLOAT
+            case 13: // IFD
+                return 4;
+            case 5: // RATIONAL
+            case 10: // SRATIONAL
+            case 12: // DOUBLE
+            case 16: // LONG8
+            case 17: // SLONG8
+            case 18: // IFD8
+                return 8;
+            default:
+                return 0;
+        }
+    }
+}
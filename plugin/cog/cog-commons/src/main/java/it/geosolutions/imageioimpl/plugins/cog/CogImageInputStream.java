@@ -65,4 +65,13 @@ public interface CogImageInputStream extends ImageInputStream {
      * @return
      */
     boolean isInitialized();
+
+    /**
+     * Returns the URL of the COG read by this stream, identifying it in the shared TIFF metadata cache.
+     *
+     * @return the URL of the COG, or null if unknown, in which case its metadata is not shared
+     */
+    default String getUrl() {
+        return null;
+    }
 }
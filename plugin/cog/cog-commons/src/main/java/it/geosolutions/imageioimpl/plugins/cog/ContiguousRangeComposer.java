@@ -16,71 +16,117 @@
  */
 package it.geosolutions.imageioimpl.plugins.cog;
 
+import java.util.ArrayList;
 import java.util.Collections;
-import java.util.HashSet;
+import java.util.Comparator;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Set;
 
 /**
  * Utility class to examine all COG tiles that need to be read for the current request and build a list of ranges tiles
  * that are in a contiguous sequence.
  *
+ * <p>Ranges are sorted by offset before being merged, so the order in which tiles are added does not matter. Two ranges
+ * separated by a gap not greater than {@link #getMaxGap()} bytes are coalesced into a single one (the gap bytes are
+ * read and discarded), as long as the merged range does not exceed {@link #getMaxRangeLength()} bytes. The defaults can
+ * be configured with the {@value #MAX_GAP_KEY} and {@value #MAX_RANGE_LENGTH_KEY} system properties, and only merge
+ * strictly contiguous ranges, with no size limit.
+ *
  * @author joshfix Created on 2019-08-27
  */
 public class ContiguousRangeComposer {
 
-    protected long currentRangeStart;
-    protected long currentRangeEnd;
+    /** System property setting the maximum number of unrequested bytes allowed between two merged ranges */
+    public static final String MAX_GAP_KEY = "it.geosolutions.cog.range.maxgap";
+
+    /** System property setting the maximum length of a range obtained by merging multiple ones */
+    public static final String MAX_RANGE_LENGTH_KEY = "it.geosolutions.cog.range.maxlength";
+
+    public static final long DEFAULT_MAX_GAP = Long.getLong(MAX_GAP_KEY, 0);
+
+    public static final long DEFAULT_MAX_RANGE_LENGTH = Long.getLong(MAX_RANGE_LENGTH_KEY, Long.MAX_VALUE);
+
+    protected final long maxGap;
+    protected final long maxRangeLength;
     protected boolean tileAdded = false;
-    protected Set<long[]> ranges = new HashSet<>();
+    protected List<long[]> ranges = new ArrayList<>();
 
     /**
-     * we don't add the initial start/end range immediately. instead, we will wait until the next range is added and
-     * compare it's start position with the current end position. if it's contiguous, we extend the end range by the
-     * byte count of the added tile. if it's not, we add the current start/end as a range.
+     * The initial range is only returned by {@link #getRanges()} if at least a tile range gets added, in which case it
+     * is merged with the tile ranges like any other range.
      *
      * @param initialRangeStart start byte location of the tile
      * @param initialRangeEnd end byte location of the tile
      */
     public ContiguousRangeComposer(long initialRangeStart, long initialRangeEnd) {
-        currentRangeStart = initialRangeStart;
-        currentRangeEnd = initialRangeEnd;
+        this(initialRangeStart, initialRangeEnd, DEFAULT_MAX_GAP, DEFAULT_MAX_RANGE_LENGTH);
     }
 
     /**
-     * Accepts a start and end byte position and determines if the start position directly follows the current range end
-     * position. If true, the range end will be extended. If false, the current range will be added to the list of
-     * ranges and a new current range start/end will be established.
+     * @param initialRangeStart start byte location of the tile
+     * @param initialRangeEnd end byte location of the tile
+     * @param maxGap the maximum number of bytes between two ranges for them to be merged
+     * @param maxRangeLength the maximum length of a merged range. Ranges longer than this are not split.
+     */
+    public ContiguousRangeComposer(long initialRangeStart, long initialRangeEnd, long maxGap, long maxRangeLength) {
+        this.maxGap = maxGap;
+        this.maxRangeLength = maxRangeLength;
+        ranges.add(new long[] {initialRangeStart, initialRangeEnd});
+    }
+
+    /**
+     * Accepts a start and end byte position for a tile. The range is merged with the others when {@link #getRanges()}
+     * is called.
      *
      * @param start the start byte position
      * @param end the end byte position
      */
     public void addTileRange(long start, long end) {
         tileAdded = true;
-
-        if (start == currentRangeEnd + 1) {
-            // this tile starts where the last one left off
-            currentRangeEnd = end;
-        } else {
-            // this tile is in a new position.  add the current range and start a new one.
-            ranges.add(new long[] {currentRangeStart, currentRangeEnd});
-            currentRangeStart = start;
-            currentRangeEnd = end;
-        }
+        ranges.add(new long[] {start, end});
     }
 
     /**
-     * Returns the set of ranges. Note that the addTileRange method only adds a range to the list if the range was not
-     * contiguous
+     * Returns the set of ranges, sorted by start offset. Overlapping and contiguous ranges are merged, as well as
+     * ranges whose gap is small enough, provided the resulting range does not get longer than the configured maximum.
      *
-     * @return
+     * @return the merged ranges, or an empty set if no tile range has been added
      */
     public Set<long[]> getRanges() {
-        if (tileAdded) {
-            Set<long[]> rangeCopy = new HashSet<>(ranges);
-            rangeCopy.add(new long[] {currentRangeStart, currentRangeEnd});
-            return rangeCopy;
+        if (!tileAdded) {
+            return Collections.emptySet();
         }
 
-        return Collections.EMPTY_SET;
+        List<long[]> sorted = new ArrayList<>(ranges);
+        sorted.sort(Comparator.comparingLong(range -> range[0]));
+
+        Set<long[]> merged = new LinkedHashSet<>();
+        long currentRangeStart = sorted.get(0)[0];
+        long currentRangeEnd = sorted.get(0)[1];
+        for (int i = 1; i < sorted.size(); i++) {
+            long start = sorted.get(i)[0];
+            long end = sorted.get(i)[1];
+            long mergedEnd = Math.max(currentRangeEnd, end);
+            long gap = start - currentRangeEnd - 1;
+            if (gap < 0 || (gap <= maxGap && mergedEnd - currentRangeStart + 1 <= maxRangeLength)) {
+                // overlapping, or close enough to be worth reading the gap bytes along
+                currentRangeEnd = mergedEnd;
+            } else {
+                merged.add(new long[] {currentRangeStart, currentRangeEnd});
+                currentRangeStart = start;
+                currentRangeEnd = end;
+            }
+        }
+        merged.add(new long[] {currentRangeStart, currentRangeEnd});
+        return merged;
+    }
+
+    public long getMaxGap() {
+        return maxGap;
+    }
+
+    public long getMaxRangeLength() {
+        return maxRangeLength;
     }
 }
@@ -0,0 +1,90 @@
+/*
+ *    ImageI/O-Ext - OpenSource Java Image translation Library
+ *    http://www.geo-solutions.it/
+ *    https://github.com/geosolutions-it/imageio-ext
+ *    (C) 2026, GeoSolutions
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    either version 3 of the License, or (at your option) any later version.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package it.geosolutions.imageioimpl.plugins.cog;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keeps track of the latencies of the most recent range requests and reports a percentile of them, used to decide when
+ * a slow request should be hedged. The percentile is recomputed every few recorded samples, rather than at each lookup.
+ */
+public class RangeLatencyTracker {
+
+    /** Number of recorded samples between two percentile computations */
+    static final int REFRESH_INTERVAL = 16;
+
+    private final long[] samples;
+    private final int minSamples;
+    private final double percentile;
+    private int count;
+    private int next;
+    private int sinceRefresh;
+    private long value = -1;
+
+    /**
+     * @param windowSize the number of recent samples to consider
+     * @param minSamples the number of samples needed before a percentile is reported
+     * @param percentile the percentile to report, between 0 and 100
+     */
+    public RangeLatencyTracker(int windowSize, int minSamples, double percentile) {
+        if (windowSize <= 0 || minSamples > windowSize) {
+            throw new IllegalArgumentException(
+                    "Invalid window size " + windowSize + " for " + minSamples + " minimum samples");
+        }
+        if (percentile < 0 || percentile > 100) {
+            throw new IllegalArgumentException("Invalid percentile " + percentile);
+        }
+        this.samples = new long[windowSize];
+        this.minSamples = Math.max(1, minSamples);
+        this.percentile = percentile;
+    }
+
+    /** Records the latency of a completed request, in nanoseconds */
+    public synchronized void record(long latencyNanos) {
+        samples[next] = latencyNanos;
+        next = (next + 1) % samples.length;
+        if (count < samples.length) {
+            count++;
+        }
+        if (++sinceRefresh >= REFRESH_INTERVAL || value < 0) {
+            refresh();
+        }
+    }
+
+    private void refresh() {
+        sinceRefresh = 0;
+        if (count < minSamples) {
+            value = -1;
+            return;
+        }
+        long[] sorted = Arrays.copyOf(samples, count);
+        Arrays.sort(sorted);
+        int index = (int) Math.ceil(percentile / 100d * count) - 1;
+        value = sorted[Math.max(0, Math.min(index, count - 1))];
+    }
+
+    /** @return the latency percentile in milliseconds, or -1 if not enough samples have been recorded yet */
+    public synchronized long getPercentileMillis() {
+        return value < 0 ? -1 : TimeUnit.NANOSECONDS.toMillis(value);
+    }
+
+    /** @return the number of samples currently considered */
+    public synchronized int getCount() {
+        return count;
+    }
+}
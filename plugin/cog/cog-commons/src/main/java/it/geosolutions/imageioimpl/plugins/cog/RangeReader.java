@@ -19,7 +19,9 @@ package it.geosolutions.imageioimpl.plugins.cog;
 import java.net.MalformedURLException;
 import java.net.URL;
 import java.util.Collection;
+import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * Defines methods that should be implemented by classes that support remotely reading tile ranges.
@@ -68,6 +70,33 @@ public interface RangeReader {
      */
     Map<Long, byte[]> read(Collection<long[]> ranges);
 
+    /**
+     * Asynchronously reads the byte ranges specified in the parameter, returning as soon as the reads have been
+     * submitted. Each future completes independently as soon as the bytes of its own range are available, allowing the
+     * caller to start processing the first ranges while the others are still being read.
+     *
+     * <p>The default implementation simply wraps the results of {@link #read(long[]...)}, implementations supporting
+     * asynchronous reads should override it.
+     *
+     * @param ranges a 2D array of start/end byte locations to be read
+     * @return Map of start range positions to futures of the byte arrays for the provided range
+     */
+    default Map<Long, CompletableFuture<byte[]>> readAsync(long[]... ranges) {
+        Map<Long, CompletableFuture<byte[]>> futures = new HashMap<>();
+        read(ranges).forEach((start, bytes) -> futures.put(start, CompletableFuture.completedFuture(bytes)));
+        return futures;
+    }
+
+    /**
+     * Asynchronously reads the byte ranges specified in the parameter, see {@link #readAsync(long[]...)}.
+     *
+     * @param ranges a collection of long arrays containing the start/end byte locations to be read
+     * @return Map of start range positions to futures of the byte arrays for the provided range
+     */
+    default Map<Long, CompletableFuture<byte[]>> readAsync(Collection<long[]> ranges) {
+        return readAsync(ranges.toArray(new long[][] {}));
+    }
+
     /**
      * read the first piece of a COG header given the provided header length.
      *
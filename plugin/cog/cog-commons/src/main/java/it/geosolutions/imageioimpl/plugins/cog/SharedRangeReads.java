@@ -0,0 +1,120 @@
+/*
+ *    ImageI/O-Ext - OpenSource Java Image translation Library
+ *    http://www.geo-solutions.it/
+ *    https://github.com/geosolutions-it/imageio-ext
+ *    (C) 2026, GeoSolutions
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    either version 3 of the License, or (at your option) any later version.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package it.geosolutions.imageioimpl.plugins.cog;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * Keeps track of the range reads in flight, by dataset, so that concurrent readers asking for a range contained in one
+ * already being read share that read rather than issuing a new request. Only reads in flight are tracked, each one is
+ * forgotten as soon as it completes.
+ */
+final class SharedRangeReads {
+
+    private static final class Read {
+        final long end;
+        final CompletableFuture<byte[]> future = new CompletableFuture<>();
+
+        Read(long end) {
+            this.end = end;
+        }
+    }
+
+    /** The reads in flight by dataset and start offset, several reads can start at the same offset */
+    private final Map<String, NavigableMap<Long, List<Read>>> reads = new HashMap<>();
+
+    private final AtomicLong sharedCount = new AtomicLong();
+
+    /**
+     * Reads the range, joining a read in flight for the same dataset if it contains the range.
+     *
+     * @param dataset identifies the dataset being read
+     * @param range the range to read
+     * @param fetcher issues the read of a range, when not already in flight
+     * @return the future of the range bytes. Cancelling it does not affect the other readers sharing the read.
+     */
+    CompletableFuture<byte[]> read(String dataset, long[] range, Function<long[], CompletableFuture<byte[]>> fetcher) {
+        final long start = range[0];
+        final long end = range[1];
+        Read read;
+        synchronized (this) {
+            NavigableMap<Long, List<Read>> datasetReads = reads.computeIfAbsent(dataset, k -> new TreeMap<>());
+            // any read starting at or before the range might cover it, not just the closest one
+            for (Map.Entry<Long, List<Read>> entry :
+                    datasetReads.headMap(start, true).descendingMap().entrySet()) {
+                for (Read candidate : entry.getValue()) {
+                    if (candidate.end >= end) {
+                        sharedCount.incrementAndGet();
+                        long readStart = entry.getKey();
+                        return candidate.future.thenApply(bytes -> slice(bytes, readStart, start, end));
+                    }
+                }
+            }
+            read = new Read(end);
+            datasetReads.computeIfAbsent(start, k -> new ArrayList<>(1)).add(read);
+        }
+
+        final Read started = read;
+        CompletableFuture<byte[]> fetch;
+        try {
+            fetch = fetcher.apply(range);
+        } catch (RuntimeException e) {
+            fetch = CompletableFuture.failedFuture(e);
+        }
+        fetch.whenComplete((bytes, t) -> {
+            synchronized (this) {
+                NavigableMap<Long, List<Read>> datasetReads = reads.get(dataset);
+                List<Read> startReads = datasetReads != null ? datasetReads.get(start) : null;
+                if (startReads != null && startReads.remove(started) && startReads.isEmpty()) {
+                    datasetReads.remove(start);
+                    if (datasetReads.isEmpty()) {
+                        reads.remove(dataset);
+                    }
+                }
+            }
+            if (t != null) {
+                started.future.completeExceptionally(t);
+            } else {
+                started.future.complete(bytes);
+            }
+        });
+        return started.future.thenApply(bytes -> bytes);
+    }
+
+    private static byte[] slice(byte[] bytes, long readStart, long start, long end) {
+        int from = (int) Math.min(start - readStart, bytes.length);
+        int to = (int) Math.min(end - readStart + 1, bytes.length);
+        if (from == 0 && to == bytes.length) {
+            return bytes;
+        }
+        return Arrays.copyOfRange(bytes, from, to);
+    }
+
+    /** @return the number of reads that joined a read already in flight */
+    long getSharedCount() {
+        return sharedCount.get();
+    }
+}
@@ -19,7 +19,8 @@ package it.geosolutions.imageioimpl.plugins.cog;
 import java.io.Serializable;
 
 /**
- * A simple cache key for tiles requiring the image URL and the tile index.
+ * A simple cache key for tiles requiring the image URL and the tile index. The tile byte offset, when known, is part of
+ * the key too, to tell apart tiles having the same index in different images (e.g., overviews) of the same file.
  *
  * @author joshfix Created on 2019-09-18
  */
@@ -27,10 +28,16 @@ public class TileCacheEntryKey implements Serializable {
 
     private String url;
     private int tileIndex;
+    private long offset;
 
     public TileCacheEntryKey(String url, int tileIndex) {
+        this(url, tileIndex, -1);
+    }
+
+    public TileCacheEntryKey(String url, int tileIndex, long offset) {
         this.url = url;
         this.tileIndex = tileIndex;
+        this.offset = offset;
     }
 
     public String getUrl() {
@@ -41,9 +48,13 @@ public class TileCacheEntryKey implements Serializable {
         return tileIndex;
     }
 
+    public long getOffset() {
+        return offset;
+    }
+
     @Override
     public String toString() {
-        return String.format("TileCacheEntry[url: %s, tile index: %d]", url, tileIndex);
+        return String.format("TileCacheEntry[url: %s, tile index: %d, offset: %d]", url, tileIndex, offset);
     }
 
     @Override
@@ -57,7 +68,7 @@ public class TileCacheEntryKey implements Serializable {
 
         TileCacheEntryKey that = (TileCacheEntryKey) o;
 
-        if (!url.equals(that.url) || tileIndex != that.tileIndex) {
+        if (!url.equals(that.url) || tileIndex != that.tileIndex || offset != that.offset) {
             return false;
         }
         return true;
@@ -67,6 +78,7 @@ public class TileCacheEntryKey implements Serializable {
     public int hashCode() {
         int result = url.hashCode();
         result = 31 * result + tileIndex;
+        result = 31 * result + Long.hashCode(offset);
         return result;
     }
 }
@@ -0,0 +1,102 @@
+/*
+ *    ImageI/O-Ext - OpenSource Java Image translation Library
+ *    http://www.geo-solutions.it/
+ *    https://github.com/geosolutions-it/imageio-ext
+ *    (C) 2026, GeoSolutions
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    either version 3 of the License, or (at your option) any later version.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package it.geosolutions.imageio.cog;
+
+import it.geosolutions.imageioimpl.plugins.cog.CogHeaderLayout;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+import org.junit.Assert;
+import org.junit.Test;
+
+/** Testing the computation of the header length from the IFDs layout. */
+public class CogHeaderLayoutTest {
+
+    /** Builds a classic TIFF with an IFD holding TileOffsets and TileByteCounts, and a second IFD */
+    private byte[] classicTiff(ByteOrder order) {
+        ByteBuffer buffer = ByteBuffer.allocate(8000).order(order);
+        buffer.put(order == ByteOrder.LITTLE_ENDIAN ? (byte) 'I' : (byte) 'M');
+        buffer.put(order == ByteOrder.LITTLE_ENDIAN ? (byte) 'I' : (byte) 'M');
+        buffer.putShort((short) 42).putInt(8);
+        // first IFD, TileOffsets and TileByteCounts, 500 LONG values each
+        buffer.putShort((short) 2);
+        buffer.putShort((short) 324).putShort((short) 4).putInt(500).putInt(3000);
+        buffer.putShort((short) 325).putShort((short) 4).putInt(500).putInt(5000);
+        buffer.putInt(7000);
+        // second IFD at 7000, an inline value and 100 SHORT values at 7100
+        buffer.position(7000);
+        buffer.putShort((short) 2);
+        buffer.putShort((short) 256).putShort((short) 3).putInt(1).putInt(512);
+        buffer.putShort((short) 324).putShort((short) 3).putInt(100).putInt(7100);
+        buffer.putInt(0);
+        return buffer.array();
+    }
+
+    @Test
+    public void classicTiff() {
+        for (ByteOrder order : new ByteOrder[] {ByteOrder.LITTLE_ENDIAN, ByteOrder.BIG_ENDIAN}) {
+            byte[] tiff = classicTiff(order);
+            // the second IFD is not available, its size is estimated
+            long required = CogHeaderLayout.getRequiredLength(Arrays.copyOf(tiff, 1024));
+            Assert.assertTrue(required > 7000);
+            // once available, the exact size is known
+            Assert.assertEquals(7300, CogHeaderLayout.getRequiredLength(Arrays.copyOf(tiff, (int) required)));
+            Assert.assertEquals(7300, CogHeaderLayout.getRequiredLength(tiff));
+        }
+    }
+
+    @Test
+    public void bigTiff() {
+        ByteBuffer buffer = ByteBuffer.allocate(2048).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.put((byte) 'I')
+                .put((byte) 'I')
+                .putShort((short) 43)
+                .putShort((short) 8)
+                .putShort((short) 0);
+        buffer.putLong(16);
+        // one IFD with 100 LONG8 TileOffsets at 1000
+        buffer.putLong(1);
+        buffer.putShort((short) 324).putShort((short) 16).putLong(100).putLong(1000);
+        buffer.putLong(0);
+        Assert.assertEquals(1800, CogHeaderLayout.getRequiredLength(buffer.array()));
+        // the TileOffsets values are not needed when loaded lazily
+        Assert.assertEquals(52, CogHeaderLayout.getRequiredLength(buffer.array(), true));
+        // the IFD entries are not available
+        Assert.assertEquals(52, CogHeaderLayout.getRequiredLength(Arrays.copyOf(buffer.array(), 30)));
+    }
+
+    @Test
+    public void farIfds() {
+        // a TIFF whose second IFD follows the image data, as in files not laid out as COGs
+        ByteBuffer buffer = ByteBuffer.allocate(1024).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.put((byte) 'I').put((byte) 'I').putShort((short) 42).putInt(8);
+        buffer.putShort((short) 2);
+        buffer.putShort((short) 324).putShort((short) 4).putInt(100).putInt(100);
+        // GDAL metadata after the image data as well
+        buffer.putShort((short) 42112).putShort((short) 2).putInt(400).putInt(30000);
+        buffer.putInt(50000);
+        Assert.assertEquals(500, CogHeaderLayout.getRequiredLength(buffer.array(), false, 1000));
+        Assert.assertEquals(
+                50000 + 2 + 32 * 12 + 4, CogHeaderLayout.getRequiredLength(buffer.array(), false, Long.MAX_VALUE));
+    }
+
+    @Test
+    public void notTiff() {
+        Assert.assertEquals(-1, CogHeaderLayout.getRequiredLength(new byte[] {'G', 'I', 'F', '8', '9', 'a', 0, 0}));
+        Assert.assertEquals(-1, CogHeaderLayout.getRequiredLength(new byte[4]));
+    }
+}
@@ -61,4 +61,52 @@ public class RangeBuilderTest {
         // verify the byte length of the range
         Assert.assertEquals(tileRange2End - initialRangeStart, ranges.get(0)[1] - ranges.get(0)[0]);
     }
+
+    @Test
+    public void sortRanges() {
+        // tiles added out of order are still merged when contiguous, and returned sorted by offset
+        ContiguousRangeComposer rangeBuilder = new ContiguousRangeComposer(0, 99);
+        rangeBuilder.addTileRange(500, 599);
+        rangeBuilder.addTileRange(200, 299);
+        rangeBuilder.addTileRange(100, 199);
+        rangeBuilder.addTileRange(600, 699);
+        List<long[]> ranges = new ArrayList<>(rangeBuilder.getRanges());
+        Assert.assertEquals(2, ranges.size());
+        Assert.assertArrayEquals(new long[] {0, 299}, ranges.get(0));
+        Assert.assertArrayEquals(new long[] {500, 699}, ranges.get(1));
+    }
+
+    @Test
+    public void mergeRangesWithGaps() {
+        ContiguousRangeComposer rangeBuilder = new ContiguousRangeComposer(0, 99, 50, Long.MAX_VALUE);
+        // 50 bytes gap, merged
+        rangeBuilder.addTileRange(150, 199);
+        // 51 bytes gap, not merged
+        rangeBuilder.addTileRange(251, 299);
+        // overlapping, merged
+        rangeBuilder.addTileRange(280, 320);
+        List<long[]> ranges = new ArrayList<>(rangeBuilder.getRanges());
+        Assert.assertEquals(2, ranges.size());
+        Assert.assertArrayEquals(new long[] {0, 199}, ranges.get(0));
+        Assert.assertArrayEquals(new long[] {251, 320}, ranges.get(1));
+    }
+
+    @Test
+    public void limitMergedRangeLength() {
+        ContiguousRangeComposer rangeBuilder = new ContiguousRangeComposer(0, 99, 10, 250);
+        rangeBuilder.addTileRange(100, 199);
+        rangeBuilder.addTileRange(205, 299);
+        // a single range longer than the limit is not split
+        rangeBuilder.addTileRange(300, 999);
+        List<long[]> ranges = new ArrayList<>(rangeBuilder.getRanges());
+        Assert.assertEquals(3, ranges.size());
+        Assert.assertArrayEquals(new long[] {0, 199}, ranges.get(0));
+        Assert.assertArrayEquals(new long[] {205, 299}, ranges.get(1));
+        Assert.assertArrayEquals(new long[] {300, 999}, ranges.get(2));
+    }
+
+    @Test
+    public void noTilesNoRanges() {
+        Assert.assertTrue(new ContiguousRangeComposer(0, 99).getRanges().isEmpty());
+    }
 }
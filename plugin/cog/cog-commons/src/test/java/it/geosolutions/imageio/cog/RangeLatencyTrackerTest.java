@@ -0,0 +1,61 @@
+/*
+ *    ImageI/O-Ext - OpenSource Java Image translation Library
+ *    http://www.geo-solutions.it/
+ *    https://github.com/geosolutions-it/imageio-ext
+ *    (C) 2026, GeoSolutions
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    either version 3 of the License, or (at your option) any later version.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package it.geosolutions.imageio.cog;
+
+import static org.junit.Assert.assertEquals;
+
+import it.geosolutions.imageioimpl.plugins.cog.RangeLatencyTracker;
+import org.junit.Test;
+
+public class RangeLatencyTrackerTest {
+
+    private static final long MS = 1_000_000;
+
+    @Test
+    public void testNotEnoughSamples() {
+        RangeLatencyTracker tracker = new RangeLatencyTracker(100, 10, 95);
+        for (int i = 0; i < 9; i++) {
+            tracker.record(10 * MS);
+        }
+        assertEquals(-1, tracker.getPercentileMillis());
+        tracker.record(10 * MS);
+        assertEquals(10, tracker.getPercentileMillis());
+    }
+
+    @Test
+    public void testPercentile() {
+        RangeLatencyTracker tracker = new RangeLatencyTracker(100, 4, 90);
+        for (int i = 1; i <= 100; i++) {
+            tracker.record(i * MS);
+        }
+        assertEquals(90, tracker.getPercentileMillis());
+    }
+
+    @Test
+    public void testWindow() {
+        RangeLatencyTracker tracker = new RangeLatencyTracker(32, 10, 50);
+        for (int i = 0; i < 32; i++) {
+            tracker.record(500 * MS);
+        }
+        // the old samples slide out of the window
+        for (int i = 0; i < 32; i++) {
+            tracker.record(5 * MS);
+        }
+        assertEquals(32, tracker.getCount());
+        assertEquals(5, tracker.getPercentileMillis());
+    }
+}
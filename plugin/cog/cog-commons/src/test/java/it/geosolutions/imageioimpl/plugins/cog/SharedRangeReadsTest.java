@@ -0,0 +1,114 @@
+/*
+ *    ImageI/O-Ext - OpenSource Java Image translation Library
+ *    http://www.geo-solutions.it/
+ *    https://github.com/geosolutions-it/imageio-ext
+ *    (C) 2026, GeoSolutions
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    either version 3 of the License, or (at your option) any later version.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package it.geosolutions.imageioimpl.plugins.cog;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import org.junit.Test;
+
+public class SharedRangeReadsTest {
+
+    private static final String DATASET = "http://localhost/test.tif";
+
+    private final byte[] content = new byte[1000];
+
+    private final SharedRangeReads reads = new SharedRangeReads();
+
+    /** The reads actually issued, completed on demand */
+    private final List<long[]> fetched = new ArrayList<>();
+
+    private final List<CompletableFuture<byte[]>> pending = new ArrayList<>();
+
+    public SharedRangeReadsTest() {
+        for (int i = 0; i < content.length; i++) {
+            content[i] = (byte) i;
+        }
+    }
+
+    private CompletableFuture<byte[]> read(long start, long end) {
+        return reads.read(DATASET, new long[] {start, end}, range -> {
+            fetched.add(range);
+            CompletableFuture<byte[]> future = new CompletableFuture<>();
+            pending.add(future);
+            return future;
+        });
+    }
+
+    private void completeAll() {
+        for (int i = 0; i < pending.size(); i++) {
+            long[] range = fetched.get(i);
+            pending.get(i).complete(Arrays.copyOfRange(content, (int) range[0], (int) range[1] + 1));
+        }
+    }
+
+    private byte[] expected(long start, long end) {
+        return Arrays.copyOfRange(content, (int) start, (int) end + 1);
+    }
+
+    @Test
+    public void testJoinCoveringRead() throws Exception {
+        CompletableFuture<byte[]> small = read(50, 60);
+        CompletableFuture<byte[]> large = read(0, 99);
+        assertEquals(2, fetched.size());
+
+        // the closest read in flight does not cover the range, the earlier one does
+        CompletableFuture<byte[]> joined = read(55, 90);
+        assertEquals(2, fetched.size());
+        assertEquals(1, reads.getSharedCount());
+
+        completeAll();
+        assertArrayEquals(expected(0, 99), large.get());
+        assertArrayEquals(expected(50, 60), small.get());
+        assertArrayEquals(expected(55, 90), joined.get());
+    }
+
+    @Test
+    public void testSameStart() throws Exception {
+        CompletableFuture<byte[]> small = read(0, 10);
+        CompletableFuture<byte[]> large = read(0, 99);
+        assertEquals(2, fetched.size());
+
+        // the longer read starting at the same offset can be joined too
+        CompletableFuture<byte[]> joined = read(0, 50);
+        assertEquals(2, fetched.size());
+        assertEquals(1, reads.getSharedCount());
+
+        completeAll();
+        assertArrayEquals(expected(0, 10), small.get());
+        assertArrayEquals(expected(0, 99), large.get());
+        assertArrayEquals(expected(0, 50), joined.get());
+    }
+
+    @Test
+    public void testCompletedReadsForgotten() throws Exception {
+        read(0, 10);
+        read(0, 99);
+        completeAll();
+
+        // nothing in flight anymore, a new read is issued
+        CompletableFuture<byte[]> again = read(0, 5);
+        assertEquals(3, fetched.size());
+        completeAll();
+        assertArrayEquals(expected(0, 5), again.get());
+        assertEquals(0, reads.getSharedCount());
+    }
+}
@@ -22,12 +22,10 @@ import it.geosolutions.imageio.core.BasicAuthURI;
 import java.net.MalformedURLException;
 import java.net.URI;
 import java.net.URL;
-import java.util.ArrayList;
 import java.util.Collection;
-import java.util.List;
+import java.util.HashMap;
 import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.Future;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
@@ -128,6 +126,7 @@ public class AzureRangeReader extends AbstractRangeReader {
         BlobRange range = buildRange(headerOffset, headerLength);
         try {
             byte[] headerBytes = client.getBytes(blobKey, range);
+            headerBytes = completeHeader(headerBytes);
             data.put(0L, headerBytes);
             HEADERS_CACHE.put(uri.toString(), headerBytes);
             return headerBytes;
@@ -139,37 +138,37 @@ public class AzureRangeReader extends AbstractRangeReader {
 
     @Override
     public Map<Long, byte[]> read(long[]... ranges) {
+        Map<Long, byte[]> values = new HashMap<>();
+        awaitCompletion(values, readAsync(ranges));
+        return values;
+    }
+
+    @Override
+    public Map<Long, CompletableFuture<byte[]>> readAsync(long[]... ranges) {
         ranges = reconcileRanges(ranges);
 
-        Map<Long, byte[]> values = new ConcurrentHashMap<>();
-        List<Future<?>> futures = new ArrayList<>();
+        Map<Long, CompletableFuture<byte[]>> futures = new HashMap<>();
         for (int i = 0; i < ranges.length; i++) {
             long[] range = ranges[i];
             final long rangeStart = range[0];
             final byte[] dataRange = data.get(rangeStart);
             // Check for available data.
             if (dataRange == null) {
-                Future<?> future = EXECUTORS.submit(() -> {
-                    final long rangeEnd = range[1];
-                    int length = (int) (rangeEnd - rangeStart) + 1;
-                    byte[] bytes = readInternal(rangeStart, length);
-                    data.put(rangeStart, bytes);
-                    values.put(rangeStart, bytes);
-                });
-                futures.add(future);
+                // blocking reads can't be aborted, a cancelled hedged request just gets ignored
+                CompletableFuture<byte[]> future = readShared(
+                                range,
+                                r -> CompletableFuture.supplyAsync(
+                                        () -> readInternal(r[0], (int) (r[1] - r[0]) + 1), EXECUTORS))
+                        .thenApply(bytes -> {
+                            data.put(rangeStart, bytes);
+                            return bytes;
+                        });
+                futures.put(rangeStart, future);
             } else {
-                values.put(rangeStart, dataRange);
+                futures.put(rangeStart, CompletableFuture.completedFuture(dataRange));
             }
         }
-        for (Future<?> future : futures) {
-            try {
-                future.get();
-            } catch (Exception e) {
-                throw new RuntimeException("Failed to read data from Azure Blob Storage", e);
-            }
-        }
-
-        return values;
+        return futures;
     }
 
     byte[] readInternal(long readOffset, int readLength) {
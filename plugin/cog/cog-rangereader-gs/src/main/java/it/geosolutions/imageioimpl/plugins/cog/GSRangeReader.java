@@ -24,13 +24,10 @@ import java.net.MalformedURLException;
 import java.net.URI;
 import java.net.URL;
 import java.nio.ByteBuffer;
-import java.util.ArrayList;
 import java.util.Collection;
-import java.util.List;
+import java.util.HashMap;
 import java.util.Map;
 import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.Future;
 import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
@@ -169,6 +166,7 @@ public class GSRangeReader extends AbstractRangeReader {
         }
 
         byte[] headerBytes = readInternal(headerOffset, headerLength);
+        headerBytes = completeHeader(headerBytes);
         data.put(0L, headerBytes);
         HEADERS_CACHE.put(uri.toString(), headerBytes);
         return headerBytes;
@@ -176,68 +174,36 @@ public class GSRangeReader extends AbstractRangeReader {
 
     @Override
     public Map<Long, byte[]> read(long[]... ranges) {
+        Map<Long, byte[]> values = new HashMap<>();
+        awaitCompletion(values, readAsync(ranges));
+        return values;
+    }
+
+    @Override
+    public Map<Long, CompletableFuture<byte[]>> readAsync(long[]... ranges) {
         ranges = reconcileRanges(ranges);
 
-        Map<Long, byte[]> values = new ConcurrentHashMap<>();
-        List<Future<?>> futures = new ArrayList<>();
+        Map<Long, CompletableFuture<byte[]>> futures = new HashMap<>();
         for (int i = 0; i < ranges.length; i++) {
             long[] range = ranges[i];
             final long rangeStart = range[0];
             final byte[] dataRange = data.get(rangeStart);
             // Check for available data.
             if (dataRange == null) {
-                Future<?> future = EXECUTORS.submit(() -> {
-                    final long rangeEnd = range[1];
-                    int length = (int) (rangeEnd - rangeStart) + 1;
-                    byte[] bytes = readInternal(rangeStart, length);
-                    data.put(rangeStart, bytes);
-                    values.put(rangeStart, bytes);
-                });
-                futures.add(future);
+                // blocking reads can't be aborted, a cancelled hedged request just gets ignored
+                CompletableFuture<byte[]> future = readShared(
+                                range,
+                                r -> CompletableFuture.supplyAsync(
+                                        () -> readInternal(r[0], (int) (r[1] - r[0]) + 1), EXECUTORS))
+                        .thenApply(bytes -> {
+                            data.put(rangeStart, bytes);
+                            return bytes;
+                        });
+                futures.put(rangeStart, future);
             } else {
-                values.put(rangeStart, dataRange);
-            }
-        }
-        for (Future<?> future : futures) {
-            try {
-                future.get();
-            } catch (Exception e) {
-                throw new RuntimeException("Failed to read data from Google Storage", e);
-            }
-        }
-
-        return values;
-    }
-
-    /**
-     * Blocks until all ranges have been read and written to the ByteBuffer
-     *
-     * @param data
-     * @param downloads
-     */
-    protected void awaitCompletion(Map<Long, byte[]> data, Map<Long, CompletableFuture<byte[]>> downloads) {
-        boolean stillWaiting = true;
-        List<Long> completed = new ArrayList<>(downloads.size());
-        while (stillWaiting) {
-            boolean allDone = true;
-            for (Map.Entry<Long, CompletableFuture<byte[]>> entry : downloads.entrySet()) {
-                long key = entry.getKey();
-                CompletableFuture<byte[]> future = entry.getValue();
-                if (future.isDone()) {
-                    if (!completed.contains(key)) {
-                        try {
-                            data.put(key, future.get());
-                            completed.add(key);
-                        } catch (Exception e) {
-                            LOGGER.warning("Unable to write data from S3 to the destination " + "ByteBuffer. "
-                                    + e.getMessage());
-                        }
-                    }
-                } else {
-                    allDone = false;
-                }
+                futures.put(rangeStart, CompletableFuture.completedFuture(dataRange));
             }
-            stillWaiting = !allDone;
         }
+        return futures;
     }
 }
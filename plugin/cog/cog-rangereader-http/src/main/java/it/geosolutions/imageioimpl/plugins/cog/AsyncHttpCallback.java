@@ -17,13 +17,22 @@
 package it.geosolutions.imageioimpl.plugins.cog;
 
 import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
 import java.util.logging.Logger;
 import okhttp3.Call;
 import okhttp3.Callback;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
 import okhttp3.Response;
 
 /**
- * Callback for asynchronous HTTP requests for OkHttp
+ * Callback for asynchronous HTTP requests for OkHttp. Rather than being polled, the callback completes a
+ * {@link CompletableFuture} once the range bytes have been received, so that callers can either block on it or chain
+ * further processing. Failed requests are re-enqueued from within the callback itself, waiting an exponentially growing
+ * backoff delay between attempts, until the configured number of retries is exhausted. A retry still in flight is
+ * cancelled as soon as the future completes, e.g., when cancelled because the other side of a hedged read won.
  *
  * @author joshfix Created on 2019-09-24
  */
@@ -35,35 +44,118 @@ public class AsyncHttpCallback implements Callback {
         IN_PROGRESS;
     }
 
-    private Status status = Status.IN_PROGRESS;
+    private final CompletableFuture<byte[]> future = new CompletableFuture<>();
+    private OkHttpClient client;
+    private Request retryRequest;
+    private int maxRetries;
+    private long backoff;
+    private int attempts;
     private long startPosition;
     private long endPosition;
-    private byte[] bytes;
+    private volatile Call retryCall;
     private static final Logger LOGGER = Logger.getLogger(AsyncHttpCallback.class.getName());
 
+    public AsyncHttpCallback() {
+        future.whenComplete((bytes, t) -> cancelRetry());
+    }
+
     @Override
     public void onFailure(Call call, IOException e) {
-        LOGGER.severe("Error executing HTTP request. " + e);
-        status = Status.FAILED;
+        finished(call);
+        retryOrFail(e);
     }
 
     @Override
     public void onResponse(Call call, Response response) throws IOException {
-        try {
-            bytes = response.body().bytes();
-            status = Status.DONE;
+        finished(call);
+        try (Response r = response) {
+            if (!r.isSuccessful()) {
+                IOException e = new IOException("Unable to read range " + startPosition + "-" + endPosition + " from "
+                        + call.request().url() + ". Code: " + r.code() + ". Reason: " + r.message());
+                // client errors won't get any better by asking again
+                if (r.code() >= 500 || r.code() == 429) {
+                    retryOrFail(e);
+                } else {
+                    future.completeExceptionally(e);
+                }
+                return;
+            }
+            future.complete(r.body().bytes());
         } catch (IOException ioe) {
-            status = Status.FAILED;
-            throw ioe;
+            retryOrFail(ioe);
         }
     }
 
-    public Status getStatus() {
-        return status;
+    /**
+     * Re-enqueues the request after the backoff delay if retries are still available, otherwise completes the future
+     * exceptionally.
+     */
+    private void retryOrFail(IOException e) {
+        if (future.isDone()) {
+            // cancelled, nothing left to do
+            return;
+        }
+        if (client == null || attempts >= maxRetries) {
+            LOGGER.severe("Error executing HTTP request. " + e);
+            future.completeExceptionally(e);
+            return;
+        }
+        long delay = backoff << Math.min(attempts, 16);
+        attempts++;
+        if (LOGGER.isLoggable(Level.FINE)) {
+            LOGGER.fine("Retrying range " + startPosition + "-" + endPosition + " in " + delay + "ms (attempt "
+                    + attempts + " of " + maxRetries + "). " + e);
+        }
+        CompletableFuture.delayedExecutor(delay, TimeUnit.MILLISECONDS).execute(() -> {
+            if (!future.isDone()) {
+                Call call = client.newCall(retryRequest);
+                retryCall = call;
+                call.enqueue(this);
+                if (future.isDone()) {
+                    // completed in the meantime
+                    call.cancel();
+                }
+            }
+        });
     }
 
-    public void resetStatus() {
-        status = Status.IN_PROGRESS;
+    /** Forgets about a retry request once it has been answered, so that it does not get cancelled */
+    private void finished(Call call) {
+        if (call == retryCall) {
+            retryCall = null;
+        }
+    }
+
+    /** Cancels the retry request in flight, if any */
+    private void cancelRetry() {
+        Call call = retryCall;
+        if (call != null) {
+            call.cancel();
+        }
+    }
+
+    /**
+     * Enables retries on failure.
+     *
+     * @param client the client used to re-enqueue the request
+     * @param retryRequest the request to be issued on retry
+     * @param maxRetries the maximum number of retries
+     * @param backoff the delay before the first retry, in milliseconds. Doubles at each subsequent retry.
+     * @return this callback
+     */
+    public AsyncHttpCallback withRetries(OkHttpClient client, Request retryRequest, int maxRetries, long backoff) {
+        this.client = client;
+        this.retryRequest = retryRequest;
+        this.maxRetries = maxRetries;
+        this.backoff = backoff;
+        return this;
+    }
+
+    public Status getStatus() {
+        if (!future.isDone()) {
+            return Status.IN_PROGRESS;
+        }
+        return future.isCompletedExceptionally() ? Status.FAILED : Status.DONE;
     }
 
     public AsyncHttpCallback initRange(long[] range) {
@@ -80,7 +172,13 @@ public class AsyncHttpCallback implements Callback {
         return endPosition;
     }
 
+    /** Returns the future that will be completed with the range bytes, or exceptionally if the read failed. */
+    public CompletableFuture<byte[]> getFuture() {
+        return future;
+    }
+
+    /** Returns the bytes read, or null if the request has not (successfully) completed yet. */
     public byte[] getBytes() {
-        return bytes;
+        return future.isDone() && !future.isCompletedExceptionally() ? future.join() : null;
     }
 }
@@ -16,23 +16,44 @@
  */
 package it.geosolutions.imageioimpl.plugins.cog;
 
+import java.lang.management.ManagementFactory;
 import java.net.Proxy;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
 import okhttp3.ConnectionPool;
 import okhttp3.Dispatcher;
 import okhttp3.OkHttpClient;
+import okhttp3.Protocol;
 
 /**
  * Utility class to assist building OkHttp client. OkHttp clients should be singletons and re-used.
  *
+ * <p>The dispatcher, connection pool, timeouts and protocols are set up from {@link HttpConfigurationProperties}, which
+ * can be replaced at runtime through {@link #setConfiguration(HttpConfigurationProperties)}. The client activity is
+ * published over JMX as {@value #METRICS_OBJECT_NAME}.
+ *
  * @author joshfix Created on 10/23/19
  */
 public class HttpClientFactory {
 
+    private static final Logger LOGGER = Logger.getLogger(HttpClientFactory.class.getName());
+
+    public static final String METRICS_OBJECT_NAME = "it.geosolutions.imageio.cog:type=HttpClientMetrics";
+
     private static OkHttpClient client;
     private static HttpConfigurationProperties configProps = new HttpConfigurationProperties();
+    private static final HttpClientMetrics metrics = new HttpClientMetrics();
+
+    static {
+        registerMetrics();
+    }
 
-    public static OkHttpClient getClient() {
+    public static synchronized OkHttpClient getClient() {
         if (client != null) {
             return client;
         }
@@ -43,8 +64,17 @@ public class HttpClientFactory {
         ConnectionPool connectionPool = new ConnectionPool(
                 configProps.getMaxIdleConnections(), configProps.getKeepAliveDuration(), TimeUnit.SECONDS);
 
-        OkHttpClient.Builder clientBuilder =
-                new OkHttpClient.Builder().dispatcher(dispatcher).connectionPool(connectionPool);
+        OkHttpClient.Builder clientBuilder = new OkHttpClient.Builder()
+                .dispatcher(dispatcher)
+                .connectionPool(connectionPool)
+                .eventListener(metrics)
+                .connectTimeout(configProps.getConnectTimeout(), TimeUnit.SECONDS)
+                .readTimeout(configProps.getReadTimeout(), TimeUnit.SECONDS)
+                .callTimeout(configProps.getCallTimeout(), TimeUnit.SECONDS)
+                .protocols(
+                        configProps.isPreferHttp2()
+                                ? Arrays.asList(Protocol.HTTP_2, Protocol.HTTP_1_1)
+                                : Collections.singletonList(Protocol.HTTP_1_1));
 
         Proxy proxy = configProps.getHttpProxy();
         if (proxy != null) {
@@ -52,6 +82,43 @@ public class HttpClientFactory {
         }
 
         client = clientBuilder.build();
+        metrics.bind(dispatcher, connectionPool);
         return client;
     }
+
+    /** @return the configuration used to build the client */
+    public static synchronized HttpConfigurationProperties getConfiguration() {
+        return configProps;
+    }
+
+    /**
+     * Replaces the configuration used to build the client. The next call to {@link #getClient()} builds a new client,
+     * while the previous one gets shut down: the requests already queued or in flight complete, then its threads and
+     * idle connections are released.
+     */
+    public static synchronized void setConfiguration(HttpConfigurationProperties configProps) {
+        HttpClientFactory.configProps = configProps;
+        if (client != null) {
+            client.dispatcher().executorService().shutdown();
+            client.connectionPool().evictAll();
+            client = null;
+        }
+    }
+
+    /** @return the metrics of the client, as published over JMX */
+    public static HttpClientMetricsMBean getMetrics() {
+        return metrics;
+    }
+
+    private static void registerMetrics() {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName name = new ObjectName(METRICS_OBJECT_NAME);
+            if (!server.isRegistered(name)) {
+                server.registerMBean(metrics, name);
+            }
+        } catch (Exception | LinkageError e) {
+            LOGGER.log(Level.FINE, "Unable to register the HTTP client metrics over JMX", e);
+        }
+    }
 }
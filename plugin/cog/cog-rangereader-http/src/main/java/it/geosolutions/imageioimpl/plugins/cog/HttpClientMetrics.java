@@ -0,0 +1,146 @@
+/*
+ *    ImageI/O-Ext - OpenSource Java Image translation Library
+ *    http://www.geo-solutions.it/
+ *    https://github.com/geosolutions-it/imageio-ext
+ *    (C) 2026, GeoSolutions
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    either version 3 of the License, or (at your option) any later version.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package it.geosolutions.imageioimpl.plugins.cog;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import okhttp3.Call;
+import okhttp3.ConnectionPool;
+import okhttp3.Dispatcher;
+import okhttp3.EventListener;
+
+/**
+ * Collects the metrics of the shared OkHttp client. Call and transfer counters are gathered by listening to the client
+ * events, while the queue and pool sizes are read from the dispatcher and connection pool the metrics are bound to. The
+ * throughput is averaged over a sliding window of {@link #WINDOW_SECONDS} seconds.
+ */
+public class HttpClientMetrics extends EventListener implements HttpClientMetricsMBean {
+
+    static final int WINDOW_SECONDS = 10;
+
+    private volatile Dispatcher dispatcher;
+    private volatile ConnectionPool connectionPool;
+
+    private final AtomicLong totalRequests = new AtomicLong();
+    private final AtomicLong failedRequests = new AtomicLong();
+    private final AtomicLong bytesRead = new AtomicLong();
+
+    private final long[] windowBytes = new long[WINDOW_SECONDS];
+    private final long[] windowSeconds = new long[WINDOW_SECONDS];
+
+    /** Binds the metrics to the dispatcher and connection pool of the current client. */
+    void bind(Dispatcher dispatcher, ConnectionPool connectionPool) {
+        this.dispatcher = dispatcher;
+        this.connectionPool = connectionPool;
+    }
+
+    @Override
+    public void callStart(Call call) {
+        totalRequests.incrementAndGet();
+    }
+
+    @Override
+    public void callFailed(Call call, IOException ioe) {
+        failedRequests.incrementAndGet();
+    }
+
+    @Override
+    public void responseBodyEnd(Call call, long byteCount) {
+        bytesRead.addAndGet(byteCount);
+        addToWindow(byteCount, currentSecond());
+    }
+
+    private static long currentSecond() {
+        return TimeUnit.NANOSECONDS.toSeconds(System.nanoTime());
+    }
+
+    synchronized void addToWindow(long bytes, long second) {
+        int slot = (int) Math.floorMod(second, (long) WINDOW_SECONDS);
+        if (windowSeconds[slot] != second) {
+            windowSeconds[slot] = second;
+            windowBytes[slot] = 0;
+        }
+        windowBytes[slot] += bytes;
+    }
+
+    synchronized double getBytesPerSecond(long second) {
+        long total = 0;
+        for (int i = 0; i < WINDOW_SECONDS; i++) {
+            if (second - windowSeconds[i] < WINDOW_SECONDS) {
+                total += windowBytes[i];
+            }
+        }
+        return (double) total / WINDOW_SECONDS;
+    }
+
+    @Override
+    public int getQueuedRequests() {
+        Dispatcher dispatcher = this.dispatcher;
+        return dispatcher != null ? dispatcher.queuedCallsCount() : 0;
+    }
+
+    @Override
+    public int getRunningRequests() {
+        Dispatcher dispatcher = this.dispatcher;
+        return dispatcher != null ? dispatcher.runningCallsCount() : 0;
+    }
+
+    @Override
+    public int getMaxRequests() {
+        Dispatcher dispatcher = this.dispatcher;
+        return dispatcher != null ? dispatcher.getMaxRequests() : 0;
+    }
+
+    @Override
+    public int getMaxRequestsPerHost() {
+        Dispatcher dispatcher = this.dispatcher;
+        return dispatcher != null ? dispatcher.getMaxRequestsPerHost() : 0;
+    }
+
+    @Override
+    public int getConnectionCount() {
+        ConnectionPool connectionPool = this.connectionPool;
+        return connectionPool != null ? connectionPool.connectionCount() : 0;
+    }
+
+    @Override
+    public int getIdleConnectionCount() {
+        ConnectionPool connectionPool = this.connectionPool;
+        return connectionPool != null ? connectionPool.idleConnectionCount() : 0;
+    }
+
+    @Override
+    public long getTotalRequests() {
+        return totalRequests.get();
+    }
+
+    @Override
+    public long getFailedRequests() {
+        return failedRequests.get();
+    }
+
+    @Override
+    public long getBytesRead() {
+        return bytesRead.get();
+    }
+
+    @Override
+    public double getBytesPerSecond() {
+        return getBytesPerSecond(currentSecond());
+    }
+}
@@ -0,0 +1,54 @@
+/*
+ *    ImageI/O-Ext - OpenSource Java Image translation Library
+ *    http://www.geo-solutions.it/
+ *    https://github.com/geosolutions-it/imageio-ext
+ *    (C) 2026, GeoSolutions
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    either version 3 of the License, or (at your option) any later version.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package it.geosolutions.imageioimpl.plugins.cog;
+
+/**
+ * JMX view over the shared OkHttp client used for COG range reads, reporting the dispatcher load and the transfer
+ * throughput.
+ */
+public interface HttpClientMetricsMBean {
+
+    /** @return the number of calls waiting for a dispatcher slot, either global or per host */
+    int getQueuedRequests();
+
+    /** @return the number of calls currently in flight */
+    int getRunningRequests();
+
+    /** @return the maximum number of concurrent calls */
+    int getMaxRequests();
+
+    /** @return the maximum number of concurrent calls against a single host */
+    int getMaxRequestsPerHost();
+
+    /** @return the number of open connections in the pool */
+    int getConnectionCount();
+
+    /** @return the number of idle connections in the pool */
+    int getIdleConnectionCount();
+
+    /** @return the number of calls started so far */
+    long getTotalRequests();
+
+    /** @return the number of calls that failed so far */
+    long getFailedRequests();
+
+    /** @return the number of response body bytes read so far */
+    long getBytesRead();
+
+    /** @return the average number of response body bytes read per second, over the last few seconds */
+    double getBytesPerSecond();
+}
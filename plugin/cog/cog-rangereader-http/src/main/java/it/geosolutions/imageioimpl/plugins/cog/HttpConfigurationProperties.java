@@ -25,6 +25,9 @@ import java.net.SocketAddress;
  * settings and if not found, will fallback to attempting to read system properties. If still not found, the provided
  * default values will be used.
  *
+ * <p>Timeouts are expressed in seconds, a value of 0 meaning no timeout. HTTP/2 is negotiated when preferred and
+ * supported by the server, otherwise only HTTP/1.1 is used.
+ *
  * @author joshfix Created on 10/23/19
  */
 public class HttpConfigurationProperties {
@@ -35,6 +38,10 @@ public class HttpConfigurationProperties {
     private int keepAliveDuration;
     private String httpProxyHost;
     private int httpProxyPort;
+    private int connectTimeout;
+    private int readTimeout;
+    private int callTimeout;
+    private boolean preferHttp2;
 
     public final String HTTP_MAX_REQUESTS = "IIO_HTTP_MAX_REQUESTS";
     public final String HTTP_MAX_REQUESTS_PER_HOST = "IIO_HTTP_MAX_REQUESTS_PER_HOST";
@@ -42,6 +49,10 @@ public class HttpConfigurationProperties {
     public final String HTTP_KEEP_ALIVE_TIME = "IIO_HTTP_KEEP_ALIVE_TIME";
     public final String HTTP_PROXY_HOST = "HTTP_PROXY_HOST";
     public final String HTTP_PROXY_PORT = "HTTP_PROXY_PORT";
+    public final String HTTP_CONNECT_TIMEOUT = "IIO_HTTP_CONNECT_TIMEOUT";
+    public final String HTTP_READ_TIMEOUT = "IIO_HTTP_READ_TIMEOUT";
+    public final String HTTP_CALL_TIMEOUT = "IIO_HTTP_CALL_TIMEOUT";
+    public final String HTTP_PREFER_HTTP2 = "IIO_HTTP_PREFER_HTTP2";
 
     public HttpConfigurationProperties() {
         maxRequests = Integer.parseInt(PropertyLocator.getEnvironmentValue(HTTP_MAX_REQUESTS, "128"));
@@ -50,24 +61,81 @@ public class HttpConfigurationProperties {
         keepAliveDuration = Integer.parseInt(PropertyLocator.getEnvironmentValue(HTTP_KEEP_ALIVE_TIME, "60"));
         httpProxyHost = PropertyLocator.getEnvironmentValue(HTTP_PROXY_HOST, null);
         httpProxyPort = Integer.parseInt(PropertyLocator.getEnvironmentValue(HTTP_PROXY_PORT, "3128"));
+        connectTimeout = Integer.parseInt(PropertyLocator.getEnvironmentValue(HTTP_CONNECT_TIMEOUT, "10"));
+        readTimeout = Integer.parseInt(PropertyLocator.getEnvironmentValue(HTTP_READ_TIMEOUT, "10"));
+        callTimeout = Integer.parseInt(PropertyLocator.getEnvironmentValue(HTTP_CALL_TIMEOUT, "0"));
+        preferHttp2 = Boolean.parseBoolean(PropertyLocator.getEnvironmentValue(HTTP_PREFER_HTTP2, "true"));
     }
 
     public int getMaxRequests() {
         return maxRequests;
     }
 
+    public void setMaxRequests(int maxRequests) {
+        this.maxRequests = maxRequests;
+    }
+
     public int getMaxRequestsPerHost() {
         return maxRequestsPerHost;
     }
 
+    public void setMaxRequestsPerHost(int maxRequestsPerHost) {
+        this.maxRequestsPerHost = maxRequestsPerHost;
+    }
+
     public int getMaxIdleConnections() {
         return maxIdleConnections;
     }
 
+    public void setMaxIdleConnections(int maxIdleConnections) {
+        this.maxIdleConnections = maxIdleConnections;
+    }
+
     public int getKeepAliveDuration() {
         return keepAliveDuration;
     }
 
+    public void setKeepAliveDuration(int keepAliveDuration) {
+        this.keepAliveDuration = keepAliveDuration;
+    }
+
+    public int getConnectTimeout() {
+        return connectTimeout;
+    }
+
+    public void setConnectTimeout(int connectTimeout) {
+        this.connectTimeout = connectTimeout;
+    }
+
+    public int getReadTimeout() {
+        return readTimeout;
+    }
+
+    public void setReadTimeout(int readTimeout) {
+        this.readTimeout = readTimeout;
+    }
+
+    public int getCallTimeout() {
+        return callTimeout;
+    }
+
+    public void setCallTimeout(int callTimeout) {
+        this.callTimeout = callTimeout;
+    }
+
+    public boolean isPreferHttp2() {
+        return preferHttp2;
+    }
+
+    public void setPreferHttp2(boolean preferHttp2) {
+        this.preferHttp2 = preferHttp2;
+    }
+
+    public void setHttpProxy(String httpProxyHost, int httpProxyPort) {
+        this.httpProxyHost = httpProxyHost;
+        this.httpProxyPort = httpProxyPort;
+    }
+
     public Proxy getHttpProxy() {
         if (httpProxyHost != null) {
             SocketAddress addr = new InetSocketAddress(this.httpProxyHost, this.httpProxyPort);
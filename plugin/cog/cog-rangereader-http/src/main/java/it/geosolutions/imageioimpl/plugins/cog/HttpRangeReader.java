@@ -22,11 +22,10 @@ import java.net.URI;
 import java.net.URL;
 import java.time.Duration;
 import java.time.Instant;
-import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
-import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 import java.util.logging.Logger;
 import okhttp3.*;
 
@@ -42,9 +41,14 @@ public class HttpRangeReader extends AbstractRangeReader {
 
     private static final int MAX_RETRIES;
 
+    /** Delay in milliseconds before the first retry of a failed range request, doubled at each further retry */
+    private static final long RETRY_BACKOFF;
+
     static {
         String maxRetries = System.getProperty("it.geosolutions.cog.http.maxretries", "5");
         MAX_RETRIES = Integer.parseInt(maxRetries);
+        String retryBackoff = System.getProperty("it.geosolutions.cog.http.retry.backoff", "100");
+        RETRY_BACKOFF = Long.parseLong(retryBackoff);
     }
 
     private static final Logger LOGGER = Logger.getLogger(HttpRangeReader.class.getName());
@@ -69,6 +73,12 @@ public class HttpRangeReader extends AbstractRangeReader {
         client = HttpClientFactory.getClient();
     }
 
+    /** Returns the shared client, switching to a new one when the configuration has been replaced */
+    protected OkHttpClient getClient() {
+        client = HttpClientFactory.getClient();
+        return client;
+    }
+
     @Override
     public byte[] readHeader() {
         LOGGER.fine("reading header");
@@ -79,7 +89,7 @@ public class HttpRangeReader extends AbstractRangeReader {
         }
         Request request = buildRequest(new long[] {headerOffset, (headerOffset + headerLength - 1)}, null);
 
-        try (Response response = client.newCall(request).execute()) {
+        try (Response response = getClient().newCall(request).execute()) {
             if (!response.isSuccessful()) {
                 throw new IOException("Unable to read header for " + uri + ". " + "Code: " + response.code()
                         + ". Reason: " + response.message());
@@ -87,6 +97,7 @@ public class HttpRangeReader extends AbstractRangeReader {
 
             // get the header bytes
             byte[] headerBytes = response.body().bytes();
+            headerBytes = completeHeader(headerBytes);
             data.put(0L, headerBytes);
             HEADERS_CACHE.put(uri.toString(), headerBytes);
             return headerBytes;
@@ -105,7 +116,7 @@ public class HttpRangeReader extends AbstractRangeReader {
 
         Request request = buildRequest(new long[] {headerOffset, (headerOffset + headerLength - 1)}, null);
 
-        try (Response response = client.newCall(request).execute()) {
+        try (Response response = getClient().newCall(request).execute()) {
             if (!response.isSuccessful()) {
                 throw new IOException("Unable to read header for " + uri + ". " + "Code: " + response.code()
                         + ". Reason: " + response.message());
@@ -136,82 +147,58 @@ public class HttpRangeReader extends AbstractRangeReader {
 
     @Override
     public Map<Long, byte[]> read(long[]... ranges) {
-        ranges = reconcileRanges(ranges);
-        if (ranges.length == 0) {
+        Instant start = Instant.now();
+        Map<Long, CompletableFuture<byte[]>> futures = readAsync(ranges);
+        if (futures.isEmpty()) {
             return data;
         }
-
-        Instant start = Instant.now();
-        List<AsyncHttpCallback> callbacks = new ArrayList<>(ranges.length);
         Map<Long, byte[]> values = new HashMap<>();
-        int missingRanges[] = new int[ranges.length];
-        int missing = 0;
+        awaitCompletion(values, futures);
+        Instant end = Instant.now();
+        LOGGER.fine("Time to read all ranges: " + Duration.between(start, end));
+        return values;
+    }
 
+    /**
+     * Asynchronously reads the specified ranges. Ranges already available are returned as completed futures, failed
+     * requests are retried with backoff before completing the related future exceptionally.
+     */
+    @Override
+    public Map<Long, CompletableFuture<byte[]>> readAsync(long[]... ranges) {
+        ranges = reconcileRanges(ranges);
+        Map<Long, CompletableFuture<byte[]>> futures = new HashMap<>();
         for (int i = 0; i < ranges.length; i++) {
-            byte[] dataRange = data.get(ranges[i][0]);
+            final long rangeStart = ranges[i][0];
+            byte[] dataRange = data.get(rangeStart);
             // check for available data
             if (dataRange == null) {
-                Call call = client.newCall(buildRequest(ranges[i], null));
-                AsyncHttpCallback callback = new AsyncHttpCallback().initRange(ranges[i]);
-                call.enqueue(callback);
-                callbacks.add(callback);
-                // Mark the range as missing
-                missingRanges[missing++] = i;
+                futures.put(rangeStart, readShared(ranges[i], this::readRange).thenApply(bytes -> {
+                    data.put(rangeStart, bytes);
+                    return bytes;
+                }));
             } else {
-                values.put(ranges[i][0], dataRange);
+                futures.put(rangeStart, CompletableFuture.completedFuture(dataRange));
             }
         }
-
-        awaitCompletion(values, callbacks);
-        Instant end = Instant.now();
-        LOGGER.fine("Time to read all ranges: " + Duration.between(start, end));
-        for (int k = 0; k < missing; k++) {
-            long range = ranges[missingRanges[k]][0];
-            data.put(range, values.get(range));
-        }
-        return values;
+        return futures;
     }
 
-    /**
-     * Blocks until all ranges have been read and written to the ByteBuffer
-     *
-     * @param data
-     * @param callbacks
-     */
-    protected void awaitCompletion(Map<Long, byte[]> data, List<AsyncHttpCallback> callbacks) {
-        boolean stillWaiting = true;
-        List<Long> completed = new ArrayList<>(callbacks.size());
-        int attempts = 0;
-        while (stillWaiting) {
-            boolean allDone = true;
-            for (AsyncHttpCallback callback : callbacks) {
-                AsyncHttpCallback.Status status = callback.getStatus();
-                if (status == AsyncHttpCallback.Status.DONE) {
-                    if (!completed.contains(callback.getStartPosition())) {
-                        try {
-                            data.put(callback.getStartPosition(), callback.getBytes());
-                            completed.add(callback.getStartPosition());
-                        } catch (Exception e) {
-                            LOGGER.severe("An error occurred while writing the contents of the HTTP response "
-                                    + "to the final ByteBuffer.  " + e.getMessage());
-                        }
-                    }
-                } else if (status == AsyncHttpCallback.Status.FAILED) {
-                    // Re-enqueue
-                    if (attempts < MAX_RETRIES) {
-                        long[] range = new long[] {callback.getStartPosition(), callback.getEndPosition()};
-                        callback.resetStatus();
-                        Call call = client.newCall(buildRequest(range, "*/*"));
-                        call.enqueue(callback);
-                        allDone = false;
-                        attempts++;
-                    }
-                } else {
-                    allDone = false;
-                }
+    /** Issues the request for a single range. Cancelling the returned future cancels the HTTP call. */
+    private CompletableFuture<byte[]> readRange(long[] range) {
+        Request request = buildRequest(range, null);
+        OkHttpClient client = getClient();
+        AsyncHttpCallback callback = new AsyncHttpCallback()
+                .initRange(range)
+                .withRetries(client, buildRequest(range, "*/*"), MAX_RETRIES, RETRY_BACKOFF);
+        Call call = client.newCall(request);
+        call.enqueue(callback);
+        CompletableFuture<byte[]> future = callback.getFuture();
+        future.whenComplete((bytes, t) -> {
+            if (future.isCancelled()) {
+                call.cancel();
             }
-            stillWaiting = !allDone;
-        }
+        });
+        return future;
     }
 
     protected Request buildRequest(long[] range, String accept) {
@@ -0,0 +1,273 @@
+/*
+ *    ImageI/O-Ext - OpenSource Java Image translation Library
+ *    http://www.geo-solutions.it/
+ *    https://github.com/geosolutions-it/imageio-ext
+ *    (C) 2026, GeoSolutions
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    either version 3 of the License, or (at your option) any later version.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package it.geosolutions.imageio.cog;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import com.sun.net.httpserver.HttpServer;
+import it.geosolutions.imageioimpl.plugins.cog.AsyncHttpCallback;
+import it.geosolutions.imageioimpl.plugins.cog.HttpClientFactory;
+import it.geosolutions.imageioimpl.plugins.cog.HttpClientMetricsMBean;
+import it.geosolutions.imageioimpl.plugins.cog.HttpConfigurationProperties;
+import it.geosolutions.imageioimpl.plugins.cog.HttpRangeReader;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.net.InetSocketAddress;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+import javax.management.ObjectName;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/** Tests the HTTP range reader against a local HTTP server, including retries of failed requests. */
+public class HttpRangeReaderTest {
+
+    private static final int HEADER_LENGTH = 1024;
+
+    private HttpServer server;
+    private byte[] content;
+    private AtomicInteger failures = new AtomicInteger();
+    private AtomicInteger requests = new AtomicInteger();
+    private int status = 503;
+    private AtomicInteger stalls = new AtomicInteger();
+    private long stallMillis = 5000;
+
+    @Before
+    public void setup() throws IOException {
+        content = new byte[16384];
+        for (int i = 0; i < content.length; i++) {
+            content[i] = (byte) (i * 31);
+        }
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/test.tif", exchange -> {
+            requests.incrementAndGet();
+            if (failures.getAndDecrement() > 0) {
+                exchange.sendResponseHeaders(status, -1);
+                exchange.close();
+                return;
+            }
+            if (stalls.getAndDecrement() > 0) {
+                try {
+                    Thread.sleep(stallMillis);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            String[] range =
+                    exchange.getRequestHeaders().getFirst("range").substring(6).split("-");
+            int start = Integer.parseInt(range[0]);
+            int end = Math.min(Integer.parseInt(range[1]), content.length - 1);
+            exchange.sendResponseHeaders(206, end - start + 1);
+            try (OutputStream os = exchange.getResponseBody()) {
+                os.write(content, start, end - start + 1);
+            }
+        });
+        server.setExecutor(Executors.newCachedThreadPool());
+        server.start();
+    }
+
+    @After
+    public void teardown() {
+        server.stop(0);
+        HttpRangeReader.invalidateCache();
+    }
+
+    private HttpRangeReader getReader() {
+        String url = "http://localhost:" + server.getAddress().getPort() + "/test.tif";
+        HttpRangeReader reader = new HttpRangeReader(url, HEADER_LENGTH);
+        reader.readHeader();
+        return reader;
+    }
+
+    @Test
+    public void testReadRanges() {
+        HttpRangeReader reader = getReader();
+        Map<Long, byte[]> data = reader.read(new long[] {2000, 2999}, new long[] {5000, 5499});
+        assertArrayEquals(Arrays.copyOfRange(content, 2000, 3000), data.get(2000L));
+        assertArrayEquals(Arrays.copyOfRange(content, 5000, 5500), data.get(5000L));
+    }
+
+    @Test
+    public void testReadAsync() {
+        HttpRangeReader reader = getReader();
+        Map<Long, CompletableFuture<byte[]>> futures = reader.readAsync(new long[] {3000, 3999});
+        assertEquals(1, futures.size());
+        assertArrayEquals(
+                Arrays.copyOfRange(content, 3000, 4000), futures.get(3000L).join());
+
+        // now cached, no new request is issued
+        int issued = requests.get();
+        futures = reader.readAsync(new long[] {3000, 3999});
+        assertTrue(futures.get(3000L).isDone());
+        assertEquals(issued, requests.get());
+    }
+
+    @Test
+    public void testRetryOnServerError() {
+        HttpRangeReader reader = getReader();
+        failures.set(2);
+        Map<Long, byte[]> data = reader.read(new long[] {4000, 4999});
+        assertArrayEquals(Arrays.copyOfRange(content, 4000, 5000), data.get(4000L));
+    }
+
+    @Test
+    public void testNoRetryOnClientError() {
+        HttpRangeReader reader = getReader();
+        int issued = requests.get();
+        status = 404;
+        failures.set(1);
+        try {
+            reader.read(new long[] {4000, 4999});
+            fail("Expected a failure");
+        } catch (RuntimeException e) {
+            assertEquals(issued + 1, requests.get());
+        }
+    }
+
+    @Test
+    public void testMetrics() throws Exception {
+        HttpClientMetricsMBean metrics = HttpClientFactory.getMetrics();
+        HttpRangeReader reader = getReader();
+        long requestsBefore = metrics.getTotalRequests();
+        long bytesBefore = metrics.getBytesRead();
+        reader.read(new long[] {6000, 6999}, new long[] {8000, 8499});
+        assertEquals(requestsBefore + 2, metrics.getTotalRequests());
+        assertEquals(bytesBefore + 1500, metrics.getBytesRead());
+        assertTrue(metrics.getBytesPerSecond() > 0);
+        assertEquals(0, metrics.getQueuedRequests());
+
+        ObjectName name = new ObjectName(HttpClientFactory.METRICS_OBJECT_NAME);
+        Long bytesRead = (Long) ManagementFactory.getPlatformMBeanServer().getAttribute(name, "BytesRead");
+        assertEquals(metrics.getBytesRead(), bytesRead.longValue());
+    }
+
+    @Test
+    public void testConfiguration() {
+        HttpConfigurationProperties original = HttpClientFactory.getConfiguration();
+        HttpRangeReader previous = getReader();
+        OkHttpClient previousClient = HttpClientFactory.getClient();
+        try {
+            HttpConfigurationProperties props = new HttpConfigurationProperties();
+            props.setMaxRequestsPerHost(32);
+            props.setMaxIdleConnections(16);
+            props.setPreferHttp2(false);
+            props.setReadTimeout(30);
+            HttpClientFactory.setConfiguration(props);
+            // the previous client gets shut down
+            assertTrue(previousClient.dispatcher().executorService().isShutdown());
+            assertEquals(0, previousClient.connectionPool().connectionCount());
+            OkHttpClient client = HttpClientFactory.getClient();
+            assertEquals(32, client.dispatcher().getMaxRequestsPerHost());
+            assertEquals(30000, client.readTimeoutMillis());
+            assertEquals(1, client.protocols().size());
+            assertEquals(32, HttpClientFactory.getMetrics().getMaxRequestsPerHost());
+
+            // reads still work through the new client
+            HttpRangeReader reader = getReader();
+            Map<Long, byte[]> data = reader.read(new long[] {2000, 2999});
+            assertArrayEquals(Arrays.copyOfRange(content, 2000, 3000), data.get(2000L));
+            // and so do the readers created before the change
+            data = previous.read(new long[] {3000, 3999});
+            assertArrayEquals(Arrays.copyOfRange(content, 3000, 4000), data.get(3000L));
+        } finally {
+            HttpClientFactory.setConfiguration(original);
+        }
+    }
+
+    @Test
+    public void testHedging() {
+        HttpRangeReader reader = getReader();
+        reader.setHedging(true);
+        // make the usual latency known, so that the stalled request gets hedged early
+        for (int i = 0; i < 100; i++) {
+            reader.getLatencyTracker().record(1_000_000);
+        }
+        long hedged = HttpRangeReader.getHedgedRequestCount();
+        stalls.set(1);
+        long start = System.nanoTime();
+        Map<Long, byte[]> data = reader.read(new long[] {7000, 7999});
+        long elapsed = (System.nanoTime() - start) / 1_000_000;
+        assertArrayEquals(Arrays.copyOfRange(content, 7000, 8000), data.get(7000L));
+        assertEquals(hedged + 1, HttpRangeReader.getHedgedRequestCount());
+        assertTrue("Took " + elapsed + "ms", elapsed < 4000);
+    }
+
+    @Test
+    public void testSharedReads() {
+        HttpRangeReader reader = getReader();
+        HttpRangeReader other = getReader();
+        long shared = HttpRangeReader.getSharedReadCount();
+        int issued = requests.get();
+        stallMillis = 500;
+        stalls.set(1);
+        CompletableFuture<byte[]> future =
+                reader.readAsync(new long[] {9000, 10999}).get(9000L);
+        // contained in the read in flight, from another reader
+        CompletableFuture<byte[]> contained =
+                other.readAsync(new long[] {9500, 9999}).get(9500L);
+        assertArrayEquals(Arrays.copyOfRange(content, 9000, 11000), future.join());
+        assertArrayEquals(Arrays.copyOfRange(content, 9500, 10000), contained.join());
+        assertEquals(issued + 1, requests.get());
+        assertEquals(shared + 1, HttpRangeReader.getSharedReadCount());
+
+        // once completed, the read is no longer shared
+        other.readAsync(new long[] {9600, 9699}).get(9600L).join();
+        assertEquals(issued + 2, requests.get());
+    }
+
+    @Test
+    public void testRetryCancelled() throws Exception {
+        OkHttpClient client = HttpClientFactory.getClient();
+        String url = "http://localhost:" + server.getAddress().getPort() + "/test.tif";
+        Request request =
+                new Request.Builder().url(url).header("Range", "bytes=0-99").build();
+        AsyncHttpCallback callback =
+                new AsyncHttpCallback().initRange(new long[] {0, 99}).withRetries(client, request, 3, 1);
+        int running = client.dispatcher().runningCallsCount();
+        stalls.set(1);
+
+        // a failed attempt gets retried, the retry stalls
+        callback.onFailure(null, new IOException("Failed"));
+        waitFor(() -> requests.get() == 1);
+        assertEquals(running + 1, client.dispatcher().runningCallsCount());
+
+        // e.g., the other side of a hedged read won
+        callback.getFuture().cancel(true);
+        waitFor(() -> client.dispatcher().runningCallsCount() == running);
+    }
+
+    private void waitFor(BooleanSupplier condition) throws InterruptedException {
+        long end = System.currentTimeMillis() + 4000;
+        while (!condition.getAsBoolean()) {
+            if (System.currentTimeMillis() > end) {
+                fail("Condition not met in time");
+            }
+            Thread.sleep(10);
+        }
+    }
+}
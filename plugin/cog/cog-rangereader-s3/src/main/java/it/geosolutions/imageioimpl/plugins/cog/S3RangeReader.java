@@ -118,6 +118,7 @@ public class S3RangeReader extends AbstractRangeReader {
 
             // get the header bytes
             byte[] headerBytes = responseBytes.asByteArray();
+            headerBytes = completeHeader(headerBytes);
             data.put(0L, headerBytes);
             HEADERS_CACHE.put(uri.toString(), headerBytes);
             return headerBytes;
@@ -137,38 +138,49 @@ public class S3RangeReader extends AbstractRangeReader {
 
     @Override
     public Map<Long, byte[]> read(long[]... ranges) {
-        ranges = reconcileRanges(ranges);
-
         Instant start = Instant.now();
-        Map<Long, CompletableFuture<ResponseBytes<GetObjectResponse>>> downloads = new HashMap<>(ranges.length);
-
+        Map<Long, CompletableFuture<byte[]>> downloads = readAsync(ranges);
         Map<Long, byte[]> values = new HashMap<>();
-        int missingRanges[] = new int[ranges.length];
-        int missing = 0;
+        awaitCompletion(values, downloads);
+        Instant end = Instant.now();
+        LOGGER.fine("Time to read all ranges: " + Duration.between(start, end));
+        return values;
+    }
+
+    @Override
+    public Map<Long, CompletableFuture<byte[]>> readAsync(long[]... ranges) {
+        ranges = reconcileRanges(ranges);
+
+        Map<Long, CompletableFuture<byte[]>> downloads = new HashMap<>(ranges.length);
         for (int i = 0; i < ranges.length; i++) {
             final long[] range = ranges[i];
             final long rangeStart = range[0];
             byte[] dataRange = data.get(rangeStart);
             // Check for available data.
             if (dataRange == null) {
-                long rangeEnd = range[1];
-                CompletableFuture<ResponseBytes<GetObjectResponse>> futureGet = readAsync(rangeStart, rangeEnd);
+                CompletableFuture<byte[]> futureGet = readShared(range, this::readRange)
+                        .thenApply(bytes -> {
+                            data.put(rangeStart, bytes);
+                            return bytes;
+                        });
                 downloads.put(rangeStart, futureGet);
-                // Mark the range as missing
-                missingRanges[missing++] = i;
             } else {
-                values.put(rangeStart, dataRange);
+                downloads.put(rangeStart, CompletableFuture.completedFuture(dataRange));
             }
         }
+        return downloads;
+    }
 
-        awaitCompletion(values, downloads);
-        Instant end = Instant.now();
-        LOGGER.fine("Time to read all ranges: " + Duration.between(start, end));
-        for (int k = 0; k < missing; k++) {
-            long range = ranges[missingRanges[k]][0];
-            data.put(range, values.get(range));
-        }
-        return values;
+    /** Issues the request for a single range. Cancelling the returned future aborts the S3 request. */
+    private CompletableFuture<byte[]> readRange(long[] range) {
+        CompletableFuture<ResponseBytes<GetObjectResponse>> response = readAsync(range[0], range[1]);
+        CompletableFuture<byte[]> bytes = response.thenApply(ResponseBytes::asByteArray);
+        bytes.whenComplete((b, t) -> {
+            if (bytes.isCancelled()) {
+                response.cancel(true);
+            }
+        });
+        return bytes;
     }
 
     CompletableFuture<ResponseBytes<GetObjectResponse>> readAsync(final long rangeStart, long rangeEnd) {
@@ -180,39 +192,6 @@ public class S3RangeReader extends AbstractRangeReader {
         return client.getObject(request, AsyncResponseTransformer.toBytes());
     }
 
-    /**
-     * Blocks until all ranges have been read and written to the ByteBuffer
-     *
-     * @param data
-     * @param downloads
-     */
-    protected void awaitCompletion(
-            Map<Long, byte[]> data, Map<Long, CompletableFuture<ResponseBytes<GetObjectResponse>>> downloads) {
-        boolean stillWaiting = true;
-        List<Long> completed = new ArrayList<>(downloads.size());
-        while (stillWaiting) {
-            boolean allDone = true;
-            for (Map.Entry<Long, CompletableFuture<ResponseBytes<GetObjectResponse>>> entry : downloads.entrySet()) {
-                long key = entry.getKey();
-                CompletableFuture<ResponseBytes<GetObjectResponse>> future = entry.getValue();
-                if (future.isDone()) {
-                    if (!completed.contains(key)) {
-                        try {
-                            data.put(key, future.get().asByteArray());
-                            completed.add(key);
-                        } catch (Exception e) {
-                            LOGGER.warning(
-                                    "Unable to write data from S3 to the destination ByteBuffer. " + e.getMessage());
-                        }
-                    }
-                } else {
-                    allDone = false;
-                }
-            }
-            stillWaiting = !allDone;
-        }
-    }
-
     @Override
     public URL getURL() throws MalformedURLException {
         String scheme = uri.getScheme().toLowerCase();
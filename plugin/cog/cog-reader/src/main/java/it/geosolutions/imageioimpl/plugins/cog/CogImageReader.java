@@ -18,6 +18,7 @@ package it.geosolutions.imageioimpl.plugins.cog;
 
 import it.geosolutions.imageio.plugins.cog.CogImageReadParam;
 import it.geosolutions.imageio.plugins.tiff.BaselineTIFFTagSet;
+import it.geosolutions.imageio.plugins.tiff.TIFFImageReadParam;
 import it.geosolutions.imageioimpl.plugins.tiff.TIFFImageReader;
 import java.awt.*;
 import java.awt.image.BufferedImage;
@@ -25,6 +26,7 @@ import java.io.IOException;
 import java.util.logging.Logger;
 import javax.imageio.ImageReadParam;
 import javax.imageio.spi.ImageReaderSpi;
+import javax.imageio.stream.ImageInputStream;
 import org.eclipse.imagen.PlanarImage;
 
 /**
@@ -43,6 +45,15 @@ public class CogImageReader extends TIFFImageReader {
         super(originatingProvider);
     }
 
+    /** Identifies COGs by URL in the shared metadata cache, as their size and modification time are not known */
+    @Override
+    protected String getMetadataCacheKey(ImageInputStream stream) {
+        if (stream instanceof CogImageInputStream) {
+            return ((CogImageInputStream) stream).getUrl();
+        }
+        return super.getMetadataCacheKey(stream);
+    }
+
     @Override
     public BufferedImage read(int imageIndex, ImageReadParam param) throws IOException {
         // if the image input stream isn't a CogImageInputStream, skip all this nonsense and just use the original code
@@ -62,6 +73,14 @@ public class CogImageReader extends TIFFImageReader {
                     + " a valid RangeReader implementation class in the CogImageReadParam.");
         }
 
+        // pick the overview before prefetching, so that only the tiles of the level actually read are fetched
+        if (param instanceof TIFFImageReadParam && ((TIFFImageReadParam) param).isOverviewSelection()) {
+            OverviewSelection overview = selectOverview(imageIndex, (TIFFImageReadParam) param);
+            if (overview != null) {
+                return overview.getReader().read(overview.getImageIndex(), overview.getParam());
+            }
+        }
+
         Rectangle sourceRegion = param.getSourceRegion();
         if (sourceRegion != null) {
             LOGGER.fine("Reading pixels at offset (" + sourceRegion.getX() + ", "
@@ -92,12 +111,21 @@ public class CogImageReader extends TIFFImageReader {
         CogTileInfo cogTileInfoHeader = ((CogImageInputStream) stream).getHeader();
         CogTileInfo cogTileInfo = new CogTileInfo(cogTileInfoHeader.getHeaderLength());
 
-        // loops through each requested tile and complies information about each tile offset and byte length
+        // loops through each requested tile and complies information about each tile offset and byte length,
+        // skipping the tiles strided past by the subsampling
+        int xSubsampling = imageReadParam.getSourceXSubsampling();
+        int ySubsampling = imageReadParam.getSourceYSubsampling();
         if (planarConfiguration == BaselineTIFFTagSet.PLANAR_CONFIGURATION_PLANAR) {
             for (int band = 0; band < sourceBands.length; band++) {
                 int tileBase = sourceBands[band] * tilesAcross * tilesDown;
                 for (int tileY = minTileY; tileY <= maxTileY; tileY++) {
+                    if (!isTileSampled(tileY, tileOrStripHeight, srcRegion.y, srcRegion.height, ySubsampling)) {
+                        continue;
+                    }
                     for (int tileX = minTileX; tileX <= maxTileX; tileX++) {
+                        if (!isTileSampled(tileX, tileOrStripWidth, srcRegion.x, srcRegion.width, xSubsampling)) {
+                            continue;
+                        }
                         int tileIndex = tileBase + tileY * tilesAcross + tileX;
                         long offset = getTileOrStripOffset(tileIndex);
                         long byteLength = getTileOrStripByteCount(tileIndex);
@@ -107,7 +135,13 @@ public class CogImageReader extends TIFFImageReader {
             }
         } else {
             for (int tileY = minTileY; tileY <= maxTileY; tileY++) {
+                if (!isTileSampled(tileY, tileOrStripHeight, srcRegion.y, srcRegion.height, ySubsampling)) {
+                    continue;
+                }
                 for (int tileX = minTileX; tileX <= maxTileX; tileX++) {
+                    if (!isTileSampled(tileX, tileOrStripWidth, srcRegion.x, srcRegion.width, xSubsampling)) {
+                        continue;
+                    }
                     int tileIndex = tileY * tilesAcross + tileX;
                     long offset = getTileOrStripOffset(tileIndex);
                     long byteLength = getTileOrStripByteCount(tileIndex);
@@ -116,11 +150,12 @@ public class CogImageReader extends TIFFImageReader {
             }
         }
         cogTileInfoHeader.setHeaderLength(cogTileInfo.getHeaderLength());
-        // read the ranges and cache them in the image input stream delegate
+        // submit the reads of the ranges, the image input stream delegate will cache them as they arrive
         ((CogImageInputStream) stream).readRanges(cogTileInfo);
 
-        // At this point, the CogImageInputStream has fetched and cached all of the bytes from the requested tiles.
-        // Now we proceed with the legacy TIFFImageReader code.
+        // At this point, the CogImageInputStream is fetching the bytes from the requested tiles, serving each of them
+        // as soon as available. Now we proceed with the legacy TIFFImageReader code, that will decode the first tiles
+        // while the following ones are still being read.
         return super.read(imageIndex, param);
     }
 }
@@ -0,0 +1,154 @@
+/*
+ *    ImageI/O-Ext - OpenSource Java Image translation Library
+ *    http://www.geo-solutions.it/
+ *    https://github.com/geosolutions-it/imageio-ext
+ *    (C) 2026, GeoSolutions
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    either version 3 of the License, or (at your option) any later version.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package it.geosolutions.imageioimpl.plugins.cog;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import it.geosolutions.imageio.core.BasicAuthURI;
+import it.geosolutions.imageio.plugins.cog.CogImageReadParam;
+import it.geosolutions.imageio.plugins.tiff.BaselineTIFFTagSet;
+import it.geosolutions.imageio.plugins.tiff.TIFFField;
+import it.geosolutions.imageioimpl.plugins.tiff.TIFFIFD;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.net.URI;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import javax.imageio.stream.FileImageInputStream;
+import org.junit.ClassRule;
+import org.junit.Test;
+
+/** Checks the byte ranges fetched by {@link CogImageReader} when reading subsampled images from the overviews. */
+public class CogOverviewSelectionTest {
+
+    @ClassRule
+    public static CogTestData testData = new CogTestData();
+
+    /** In memory {@link RangeReader}, keeping track of the ranges it has been asked for */
+    private static class RecordingRangeReader extends AbstractRangeReader {
+
+        final byte[] content;
+
+        final List<long[]> requests = new CopyOnWriteArrayList<>();
+
+        RecordingRangeReader(String uri, byte[] content, int headerLength) {
+            super(new BasicAuthURI(URI.create(uri)), headerLength);
+            this.content = content;
+        }
+
+        private byte[] readRange(long start, long end) {
+            requests.add(new long[] {start, end});
+            return Arrays.copyOfRange(content, (int) start, (int) Math.min(end + 1, content.length));
+        }
+
+        @Override
+        public Map<Long, byte[]> read(long[]... ranges) {
+            Map<Long, byte[]> values = new HashMap<>();
+            for (long[] range : reconcileRanges(ranges)) {
+                values.put(range[0], readRange(range[0], range[1]));
+            }
+            return values;
+        }
+
+        @Override
+        public Map<Long, byte[]> read(Collection<long[]> ranges) {
+            return read(ranges.toArray(new long[][] {}));
+        }
+
+        @Override
+        public byte[] readHeader() {
+            byte[] header = completeHeader(readRange(0, headerLength - 1));
+            data.put(0L, header);
+            return header;
+        }
+
+        @Override
+        public byte[] fetchHeader() {
+            byte[] currentHeader = data.get(0L);
+            if (currentHeader != null) {
+                headerOffset = currentHeader.length;
+            }
+            byte[] headerBytes = readRange(headerOffset, headerOffset + headerLength - 1);
+            if (headerOffset != 0) {
+                byte[] newHeader = new byte[headerBytes.length + currentHeader.length];
+                System.arraycopy(currentHeader, 0, newHeader, 0, currentHeader.length);
+                System.arraycopy(headerBytes, 0, newHeader, currentHeader.length, headerBytes.length);
+                headerBytes = newHeader;
+            }
+            data.put(0L, headerBytes);
+            return headerBytes;
+        }
+    }
+
+    @Test
+    public void testOverviewSelectionSkipsFullResolution() throws IOException {
+        // byte ranges of the full resolution tiles, from the first IFD
+        List<long[]> fullResolutionTiles = new ArrayList<>();
+        try (FileImageInputStream input =
+                new FileImageInputStream(testData.landTopoCog1024().toFile())) {
+            input.setByteOrder(input.readShort() == 0x4949 ? ByteOrder.LITTLE_ENDIAN : ByteOrder.BIG_ENDIAN);
+            input.seek(4);
+            input.seek(input.readUnsignedInt());
+            TIFFIFD ifd = new TIFFIFD(Collections.singletonList(BaselineTIFFTagSet.getInstance()));
+            ifd.initialize(input, true);
+            TIFFField offsets = ifd.getTIFFField(BaselineTIFFTagSet.TAG_TILE_OFFSETS);
+            TIFFField byteCounts = ifd.getTIFFField(BaselineTIFFTagSet.TAG_TILE_BYTE_COUNTS);
+            for (int i = 0; i < offsets.getCount(); i++) {
+                long offset = offsets.getAsLong(i);
+                fullResolutionTiles.add(new long[] {offset, offset + byteCounts.getAsLong(i) - 1});
+            }
+        }
+        assertEquals(2, fullResolutionTiles.size());
+
+        byte[] content = Files.readAllBytes(testData.landTopoCog1024());
+        String uri = "http://localhost/overviewSelection.tif";
+        RecordingRangeReader rangeReader = new RecordingRangeReader(uri, content, 1024);
+        CogImageReader reader = new CogImageReader(new CogImageReaderSpi());
+        try {
+            reader.setInput(new DefaultCogImageInputStream(URI.create(uri), rangeReader));
+            CogImageReadParam param = new CogImageReadParam();
+            param.setSourceSubsampling(2, 2, 0, 0);
+            param.setOverviewSelection(true);
+            BufferedImage image = reader.read(0, param);
+            assertEquals(512, image.getWidth());
+            assertEquals(256, image.getHeight());
+        } finally {
+            reader.dispose();
+        }
+
+        // the image has been read from the overview, no full resolution tile has been fetched
+        assertFalse(rangeReader.requests.isEmpty());
+        for (long[] request : rangeReader.requests) {
+            for (long[] tile : fullResolutionTiles) {
+                assertTrue(
+                        "Fetched " + Arrays.toString(request) + " overlapping the full resolution tile "
+                                + Arrays.toString(tile),
+                        request[1] < tile[0] || request[0] > tile[1]);
+            }
+        }
+    }
+}
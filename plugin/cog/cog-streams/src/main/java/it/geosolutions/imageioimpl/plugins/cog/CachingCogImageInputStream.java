@@ -23,9 +23,14 @@ import it.geosolutions.imageio.plugins.cog.CogImageReadParam;
 import java.io.IOException;
 import java.net.URI;
 import java.net.URL;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.logging.Logger;
 import javax.imageio.stream.ImageInputStreamImpl;
 
@@ -34,6 +39,11 @@ import javax.imageio.stream.ImageInputStreamImpl;
  * utilizes ehcache to cache each tile requested by the TIFFImageReader. All subsequent tile reads will be fetched from
  * cache.
  *
+ * <p>The bytes available for the current request (the header, the cached tiles and the ranges read for the missing
+ * ones) are indexed by their offset in the file, so that each read is served straight from the array holding the
+ * requested position. Tiles are cached as soon as the range holding them has been read, and are keyed by tile index and
+ * offset, so that tiles of different images in the same file do not clash.
+ *
  * <p>NOTE: This is a special use case class and is intended for use ONLY with the CogImageReader. Using this
  * ImageInputStream for other purposes will almost certainly result in errors/failures.
  *
@@ -46,6 +56,10 @@ public class CachingCogImageInputStream extends ImageInputStreamImpl implements
     protected URI uri;
     protected RangeReader rangeReader;
     protected CogTileInfo header;
+    /** The available bytes, keyed by their offset in the file */
+    protected TreeMap<Long, byte[]> segments = new TreeMap<>();
+    /** The ranges still being read, keyed by their offset in the file */
+    protected TreeMap<Long, CompletableFuture<byte[]>> pendingData = new TreeMap<>();
 
     private static final Logger LOGGER = Logger.getLogger(CachingCogImageInputStream.class.getName());
 
@@ -124,12 +138,14 @@ public class CachingCogImageInputStream extends ImageInputStreamImpl implements
         header = new CogTileInfo(headerLength);
 
         // determine if the header has already been cached
-        if (CacheManagement.DEFAULT.headerExists(uri.toString())) {
-            headerLength = CacheManagement.DEFAULT.getHeader(uri.toString()).length;
-            rangeReader.setHeaderLength(headerLength);
+        byte[] headerBytes = CacheManagement.DEFAULT.getHeader(uri.toString());
+        if (headerBytes != null) {
+            rangeReader.setHeaderLength(headerBytes.length);
         } else {
-            CacheManagement.DEFAULT.cacheHeader(uri.toString(), rangeReader.fetchHeader());
+            headerBytes = rangeReader.fetchHeader();
+            CacheManagement.DEFAULT.cacheHeader(uri.toString(), headerBytes);
         }
+        segments.put(0L, headerBytes);
         initialized = true;
     }
 
@@ -138,6 +154,11 @@ public class CachingCogImageInputStream extends ImageInputStreamImpl implements
         return header;
     }
 
+    @Override
+    public String getUrl() {
+        return uri.toString();
+    }
+
     /**
      * TIFFImageReader will read and decode the requested region of the GeoTIFF tile by tile. Because of this, we will
      * not arbitrarily store fixed-length byte chunks in cache, but instead create a cache entry for all the bytes for
@@ -147,26 +168,35 @@ public class CachingCogImageInputStream extends ImageInputStreamImpl implements
      * cached. Tile ranges that are not in cache are submitted to RangeBuilder to build contiguous ranges to be read via
      * HTTP.
      *
-     * <p>Once the contiguous ranges have been read, we obtain the full image-length byte array from the RangeReader.
-     * Then loop through each of the requested tile ranges from CogTileInfo and cache the bytes.
-     *
-     * <p>There are likely lots of optimizations to be made in here.
+     * <p>The contiguous ranges are read asynchronously. As soon as each of them is available, the tiles it contains are
+     * cached, while reads are served from the contiguous range itself. A tile is copied out of the range only when the
+     * range holds more than one tile.
      */
     @Override
     public void readRanges(CogTileInfo cogTileInfo) {
+        // keep the header around, the tiles will be made available as they get read
+        TreeMap<Long, byte[]> newSegments = new TreeMap<>();
+        newSegments.put(0L, segments.get(0L));
+        segments = newSegments;
+        pendingData = new TreeMap<>();
+
         // instantiate the range builder
         ContiguousRangeComposer contiguousRangeComposer =
                 new ContiguousRangeComposer(0, cogTileInfo.getHeaderLength() - 1);
 
         // determine which requested tiles are not in cache and build the required ranges that need to be read (if any)
+        List<TileRange> missingTiles = new ArrayList<>();
         cogTileInfo.getTileRanges().forEach((tileIndex, tileRange) -> {
-            if (tileIndex == HEADER_TILE_INDEX) {
+            if (tileIndex == HEADER_TILE_INDEX || tileRange.getByteLength() <= 0) {
                 return;
             }
 
-            TileCacheEntryKey key = new TileCacheEntryKey(uri.toString(), tileIndex);
-            if (!CacheManagement.DEFAULT.keyExists(key)) {
+            byte[] tileBytes = CacheManagement.DEFAULT.getTile(getKey(tileRange));
+            if (tileBytes != null) {
+                segments.put(tileRange.getStart(), tileBytes);
+            } else {
                 contiguousRangeComposer.addTileRange(tileRange.getStart(), tileRange.getEnd());
+                missingTiles.add(tileRange);
             }
         });
         rangeReader.setHeaderLength(cogTileInfo.getHeaderLength());
@@ -177,63 +207,147 @@ public class CachingCogImageInputStream extends ImageInputStreamImpl implements
             return;
         }
 
-        // read all they byte ranges for tiles that are not in cache
+        // read all they byte ranges for tiles that are not in cache, caching the tiles as soon as they arrive
         LOGGER.fine("Submitting " + ranges.size() + " range request(s)");
-        // Update the headerLength
-        Map<Long, byte[]> data = rangeReader.read(ranges);
+        rangeReader
+                .readAsync(ranges)
+                .forEach((rangeStart, future) -> pendingData.put(
+                        rangeStart, future.thenApply(bytes -> cacheTiles(rangeStart, bytes, missingTiles))));
+    }
 
-        // cache the bytes for each tile
-        cogTileInfo.getTileRanges().forEach((tileIndex, tileRange) -> {
-            if (tileIndex == HEADER_TILE_INDEX) {
-                return;
+    protected TileCacheEntryKey getKey(TileRange tileRange) {
+        return new TileCacheEntryKey(uri.toString(), tileRange.getIndex(), tileRange.getStart());
+    }
+
+    /**
+     * Caches the tiles fully contained in the given contiguous range.
+     *
+     * @return the contiguous range bytes
+     */
+    protected byte[] cacheTiles(long rangeStart, byte[] bytes, List<TileRange> tileRanges) {
+        long rangeEnd = rangeStart + bytes.length - 1;
+        for (TileRange tileRange : tileRanges) {
+            if (tileRange.getStart() < rangeStart || tileRange.getEnd() > rangeEnd) {
+                continue;
+            }
+            byte[] tileBytes = bytes;
+            if (tileRange.getByteLength() != bytes.length) {
+                int relativeOffset = (int) (tileRange.getStart() - rangeStart);
+                tileBytes = Arrays.copyOfRange(bytes, relativeOffset, relativeOffset + (int) tileRange.getByteLength());
+            }
+            CacheManagement.DEFAULT.cacheTile(getKey(tileRange), tileBytes);
+        }
+        return bytes;
+    }
+
+    /**
+     * Waits for the pending range that might contain the specified position (the one with the greatest start offset not
+     * exceeding it) to be read, and makes it available for reading.
+     *
+     * @return true if a pending range has been completed, false if no pending range could contain the position
+     */
+    protected boolean awaitPendingRange(long position) throws IOException {
+        Map.Entry<Long, CompletableFuture<byte[]>> entry = pendingData.floorEntry(position);
+        if (entry == null) {
+            return false;
+        }
+        pendingData.remove(entry.getKey());
+        try {
+            // don't replace a longer header with the one returned by readers not skipping it
+            segments.merge(entry.getKey(), entry.getValue().join(), (a, b) -> a.length >= b.length ? a : b);
+            return true;
+        } catch (CompletionException e) {
+            throw new IOException("Failed to read the COG data range starting at " + entry.getKey(), e.getCause());
+        }
+    }
+
+    /**
+     * Returns the available bytes holding the requested position, waiting for them to be read if needed.
+     *
+     * @return the segment holding the position, or null if not available
+     */
+    protected Map.Entry<Long, byte[]> getSegment(long position) throws IOException {
+        do {
+            // the closest segment starting before the position usually holds it, but segments might overlap
+            for (Map.Entry<Long, byte[]> entry :
+                    segments.headMap(position, true).descendingMap().entrySet()) {
+                if (position < entry.getKey() + entry.getValue().length) {
+                    return entry;
+                }
             }
-            TileCacheEntryKey key = new TileCacheEntryKey(uri.toString(), tileIndex);
-
-            for (Map.Entry<Long, byte[]> entry : data.entrySet()) {
-                long contiguousRangeOffset = entry.getKey();
-                int contiguousRangeLength = (int) contiguousRangeOffset + entry.getValue().length;
-                if (tileRange.getStart() >= contiguousRangeOffset && tileRange.getEnd() < contiguousRangeLength) {
-                    byte[] contiguousBytes = entry.getValue();
-                    long relativeOffset = tileRange.getStart() - contiguousRangeOffset;
-                    byte[] tileBytes =
-                            Arrays.copyOfRange(contiguousBytes, (int) relativeOffset, (int) tileRange.getEnd());
-                    CacheManagement.DEFAULT.cacheTile(key, tileBytes);
+        } while (awaitPendingRange(position));
+        return null;
+    }
+
+    /** Reads bytes that have not been requested through {@link #readRanges(CogTileInfo)} */
+    protected void fetchMissingRange(long position, int len) throws IOException {
+        // On some not optimized COG BigTiff, the TileOffset / TileBytes are inside the header
+        // which might be way greater than the default header length. Let's fetch it
+        byte[] headerBytes = segments.get(0L);
+        if (segments.size() == 1 && pendingData.isEmpty() && position == headerBytes.length) {
+            int stalls = 0;
+            while (position + len > headerBytes.length) {
+                byte[] fetched = rangeReader.fetchHeader();
+                if (fetched.length > headerBytes.length) {
+                    headerBytes = fetched;
+                } else if (++stalls > 1) {
+                    // the first fetch might just re-read a cached header, a second one means there is nothing more
+                    return;
                 }
             }
-        });
+            segments.put(0L, headerBytes);
+            CacheManagement.DEFAULT.cacheHeader(uri.toString(), headerBytes);
+            header.setHeaderLength(headerBytes.length);
+        } else {
+            // bytes not part of the requested tiles, like lazily loaded tile offsets: read them on demand,
+            // along with the following ones, as they are likely to be read next
+            rangeReader
+                    .read(new long[] {position, position + Math.max(len, CogImageReadParam.DEFAULT_HEADER_LENGTH) - 1})
+                    .forEach((start, bytes) -> segments.putIfAbsent(start, bytes));
+        }
     }
 
     @Override
     public int read() throws IOException {
         byte[] b = new byte[1];
-        read(b, 0, 1);
-        return b[0];
+        int read = read(b, 0, 1);
+        return read < 0 ? read : b[0] & 0xff;
     }
 
     @Override
-    public int read(byte[] b, int off, int len) {
-        // based on the stream position, determine which tile we are in and fetch the corresponding TileRange
-        // TODO: CachingCogImageInputStream never worked very well.
-        //  We need to update this section too, when fixing the related ticket
-        TileRange tileRange = header.getTileRange(streamPos);
-
-        // get the bytes from cache for the tile. need to determine if we're reading from the header or a tile.
-        byte[] bytes;
-        switch (tileRange.getIndex()) {
-            case HEADER_TILE_INDEX:
-                bytes = CacheManagement.DEFAULT.getHeader(uri.toString());
-                break;
-            default:
-                TileCacheEntryKey key = new TileCacheEntryKey(uri.toString(), tileRange.getIndex());
-                bytes = CacheManagement.DEFAULT.getTile(key);
-        }
+    public int read(byte[] b, int off, int len) throws IOException {
+        int read = 0;
+        while (read < len) {
+            // based on the stream position, determine which tile or range we are in
+            Map.Entry<Long, byte[]> segment = getSegment(streamPos);
+            if (segment == null) {
+                fetchMissingRange(streamPos, len - read);
+                segment = getSegment(streamPos);
+            }
+            if (segment == null) {
+                LOGGER.severe("The requested offset is not present in the available data.  Requested offset: " + off
+                        + " - requested length: " + len
+                        + " - streamPos: " + streamPos);
+                throw new IOException("No COG data available for the requested byte location.");
+            }
 
-        // translate the overall stream position to the stream position of the fetched tile
-        int relativeStreamPos = (int) (streamPos - tileRange.getStart());
+            // translate the overall stream position to the stream position of the fetched tile
+            int relativeStreamPos = (int) (streamPos - segment.getKey());
 
-        // copy the bytes from the fetched tile into the destination byte array
-        System.arraycopy(bytes, relativeStreamPos, b, off, len);
-        streamPos += len;
+            // copy the bytes from the fetched tile into the destination byte array, a read
+            // might span contiguous segments (e.g., the header and a range read on demand)
+            int length = Math.min(len - read, segment.getValue().length - relativeStreamPos);
+            System.arraycopy(segment.getValue(), relativeStreamPos, b, off + read, length);
+            streamPos += length;
+            read += length;
+        }
         return len;
     }
+
+    @Override
+    public void close() throws IOException {
+        super.close();
+        segments.clear();
+        pendingData.clear();
+    }
 }
@@ -20,19 +20,23 @@ import static it.geosolutions.imageioimpl.plugins.cog.CogTileInfo.HEADER_TILE_IN
 
 import it.geosolutions.imageio.core.BasicAuthURI;
 import it.geosolutions.imageio.plugins.cog.CogImageReadParam;
-import it.geosolutions.imageio.utilities.SoftValueHashMap;
 import java.io.IOException;
 import java.net.URI;
 import java.net.URL;
 import java.util.Map;
 import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.logging.Logger;
 import javax.imageio.stream.ImageInputStreamImpl;
 
 /**
- * ImageInputStream implementation for COG. This class will request all requested ranges be read by the provided
- * RangeReader implementation and store the results in memory. When TIFFImageReader requests tiles, the byte data will
- * be served from the `data` Map.
+ * ImageInputStream implementation for COG. This class will request all requested ranges be read asynchronously by the
+ * provided RangeReader implementation and store the results in memory. When TIFFImageReader requests tiles, the byte
+ * data will be served from the `data` Map, waiting only for the range containing the requested bytes if it has not been
+ * received yet. The `data` Map is sorted by offset, so that the range holding the stream position is looked up with a
+ * floor search, and the last range used is remembered to serve sequential reads without any lookup.
  *
  * <p>NOTE: This is a special use case class and is intended for use ONLY with the CogImageReader. Using this
  * ImageInputStream for other purposes will almost certainly result in errors/failures.
@@ -45,7 +49,12 @@ public class DefaultCogImageInputStream extends ImageInputStreamImpl implements
     protected URI uri;
     protected CogTileInfo header;
     protected RangeReader rangeReader;
-    protected Map<Long, byte[]> data;
+    protected TreeMap<Long, byte[]> data;
+    protected TreeMap<Long, CompletableFuture<byte[]>> pendingData = new TreeMap<>();
+    /** The range that served the last read, and its start offset */
+    protected byte[] lastRange;
+
+    protected long lastRangeStart;
 
     private static final Logger LOGGER = Logger.getLogger(DefaultCogImageInputStream.class.getName());
 
@@ -118,7 +127,7 @@ public class DefaultCogImageInputStream extends ImageInputStreamImpl implements
 
     protected void initializeHeader(int headerLength) {
         header = new CogTileInfo(headerLength);
-        data = new SoftValueHashMap<>(0);
+        data = new TreeMap<>();
         data.put(0L, rangeReader.readHeader());
         initialized = true;
     }
@@ -151,63 +160,132 @@ public class DefaultCogImageInputStream extends ImageInputStreamImpl implements
         Set<long[]> ranges = contiguousRangeComposer.getRanges();
         LOGGER.fine("Submitting " + ranges.size() + " range request(s)");
 
-        data = rangeReader.read(ranges);
+        // keep the header around, the ranges will be made available as they get read
+        TreeMap<Long, byte[]> newData = new TreeMap<>();
+        byte[] headerData = data.get(0L);
+        if (headerData != null) {
+            newData.put(0L, headerData);
+        }
+        data = newData;
+        lastRange = null;
+        pendingData = new TreeMap<>(rangeReader.readAsync(ranges));
     }
 
+    /**
+     * Waits for the pending range that might contain the specified position (the one with the greatest start offset not
+     * exceeding it) to be read, and moves it to the available data.
+     *
+     * @return true if a pending range has been completed, false if no pending range could contain the position
+     */
+    protected boolean awaitPendingRange(long position) throws IOException {
+        Map.Entry<Long, CompletableFuture<byte[]>> entry = pendingData.floorEntry(position);
+        if (entry == null) {
+            return false;
+        }
+        pendingData.remove(entry.getKey());
+        try {
+            // don't replace a longer header with the one returned by readers not skipping it
+            data.merge(entry.getKey(), entry.getValue().join(), (a, b) -> a.length >= b.length ? a : b);
+            return true;
+        } catch (CompletionException e) {
+            throw new IOException("Failed to read the COG data range starting at " + entry.getKey(), e.getCause());
+        }
+    }
+
+    @Override
     public String getUrl() {
         return uri.toString();
     }
 
+    /**
+     * Looks up the available range holding the requested position: the last used one if it still covers it, otherwise
+     * the closest range starting before the position (or a previous one, as ranges might overlap).
+     *
+     * @return true if a range holding the requested position has been found, and set as the last used one
+     */
+    protected boolean findRange(long position) {
+        if (lastRange != null && position >= lastRangeStart && position < lastRangeStart + lastRange.length) {
+            return true;
+        }
+        for (Map.Entry<Long, byte[]> entry :
+                data.headMap(position, true).descendingMap().entrySet()) {
+            if (position < entry.getKey() + entry.getValue().length) {
+                lastRangeStart = entry.getKey();
+                lastRange = entry.getValue();
+                return true;
+            }
+        }
+        return false;
+    }
+
     @Override
     public int read() throws IOException {
         byte[] b = new byte[1];
         read(b, 0, 1);
-        return b[0];
+        return b[0] & 0xff;
     }
 
     @Override
     public int read(byte[] b, int off, int len) throws IOException {
-        byte[] contiguousRange = null;
-        long rangeStart = -1L;
-
-        // find the byte array in the data map corresponding to the current request
-        for (Map.Entry<Long, byte[]> entry : data.entrySet()) {
-            long start = entry.getKey();
-            long end = entry.getKey() + entry.getValue().length;
-            if (streamPos >= start && streamPos + len <= end) {
-                contiguousRange = entry.getValue();
-                rangeStart = entry.getKey();
-                break;
+        int read = 0;
+        while (read < len) {
+            // find the byte array in the data map corresponding to the current request,
+            // waiting for the range holding it if still being read
+            boolean found;
+            do {
+                found = findRange(streamPos);
+            } while (!found && awaitPendingRange(streamPos));
+
+            // the bytes are neither in the header nor in the requested tiles
+            if (!found) {
+                fetchMissingRange(streamPos, len - read);
+                if (!findRange(streamPos)) {
+                    LOGGER.severe("The requested offset is not present in the available data.  Requested offset: "
+                            + off + " - requested length: " + len
+                            + " - streamPos: " + streamPos);
+                    throw new IOException("No COG data available for the requested byte location.");
+                }
             }
-        }
 
-        // this should never happen -- we should have read all bytes from all tiles in the request envelope
-        if (contiguousRange == null || rangeStart == -1L) {
+            // copy the bytes from the fetched tile into the destination byte array, a read
+            // might span contiguous ranges (e.g., the header and a range read on demand)
+            int relativeStreamPos = (int) (streamPos - lastRangeStart);
+            int length = Math.min(len - read, lastRange.length - relativeStreamPos);
+            System.arraycopy(lastRange, relativeStreamPos, b, off + read, length);
+            streamPos += length;
+            read += length;
+        }
+        return len;
+    }
 
-            // On some not optimized COG BigTiff, the TileOffset / TileBytes are inside the header
-            // which might be way greater than 16K (even 700K). Let's fetch it
-            if (data.size() == 1 && streamPos + len >= data.get(0L).length) {
-                while (streamPos + len >= data.get(0L).length) {
-                    data.put(0L, rangeReader.fetchHeader());
+    /** Reads bytes that have not been requested through {@link #readRanges(CogTileInfo)} */
+    protected void fetchMissingRange(long position, int len) throws IOException {
+        // On some not optimized COG BigTiff, the TileOffset / TileBytes are inside the header
+        // which might be way greater than 16K (even 700K). Let's fetch it
+        byte[] headerData = data.get(0L);
+        if (data.size() == 1 && pendingData.isEmpty() && position == headerData.length) {
+            int stalls = 0;
+            while (position + len > headerData.length) {
+                byte[] newHeaderData = rangeReader.fetchHeader();
+                if (newHeaderData.length > headerData.length) {
+                    headerData = newHeaderData;
+                } else if (++stalls > 1) {
+                    // the first fetch might just re-read a cached header, a second one means there is nothing more
+                    throw new IOException("No COG data available for the requested byte location, "
+                            + "the header cannot be extended to reach offset " + (position + len));
                 }
-
-                contiguousRange = data.get(0L);
-                header.setHeaderLength(contiguousRange.length);
-                rangeStart = 0;
-            } else {
-                LOGGER.severe("The requested offset is not present in the available data.  Requested offset: " + off
-                        + " - requested length: " + len
-                        + " - streamPos: " + streamPos);
-                throw new IOException("No COG data available for the requested byte location.");
             }
-        }
-
-        int relativeStreamPos = (int) (streamPos - rangeStart);
 
-        // copy the bytes from the fetched tile into the destination byte array
-        System.arraycopy(contiguousRange, relativeStreamPos, b, off, len);
-        streamPos += len;
-        return len;
+            data.put(0L, headerData);
+            header.setHeaderLength(headerData.length);
+            lastRange = null;
+        } else {
+            // bytes not part of the requested tiles, like lazily loaded tile offsets: read them on demand,
+            // along with the following ones, as they are likely to be read next
+            rangeReader
+                    .read(new long[] {position, position + Math.max(len, CogImageReadParam.DEFAULT_HEADER_LENGTH) - 1})
+                    .forEach((start, bytes) -> data.putIfAbsent(start, bytes));
+        }
     }
 
     public void close() throws IOException {
@@ -215,5 +293,7 @@ public class DefaultCogImageInputStream extends ImageInputStreamImpl implements
         if (data != null && !data.isEmpty()) {
             data.clear();
         }
+        lastRange = null;
+        pendingData.clear();
     }
 }
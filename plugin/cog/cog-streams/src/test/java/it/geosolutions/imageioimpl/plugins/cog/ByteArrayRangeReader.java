@@ -0,0 +1,111 @@
+/*
+ *    ImageI/O-Ext - OpenSource Java Image translation Library
+ *    http://www.geo-solutions.it/
+ *    https://github.com/geosolutions-it/imageio-ext
+ *    (C) 2026, GeoSolutions
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    either version 3 of the License, or (at your option) any later version.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package it.geosolutions.imageioimpl.plugins.cog;
+
+import it.geosolutions.imageio.core.BasicAuthURI;
+import java.net.URI;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * In memory {@link RangeReader}, keeping track of the ranges it has been asked for. Asynchronous reads are left pending
+ * until {@link #complete()} is called.
+ */
+class ByteArrayRangeReader extends AbstractRangeReader {
+
+    final byte[] content;
+
+    final List<long[]> requests = new CopyOnWriteArrayList<>();
+
+    final List<Runnable> pending = new CopyOnWriteArrayList<>();
+
+    boolean deferred;
+
+    ByteArrayRangeReader(String uri, byte[] content, int headerLength) {
+        super(new BasicAuthURI(URI.create(uri)), headerLength);
+        this.content = content;
+    }
+
+    private byte[] readRange(long start, long end) {
+        requests.add(new long[] {start, end});
+        return Arrays.copyOfRange(content, (int) start, (int) Math.min(end + 1, content.length));
+    }
+
+    @Override
+    public Map<Long, byte[]> read(long[]... ranges) {
+        Map<Long, byte[]> values = new HashMap<>();
+        awaitCompletion(values, readAsync(ranges));
+        return values;
+    }
+
+    @Override
+    public Map<Long, byte[]> read(Collection<long[]> ranges) {
+        return read(ranges.toArray(new long[][] {}));
+    }
+
+    @Override
+    public Map<Long, CompletableFuture<byte[]>> readAsync(long[]... ranges) {
+        ranges = reconcileRanges(ranges);
+        Map<Long, CompletableFuture<byte[]>> futures = new HashMap<>();
+        for (long[] range : ranges) {
+            CompletableFuture<byte[]> future = new CompletableFuture<>();
+            Runnable read = () -> future.complete(readRange(range[0], range[1]));
+            if (deferred) {
+                pending.add(read);
+            } else {
+                read.run();
+            }
+            futures.put(range[0], future);
+        }
+        return futures;
+    }
+
+    /** Completes the pending asynchronous reads */
+    void complete() {
+        pending.forEach(Runnable::run);
+        pending.clear();
+    }
+
+    @Override
+    public byte[] readHeader() {
+        byte[] header = completeHeader(readRange(0, headerLength - 1));
+        data.put(0L, header);
+        return header;
+    }
+
+    @Override
+    public byte[] fetchHeader() {
+        byte[] currentHeader = data.get(0L);
+        if (currentHeader != null) {
+            headerOffset = currentHeader.length;
+        }
+        byte[] headerBytes = readRange(headerOffset, headerOffset + headerLength - 1);
+        if (headerOffset != 0) {
+            byte[] newHeader = new byte[headerBytes.length + currentHeader.length];
+            System.arraycopy(currentHeader, 0, newHeader, 0, currentHeader.length);
+            System.arraycopy(headerBytes, 0, newHeader, currentHeader.length, headerBytes.length);
+            headerBytes = newHeader;
+        }
+        data.put(0L, headerBytes);
+        return headerBytes;
+    }
+}
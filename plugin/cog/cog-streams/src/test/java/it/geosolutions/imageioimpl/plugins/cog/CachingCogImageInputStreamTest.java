@@ -0,0 +1,110 @@
+/*
+ *    ImageI/O-Ext - OpenSource Java Image translation Library
+ *    http://www.geo-solutions.it/
+ *    https://github.com/geosolutions-it/imageio-ext
+ *    (C) 2026, GeoSolutions
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    either version 3 of the License, or (at your option) any later version.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package it.geosolutions.imageioimpl.plugins.cog;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.io.IOException;
+import java.net.URI;
+import java.util.Arrays;
+import org.junit.Before;
+import org.junit.Test;
+
+/** Tests {@link CachingCogImageInputStream} against an in memory {@link RangeReader} */
+public class CachingCogImageInputStreamTest {
+
+    private static final int HEADER_LENGTH = 1024;
+
+    private byte[] content;
+
+    @Before
+    public void setup() {
+        content = new byte[65536];
+        for (int i = 0; i < content.length; i++) {
+            content[i] = (byte) (i * 7 + i / 256);
+        }
+        AbstractRangeReader.invalidateCache();
+    }
+
+    private CogTileInfo tileInfo(long... offsetsAndLengths) {
+        CogTileInfo info = new CogTileInfo(HEADER_LENGTH);
+        for (int i = 0; i < offsetsAndLengths.length; i += 2) {
+            info.addTileRange(i / 2, offsetsAndLengths[i], offsetsAndLengths[i + 1]);
+        }
+        return info;
+    }
+
+    private void assertContent(CachingCogImageInputStream stream, long position, int length) throws IOException {
+        byte[] bytes = new byte[length];
+        stream.seek(position);
+        stream.readFully(bytes);
+        assertArrayEquals(Arrays.copyOfRange(content, (int) position, (int) position + length), bytes);
+    }
+
+    @Test
+    public void testReadFromCache() throws IOException {
+        String url = "http://localhost/testReadFromCache.tif";
+        ByteArrayRangeReader reader = new ByteArrayRangeReader(url, content, HEADER_LENGTH);
+        CachingCogImageInputStream stream = new CachingCogImageInputStream(URI.create(url), reader);
+        assertContent(stream, 8, 100);
+
+        stream.readRanges(tileInfo(10000, 1000, 11000, 500, 20000, 2000));
+        assertContent(stream, 10000, 1000);
+        assertContent(stream, 11200, 300);
+        assertContent(stream, 20100, 1800);
+        // header is still available
+        assertContent(stream, 0, 16);
+        // header, then one request for the two contiguous tiles, and one for the last tile
+        assertEquals(3, reader.requests.size());
+        stream.close();
+
+        // a new stream gets both the header and the tiles from the cache
+        reader = new ByteArrayRangeReader(url, content, HEADER_LENGTH);
+        stream = new CachingCogImageInputStream(URI.create(url), reader);
+        stream.readRanges(tileInfo(10000, 1000, 11000, 500, 20000, 2000));
+        assertContent(stream, 11000, 500);
+        assertContent(stream, 20000, 2000);
+        assertContent(stream, 10000, 1000);
+        assertEquals(0, reader.requests.size());
+        stream.close();
+    }
+
+    @Test
+    public void testSameTileIndexDifferentImages() throws IOException {
+        String url = "http://localhost/testSameTileIndexDifferentImages.tif";
+        ByteArrayRangeReader reader = new ByteArrayRangeReader(url, content, HEADER_LENGTH);
+        CachingCogImageInputStream stream = new CachingCogImageInputStream(URI.create(url), reader);
+        stream.readRanges(tileInfo(10000, 1000));
+        assertContent(stream, 10000, 1000);
+
+        // same tile index, but in another image
+        stream.readRanges(tileInfo(30000, 1000));
+        assertContent(stream, 30000, 1000);
+        stream.close();
+    }
+
+    @Test
+    public void testReadBeyondHeader() throws IOException {
+        String url = "http://localhost/testReadBeyondHeader.tif";
+        ByteArrayRangeReader reader = new ByteArrayRangeReader(url, content, HEADER_LENGTH);
+        CachingCogImageInputStream stream = new CachingCogImageInputStream(URI.create(url), reader);
+        // metadata not fitting in the header gets the header extended
+        assertContent(stream, 2000, 200);
+        stream.close();
+    }
+}
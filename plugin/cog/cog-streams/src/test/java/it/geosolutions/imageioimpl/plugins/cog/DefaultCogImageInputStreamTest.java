@@ -0,0 +1,217 @@
+/*
+ *    ImageI/O-Ext - OpenSource Java Image translation Library
+ *    http://www.geo-solutions.it/
+ *    https://github.com/geosolutions-it/imageio-ext
+ *    (C) 2026, GeoSolutions
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    either version 3 of the License, or (at your option) any later version.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package it.geosolutions.imageioimpl.plugins.cog;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import org.junit.Before;
+import org.junit.Test;
+
+/** Tests {@link DefaultCogImageInputStream} against an in memory {@link RangeReader} */
+public class DefaultCogImageInputStreamTest {
+
+    private static final String URL = "http://localhost/test.tif";
+
+    private static final int HEADER_LENGTH = 1024;
+
+    private byte[] content;
+
+    @Before
+    public void setup() {
+        content = new byte[65536];
+        for (int i = 0; i < content.length; i++) {
+            content[i] = (byte) (i * 7 + i / 256);
+        }
+        AbstractRangeReader.invalidateCache();
+    }
+
+    private CogTileInfo tileInfo(long... offsetsAndLengths) {
+        CogTileInfo info = new CogTileInfo(HEADER_LENGTH);
+        for (int i = 0; i < offsetsAndLengths.length; i += 2) {
+            info.addTileRange(i / 2, offsetsAndLengths[i], offsetsAndLengths[i + 1]);
+        }
+        return info;
+    }
+
+    private void assertContent(DefaultCogImageInputStream stream, long position, int length) throws IOException {
+        byte[] bytes = new byte[length];
+        stream.seek(position);
+        stream.readFully(bytes);
+        assertArrayEquals(Arrays.copyOfRange(content, (int) position, (int) position + length), bytes);
+    }
+
+    @Test
+    public void testReadRanges() throws IOException {
+        ByteArrayRangeReader reader = new ByteArrayRangeReader(URL, content, HEADER_LENGTH);
+        DefaultCogImageInputStream stream = new DefaultCogImageInputStream(URI.create(URL), reader);
+        assertContent(stream, 8, 100);
+
+        stream.readRanges(tileInfo(10000, 1000, 20000, 2000, 11000, 500));
+        assertContent(stream, 10000, 1000);
+        assertContent(stream, 11000, 500);
+        assertContent(stream, 20100, 1800);
+        // header is still available
+        assertContent(stream, 0, 16);
+        stream.close();
+    }
+
+    @Test
+    public void testReadWhileRangesArrive() throws Exception {
+        ByteArrayRangeReader reader = new ByteArrayRangeReader(URL, content, HEADER_LENGTH);
+        DefaultCogImageInputStream stream = new DefaultCogImageInputStream(URI.create(URL), reader);
+        reader.deferred = true;
+        stream.readRanges(tileInfo(10000, 1000, 20000, 2000));
+        assertEquals(2, reader.pending.size());
+
+        // the read blocks until the range gets completed
+        CompletableFuture<Void> read = CompletableFuture.runAsync(() -> {
+            try {
+                assertContent(stream, 20000, 2000);
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+        });
+        Thread.sleep(100);
+        assertTrue(!read.isDone());
+        reader.complete();
+        read.get(10, TimeUnit.SECONDS);
+        assertContent(stream, 10000, 1000);
+        stream.close();
+    }
+
+    @Test
+    public void testReadBeyondHeader() throws IOException {
+        ByteArrayRangeReader reader = new ByteArrayRangeReader(URL, content, HEADER_LENGTH);
+        DefaultCogImageInputStream stream = new DefaultCogImageInputStream(URI.create(URL), reader);
+        // metadata not fitting in the header gets the header extended
+        assertContent(stream, 1000, 1500);
+        assertEquals(3 * HEADER_LENGTH, stream.getHeader().getHeaderLength());
+        // sequential reads in the extended header
+        assertContent(stream, 100, 16);
+        assertContent(stream, 116, 16);
+        stream.close();
+    }
+
+    @Test
+    public void testReadOnDemand() throws IOException {
+        ByteArrayRangeReader reader = new ByteArrayRangeReader(URL, content, HEADER_LENGTH);
+        DefaultCogImageInputStream stream = new DefaultCogImageInputStream(URI.create(URL), reader);
+        stream.readRanges(tileInfo(10000, 1000));
+        int requests = reader.requests.size();
+
+        // bytes outside of the header and tiles, like lazily loaded tile offsets, are read on demand in a single
+        // request
+        for (int i = 0; i < 100; i++) {
+            assertContent(stream, 40000 + i * 4, 4);
+        }
+        assertEquals(requests + 1, reader.requests.size());
+        assertContent(stream, 10000, 1000);
+        stream.close();
+    }
+
+    @Test
+    public void testAdaptiveHeader() throws IOException {
+        // a TIFF whose TileOffsets and TileByteCounts do not fit in the header
+        ByteBuffer tiff = ByteBuffer.wrap(content).order(ByteOrder.LITTLE_ENDIAN);
+        tiff.put((byte) 'I').put((byte) 'I').putShort((short) 42).putInt(8);
+        tiff.putShort((short) 2);
+        tiff.putShort((short) 324).putShort((short) 4).putInt(1000).putInt(2000);
+        tiff.putShort((short) 325).putShort((short) 4).putInt(1000).putInt(6000);
+        tiff.putInt(0);
+
+        String url = "http://localhost/testAdaptiveHeader.tif";
+        ByteArrayRangeReader reader = new ByteArrayRangeReader(url, content, HEADER_LENGTH);
+        reader.setAdaptiveHeader(true);
+        DefaultCogImageInputStream stream = new DefaultCogImageInputStream(URI.create(url), reader);
+        // the missing tag values are read at once along with the header
+        assertEquals(2, reader.requests.size());
+        assertContent(stream, 9000, 1000);
+        assertEquals(2, reader.requests.size());
+        stream.close();
+
+        // the learned header length is used on the next access
+        reader = new ByteArrayRangeReader(url, content, HEADER_LENGTH);
+        reader.setAdaptiveHeader(true);
+        assertEquals(10000, reader.getHeaderLength());
+        stream = new DefaultCogImageInputStream(URI.create(url), reader);
+        assertEquals(1, reader.requests.size());
+        assertContent(stream, 9000, 1000);
+        stream.close();
+    }
+
+    @Test
+    public void testAdaptiveHeaderNotCog() throws IOException {
+        // a TIFF whose second IFD and its values follow the image data
+        content = Arrays.copyOf(content, 300000);
+        ByteBuffer tiff = ByteBuffer.wrap(content).order(ByteOrder.LITTLE_ENDIAN);
+        tiff.put((byte) 'I').put((byte) 'I').putShort((short) 42).putInt(8);
+        tiff.putShort((short) 1);
+        tiff.putShort((short) 324).putShort((short) 4).putInt(100).putInt(2000);
+        tiff.putInt(200000);
+        tiff.position(200000);
+        tiff.putShort((short) 1);
+        tiff.putShort((short) 324).putShort((short) 4).putInt(100).putInt(201000);
+        tiff.putInt(0);
+
+        String url = "http://localhost/testAdaptiveHeaderNotCog.tif";
+        ByteArrayRangeReader reader = new ByteArrayRangeReader(url, content, HEADER_LENGTH);
+        reader.setAdaptiveHeader(true);
+        DefaultCogImageInputStream stream = new DefaultCogImageInputStream(URI.create(url), reader);
+        // only the values of the first IFD are added to the header, not the image data before the second one
+        assertEquals(2, reader.requests.size());
+        assertEquals(2400, reader.data.get(0L).length);
+        assertContent(stream, 200000, 20);
+        stream.close();
+    }
+
+    @Test
+    public void testAdaptiveHeaderLearnedByHost() throws IOException {
+        ByteBuffer tiff = ByteBuffer.wrap(content).order(ByteOrder.LITTLE_ENDIAN);
+        tiff.put((byte) 'I').put((byte) 'I').putShort((short) 42).putInt(8);
+        tiff.putShort((short) 1);
+        tiff.putShort((short) 324).putShort((short) 4).putInt(1000).putInt(2000);
+        tiff.putInt(0);
+
+        // a single dataset with a large header does not affect the others on the same host
+        ByteArrayRangeReader reader = new ByteArrayRangeReader("http://host/large.tif", content, HEADER_LENGTH);
+        reader.setAdaptiveHeader(true);
+        reader.readHeader();
+        assertEquals(6000, reader.data.get(0L).length);
+        reader = new ByteArrayRangeReader("http://host/other.tif", content, HEADER_LENGTH);
+        reader.setAdaptiveHeader(true);
+        assertEquals(HEADER_LENGTH, reader.getHeaderLength());
+
+        // once several of them have been seen, the median is used
+        for (int i = 0; i < 2; i++) {
+            reader = new ByteArrayRangeReader("http://host/large" + i + ".tif", content, HEADER_LENGTH);
+            reader.setAdaptiveHeader(true);
+            reader.readHeader();
+        }
+        reader = new ByteArrayRangeReader("http://host/other.tif", content, HEADER_LENGTH);
+        reader.setAdaptiveHeader(true);
+        assertEquals(6000, reader.getHeaderLength());
+    }
+}
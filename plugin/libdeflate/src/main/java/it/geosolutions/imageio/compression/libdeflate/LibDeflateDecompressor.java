@@ -39,16 +39,26 @@ public class LibDeflateDecompressor implements Decompressor {
 
     LibdeflateDecompressor decompressor;
     byte[] srcData;
+    int srcOffset;
+    int srcLength;
 
     @Override
     public void setInput(byte[] srcData) {
+        setInput(srcData, 0, srcData.length);
+    }
+
+    @Override
+    public void setInput(byte[] srcData, int offset, int length) {
         decompressor = new LibdeflateDecompressor();
         this.srcData = srcData;
+        this.srcOffset = offset;
+        this.srcLength = length;
     }
 
     @Override
     public void decompress(byte[] buffer, int offset, int maxUncompressedSize) throws DataFormatException {
-        decompressor.decompress(srcData, 0, srcData.length, buffer, offset, CompressionType.ZLIB, maxUncompressedSize);
+        decompressor.decompress(
+                srcData, srcOffset, srcLength, buffer, offset, CompressionType.ZLIB, maxUncompressedSize);
     }
 
     @Override
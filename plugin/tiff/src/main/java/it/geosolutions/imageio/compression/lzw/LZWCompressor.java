@@ -0,0 +1,162 @@
+/*
+ *    ImageI/O-Ext - OpenSource Java Image translation Library
+ *    http://www.geo-solutions.it/
+ *    https://github.com/geosolutions-it/imageio-ext
+ *    (C) 2026, GeoSolutions
+ *    All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of GeoSolutions nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY GeoSolutions ``AS IS'' AND ANY
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL GeoSolutions BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package it.geosolutions.imageio.compression.lzw;
+
+import it.geosolutions.imageio.compression.Compressor;
+import java.util.Arrays;
+
+/**
+ * Compressor for the TIFF flavor of LZW. Each {@link #compress(byte[], int, int, int, int)} call codes the selected
+ * input section as a complete LZW stream, from the initial clear code to the end of information one, so the destination
+ * must be able to hold {@link #maxCompressedLength(int)} bytes.
+ *
+ * <p>The string table is an open addressing hash table of (prefix code, byte) pairs held in two int arrays, allocated
+ * once and reused across calls.
+ */
+public class LZWCompressor implements Compressor {
+
+    private static final int HASH_BITS = 14;
+
+    private static final int HASH_SIZE = 1 << HASH_BITS;
+
+    /** Table size at which a clear code is emitted, same as libtiff to stay on the safe side with other decoders */
+    private static final int TABLE_FULL = LZWDecompressor.MAX_CODES - 2;
+
+    /** (prefix << 8 | byte) + 1 of each hash slot, 0 for empty ones */
+    private final int[] keys = new int[HASH_SIZE];
+
+    private final int[] codes = new int[HASH_SIZE];
+
+    private byte[] srcData;
+
+    private byte[] dest;
+
+    private int destIndex;
+
+    private long bitBuffer;
+
+    private int bitCount;
+
+    /** Returns the largest number of bytes the compression of length input bytes can produce */
+    public static int maxCompressedLength(int length) {
+        // at most a 12 bits code per byte, plus clear codes and the end of information code
+        return length + length / 2 + length / 128 + 8;
+    }
+
+    @Override
+    public void setInput(byte[] srcData) {
+        this.srcData = srcData;
+    }
+
+    @Override
+    public int compress(byte[] destData, int srcOffset, int srcLength, int destOffset, int destLength) {
+        if (destLength < maxCompressedLength(srcLength)) {
+            throw new IllegalArgumentException(
+                    "Destination buffer too small, " + maxCompressedLength(srcLength) + " bytes are needed");
+        }
+        final byte[] src = srcData;
+        final int[] keys = this.keys;
+        final int[] codes = this.codes;
+        dest = destData;
+        destIndex = destOffset;
+        bitBuffer = 0;
+        bitCount = 0;
+
+        int codeLength = 9;
+        int nextCode = LZWDecompressor.FIRST_CODE;
+        Arrays.fill(keys, 0);
+        writeCode(LZWDecompressor.CLEAR_CODE, codeLength);
+        if (srcLength == 0) {
+            writeCode(LZWDecompressor.EOI_CODE, codeLength);
+            return finishBits(destOffset);
+        }
+
+        int prefix = src[srcOffset] & 0xFF;
+        final int srcEnd = srcOffset + srcLength;
+        for (int i = srcOffset + 1; i < srcEnd; i++) {
+            int c = src[i] & 0xFF;
+            int key = ((prefix << 8) | c) + 1;
+            int slot = (key * 0x9E3779B1) >>> (32 - HASH_BITS);
+            int found;
+            while ((found = keys[slot]) != 0 && found != key) {
+                slot = (slot + 1) & (HASH_SIZE - 1);
+            }
+            if (found == key) {
+                prefix = codes[slot];
+                continue;
+            }
+
+            writeCode(prefix, codeLength);
+            keys[slot] = key;
+            codes[slot] = nextCode++;
+            if (nextCode == TABLE_FULL) {
+                writeCode(LZWDecompressor.CLEAR_CODE, codeLength);
+                Arrays.fill(keys, 0);
+                nextCode = LZWDecompressor.FIRST_CODE;
+                codeLength = 9;
+            } else if (nextCode == 1 << codeLength) {
+                // TIFF LZW switches to the wider codes one code early
+                codeLength++;
+            }
+            prefix = c;
+        }
+        writeCode(prefix, codeLength);
+        // the decoder adds an entry on the last code, which may widen the end of information code
+        if (nextCode + 1 == 1 << codeLength && codeLength < 12) {
+            codeLength++;
+        }
+        writeCode(LZWDecompressor.EOI_CODE, codeLength);
+        return finishBits(destOffset);
+    }
+
+    private void writeCode(int code, int codeLength) {
+        bitBuffer = (bitBuffer << codeLength) | code;
+        bitCount += codeLength;
+        while (bitCount >= 8) {
+            bitCount -= 8;
+            dest[destIndex++] = (byte) (bitBuffer >>> bitCount);
+        }
+    }
+
+    /** Writes the remaining bits, padded with zeros, and returns the number of bytes written */
+    private int finishBits(int destOffset) {
+        if (bitCount > 0) {
+            dest[destIndex++] = (byte) (bitBuffer << (8 - bitCount));
+            bitCount = 0;
+        }
+        dest = null;
+        return destIndex - destOffset;
+    }
+
+    @Override
+    public void done() {
+        srcData = null;
+    }
+}
@@ -0,0 +1,190 @@
+/*
+ *    ImageI/O-Ext - OpenSource Java Image translation Library
+ *    http://www.geo-solutions.it/
+ *    https://github.com/geosolutions-it/imageio-ext
+ *    (C) 2026, GeoSolutions
+ *    All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of GeoSolutions nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY GeoSolutions ``AS IS'' AND ANY
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL GeoSolutions BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package it.geosolutions.imageio.compression.lzw;
+
+import it.geosolutions.imageio.compression.Decompressor;
+import java.util.zip.DataFormatException;
+
+/**
+ * Table driven decompressor for the TIFF flavor of LZW (MSB first codes, 9 to 12 bits, early code width change).
+ *
+ * <p>Rather than keeping each string of the table as a separate byte array, every table entry records where its first
+ * occurrence was written in the output and how long it is, so that emitting a code is a single copy from the output
+ * decoded so far and growing the table allocates nothing. The tables are allocated once and reused across inputs.
+ */
+public class LZWDecompressor implements Decompressor {
+
+    static final int CLEAR_CODE = 256;
+
+    static final int EOI_CODE = 257;
+
+    static final int FIRST_CODE = 258;
+
+    static final int MAX_CODES = 4096;
+
+    /** Output position of the first occurrence of each string */
+    private final int[] offsets = new int[MAX_CODES];
+
+    /** Length of each string */
+    private final int[] lengths = new int[MAX_CODES];
+
+    private byte[] input;
+
+    private int inputOffset;
+
+    private int inputLength;
+
+    @Override
+    public void setInput(byte[] srcData) {
+        setInput(srcData, 0, srcData.length);
+    }
+
+    @Override
+    public void setInput(byte[] srcData, int offset, int length) {
+        this.input = srcData;
+        this.inputOffset = offset;
+        this.inputLength = length;
+    }
+
+    @Override
+    public void decompress(byte[] destData, int offset, int maxUncompressedSize) throws DataFormatException {
+        decode(destData, offset, maxUncompressedSize);
+    }
+
+    /**
+     * Decodes the current input into the destination, stopping at the end of information code, at the end of the input
+     * (some writers omit the end of information code) or once maxUncompressedSize bytes have been written.
+     *
+     * @return the number of bytes written
+     */
+    public int decode(byte[] destData, int offset, int maxUncompressedSize) throws DataFormatException {
+        final byte[] src = input;
+        final int srcEnd = inputOffset + inputLength;
+        final int limit = offset + Math.min(maxUncompressedSize, destData.length - offset);
+        final int[] offsets = this.offsets;
+        final int[] lengths = this.lengths;
+
+        int srcIndex = inputOffset;
+        long bitBuffer = 0;
+        int bitCount = 0;
+        int codeLength = 9;
+        int nextCode = FIRST_CODE;
+        int oldCode = -1;
+        // length of the string of the previous code, written right before the current position
+        int oldLength = 0;
+        int pos = offset;
+
+        while (pos < limit) {
+            // refill the bit buffer, up to 7 bytes at a time
+            while (bitCount <= 56 && srcIndex < srcEnd) {
+                bitBuffer = (bitBuffer << 8) | (src[srcIndex++] & 0xFF);
+                bitCount += 8;
+            }
+            if (bitCount < codeLength) {
+                // input ended without an end of information code
+                break;
+            }
+            bitCount -= codeLength;
+            int code = (int) (bitBuffer >>> bitCount) & ((1 << codeLength) - 1);
+
+            if (code == CLEAR_CODE) {
+                codeLength = 9;
+                nextCode = FIRST_CODE;
+                oldCode = -1;
+                continue;
+            }
+            if (code == EOI_CODE) {
+                break;
+            }
+
+            int length;
+            if (code < CLEAR_CODE) {
+                destData[pos] = (byte) code;
+                length = 1;
+            } else if (code < nextCode && oldCode >= 0) {
+                length = lengths[code];
+                if (pos + length > limit) {
+                    System.arraycopy(destData, offsets[code], destData, pos, limit - pos);
+                    pos = limit;
+                    break;
+                }
+                copy(destData, offsets[code], pos, length);
+            } else if (code == nextCode && oldCode >= 0) {
+                // the string being defined: previous string followed by its own first byte
+                length = oldLength + 1;
+                int oldOffset = pos - oldLength;
+                if (pos + length > limit) {
+                    System.arraycopy(destData, oldOffset, destData, pos, Math.min(oldLength, limit - pos));
+                    if (pos + oldLength < limit) {
+                        destData[pos + oldLength] = destData[oldOffset];
+                    }
+                    pos = limit;
+                    break;
+                }
+                copy(destData, oldOffset, pos, oldLength);
+                destData[pos + oldLength] = destData[oldOffset];
+            } else {
+                throw new DataFormatException("Invalid LZW code " + code + " at table size " + nextCode);
+            }
+
+            if (oldCode >= 0 && nextCode < MAX_CODES) {
+                // the new string is the previous one plus the first byte just written, which directly follows it
+                offsets[nextCode] = pos - oldLength;
+                lengths[nextCode] = oldLength + 1;
+                nextCode++;
+                // TIFF LZW switches to the wider codes one code early
+                if (nextCode + 1 == 1 << codeLength && codeLength < 12) {
+                    codeLength++;
+                }
+            }
+            oldCode = code;
+            oldLength = length;
+            pos += length;
+        }
+
+        return pos - offset;
+    }
+
+    /** Copies a non overlapping string, avoiding the arraycopy overhead on the short ones */
+    private static void copy(byte[] data, int from, int to, int length) {
+        if (length <= 8) {
+            for (int i = 0; i < length; i++) {
+                data[to + i] = data[from + i];
+            }
+        } else {
+            System.arraycopy(data, from, data, to, length);
+        }
+    }
+
+    @Override
+    public void done() {
+        input = null;
+    }
+}
@@ -0,0 +1,114 @@
+/*
+ *    ImageI/O-Ext - OpenSource Java Image translation Library
+ *    http://www.geo-solutions.it/
+ *    https://github.com/geosolutions-it/imageio-ext
+ *    (C) 2026, GeoSolutions
+ *    All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of GeoSolutions nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY GeoSolutions ``AS IS'' AND ANY
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL GeoSolutions BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package it.geosolutions.imageio.compression.packbits;
+
+import it.geosolutions.imageio.compression.Compressor;
+
+/**
+ * Compressor for the PackBits run length encoding. Each {@link #compress(byte[], int, int, int, int)} call codes the
+ * selected input section on its own, as PackBits runs must not cross rows callers are expected to compress one row at a
+ * time. The destination must be able to hold {@link #maxCompressedLength(int)} bytes.
+ */
+public class PackBitsCompressor implements Compressor {
+
+    private byte[] srcData;
+
+    /** Returns the largest number of bytes the compression of length input bytes can produce */
+    public static int maxCompressedLength(int length) {
+        return length + (length + 127) / 128;
+    }
+
+    @Override
+    public void setInput(byte[] srcData) {
+        this.srcData = srcData;
+    }
+
+    @Override
+    public int compress(byte[] destData, int srcOffset, int srcLength, int destOffset, int destLength) {
+        if (destLength < maxCompressedLength(srcLength)) {
+            throw new IllegalArgumentException(
+                    "Destination buffer too small, " + maxCompressedLength(srcLength) + " bytes are needed");
+        }
+        return packBits(srcData, srcOffset, srcLength, destData, destOffset) - destOffset;
+    }
+
+    /**
+     * Performs PackBits compression for a single buffer of data. The returned value is the offset into the output
+     * buffer after compression.
+     */
+    private static int packBits(byte[] input, int inOffset, int inCount, byte[] output, int outOffset) {
+        int inMax = inOffset + inCount - 1;
+        int inMaxMinus1 = inMax - 1;
+
+        while (inOffset <= inMax) {
+            int run = 1;
+            byte replicate = input[inOffset];
+            while (run < 127 && inOffset < inMax && input[inOffset] == input[inOffset + 1]) {
+                run++;
+                inOffset++;
+            }
+            if (run > 1) {
+                inOffset++;
+                output[outOffset++] = (byte) (-(run - 1));
+                output[outOffset++] = replicate;
+            }
+
+            run = 0;
+            int saveOffset = outOffset;
+            while (run < 128
+                    && ((inOffset < inMax && input[inOffset] != input[inOffset + 1])
+                            || (inOffset < inMaxMinus1 && input[inOffset] != input[inOffset + 2]))) {
+                run++;
+                output[++outOffset] = input[inOffset++];
+            }
+            if (run > 0) {
+                output[saveOffset] = (byte) (run - 1);
+                outOffset++;
+            }
+
+            if (inOffset == inMax) {
+                if (run > 0 && run < 128) {
+                    output[saveOffset]++;
+                    output[outOffset++] = input[inOffset++];
+                } else {
+                    output[outOffset++] = (byte) 0;
+                    output[outOffset++] = input[inOffset++];
+                }
+            }
+        }
+
+        return outOffset;
+    }
+
+    @Override
+    public void done() {
+        srcData = null;
+    }
+}
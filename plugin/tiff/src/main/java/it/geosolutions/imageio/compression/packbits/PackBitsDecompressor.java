@@ -0,0 +1,101 @@
+/*
+ *    ImageI/O-Ext - OpenSource Java Image translation Library
+ *    http://www.geo-solutions.it/
+ *    https://github.com/geosolutions-it/imageio-ext
+ *    (C) 2026, GeoSolutions
+ *    All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of GeoSolutions nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY GeoSolutions ``AS IS'' AND ANY
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL GeoSolutions BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package it.geosolutions.imageio.compression.packbits;
+
+import it.geosolutions.imageio.compression.Decompressor;
+import java.util.zip.DataFormatException;
+
+/**
+ * Decompressor for the PackBits run length encoding. Decompression stops once the input is consumed or the requested
+ * number of bytes has been written; input ending in the middle of a run, or runs exceeding the destination, are
+ * reported with a {@link DataFormatException} after the bytes that fit have been written.
+ */
+public class PackBitsDecompressor implements Decompressor {
+
+    private byte[] input;
+
+    private int inputOffset;
+
+    private int inputLength;
+
+    @Override
+    public void setInput(byte[] srcData) {
+        setInput(srcData, 0, srcData.length);
+    }
+
+    @Override
+    public void setInput(byte[] srcData, int offset, int length) {
+        this.input = srcData;
+        this.inputOffset = offset;
+        this.inputLength = length;
+    }
+
+    @Override
+    public void decompress(byte[] destData, int offset, int maxUncompressedSize) throws DataFormatException {
+        final byte[] src = input;
+        final int srcEnd = inputOffset + inputLength;
+        final int limit = offset + Math.min(maxUncompressedSize, destData.length - offset);
+        int srcIndex = inputOffset;
+        int dstIndex = offset;
+
+        while (dstIndex < limit && srcIndex < srcEnd) {
+            int n = src[srcIndex++];
+            if (n >= 0) {
+                // literal run of n + 1 bytes
+                int length = Math.min(n + 1, Math.min(srcEnd - srcIndex, limit - dstIndex));
+                System.arraycopy(src, srcIndex, destData, dstIndex, length);
+                srcIndex += length;
+                dstIndex += length;
+                if (length != n + 1) {
+                    throw new DataFormatException("PackBits literal run exceeds the input or the destination");
+                }
+            } else if (n != -128) {
+                // replicate run of -n + 1 bytes
+                if (srcIndex == srcEnd) {
+                    throw new DataFormatException("PackBits input ends in the middle of a replicate run");
+                }
+                byte value = src[srcIndex++];
+                int length = Math.min(-n + 1, limit - dstIndex);
+                for (int i = 0; i < length; i++) {
+                    destData[dstIndex++] = value;
+                }
+                if (length != -n + 1) {
+                    throw new DataFormatException("PackBits replicate run exceeds the destination");
+                }
+            }
+            // -128 is a no-op
+        }
+    }
+
+    @Override
+    public void done() {
+        input = null;
+    }
+}
@@ -0,0 +1,120 @@
+/*
+ *    ImageI/O-Ext - OpenSource Java Image translation Library
+ *    http://www.geo-solutions.it/
+ *    https://github.com/geosolutions-it/imageio-ext
+ *    (C) 2026, GeoSolutions
+ *    All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of GeoSolutions nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY GeoSolutions ``AS IS'' AND ANY
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL GeoSolutions BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package it.geosolutions.imageio.compression.webp;
+
+/** The boolean entropy decoder of VP8 partitions, as described in RFC 6386, section 7. */
+final class VP8BoolDecoder {
+
+    private final byte[] data;
+
+    private final int end;
+
+    private int position;
+
+    /** The bits read ahead, the ones above {@link #bits} being the current value */
+    private long value;
+
+    /** The current range, minus one */
+    private int range = 255 - 1;
+
+    private int bits = -8;
+
+    private boolean eof;
+
+    VP8BoolDecoder(byte[] data, int offset, int length) {
+        this.data = data;
+        this.position = offset;
+        this.end = offset + length;
+        loadNewBytes();
+    }
+
+    private void loadNewBytes() {
+        while (bits < 0) {
+            if (position < end) {
+                value = (value << 8) | (data[position++] & 0xFF);
+                bits += 8;
+            } else if (!eof) {
+                value <<= 8;
+                bits += 8;
+                eof = true;
+            } else {
+                bits = 0;
+            }
+        }
+    }
+
+    /** Decodes a bit, given the probability of it being zero, out of 256 */
+    int getBit(int probability) {
+        if (bits < 0) {
+            loadNewBytes();
+        }
+        int range = this.range;
+        int split = (range * probability) >>> 8;
+        int current = (int) (value >>> bits);
+        int bit;
+        if (current > split) {
+            range -= split;
+            value -= (long) (split + 1) << bits;
+            bit = 1;
+        } else {
+            range = split + 1;
+            bit = 0;
+        }
+        // renormalize the range to 8 bits
+        int shift = Integer.numberOfLeadingZeros(range) - 24;
+        this.range = (range << shift) - 1;
+        bits -= shift;
+        return bit;
+    }
+
+    /** Decodes an unsigned literal of the given bits, most significant first */
+    int getValue(int numBits) {
+        int v = 0;
+        while (numBits-- > 0) {
+            v |= getBit(0x80) << numBits;
+        }
+        return v;
+    }
+
+    /** Decodes a literal of the given bits followed by its sign */
+    int getSignedValue(int numBits) {
+        int v = getValue(numBits);
+        return getValue(1) != 0 ? -v : v;
+    }
+
+    /** Decodes an optional signed literal, returning zero if not present */
+    int getOptionalSignedValue(int numBits) {
+        return getValue(1) != 0 ? getSignedValue(numBits) : 0;
+    }
+
+    boolean isEndOfData() {
+        return eof;
+    }
+}
@@ -0,0 +1,1429 @@
+/*
+ *    ImageI/O-Ext - OpenSource Java Image translation Library
+ *    http://www.geo-solutions.it/
+ *    https://github.com/geosolutions-it/imageio-ext
+ *    (C) 2026, GeoSolutions
+ *    All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of GeoSolutions nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY GeoSolutions ``AS IS'' AND ANY
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL GeoSolutions BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package it.geosolutions.imageio.compression.webp;
+
+import java.util.Arrays;
+import java.util.zip.DataFormatException;
+
+/**
+ * Decoder of VP8 key frames, the lossy bitstream of WebP, as specified by RFC 6386. Macroblocks are reconstructed in a
+ * small work buffer holding their unfiltered neighbors, as intra prediction does not see the loop filter, then copied
+ * into the Y, U and V planes and filtered row by row. The conversion to RGB upsamples chroma the same way as libwebp,
+ * so that decoded pixels match the reference decoder.
+ */
+final class VP8Decoder {
+
+    /** Stride of the work buffer */
+    private static final int BPS = 32;
+
+    private static final int Y_OFF = BPS + 8;
+
+    private static final int U_OFF = Y_OFF + BPS * 16 + BPS;
+
+    private static final int V_OFF = U_OFF + 16;
+
+    private static final int NUM_MB_SEGMENTS = 4;
+
+    private static final int B_DC_PRED = 0;
+
+    private static final int B_TM_PRED = 1;
+
+    private static final int B_VE_PRED = 2;
+
+    private static final int B_HE_PRED = 3;
+
+    private static final int B_RD_PRED = 4;
+
+    private static final int B_VR_PRED = 5;
+
+    private static final int B_LD_PRED = 6;
+
+    private static final int B_VL_PRED = 7;
+
+    private static final int B_HD_PRED = 8;
+
+    private static final int B_HU_PRED = 9;
+
+    /** DC prediction variants, for macroblocks on the top and left edges of the frame */
+    private static final int DC_PRED_NOTOP = 10;
+
+    private static final int DC_PRED_NOLEFT = 11;
+
+    private static final int DC_PRED_NOTOPLEFT = 12;
+
+    /** Tree of the 4x4 intra modes, leaves being negated modes */
+    private static final int[] YMODES_INTRA4 = {
+        -B_DC_PRED,
+        1,
+        -B_TM_PRED,
+        2,
+        -B_VE_PRED,
+        3,
+        4,
+        6,
+        -B_HE_PRED,
+        5,
+        -B_RD_PRED,
+        -B_VR_PRED,
+        -B_LD_PRED,
+        7,
+        -B_VL_PRED,
+        8,
+        -B_HD_PRED,
+        -B_HU_PRED
+    };
+
+    /** Band of each coefficient position, with a trailing sentinel */
+    private static final int[] BANDS = {0, 1, 2, 3, 6, 4, 5, 6, 6, 6, 6, 6, 6, 6, 6, 7, 0};
+
+    private static final int[] ZIGZAG = {0, 1, 4, 8, 5, 2, 3, 6, 9, 12, 13, 10, 7, 11, 14, 15};
+
+    /** Probabilities of the extra bits of the large coefficient categories */
+    private static final int[][] CAT3456 = {
+        {173, 148, 140},
+        {176, 155, 140, 135},
+        {180, 157, 141, 134, 130},
+        {254, 254, 243, 230, 196, 177, 153, 140, 133, 130, 129}
+    };
+
+    /** Offsets of the 4x4 luma blocks in the work buffer */
+    private static final int[] SCAN = {
+        0,
+        4,
+        8,
+        12,
+        4 * BPS,
+        4 + 4 * BPS,
+        8 + 4 * BPS,
+        12 + 4 * BPS,
+        8 * BPS,
+        4 + 8 * BPS,
+        8 + 8 * BPS,
+        12 + 8 * BPS,
+        12 * BPS,
+        4 + 12 * BPS,
+        8 + 12 * BPS,
+        12 + 12 * BPS
+    };
+
+    int width;
+
+    int height;
+
+    private int mbWidth;
+
+    private int mbHeight;
+
+    byte[] yPlane;
+
+    byte[] uPlane;
+
+    byte[] vPlane;
+
+    int yStride;
+
+    int uvStride;
+
+    // segment header
+    private boolean useSegment;
+
+    private boolean updateMap;
+
+    private boolean absoluteDelta = true;
+
+    private final int[] segmentQuantizer = new int[NUM_MB_SEGMENTS];
+
+    private final int[] segmentFilterStrength = new int[NUM_MB_SEGMENTS];
+
+    private final int[] segmentProba = {255, 255, 255};
+
+    // filter header
+    private boolean simpleFilter;
+
+    private int filterLevel;
+
+    private int sharpness;
+
+    private boolean useLfDelta;
+
+    private final int[] refLfDelta = new int[4];
+
+    private final int[] modeLfDelta = new int[4];
+
+    /** 0 for no filtering, 1 for the simple filter, 2 for the complex one */
+    private int filterType;
+
+    /** Filter limit, interior limit and high edge variance threshold, by segment and by 4x4 intra flag */
+    private final int[][][] filterStrengths = new int[NUM_MB_SEGMENTS][2][3];
+
+    // dequantization factors, by segment, for the DC and AC coefficients
+    private final int[][] y1Quant = new int[NUM_MB_SEGMENTS][2];
+
+    private final int[][] y2Quant = new int[NUM_MB_SEGMENTS][2];
+
+    private final int[][] uvQuant = new int[NUM_MB_SEGMENTS][2];
+
+    private final int[] proba = new int[VP8Tables.COEFFS_PROBA0.length];
+
+    private boolean useSkipProba;
+
+    private int skipProba;
+
+    private VP8BoolDecoder[] partitions;
+
+    // intra mode contexts
+    private int[] intraTop;
+
+    private final int[] intraLeft = new int[4];
+
+    // non zero coefficients contexts
+    private int[] nzTop;
+
+    private int[] nzDcTop;
+
+    private int nzLeft;
+
+    private int nzDcLeft;
+
+    // current macroblock
+    private int segment;
+
+    private boolean skip;
+
+    private boolean isI4x4;
+
+    private final int[] modes = new int[16];
+
+    private int uvMode;
+
+    private final int[] coeffs = new int[384];
+
+    private final int[] dc = new int[16];
+
+    private final int[] work = new int[BPS * 17 + BPS * 9];
+
+    // unfiltered bottom samples of the previous row of macroblocks
+    private byte[] topY;
+
+    private byte[] topU;
+
+    private byte[] topV;
+
+    // filtering parameters of the current row of macroblocks
+    private int[] rowFilterLimit;
+
+    private int[] rowInteriorLimit;
+
+    private int[] rowHevThreshold;
+
+    private boolean[] rowFilterInner;
+
+    /** Returns the width and height of a VP8 frame, or null if the header is not valid */
+    static int[] readHeader(byte[] data, int offset, int length) {
+        if (length < 10) {
+            return null;
+        }
+        int bits = (data[offset] & 0xFF) | ((data[offset + 1] & 0xFF) << 8) | ((data[offset + 2] & 0xFF) << 16);
+        boolean keyFrame = (bits & 1) == 0;
+        if (!keyFrame
+                || (data[offset + 3] & 0xFF) != 0x9D
+                || (data[offset + 4] & 0xFF) != 0x01
+                || (data[offset + 5] & 0xFF) != 0x2A) {
+            return null;
+        }
+        int width = ((data[offset + 6] & 0xFF) | ((data[offset + 7] & 0xFF) << 8)) & 0x3FFF;
+        int height = ((data[offset + 8] & 0xFF) | ((data[offset + 9] & 0xFF) << 8)) & 0x3FFF;
+        return new int[] {width, height};
+    }
+
+    /** Decodes a VP8 key frame into the Y, U and V planes */
+    void decode(byte[] data, int offset, int length) throws DataFormatException {
+        int[] header = readHeader(data, offset, length);
+        if (header == null) {
+            throw new DataFormatException("Invalid VP8 key frame header");
+        }
+        int bits = (data[offset] & 0xFF) | ((data[offset + 1] & 0xFF) << 8) | ((data[offset + 2] & 0xFF) << 16);
+        int profile = (bits >> 1) & 7;
+        boolean show = ((bits >> 4) & 1) != 0;
+        int partitionLength = bits >>> 5;
+        if (profile > 3) {
+            throw new DataFormatException("Unsupported VP8 profile: " + profile);
+        }
+        if (!show) {
+            throw new DataFormatException("VP8 frame not displayable");
+        }
+        width = header[0];
+        height = header[1];
+        offset += 10;
+        length -= 10;
+        if (partitionLength > length) {
+            throw new DataFormatException("Truncated VP8 first partition");
+        }
+
+        VP8BoolDecoder br = new VP8BoolDecoder(data, offset, partitionLength);
+        br.getValue(1); // color space
+        br.getValue(1); // clamping type
+        parseSegmentHeader(br);
+        parseFilterHeader(br);
+        parsePartitions(br, data, offset + partitionLength, length - partitionLength);
+        parseQuantizers(br);
+        br.getValue(1); // update of the probabilities, meaningless on key frames
+        parseProbabilities(br);
+
+        allocate();
+        precomputeFilterStrengths();
+        for (int mbY = 0; mbY < mbHeight; mbY++) {
+            VP8BoolDecoder tokens = partitions[mbY & (partitions.length - 1)];
+            Arrays.fill(intraLeft, B_DC_PRED);
+            nzLeft = 0;
+            nzDcLeft = 0;
+            for (int mbX = 0; mbX < mbWidth; mbX++) {
+                parseIntraModes(br, mbX);
+                boolean nonZero = decodeCoefficients(tokens, mbX);
+                if (filterType > 0) {
+                    int[] strength = filterStrengths[segment][isI4x4 ? 1 : 0];
+                    rowFilterLimit[mbX] = strength[0];
+                    rowInteriorLimit[mbX] = strength[1];
+                    rowHevThreshold[mbX] = strength[2];
+                    rowFilterInner[mbX] = isI4x4 || nonZero;
+                }
+                if (tokens.isEndOfData()) {
+                    throw new DataFormatException("Premature end of VP8 data");
+                }
+                reconstruct(mbX, mbY);
+            }
+            if (br.isEndOfData()) {
+                throw new DataFormatException("Premature end of VP8 first partition");
+            }
+            if (filterType > 0) {
+                filterRow(mbY);
+            }
+        }
+    }
+
+    private void parseSegmentHeader(VP8BoolDecoder br) {
+        useSegment = br.getValue(1) != 0;
+        if (useSegment) {
+            updateMap = br.getValue(1) != 0;
+            if (br.getValue(1) != 0) {
+                absoluteDelta = br.getValue(1) != 0;
+                for (int s = 0; s < NUM_MB_SEGMENTS; s++) {
+                    segmentQuantizer[s] = br.getOptionalSignedValue(7);
+                }
+                for (int s = 0; s < NUM_MB_SEGMENTS; s++) {
+                    segmentFilterStrength[s] = br.getOptionalSignedValue(6);
+                }
+            }
+            if (updateMap) {
+                for (int s = 0; s < segmentProba.length; s++) {
+                    segmentProba[s] = br.getValue(1) != 0 ? br.getValue(8) : 255;
+                }
+            }
+        }
+    }
+
+    private void parseFilterHeader(VP8BoolDecoder br) {
+        simpleFilter = br.getValue(1) != 0;
+        filterLevel = br.getValue(6);
+        sharpness = br.getValue(3);
+        useLfDelta = br.getValue(1) != 0;
+        if (useLfDelta && br.getValue(1) != 0) {
+            for (int i = 0; i < refLfDelta.length; i++) {
+                if (br.getValue(1) != 0) {
+                    refLfDelta[i] = br.getSignedValue(6);
+                }
+            }
+            for (int i = 0; i < modeLfDelta.length; i++) {
+                if (br.getValue(1) != 0) {
+                    modeLfDelta[i] = br.getSignedValue(6);
+                }
+            }
+        }
+        filterType = filterLevel == 0 ? 0 : simpleFilter ? 1 : 2;
+    }
+
+    private void parsePartitions(VP8BoolDecoder br, byte[] data, int offset, int length) throws DataFormatException {
+        int numPartitions = 1 << br.getValue(2);
+        int lastPartition = numPartitions - 1;
+        if (length < 3 * lastPartition) {
+            throw new DataFormatException("Truncated VP8 partitions sizes");
+        }
+        partitions = new VP8BoolDecoder[numPartitions];
+        int sizes = offset;
+        int start = offset + 3 * lastPartition;
+        int left = length - 3 * lastPartition;
+        for (int p = 0; p < lastPartition; p++) {
+            int size = (data[sizes] & 0xFF) | ((data[sizes + 1] & 0xFF) << 8) | ((data[sizes + 2] & 0xFF) << 16);
+            size = Math.min(size, left);
+            partitions[p] = new VP8BoolDecoder(data, start, size);
+            start += size;
+            left -= size;
+            sizes += 3;
+        }
+        if (left <= 0) {
+            throw new DataFormatException("Truncated VP8 partitions");
+        }
+        partitions[lastPartition] = new VP8BoolDecoder(data, start, left);
+    }
+
+    private void parseQuantizers(VP8BoolDecoder br) {
+        int baseQ0 = br.getValue(7);
+        int dqY1Dc = br.getOptionalSignedValue(4);
+        int dqY2Dc = br.getOptionalSignedValue(4);
+        int dqY2Ac = br.getOptionalSignedValue(4);
+        int dqUvDc = br.getOptionalSignedValue(4);
+        int dqUvAc = br.getOptionalSignedValue(4);
+        for (int s = 0; s < NUM_MB_SEGMENTS; s++) {
+            int q;
+            if (useSegment) {
+                q = segmentQuantizer[s];
+                if (!absoluteDelta) {
+                    q += baseQ0;
+                }
+            } else if (s > 0) {
+                y1Quant[s] = y1Quant[0];
+                y2Quant[s] = y2Quant[0];
+                uvQuant[s] = uvQuant[0];
+                continue;
+            } else {
+                q = baseQ0;
+            }
+            y1Quant[s][0] = VP8Tables.DC_TABLE[clip(q + dqY1Dc, 127)];
+            y1Quant[s][1] = VP8Tables.AC_TABLE[clip(q, 127)];
+            y2Quant[s][0] = VP8Tables.DC_TABLE[clip(q + dqY2Dc, 127)] * 2;
+            // x * 155 / 100, computed as (x * 101581) >> 16
+            y2Quant[s][1] = Math.max(8, (VP8Tables.AC_TABLE[clip(q + dqY2Ac, 127)] * 101581) >> 16);
+            uvQuant[s][0] = VP8Tables.DC_TABLE[clip(q + dqUvDc, 117)];
+            uvQuant[s][1] = VP8Tables.AC_TABLE[clip(q + dqUvAc, 127)];
+        }
+    }
+
+    private static int clip(int v, int max) {
+        return v < 0 ? 0 : v > max ? max : v;
+    }
+
+    private void parseProbabilities(VP8BoolDecoder br) {
+        for (int i = 0; i < proba.length; i++) {
+            proba[i] = br.getBit(VP8Tables.COEFFS_UPDATE_PROBA[i]) != 0 ? br.getValue(8) : VP8Tables.COEFFS_PROBA0[i];
+        }
+        useSkipProba = br.getValue(1) != 0;
+        if (useSkipProba) {
+            skipProba = br.getValue(8);
+        }
+    }
+
+    private void allocate() {
+        mbWidth = (width + 15) >> 4;
+        mbHeight = (height + 15) >> 4;
+        yStride = mbWidth * 16;
+        uvStride = mbWidth * 8;
+        yPlane = new byte[yStride * mbHeight * 16];
+        uPlane = new byte[uvStride * mbHeight * 8];
+        vPlane = new byte[uvStride * mbHeight * 8];
+        topY = new byte[yStride];
+        topU = new byte[uvStride];
+        topV = new byte[uvStride];
+        intraTop = new int[mbWidth * 4];
+        nzTop = new int[mbWidth];
+        nzDcTop = new int[mbWidth];
+        rowFilterLimit = new int[mbWidth];
+        rowInteriorLimit = new int[mbWidth];
+        rowHevThreshold = new int[mbWidth];
+        rowFilterInner = new boolean[mbWidth];
+    }
+
+    private void precomputeFilterStrengths() {
+        if (filterType == 0) {
+            return;
+        }
+        for (int s = 0; s < NUM_MB_SEGMENTS; s++) {
+            int baseLevel;
+            if (useSegment) {
+                baseLevel = segmentFilterStrength[s];
+                if (!absoluteDelta) {
+                    baseLevel += filterLevel;
+                }
+            } else {
+                baseLevel = filterLevel;
+            }
+            for (int i4x4 = 0; i4x4 <= 1; i4x4++) {
+                int level = baseLevel;
+                if (useLfDelta) {
+                    level += refLfDelta[0];
+                    if (i4x4 == 1) {
+                        level += modeLfDelta[0];
+                    }
+                }
+                level = clip(level, 63);
+                int[] strength = filterStrengths[s][i4x4];
+                if (level > 0) {
+                    int interiorLimit = level;
+                    if (sharpness > 0) {
+                        interiorLimit >>= sharpness > 4 ? 2 : 1;
+                        interiorLimit = Math.min(interiorLimit, 9 - sharpness);
+                    }
+                    interiorLimit = Math.max(interiorLimit, 1);
+                    strength[0] = 2 * level + interiorLimit;
+                    strength[1] = interiorLimit;
+                    strength[2] = level >= 40 ? 2 : level >= 15 ? 1 : 0;
+                } else {
+                    strength[0] = 0;
+                }
+            }
+        }
+    }
+
+    private void parseIntraModes(VP8BoolDecoder br, int mbX) {
+        if (updateMap) {
+            segment = br.getBit(segmentProba[0]) == 0 ? br.getBit(segmentProba[1]) : br.getBit(segmentProba[2]) + 2;
+        } else {
+            segment = 0;
+        }
+        skip = useSkipProba && br.getBit(skipProba) != 0;
+        isI4x4 = br.getBit(145) == 0;
+        int top = mbX * 4;
+        if (!isI4x4) {
+            int ymode = br.getBit(156) != 0
+                    ? (br.getBit(128) != 0 ? B_TM_PRED : B_HE_PRED)
+                    : (br.getBit(163) != 0 ? B_VE_PRED : B_DC_PRED);
+            modes[0] = ymode;
+            Arrays.fill(intraTop, top, top + 4, ymode);
+            Arrays.fill(intraLeft, ymode);
+        } else {
+            for (int y = 0; y < 4; y++) {
+                int ymode = intraLeft[y];
+                for (int x = 0; x < 4; x++) {
+                    int p = (intraTop[top + x] * 10 + ymode) * 9;
+                    int i = YMODES_INTRA4[br.getBit(VP8Tables.BMODES_PROBA[p])];
+                    while (i > 0) {
+                        i = YMODES_INTRA4[2 * i + br.getBit(VP8Tables.BMODES_PROBA[p + i])];
+                    }
+                    ymode = -i;
+                    intraTop[top + x] = ymode;
+                    modes[y * 4 + x] = ymode;
+                }
+                intraLeft[y] = ymode;
+            }
+        }
+        uvMode = br.getBit(142) == 0
+                ? B_DC_PRED
+                : br.getBit(114) == 0 ? B_VE_PRED : br.getBit(183) != 0 ? B_TM_PRED : B_HE_PRED;
+    }
+
+    /**
+     * Parses and dequantizes the coefficients of the current macroblock
+     *
+     * @return true if any coefficient is not zero
+     */
+    private boolean decodeCoefficients(VP8BoolDecoder br, int mbX) {
+        Arrays.fill(coeffs, 0);
+        if (skip) {
+            nzTop[mbX] = 0;
+            nzLeft = 0;
+            if (!isI4x4) {
+                nzDcTop[mbX] = 0;
+                nzDcLeft = 0;
+            }
+            return false;
+        }
+
+        int[] y1 = y1Quant[segment];
+        int[] uv = uvQuant[segment];
+        boolean nonZero = false;
+        int first;
+        int acType;
+        if (!isI4x4) {
+            int[] y2 = y2Quant[segment];
+            Arrays.fill(dc, 0);
+            int nz = getCoeffs(br, 1, nzDcTop[mbX] + nzDcLeft, y2[0], y2[1], 0, dc, 0);
+            nzDcTop[mbX] = nzDcLeft = nz > 0 ? 1 : 0;
+            transformWHT(dc, coeffs);
+            first = 1;
+            acType = 0;
+        } else {
+            first = 0;
+            acType = 3;
+        }
+
+        int dst = 0;
+        int tnz = nzTop[mbX] & 0x0F;
+        int lnz = nzLeft & 0x0F;
+        for (int y = 0; y < 4; y++) {
+            int l = lnz & 1;
+            for (int x = 0; x < 4; x++) {
+                int ctx = l + (tnz & 1);
+                int nz = getCoeffs(br, acType, ctx, y1[0], y1[1], first, coeffs, dst);
+                l = nz > first ? 1 : 0;
+                tnz = (tnz >> 1) | (l << 7);
+                nonZero |= nz > 1 || coeffs[dst] != 0;
+                dst += 16;
+            }
+            tnz >>= 4;
+            lnz = (lnz >> 1) | (l << 7);
+        }
+        int outTnz = tnz;
+        int outLnz = lnz >> 4;
+
+        for (int ch = 0; ch < 4; ch += 2) {
+            tnz = (nzTop[mbX] >> (4 + ch)) & 0xFF;
+            lnz = (nzLeft >> (4 + ch)) & 0xFF;
+            for (int y = 0; y < 2; y++) {
+                int l = lnz & 1;
+                for (int x = 0; x < 2; x++) {
+                    int ctx = l + (tnz & 1);
+                    int nz = getCoeffs(br, 2, ctx, uv[0], uv[1], 0, coeffs, dst);
+                    l = nz > 0 ? 1 : 0;
+                    tnz = (tnz >> 1) | (l << 3);
+                    nonZero |= nz > 1 || coeffs[dst] != 0;
+                    dst += 16;
+                }
+                tnz >>= 2;
+                lnz = (lnz >> 1) | (l << 5);
+            }
+            outTnz |= (tnz << 4) << ch;
+            outLnz |= (lnz & 0xF0) << ch;
+        }
+        nzTop[mbX] = outTnz & 0xFF;
+        nzLeft = outLnz & 0xFF;
+        return nonZero;
+    }
+
+    private static int probaOffset(int type, int n, int ctx) {
+        return ((type * 8 + BANDS[n]) * 3 + ctx) * 11;
+    }
+
+    /**
+     * Parses the tokens of a 4x4 block, starting from position n
+     *
+     * @return the position following the last parsed token
+     */
+    private int getCoeffs(VP8BoolDecoder br, int type, int ctx, int dcQuant, int acQuant, int n, int[] out, int off) {
+        int p = probaOffset(type, n, ctx);
+        for (; n < 16; n++) {
+            if (br.getBit(proba[p]) == 0) {
+                // end of block
+                return n;
+            }
+            while (br.getBit(proba[p + 1]) == 0) {
+                // zero coefficient
+                p = probaOffset(type, ++n, 0);
+                if (n == 16) {
+                    return 16;
+                }
+            }
+            int v;
+            if (br.getBit(proba[p + 2]) == 0) {
+                v = 1;
+                p = probaOffset(type, n + 1, 1);
+            } else {
+                v = getLargeValue(br, p);
+                p = probaOffset(type, n + 1, 2);
+            }
+            int value = br.getBit(0x80) != 0 ? -v : v;
+            // coefficients are 16 bits
+            out[off + ZIGZAG[n]] = (short) (value * (n > 0 ? acQuant : dcQuant));
+        }
+        return 16;
+    }
+
+    private int getLargeValue(VP8BoolDecoder br, int p) {
+        int v;
+        if (br.getBit(proba[p + 3]) == 0) {
+            if (br.getBit(proba[p + 4]) == 0) {
+                v = 2;
+            } else {
+                v = 3 + br.getBit(proba[p + 5]);
+            }
+        } else {
+            if (br.getBit(proba[p + 6]) == 0) {
+                if (br.getBit(proba[p + 7]) == 0) {
+                    v = 5 + br.getBit(159);
+                } else {
+                    v = 7 + 2 * br.getBit(165);
+                    v += br.getBit(145);
+                }
+            } else {
+                int bit1 = br.getBit(proba[p + 8]);
+                int bit0 = br.getBit(proba[p + 9 + bit1]);
+                int cat = 2 * bit1 + bit0;
+                v = 0;
+                for (int prob : CAT3456[cat]) {
+                    v += v + br.getBit(prob);
+                }
+                v += 3 + (8 << cat);
+            }
+        }
+        return v;
+    }
+
+    /** Inverse Walsh-Hadamard transform of the luma DC coefficients, spreading them to the 16 blocks */
+    private static void transformWHT(int[] in, int[] out) {
+        int[] tmp = new int[16];
+        for (int i = 0; i < 4; i++) {
+            int a0 = in[i] + in[12 + i];
+            int a1 = in[4 + i] + in[8 + i];
+            int a2 = in[4 + i] - in[8 + i];
+            int a3 = in[i] - in[12 + i];
+            tmp[i] = a0 + a1;
+            tmp[8 + i] = a0 - a1;
+            tmp[4 + i] = a3 + a2;
+            tmp[12 + i] = a3 - a2;
+        }
+        int o = 0;
+        for (int i = 0; i < 4; i++) {
+            int dc = tmp[i * 4] + 3;
+            int a0 = dc + tmp[3 + i * 4];
+            int a1 = tmp[1 + i * 4] + tmp[2 + i * 4];
+            int a2 = tmp[1 + i * 4] - tmp[2 + i * 4];
+            int a3 = dc - tmp[3 + i * 4];
+            out[o] = (short) ((a0 + a1) >> 3);
+            out[o + 16] = (short) ((a3 + a2) >> 3);
+            out[o + 32] = (short) ((a0 - a1) >> 3);
+            out[o + 48] = (short) ((a3 - a2) >> 3);
+            o += 64;
+        }
+    }
+
+    private static int mul1(int a) {
+        return ((a * 20091) >> 16) + a;
+    }
+
+    private static int mul2(int a) {
+        return (a * 35468) >> 16;
+    }
+
+    /** Inverse DCT of a 4x4 block, adding the residuals to the prediction */
+    private static void transform(int[] in, int inOff, int[] dst, int dstOff) {
+        int[] tmp = new int[16];
+        for (int i = 0, t = 0; i < 4; i++, t += 4) {
+            int i0 = in[inOff + i];
+            int i4 = in[inOff + 4 + i];
+            int i8 = in[inOff + 8 + i];
+            int i12 = in[inOff + 12 + i];
+            int a = i0 + i8;
+            int b = i0 - i8;
+            int c = mul2(i4) - mul1(i12);
+            int d = mul1(i4) + mul2(i12);
+            tmp[t] = a + d;
+            tmp[t + 1] = b + c;
+            tmp[t + 2] = b - c;
+            tmp[t + 3] = a - d;
+        }
+        for (int i = 0; i < 4; i++, dstOff += BPS) {
+            int dc = tmp[i] + 4;
+            int a = dc + tmp[8 + i];
+            int b = dc - tmp[8 + i];
+            int c = mul2(tmp[4 + i]) - mul1(tmp[12 + i]);
+            int d = mul1(tmp[4 + i]) + mul2(tmp[12 + i]);
+            dst[dstOff] = clip8(dst[dstOff] + ((a + d) >> 3));
+            dst[dstOff + 1] = clip8(dst[dstOff + 1] + ((b + c) >> 3));
+            dst[dstOff + 2] = clip8(dst[dstOff + 2] + ((b - c) >> 3));
+            dst[dstOff + 3] = clip8(dst[dstOff + 3] + ((a - d) >> 3));
+        }
+    }
+
+    private static int clip8(int v) {
+        return v < 0 ? 0 : v > 255 ? 255 : v;
+    }
+
+    private static int checkMode(int mbX, int mbY, int mode) {
+        if (mode == B_DC_PRED) {
+            if (mbX == 0) {
+                return mbY == 0 ? DC_PRED_NOTOPLEFT : DC_PRED_NOLEFT;
+            }
+            return mbY == 0 ? DC_PRED_NOTOP : B_DC_PRED;
+        }
+        return mode;
+    }
+
+    /** Predicts the current macroblock, adds the residuals and stores the result in the planes */
+    private void reconstruct(int mbX, int mbY) {
+        int[] b = work;
+        if (mbX == 0) {
+            // left samples of the frame edge
+            for (int j = 0; j < 16; j++) {
+                b[Y_OFF + j * BPS - 1] = 129;
+            }
+            for (int j = 0; j < 8; j++) {
+                b[U_OFF + j * BPS - 1] = 129;
+                b[V_OFF + j * BPS - 1] = 129;
+            }
+            if (mbY > 0) {
+                b[Y_OFF - 1 - BPS] = b[U_OFF - 1 - BPS] = b[V_OFF - 1 - BPS] = 129;
+            } else {
+                // top samples of the frame edge, top left and top right included
+                Arrays.fill(b, Y_OFF - BPS - 1, Y_OFF - BPS + 20, 127);
+                Arrays.fill(b, U_OFF - BPS - 1, U_OFF - BPS + 8, 127);
+                Arrays.fill(b, V_OFF - BPS - 1, V_OFF - BPS + 8, 127);
+            }
+        } else {
+            // the right columns of the previous macroblock become the left ones
+            for (int j = -1; j < 16; j++) {
+                System.arraycopy(b, Y_OFF + j * BPS + 12, b, Y_OFF + j * BPS - 4, 4);
+            }
+            for (int j = -1; j < 8; j++) {
+                System.arraycopy(b, U_OFF + j * BPS + 4, b, U_OFF + j * BPS - 4, 4);
+                System.arraycopy(b, V_OFF + j * BPS + 4, b, V_OFF + j * BPS - 4, 4);
+            }
+        }
+
+        if (mbY > 0) {
+            for (int i = 0; i < 16; i++) {
+                b[Y_OFF - BPS + i] = topY[mbX * 16 + i] & 0xFF;
+            }
+            for (int i = 0; i < 8; i++) {
+                b[U_OFF - BPS + i] = topU[mbX * 8 + i] & 0xFF;
+                b[V_OFF - BPS + i] = topV[mbX * 8 + i] & 0xFF;
+            }
+        }
+
+        if (isI4x4) {
+            int topRight = Y_OFF - BPS + 16;
+            if (mbY > 0) {
+                for (int i = 0; i < 4; i++) {
+                    b[topRight + i] = mbX >= mbWidth - 1 ? topY[mbX * 16 + 15] & 0xFF : topY[mbX * 16 + 16 + i] & 0xFF;
+                }
+            }
+            // the blocks on the right column use the top right samples of the macroblock
+            for (int r = 1; r < 4; r++) {
+                System.arraycopy(b, topRight, b, topRight + r * 4 * BPS, 4);
+            }
+            for (int n = 0; n < 16; n++) {
+                int dst = Y_OFF + SCAN[n];
+                predictLuma4(modes[n], b, dst);
+                transform(coeffs, n * 16, b, dst);
+            }
+        } else {
+            predictLuma16(checkMode(mbX, mbY, modes[0]), b, Y_OFF);
+            for (int n = 0; n < 16; n++) {
+                transform(coeffs, n * 16, b, Y_OFF + SCAN[n]);
+            }
+        }
+
+        int chromaMode = checkMode(mbX, mbY, uvMode);
+        predictChroma8(chromaMode, b, U_OFF);
+        predictChroma8(chromaMode, b, V_OFF);
+        transform(coeffs, 16 * 16, b, U_OFF);
+        transform(coeffs, 17 * 16, b, U_OFF + 4);
+        transform(coeffs, 18 * 16, b, U_OFF + 4 * BPS);
+        transform(coeffs, 19 * 16, b, U_OFF + 4 * BPS + 4);
+        transform(coeffs, 20 * 16, b, V_OFF);
+        transform(coeffs, 21 * 16, b, V_OFF + 4);
+        transform(coeffs, 22 * 16, b, V_OFF + 4 * BPS);
+        transform(coeffs, 23 * 16, b, V_OFF + 4 * BPS + 4);
+
+        if (mbY < mbHeight - 1) {
+            for (int i = 0; i < 16; i++) {
+                topY[mbX * 16 + i] = (byte) b[Y_OFF + 15 * BPS + i];
+            }
+            for (int i = 0; i < 8; i++) {
+                topU[mbX * 8 + i] = (byte) b[U_OFF + 7 * BPS + i];
+                topV[mbX * 8 + i] = (byte) b[V_OFF + 7 * BPS + i];
+            }
+        }
+
+        for (int j = 0; j < 16; j++) {
+            int o = (mbY * 16 + j) * yStride + mbX * 16;
+            for (int i = 0; i < 16; i++) {
+                yPlane[o + i] = (byte) b[Y_OFF + j * BPS + i];
+            }
+        }
+        for (int j = 0; j < 8; j++) {
+            int o = (mbY * 8 + j) * uvStride + mbX * 8;
+            for (int i = 0; i < 8; i++) {
+                uPlane[o + i] = (byte) b[U_OFF + j * BPS + i];
+                vPlane[o + i] = (byte) b[V_OFF + j * BPS + i];
+            }
+        }
+    }
+
+    private static void fill(int[] b, int dst, int size, int value) {
+        for (int j = 0; j < size; j++, dst += BPS) {
+            Arrays.fill(b, dst, dst + size, value);
+        }
+    }
+
+    private static void trueMotion(int[] b, int dst, int size) {
+        int top = dst - BPS;
+        int topLeft = b[top - 1];
+        for (int y = 0; y < size; y++, dst += BPS) {
+            int left = b[dst - 1] - topLeft;
+            for (int x = 0; x < size; x++) {
+                b[dst + x] = clip8(b[top + x] + left);
+            }
+        }
+    }
+
+    private static void vertical(int[] b, int dst, int size) {
+        for (int y = 0; y < size; y++) {
+            System.arraycopy(b, dst - BPS, b, dst + y * BPS, size);
+        }
+    }
+
+    private static void horizontal(int[] b, int dst, int size) {
+        for (int y = 0; y < size; y++, dst += BPS) {
+            Arrays.fill(b, dst, dst + size, b[dst - 1]);
+        }
+    }
+
+    private static int sumTop(int[] b, int dst, int size) {
+        int sum = 0;
+        for (int i = 0; i < size; i++) {
+            sum += b[dst - BPS + i];
+        }
+        return sum;
+    }
+
+    private static int sumLeft(int[] b, int dst, int size) {
+        int sum = 0;
+        for (int j = 0; j < size; j++) {
+            sum += b[dst - 1 + j * BPS];
+        }
+        return sum;
+    }
+
+    private static void predictLuma16(int mode, int[] b, int dst) {
+        switch (mode) {
+            case B_TM_PRED:
+                trueMotion(b, dst, 16);
+                break;
+            case B_VE_PRED:
+                vertical(b, dst, 16);
+                break;
+            case B_HE_PRED:
+                horizontal(b, dst, 16);
+                break;
+            case DC_PRED_NOTOP:
+                fill(b, dst, 16, (sumLeft(b, dst, 16) + 8) >> 4);
+                break;
+            case DC_PRED_NOLEFT:
+                fill(b, dst, 16, (sumTop(b, dst, 16) + 8) >> 4);
+                break;
+            case DC_PRED_NOTOPLEFT:
+                fill(b, dst, 16, 0x80);
+                break;
+            default:
+                fill(b, dst, 16, (sumTop(b, dst, 16) + sumLeft(b, dst, 16) + 16) >> 5);
+                break;
+        }
+    }
+
+    private static void predictChroma8(int mode, int[] b, int dst) {
+        switch (mode) {
+            case B_TM_PRED:
+                trueMotion(b, dst, 8);
+                break;
+            case B_VE_PRED:
+                vertical(b, dst, 8);
+                break;
+            case B_HE_PRED:
+                horizontal(b, dst, 8);
+                break;
+            case DC_PRED_NOTOP:
+                fill(b, dst, 8, (sumLeft(b, dst, 8) + 4) >> 3);
+                break;
+            case DC_PRED_NOLEFT:
+                fill(b, dst, 8, (sumTop(b, dst, 8) + 4) >> 3);
+                break;
+            case DC_PRED_NOTOPLEFT:
+                fill(b, dst, 8, 0x80);
+                break;
+            default:
+                fill(b, dst, 8, (sumTop(b, dst, 8) + sumLeft(b, dst, 8) + 8) >> 4);
+                break;
+        }
+    }
+
+    private static int avg3(int a, int b, int c) {
+        return (a + 2 * b + c + 2) >> 2;
+    }
+
+    private static int avg2(int a, int b) {
+        return (a + b + 1) >> 1;
+    }
+
+    private static void predictLuma4(int mode, int[] b, int dst) {
+        int top = dst - BPS;
+        switch (mode) {
+            case B_DC_PRED:
+                fill(b, dst, 4, (sumTop(b, dst, 4) + sumLeft(b, dst, 4) + 4) >> 3);
+                break;
+            case B_TM_PRED:
+                trueMotion(b, dst, 4);
+                break;
+            case B_VE_PRED:
+                for (int i = 0; i < 4; i++) {
+                    int v = avg3(b[top + i - 1], b[top + i], b[top + i + 1]);
+                    for (int j = 0; j < 4; j++) {
+                        b[dst + j * BPS + i] = v;
+                    }
+                }
+                break;
+            case B_HE_PRED: {
+                int a = b[dst - 1 - BPS];
+                int i0 = b[dst - 1];
+                int i1 = b[dst - 1 + BPS];
+                int i2 = b[dst - 1 + 2 * BPS];
+                int i3 = b[dst - 1 + 3 * BPS];
+                Arrays.fill(b, dst, dst + 4, avg3(a, i0, i1));
+                Arrays.fill(b, dst + BPS, dst + BPS + 4, avg3(i0, i1, i2));
+                Arrays.fill(b, dst + 2 * BPS, dst + 2 * BPS + 4, avg3(i1, i2, i3));
+                Arrays.fill(b, dst + 3 * BPS, dst + 3 * BPS + 4, avg3(i2, i3, i3));
+                break;
+            }
+            case B_RD_PRED: {
+                int i = b[dst - 1];
+                int j = b[dst - 1 + BPS];
+                int k = b[dst - 1 + 2 * BPS];
+                int l = b[dst - 1 + 3 * BPS];
+                int x = b[top - 1];
+                int a = b[top];
+                int bb = b[top + 1];
+                int c = b[top + 2];
+                int d = b[top + 3];
+                set(b, dst, 0, 3, avg3(j, k, l));
+                set(b, dst, 1, 3, set(b, dst, 0, 2, avg3(i, j, k)));
+                set(b, dst, 2, 3, set(b, dst, 1, 2, set(b, dst, 0, 1, avg3(x, i, j))));
+                set(b, dst, 3, 3, set(b, dst, 2, 2, set(b, dst, 1, 1, set(b, dst, 0, 0, avg3(a, x, i)))));
+                set(b, dst, 3, 2, set(b, dst, 2, 1, set(b, dst, 1, 0, avg3(bb, a, x))));
+                set(b, dst, 3, 1, set(b, dst, 2, 0, avg3(c, bb, a)));
+                set(b, dst, 3, 0, avg3(d, c, bb));
+                break;
+            }
+            case B_LD_PRED: {
+                int a = b[top];
+                int bb = b[top + 1];
+                int c = b[top + 2];
+                int d = b[top + 3];
+                int e = b[top + 4];
+                int f = b[top + 5];
+                int g = b[top + 6];
+                int h = b[top + 7];
+                set(b, dst, 0, 0, avg3(a, bb, c));
+                set(b, dst, 1, 0, set(b, dst, 0, 1, avg3(bb, c, d)));
+                set(b, dst, 2, 0, set(b, dst, 1, 1, set(b, dst, 0, 2, avg3(c, d, e))));
+                set(b, dst, 3, 0, set(b, dst, 2, 1, set(b, dst, 1, 2, set(b, dst, 0, 3, avg3(d, e, f)))));
+                set(b, dst, 3, 1, set(b, dst, 2, 2, set(b, dst, 1, 3, avg3(e, f, g))));
+                set(b, dst, 3, 2, set(b, dst, 2, 3, avg3(f, g, h)));
+                set(b, dst, 3, 3, avg3(g, h, h));
+                break;
+            }
+            case B_VR_PRED: {
+                int i = b[dst - 1];
+                int j = b[dst - 1 + BPS];
+                int k = b[dst - 1 + 2 * BPS];
+                int x = b[top - 1];
+                int a = b[top];
+                int bb = b[top + 1];
+                int c = b[top + 2];
+                int d = b[top + 3];
+                set(b, dst, 0, 0, set(b, dst, 1, 2, avg2(x, a)));
+                set(b, dst, 1, 0, set(b, dst, 2, 2, avg2(a, bb)));
+                set(b, dst, 2, 0, set(b, dst, 3, 2, avg2(bb, c)));
+                set(b, dst, 3, 0, avg2(c, d));
+                set(b, dst, 0, 3, avg3(k, j, i));
+                set(b, dst, 0, 2, avg3(j, i, x));
+                set(b, dst, 0, 1, set(b, dst, 1, 3, avg3(i, x, a)));
+                set(b, dst, 1, 1, set(b, dst, 2, 3, avg3(x, a, bb)));
+                set(b, dst, 2, 1, set(b, dst, 3, 3, avg3(a, bb, c)));
+                set(b, dst, 3, 1, avg3(bb, c, d));
+                break;
+            }
+            case B_VL_PRED: {
+                int a = b[top];
+                int bb = b[top + 1];
+                int c = b[top + 2];
+                int d = b[top + 3];
+                int e = b[top + 4];
+                int f = b[top + 5];
+                int g = b[top + 6];
+                int h = b[top + 7];
+                set(b, dst, 0, 0, avg2(a, bb));
+                set(b, dst, 1, 0, set(b, dst, 0, 2, avg2(bb, c)));
+                set(b, dst, 2, 0, set(b, dst, 1, 2, avg2(c, d)));
+                set(b, dst, 3, 0, set(b, dst, 2, 2, avg2(d, e)));
+                set(b, dst, 0, 1, avg3(a, bb, c));
+                set(b, dst, 1, 1, set(b, dst, 0, 3, avg3(bb, c, d)));
+                set(b, dst, 2, 1, set(b, dst, 1, 3, avg3(c, d, e)));
+                set(b, dst, 3, 1, set(b, dst, 2, 3, avg3(d, e, f)));
+                set(b, dst, 3, 2, avg3(e, f, g));
+                set(b, dst, 3, 3, avg3(f, g, h));
+                break;
+            }
+            case B_HD_PRED: {
+                int i = b[dst - 1];
+                int j = b[dst - 1 + BPS];
+                int k = b[dst - 1 + 2 * BPS];
+                int l = b[dst - 1 + 3 * BPS];
+                int x = b[top - 1];
+                int a = b[top];
+                int bb = b[top + 1];
+                int c = b[top + 2];
+                set(b, dst, 0, 0, set(b, dst, 2, 1, avg2(i, x)));
+                set(b, dst, 0, 1, set(b, dst, 2, 2, avg2(j, i)));
+                set(b, dst, 0, 2, set(b, dst, 2, 3, avg2(k, j)));
+                set(b, dst, 0, 3, avg2(l, k));
+                set(b, dst, 3, 0, avg3(a, bb, c));
+                set(b, dst, 2, 0, avg3(x, a, bb));
+                set(b, dst, 1, 0, set(b, dst, 3, 1, avg3(i, x, a)));
+                set(b, dst, 1, 1, set(b, dst, 3, 2, avg3(j, i, x)));
+                set(b, dst, 1, 2, set(b, dst, 3, 3, avg3(k, j, i)));
+                set(b, dst, 1, 3, avg3(l, k, j));
+                break;
+            }
+            default: {
+                // horizontal up
+                int i = b[dst - 1];
+                int j = b[dst - 1 + BPS];
+                int k = b[dst - 1 + 2 * BPS];
+                int l = b[dst - 1 + 3 * BPS];
+                set(b, dst, 0, 0, avg2(i, j));
+                set(b, dst, 2, 0, set(b, dst, 0, 1, avg2(j, k)));
+                set(b, dst, 2, 1, set(b, dst, 0, 2, avg2(k, l)));
+                set(b, dst, 1, 0, avg3(i, j, k));
+                set(b, dst, 3, 0, set(b, dst, 1, 1, avg3(j, k, l)));
+                set(b, dst, 3, 1, set(b, dst, 1, 2, avg3(k, l, l)));
+                set(b, dst, 3, 2, l);
+                set(b, dst, 2, 2, l);
+                set(b, dst, 0, 3, l);
+                set(b, dst, 1, 3, l);
+                set(b, dst, 2, 3, l);
+                set(b, dst, 3, 3, l);
+                break;
+            }
+        }
+    }
+
+    private static int set(int[] b, int dst, int x, int y, int value) {
+        b[dst + x + y * BPS] = value;
+        return value;
+    }
+
+    // loop filter, RFC 6386 section 15
+
+    private void filterRow(int mbY) {
+        for (int mbX = 0; mbX < mbWidth; mbX++) {
+            int limit = rowFilterLimit[mbX];
+            if (limit == 0) {
+                continue;
+            }
+            int interiorLimit = rowInteriorLimit[mbX];
+            int hevThreshold = rowHevThreshold[mbX];
+            boolean inner = rowFilterInner[mbX];
+            int y = mbY * 16 * yStride + mbX * 16;
+            if (filterType == 1) {
+                if (mbX > 0) {
+                    simpleFilter(yPlane, y, 1, yStride, 16, limit + 4);
+                }
+                if (inner) {
+                    for (int k = 4; k < 16; k += 4) {
+                        simpleFilter(yPlane, y + k, 1, yStride, 16, limit);
+                    }
+                }
+                if (mbY > 0) {
+                    simpleFilter(yPlane, y, yStride, 1, 16, limit + 4);
+                }
+                if (inner) {
+                    for (int k = 4; k < 16; k += 4) {
+                        simpleFilter(yPlane, y + k * yStride, yStride, 1, 16, limit);
+                    }
+                }
+            } else {
+                int uv = mbY * 8 * uvStride + mbX * 8;
+                if (mbX > 0) {
+                    macroblockFilter(yPlane, y, 1, yStride, 16, limit + 4, interiorLimit, hevThreshold);
+                    macroblockFilter(uPlane, uv, 1, uvStride, 8, limit + 4, interiorLimit, hevThreshold);
+                    macroblockFilter(vPlane, uv, 1, uvStride, 8, limit + 4, interiorLimit, hevThreshold);
+                }
+                if (inner) {
+                    for (int k = 4; k < 16; k += 4) {
+                        innerFilter(yPlane, y + k, 1, yStride, 16, limit, interiorLimit, hevThreshold);
+                    }
+                    innerFilter(uPlane, uv + 4, 1, uvStride, 8, limit, interiorLimit, hevThreshold);
+                    innerFilter(vPlane, uv + 4, 1, uvStride, 8, limit, interiorLimit, hevThreshold);
+                }
+                if (mbY > 0) {
+                    macroblockFilter(yPlane, y, yStride, 1, 16, limit + 4, interiorLimit, hevThreshold);
+                    macroblockFilter(uPlane, uv, uvStride, 1, 8, limit + 4, interiorLimit, hevThreshold);
+                    macroblockFilter(vPlane, uv, uvStride, 1, 8, limit + 4, interiorLimit, hevThreshold);
+                }
+                if (inner) {
+                    for (int k = 4; k < 16; k += 4) {
+                        innerFilter(yPlane, y + k * yStride, yStride, 1, 16, limit, interiorLimit, hevThreshold);
+                    }
+                    innerFilter(uPlane, uv + 4 * uvStride, uvStride, 1, 8, limit, interiorLimit, hevThreshold);
+                    innerFilter(vPlane, uv + 4 * uvStride, uvStride, 1, 8, limit, interiorLimit, hevThreshold);
+                }
+            }
+        }
+    }
+
+    /** Clips to [-128, 127] */
+    private static int sclip1(int v) {
+        return v < -128 ? -128 : v > 127 ? 127 : v;
+    }
+
+    /** Clips to [-16, 15] */
+    private static int sclip2(int v) {
+        return v < -16 ? -16 : v > 15 ? 15 : v;
+    }
+
+    private static boolean needsFilter(byte[] p, int o, int step, int limit) {
+        int p1 = p[o - 2 * step] & 0xFF;
+        int p0 = p[o - step] & 0xFF;
+        int q0 = p[o] & 0xFF;
+        int q1 = p[o + step] & 0xFF;
+        return 4 * Math.abs(p0 - q0) + Math.abs(p1 - q1) <= 2 * limit + 1;
+    }
+
+    private static boolean needsFilter2(byte[] p, int o, int step, int limit, int interiorLimit) {
+        if (!needsFilter(p, o, step, limit)) {
+            return false;
+        }
+        int p3 = p[o - 4 * step] & 0xFF;
+        int p2 = p[o - 3 * step] & 0xFF;
+        int p1 = p[o - 2 * step] & 0xFF;
+        int p0 = p[o - step] & 0xFF;
+        int q0 = p[o] & 0xFF;
+        int q1 = p[o + step] & 0xFF;
+        int q2 = p[o + 2 * step] & 0xFF;
+        int q3 = p[o + 3 * step] & 0xFF;
+        return Math.abs(p3 - p2) <= interiorLimit
+                && Math.abs(p2 - p1) <= interiorLimit
+                && Math.abs(p1 - p0) <= interiorLimit
+                && Math.abs(q3 - q2) <= interiorLimit
+                && Math.abs(q2 - q1) <= interiorLimit
+                && Math.abs(q1 - q0) <= interiorLimit;
+    }
+
+    private static boolean highEdgeVariance(byte[] p, int o, int step, int threshold) {
+        int p1 = p[o - 2 * step] & 0xFF;
+        int p0 = p[o - step] & 0xFF;
+        int q0 = p[o] & 0xFF;
+        int q1 = p[o + step] & 0xFF;
+        return Math.abs(p1 - p0) > threshold || Math.abs(q1 - q0) > threshold;
+    }
+
+    /** Adjusts 2 pixels, using the outer taps */
+    private static void doFilter2(byte[] p, int o, int step) {
+        int p1 = p[o - 2 * step] & 0xFF;
+        int p0 = p[o - step] & 0xFF;
+        int q0 = p[o] & 0xFF;
+        int q1 = p[o + step] & 0xFF;
+        int a = 3 * (q0 - p0) + sclip1(p1 - q1);
+        int a1 = sclip2((a + 4) >> 3);
+        int a2 = sclip2((a + 3) >> 3);
+        p[o - step] = (byte) clip8(p0 + a2);
+        p[o] = (byte) clip8(q0 - a1);
+    }
+
+    /** Adjusts 4 pixels, without using the outer taps */
+    private static void doFilter4(byte[] p, int o, int step) {
+        int p1 = p[o - 2 * step] & 0xFF;
+        int p0 = p[o - step] & 0xFF;
+        int q0 = p[o] & 0xFF;
+        int q1 = p[o + step] & 0xFF;
+        int a = 3 * (q0 - p0);
+        int a1 = sclip2((a + 4) >> 3);
+        int a2 = sclip2((a + 3) >> 3);
+        int a3 = (a1 + 1) >> 1;
+        p[o - 2 * step] = (byte) clip8(p1 + a3);
+        p[o - step] = (byte) clip8(p0 + a2);
+        p[o] = (byte) clip8(q0 - a1);
+        p[o + step] = (byte) clip8(q1 - a3);
+    }
+
+    /** Adjusts 6 pixels, on macroblock edges */
+    private static void doFilter6(byte[] p, int o, int step) {
+        int p2 = p[o - 3 * step] & 0xFF;
+        int p1 = p[o - 2 * step] & 0xFF;
+        int p0 = p[o - step] & 0xFF;
+        int q0 = p[o] & 0xFF;
+        int q1 = p[o + step] & 0xFF;
+        int q2 = p[o + 2 * step] & 0xFF;
+        int a = sclip1(3 * (q0 - p0) + sclip1(p1 - q1));
+        int a1 = (27 * a + 63) >> 7;
+        int a2 = (18 * a + 63) >> 7;
+        int a3 = (9 * a + 63) >> 7;
+        p[o - 3 * step] = (byte) clip8(p2 + a3);
+        p[o - 2 * step] = (byte) clip8(p1 + a2);
+        p[o - step] = (byte) clip8(p0 + a1);
+        p[o] = (byte) clip8(q0 - a1);
+        p[o + step] = (byte) clip8(q1 - a2);
+        p[o + 2 * step] = (byte) clip8(q2 - a3);
+    }
+
+    /**
+     * Filters an edge of the given size
+     *
+     * @param step the offset between pixels across the edge
+     * @param along the offset between pixels along the edge
+     */
+    private static void simpleFilter(byte[] p, int o, int step, int along, int size, int limit) {
+        for (int i = 0; i < size; i++, o += along) {
+            if (needsFilter(p, o, step, limit)) {
+                doFilter2(p, o, step);
+            }
+        }
+    }
+
+    private static void macroblockFilter(
+            byte[] p, int o, int step, int along, int size, int limit, int interiorLimit, int hevThreshold) {
+        for (int i = 0; i < size; i++, o += along) {
+            if (needsFilter2(p, o, step, limit, interiorLimit)) {
+                if (highEdgeVariance(p, o, step, hevThreshold)) {
+                    doFilter2(p, o, step);
+                } else {
+                    doFilter6(p, o, step);
+                }
+            }
+        }
+    }
+
+    private static void innerFilter(
+            byte[] p, int o, int step, int along, int size, int limit, int interiorLimit, int hevThreshold) {
+        for (int i = 0; i < size; i++, o += along) {
+            if (needsFilter2(p, o, step, limit, interiorLimit)) {
+                if (highEdgeVariance(p, o, step, hevThreshold)) {
+                    doFilter2(p, o, step);
+                } else {
+                    doFilter4(p, o, step);
+                }
+            }
+        }
+    }
+
+    // conversion to RGB
+
+    /**
+     * Converts the decoded frame to interleaved RGB samples, bilinearly upsampling chroma as the "fancy upsampler" of
+     * libwebp does.
+     *
+     * @param numBands the number of samples per pixel in the destination, the 4th one being left untouched
+     */
+    void toRGB(byte[] dst, int dstOffset, int numBands) {
+        int rowStride = width * numBands;
+        // first row, mirroring chroma at the top edge
+        upsampleLinePair(0, -1, 0, 0, dst, dstOffset, -1, numBands);
+        int y = 0;
+        for (; y + 2 < height; y += 2) {
+            int topUv = (y >> 1) * uvStride;
+            upsampleLinePair(
+                    (y + 1) * yStride,
+                    (y + 2) * yStride,
+                    topUv,
+                    topUv + uvStride,
+                    dst,
+                    dstOffset + (y + 1) * rowStride,
+                    dstOffset + (y + 2) * rowStride,
+                    numBands);
+        }
+        if ((height & 1) == 0) {
+            // last row of even sized pictures, mirroring chroma at the bottom edge
+            int uv = (y >> 1) * uvStride;
+            upsampleLinePair((y + 1) * yStride, -1, uv, uv, dst, dstOffset + (y + 1) * rowStride, -1, numBands);
+        }
+    }
+
+    private void upsampleLinePair(
+            int topY, int bottomY, int topUv, int curUv, byte[] dst, int topDst, int bottomDst, int numBands) {
+        int len = width;
+        int lastPixelPair = (len - 1) >> 1;
+        int tlU = uPlane[topUv] & 0xFF;
+        int tlV = vPlane[topUv] & 0xFF;
+        int lU = uPlane[curUv] & 0xFF;
+        int lV = vPlane[curUv] & 0xFF;
+        yuvToRgb(yPlane[topY] & 0xFF, (3 * tlU + lU + 2) >> 2, (3 * tlV + lV + 2) >> 2, dst, topDst);
+        if (bottomY >= 0) {
+            yuvToRgb(yPlane[bottomY] & 0xFF, (3 * lU + tlU + 2) >> 2, (3 * lV + tlV + 2) >> 2, dst, bottomDst);
+        }
+        for (int x = 1; x <= lastPixelPair; x++) {
+            int tU = uPlane[topUv + x] & 0xFF;
+            int tV = vPlane[topUv + x] & 0xFF;
+            int u = uPlane[curUv + x] & 0xFF;
+            int v = vPlane[curUv + x] & 0xFF;
+            int avgU = tlU + tU + lU + u + 8;
+            int avgV = tlV + tV + lV + v + 8;
+            int diag12U = (avgU + 2 * (tU + lU)) >> 3;
+            int diag12V = (avgV + 2 * (tV + lV)) >> 3;
+            int diag03U = (avgU + 2 * (tlU + u)) >> 3;
+            int diag03V = (avgV + 2 * (tlV + v)) >> 3;
+            int o = (2 * x - 1) * numBands;
+            yuvToRgb(yPlane[topY + 2 * x - 1] & 0xFF, (diag12U + tlU) >> 1, (diag12V + tlV) >> 1, dst, topDst + o);
+            yuvToRgb(yPlane[topY + 2 * x] & 0xFF, (diag03U + tU) >> 1, (diag03V + tV) >> 1, dst, topDst + o + numBands);
+            if (bottomY >= 0) {
+                yuvToRgb(
+                        yPlane[bottomY + 2 * x - 1] & 0xFF,
+                        (diag03U + lU) >> 1,
+                        (diag03V + lV) >> 1,
+                        dst,
+                        bottomDst + o);
+                yuvToRgb(
+                        yPlane[bottomY + 2 * x] & 0xFF,
+                        (diag12U + u) >> 1,
+                        (diag12V + v) >> 1,
+                        dst,
+                        bottomDst + o + numBands);
+            }
+            tlU = tU;
+            tlV = tV;
+            lU = u;
+            lV = v;
+        }
+        if ((len & 1) == 0) {
+            int o = (len - 1) * numBands;
+            yuvToRgb(yPlane[topY + len - 1] & 0xFF, (3 * tlU + lU + 2) >> 2, (3 * tlV + lV + 2) >> 2, dst, topDst + o);
+            if (bottomY >= 0) {
+                yuvToRgb(
+                        yPlane[bottomY + len - 1] & 0xFF,
+                        (3 * lU + tlU + 2) >> 2,
+                        (3 * lV + tlV + 2) >> 2,
+                        dst,
+                        bottomDst + o);
+            }
+        }
+    }
+
+    private static int multHi(int v, int coeff) {
+        return (v * coeff) >> 8;
+    }
+
+    /** Descales a 14 bits fixed point value to 8 bits, clipping it */
+    private static int clip8Fixed(int v) {
+        return (v & ~16383) == 0 ? v >> 6 : v < 0 ? 0 : 255;
+    }
+
+    private static void yuvToRgb(int y, int u, int v, byte[] dst, int o) {
+        int luma = multHi(y, 19077);
+        dst[o] = (byte) clip8Fixed(luma + multHi(v, 26149) - 14234);
+        dst[o + 1] = (byte) clip8Fixed(luma - multHi(u, 6419) - multHi(v, 13320) + 8708);
+        dst[o + 2] = (byte) clip8Fixed(luma + multHi(u, 33050) - 17685);
+    }
+}
@@ -0,0 +1,98 @@
+/*
+ *    ImageI/O-Ext - OpenSource Java Image translation Library
+ *    http://www.geo-solutions.it/
+ *    https://github.com/geosolutions-it/imageio-ext
+ *    (C) 2026, GeoSolutions
+ *    All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of GeoSolutions nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY GeoSolutions ``AS IS'' AND ANY
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL GeoSolutions BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package it.geosolutions.imageio.compression.webp;
+
+import java.util.zip.DataFormatException;
+
+/** Reads the bits of a VP8L lossless bitstream, least significant bit first. */
+final class VP8LBitReader {
+
+    private final byte[] data;
+
+    private final int end;
+
+    private int position;
+
+    /** The bits read ahead and not consumed yet, starting from the lowest one */
+    private long value;
+
+    private int bitCount;
+
+    private boolean eos;
+
+    VP8LBitReader(byte[] data, int offset, int length) {
+        this.data = data;
+        this.position = offset;
+        this.end = offset + length;
+        fill();
+    }
+
+    private void fill() {
+        while (bitCount <= 56 && position < end) {
+            value |= (data[position++] & 0xFFL) << bitCount;
+            bitCount += 8;
+        }
+    }
+
+    /** Reads up to 32 bits */
+    int readBits(int numBits) {
+        if (bitCount < numBits) {
+            fill();
+        }
+        int bits = (int) (value & ((1L << numBits) - 1));
+        skipBits(numBits);
+        return bits;
+    }
+
+    /** Returns the next bits without consuming them, at least 24 of them being valid unless the data is over */
+    int peekBits() {
+        if (bitCount < 24) {
+            fill();
+        }
+        return (int) value;
+    }
+
+    void skipBits(int numBits) {
+        value >>>= numBits;
+        bitCount -= numBits;
+        if (bitCount < 0) {
+            // reading past the end, the missing bits are zeros
+            eos = true;
+            bitCount = 0;
+        }
+    }
+
+    /** Fails if bits past the end of the data have been requested */
+    void checkEndOfStream() throws DataFormatException {
+        if (eos) {
+            throw new DataFormatException("Truncated VP8L data");
+        }
+    }
+}
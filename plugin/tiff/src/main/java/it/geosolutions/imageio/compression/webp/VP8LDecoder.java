@@ -0,0 +1,604 @@
+/*
+ *    ImageI/O-Ext - OpenSource Java Image translation Library
+ *    http://www.geo-solutions.it/
+ *    https://github.com/geosolutions-it/imageio-ext
+ *    (C) 2026, GeoSolutions
+ *    All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of GeoSolutions nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY GeoSolutions ``AS IS'' AND ANY
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL GeoSolutions BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package it.geosolutions.imageio.compression.webp;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.DataFormatException;
+
+/**
+ * Decoder of the VP8L lossless bitstream, returning the decoded pixels as ARGB integers. Also used for the alpha planes
+ * of lossy images, stored in the green channel of a headless VP8L stream.
+ */
+final class VP8LDecoder {
+
+    static final int SIGNATURE = 0x2F;
+
+    static final int NUM_LITERAL_CODES = 256;
+
+    static final int NUM_LENGTH_CODES = 24;
+
+    static final int NUM_DISTANCE_CODES = 40;
+
+    static final int MAX_CACHE_BITS = 11;
+
+    static final int PREDICTOR_TRANSFORM = 0;
+
+    static final int CROSS_COLOR_TRANSFORM = 1;
+
+    static final int SUBTRACT_GREEN_TRANSFORM = 2;
+
+    static final int COLOR_INDEXING_TRANSFORM = 3;
+
+    static final int NUM_CODE_LENGTH_CODES = 19;
+
+    static final int[] CODE_LENGTH_CODE_ORDER = {17, 18, 0, 1, 2, 3, 4, 5, 16, 6, 7, 8, 9, 10, 11, 12, 13, 14, 15};
+
+    /** Offsets of the 120 shortest distance codes, as (y << 4) | (8 - x) */
+    static final int[] CODE_TO_PLANE = {
+        0x18, 0x07, 0x17, 0x19, 0x28, 0x06, 0x27, 0x29, 0x16, 0x1a, 0x26, 0x2a, 0x38, 0x05, 0x37, 0x39, 0x15, 0x1b,
+                0x36,
+        0x3a, 0x25, 0x2b, 0x48, 0x04, 0x47, 0x49, 0x14, 0x1c, 0x35, 0x3b, 0x46, 0x4a, 0x24, 0x2c, 0x58, 0x45, 0x4b,
+                0x34,
+        0x3c, 0x03, 0x57, 0x59, 0x13, 0x1d, 0x56, 0x5a, 0x23, 0x2d, 0x44, 0x4c, 0x55, 0x5b, 0x33, 0x3d, 0x68, 0x02,
+                0x67,
+        0x69, 0x12, 0x1e, 0x66, 0x6a, 0x22, 0x2e, 0x54, 0x5c, 0x43, 0x4d, 0x65, 0x6b, 0x32, 0x3e, 0x78, 0x01, 0x77,
+                0x79,
+        0x53, 0x5d, 0x11, 0x1f, 0x64, 0x6c, 0x42, 0x4e, 0x76, 0x7a, 0x21, 0x2f, 0x75, 0x7b, 0x31, 0x3f, 0x63, 0x6d,
+                0x52,
+        0x5e, 0x00, 0x74, 0x7c, 0x41, 0x4f, 0x10, 0x20, 0x62, 0x6e, 0x30, 0x73, 0x7d, 0x51, 0x5f, 0x40, 0x72, 0x7e,
+                0x61,
+        0x6f, 0x50, 0x71, 0x7f, 0x60, 0x70
+    };
+
+    private static final int HUFFMAN_TABLE_BITS = 8;
+
+    private static final int LENGTHS_TABLE_BITS = 7;
+
+    private static final int GREEN = 0;
+
+    private static final int RED = 1;
+
+    private static final int BLUE = 2;
+
+    private static final int ALPHA = 3;
+
+    private static final int DIST = 4;
+
+    private final VP8LBitReader reader;
+
+    private final List<Transform> transforms = new ArrayList<>(4);
+
+    private int transformsSeen;
+
+    private VP8LDecoder(byte[] data, int offset, int length) {
+        this.reader = new VP8LBitReader(data, offset, length);
+    }
+
+    /** Returns the width, height and alpha flag of a VP8L stream, or null if the header is not valid */
+    static int[] readHeader(byte[] data, int offset, int length) {
+        if (length < 5 || (data[offset] & 0xFF) != SIGNATURE) {
+            return null;
+        }
+        VP8LBitReader reader = new VP8LBitReader(data, offset + 1, 4);
+        int width = reader.readBits(14) + 1;
+        int height = reader.readBits(14) + 1;
+        int alpha = reader.readBits(1);
+        int version = reader.readBits(3);
+        return version == 0 ? new int[] {width, height, alpha} : null;
+    }
+
+    /** Decodes a VP8L stream, as found in a VP8L chunk */
+    static int[] decode(byte[] data, int offset, int length) throws DataFormatException {
+        int[] header = readHeader(data, offset, length);
+        if (header == null) {
+            throw new DataFormatException("Invalid VP8L header");
+        }
+        VP8LDecoder decoder = new VP8LDecoder(data, offset + 5, length - 5);
+        return decoder.decodeImageStream(header[0], header[1], true);
+    }
+
+    /** Decodes the headless VP8L stream of a compressed alpha plane */
+    static int[] decodeAlpha(byte[] data, int offset, int length, int width, int height) throws DataFormatException {
+        VP8LDecoder decoder = new VP8LDecoder(data, offset, length);
+        return decoder.decodeImageStream(width, height, true);
+    }
+
+    /**
+     * Decodes an image stream, with transforms and meta Huffman codes being allowed for the main image only. Sub images
+     * of transforms and Huffman groups are decoded recursively.
+     */
+    private int[] decodeImageStream(int width, int height, boolean mainImage) throws DataFormatException {
+        int codedWidth = width;
+        if (mainImage) {
+            while (reader.readBits(1) != 0) {
+                codedWidth = readTransform(codedWidth, height);
+            }
+        }
+
+        int cacheBits = 0;
+        if (reader.readBits(1) != 0) {
+            cacheBits = reader.readBits(4);
+            if (cacheBits < 1 || cacheBits > MAX_CACHE_BITS) {
+                throw new DataFormatException("Invalid VP8L color cache size: " + cacheBits);
+            }
+        }
+
+        int huffmanBits = 0;
+        int huffmanWidth = 0;
+        int[] huffmanImage = null;
+        int numGroups = 1;
+        if (mainImage && reader.readBits(1) != 0) {
+            huffmanBits = reader.readBits(3) + 2;
+            huffmanWidth = subSampleSize(codedWidth, huffmanBits);
+            huffmanImage = decodeImageStream(huffmanWidth, subSampleSize(height, huffmanBits), false);
+            for (int i = 0; i < huffmanImage.length; i++) {
+                int group = (huffmanImage[i] >> 8) & 0xFFFF;
+                huffmanImage[i] = group;
+                numGroups = Math.max(numGroups, group + 1);
+            }
+        }
+        int[][][] groups = new int[numGroups][][];
+        for (int i = 0; i < numGroups; i++) {
+            groups[i] = readHuffmanGroup(cacheBits);
+        }
+        reader.checkEndOfStream();
+
+        int[] pixels = new int[codedWidth * height];
+        decodePixels(pixels, codedWidth, height, groups, huffmanImage, huffmanBits, huffmanWidth, cacheBits);
+        if (mainImage) {
+            for (int i = transforms.size() - 1; i >= 0; i--) {
+                pixels = transforms.get(i).inverse(pixels);
+            }
+        }
+        return pixels;
+    }
+
+    private int readTransform(int width, int height) throws DataFormatException {
+        int type = reader.readBits(2);
+        if ((transformsSeen & (1 << type)) != 0) {
+            throw new DataFormatException("Repeated VP8L transform: " + type);
+        }
+        transformsSeen |= 1 << type;
+        Transform transform = new Transform(type, width, height);
+        switch (type) {
+            case PREDICTOR_TRANSFORM:
+            case CROSS_COLOR_TRANSFORM:
+                transform.bits = reader.readBits(3) + 2;
+                transform.data = decodeImageStream(
+                        subSampleSize(width, transform.bits), subSampleSize(height, transform.bits), false);
+                break;
+            case COLOR_INDEXING_TRANSFORM:
+                int numColors = reader.readBits(8) + 1;
+                transform.bits = numColors > 16 ? 0 : numColors > 4 ? 1 : numColors > 2 ? 2 : 3;
+                transform.data = expandColorMap(decodeImageStream(numColors, 1, false), transform.bits);
+                width = subSampleSize(width, transform.bits);
+                break;
+            default:
+                break;
+        }
+        transforms.add(transform);
+        return width;
+    }
+
+    /** Undoes the delta coding of the palette, padding it to all the indices addressable by the packed pixels */
+    private static int[] expandColorMap(int[] colors, int bits) {
+        int[] colorMap = new int[1 << (8 >> bits)];
+        colorMap[0] = colors[0];
+        for (int i = 1; i < colors.length; i++) {
+            colorMap[i] = addPixels(colors[i], colorMap[i - 1]);
+        }
+        return colorMap;
+    }
+
+    private int[][] readHuffmanGroup(int cacheBits) throws DataFormatException {
+        int[][] group = new int[5][];
+        int cacheSize = cacheBits > 0 ? 1 << cacheBits : 0;
+        group[GREEN] = readHuffmanCode(NUM_LITERAL_CODES + NUM_LENGTH_CODES + cacheSize);
+        group[RED] = readHuffmanCode(NUM_LITERAL_CODES);
+        group[BLUE] = readHuffmanCode(NUM_LITERAL_CODES);
+        group[ALPHA] = readHuffmanCode(NUM_LITERAL_CODES);
+        group[DIST] = readHuffmanCode(NUM_DISTANCE_CODES);
+        return group;
+    }
+
+    private int[] readHuffmanCode(int alphabetSize) throws DataFormatException {
+        int[] codeLengths = new int[alphabetSize];
+        if (reader.readBits(1) != 0) {
+            // simple code, with one or two symbols
+            int numSymbols = reader.readBits(1) + 1;
+            int firstSymbolBits = reader.readBits(1) == 0 ? 1 : 8;
+            int symbol = reader.readBits(firstSymbolBits);
+            checkSymbol(symbol, alphabetSize);
+            codeLengths[symbol] = 1;
+            if (numSymbols == 2) {
+                symbol = reader.readBits(8);
+                checkSymbol(symbol, alphabetSize);
+                codeLengths[symbol] = 1;
+            }
+        } else {
+            int[] codeLengthCodeLengths = new int[NUM_CODE_LENGTH_CODES];
+            int numCodes = reader.readBits(4) + 4;
+            for (int i = 0; i < numCodes; i++) {
+                codeLengthCodeLengths[CODE_LENGTH_CODE_ORDER[i]] = reader.readBits(3);
+            }
+            readCodeLengths(codeLengthCodeLengths, alphabetSize, codeLengths);
+        }
+        int[] table = VP8LHuffman.buildTable(codeLengths, alphabetSize, HUFFMAN_TABLE_BITS);
+        if (table == null) {
+            throw new DataFormatException("Invalid VP8L Huffman code");
+        }
+        return table;
+    }
+
+    private static void checkSymbol(int symbol, int alphabetSize) throws DataFormatException {
+        if (symbol >= alphabetSize) {
+            throw new DataFormatException("Invalid VP8L Huffman code symbol: " + symbol);
+        }
+    }
+
+    private void readCodeLengths(int[] codeLengthCodeLengths, int numSymbols, int[] codeLengths)
+            throws DataFormatException {
+        int[] table = VP8LHuffman.buildTable(codeLengthCodeLengths, NUM_CODE_LENGTH_CODES, LENGTHS_TABLE_BITS);
+        if (table == null) {
+            throw new DataFormatException("Invalid VP8L code lengths code");
+        }
+        int maxSymbol;
+        if (reader.readBits(1) != 0) {
+            int lengthBits = 2 + 2 * reader.readBits(3);
+            maxSymbol = 2 + reader.readBits(lengthBits);
+            if (maxSymbol > numSymbols) {
+                throw new DataFormatException("Invalid VP8L code lengths count");
+            }
+        } else {
+            maxSymbol = numSymbols;
+        }
+
+        int previousLength = 8;
+        int symbol = 0;
+        while (symbol < numSymbols) {
+            if (maxSymbol-- == 0) {
+                break;
+            }
+            int code = VP8LHuffman.readSymbol(table, LENGTHS_TABLE_BITS, reader);
+            if (code < 16) {
+                codeLengths[symbol++] = code;
+                if (code != 0) {
+                    previousLength = code;
+                }
+            } else {
+                // 16 repeats the previous non zero length, 17 and 18 repeat zeros
+                int repeat = code == 16
+                        ? 3 + reader.readBits(2)
+                        : code == 17 ? 3 + reader.readBits(3) : 11 + reader.readBits(7);
+                if (symbol + repeat > numSymbols) {
+                    throw new DataFormatException("Invalid VP8L code lengths");
+                }
+                int length = code == 16 ? previousLength : 0;
+                while (repeat-- > 0) {
+                    codeLengths[symbol++] = length;
+                }
+            }
+        }
+        reader.checkEndOfStream();
+    }
+
+    private void decodePixels(
+            int[] pixels,
+            int width,
+            int height,
+            int[][][] groups,
+            int[] huffmanImage,
+            int huffmanBits,
+            int huffmanWidth,
+            int cacheBits)
+            throws DataFormatException {
+        int lengthCodesEnd = NUM_LITERAL_CODES + NUM_LENGTH_CODES;
+        int[] cache = cacheBits > 0 ? new int[1 << cacheBits] : null;
+        int cacheShift = 32 - cacheBits;
+        int mask = huffmanImage == null ? -1 : (1 << huffmanBits) - 1;
+
+        int end = width * height;
+        int position = 0;
+        int x = 0;
+        int y = 0;
+        int[][] group = groups[0];
+        while (position < end) {
+            if ((x & mask) == 0 && huffmanImage != null) {
+                group = groups[huffmanImage[(y >> huffmanBits) * huffmanWidth + (x >> huffmanBits)]];
+            }
+            int code = VP8LHuffman.readSymbol(group[GREEN], reader);
+            if (code < NUM_LITERAL_CODES) {
+                int red = VP8LHuffman.readSymbol(group[RED], reader);
+                int blue = VP8LHuffman.readSymbol(group[BLUE], reader);
+                int alpha = VP8LHuffman.readSymbol(group[ALPHA], reader);
+                int argb = (alpha << 24) | (red << 16) | (code << 8) | blue;
+                pixels[position++] = argb;
+                if (cache != null) {
+                    cache[(0x1E35A7BD * argb) >>> cacheShift] = argb;
+                }
+                if (++x == width) {
+                    x = 0;
+                    y++;
+                }
+            } else if (code < lengthCodesEnd) {
+                int length = readPrefixCodedValue(code - NUM_LITERAL_CODES);
+                int distanceCode = readPrefixCodedValue(VP8LHuffman.readSymbol(group[DIST], reader));
+                int distance = planeCodeToDistance(width, distanceCode);
+                if (position < distance || end - position < length) {
+                    throw new DataFormatException("Invalid VP8L backward reference");
+                }
+                for (int i = 0; i < length; i++, position++) {
+                    int argb = pixels[position - distance];
+                    pixels[position] = argb;
+                    if (cache != null) {
+                        cache[(0x1E35A7BD * argb) >>> cacheShift] = argb;
+                    }
+                }
+                x += length;
+                while (x >= width) {
+                    x -= width;
+                    y++;
+                }
+                if (position < end && (x & mask) != 0 && huffmanImage != null) {
+                    group = groups[huffmanImage[(y >> huffmanBits) * huffmanWidth + (x >> huffmanBits)]];
+                }
+            } else if (cache != null && code - lengthCodesEnd < cache.length) {
+                int argb = cache[code - lengthCodesEnd];
+                pixels[position++] = argb;
+                cache[(0x1E35A7BD * argb) >>> cacheShift] = argb;
+                if (++x == width) {
+                    x = 0;
+                    y++;
+                }
+            } else {
+                throw new DataFormatException("Invalid VP8L symbol: " + code);
+            }
+        }
+        reader.checkEndOfStream();
+    }
+
+    /** Reads the value of a backward reference length or distance, given its prefix symbol */
+    private int readPrefixCodedValue(int symbol) {
+        if (symbol < 4) {
+            return symbol + 1;
+        }
+        int extraBits = (symbol - 2) >> 1;
+        int offset = (2 + (symbol & 1)) << extraBits;
+        return offset + reader.readBits(extraBits) + 1;
+    }
+
+    private static int planeCodeToDistance(int width, int planeCode) {
+        if (planeCode > CODE_TO_PLANE.length) {
+            return planeCode - CODE_TO_PLANE.length;
+        }
+        int distanceCode = CODE_TO_PLANE[planeCode - 1];
+        int distance = (distanceCode >> 4) * width + 8 - (distanceCode & 0xF);
+        return Math.max(distance, 1);
+    }
+
+    static int subSampleSize(int size, int bits) {
+        return (size + (1 << bits) - 1) >> bits;
+    }
+
+    /** Adds two pixels, channel by channel, modulo 256 */
+    static int addPixels(int a, int b) {
+        int alphaAndGreen = (a & 0xFF00FF00) + (b & 0xFF00FF00);
+        int redAndBlue = (a & 0x00FF00FF) + (b & 0x00FF00FF);
+        return (alphaAndGreen & 0xFF00FF00) | (redAndBlue & 0x00FF00FF);
+    }
+
+    /** Averages two pixels, channel by channel */
+    static int average2(int a, int b) {
+        return (((a ^ b) & 0xFEFEFEFE) >>> 1) + (a & b);
+    }
+
+    /** A transform read from the stream, with the size of the image it outputs when undone */
+    private static final class Transform {
+
+        final int type;
+
+        final int width;
+
+        final int height;
+
+        int bits;
+
+        int[] data;
+
+        Transform(int type, int width, int height) {
+            this.type = type;
+            this.width = width;
+            this.height = height;
+        }
+
+        int[] inverse(int[] pixels) {
+            switch (type) {
+                case PREDICTOR_TRANSFORM:
+                    inversePredictor(pixels);
+                    return pixels;
+                case CROSS_COLOR_TRANSFORM:
+                    inverseCrossColor(pixels);
+                    return pixels;
+                case SUBTRACT_GREEN_TRANSFORM:
+                    for (int i = 0; i < pixels.length; i++) {
+                        int argb = pixels[i];
+                        int green = (argb >> 8) & 0xFF;
+                        int redAndBlue = ((argb & 0x00FF00FF) + ((green << 16) | green)) & 0x00FF00FF;
+                        pixels[i] = (argb & 0xFF00FF00) | redAndBlue;
+                    }
+                    return pixels;
+                default:
+                    return inverseColorIndexing(pixels);
+            }
+        }
+
+        private void inversePredictor(int[] pixels) {
+            // first row: black for the first pixel, left for the others
+            pixels[0] = addPixels(pixels[0], 0xFF000000);
+            for (int x = 1; x < width; x++) {
+                pixels[x] = addPixels(pixels[x], pixels[x - 1]);
+            }
+            int tilesPerRow = subSampleSize(width, bits);
+            for (int y = 1; y < height; y++) {
+                int row = y * width;
+                int modes = (y >> bits) * tilesPerRow;
+                // first column: top
+                pixels[row] = addPixels(pixels[row], pixels[row - width]);
+                for (int x = 1; x < width; x++) {
+                    int mode = (data[modes + (x >> bits)] >> 8) & 0xF;
+                    int i = row + x;
+                    pixels[i] = addPixels(pixels[i], predict(mode, pixels, i, width));
+                }
+            }
+        }
+
+        private void inverseCrossColor(int[] pixels) {
+            int tilesPerRow = subSampleSize(width, bits);
+            for (int y = 0; y < height; y++) {
+                int row = y * width;
+                int tiles = (y >> bits) * tilesPerRow;
+                for (int x = 0; x < width; x++) {
+                    int multipliers = data[tiles + (x >> bits)];
+                    int argb = pixels[row + x];
+                    int green = (byte) (argb >> 8);
+                    int red = ((argb >> 16) + colorTransformDelta(multipliers, green)) & 0xFF;
+                    int blue = (argb
+                                    + colorTransformDelta(multipliers >> 8, green)
+                                    + colorTransformDelta(multipliers >> 16, (byte) red))
+                            & 0xFF;
+                    pixels[row + x] = (argb & 0xFF00FF00) | (red << 16) | blue;
+                }
+            }
+        }
+
+        private int[] inverseColorIndexing(int[] pixels) {
+            if (bits == 0) {
+                for (int i = 0; i < pixels.length; i++) {
+                    pixels[i] = data[(pixels[i] >> 8) & 0xFF];
+                }
+                return pixels;
+            }
+            int[] output = new int[width * height];
+            int packedWidth = subSampleSize(width, bits);
+            int bitsPerPixel = 8 >> bits;
+            int countMask = (1 << bits) - 1;
+            int bitMask = (1 << bitsPerPixel) - 1;
+            for (int y = 0, o = 0; y < height; y++) {
+                int packedRow = y * packedWidth;
+                int packed = 0;
+                for (int x = 0; x < width; x++) {
+                    if ((x & countMask) == 0) {
+                        packed = (pixels[packedRow + (x >> bits)] >> 8) & 0xFF;
+                    }
+                    output[o++] = data[packed & bitMask];
+                    packed >>= bitsPerPixel;
+                }
+            }
+            return output;
+        }
+    }
+
+    /** Predicts pixel i from its already decoded neighbors, using one of the 14 predictor modes */
+    static int predict(int mode, int[] pixels, int i, int width) {
+        int top = i - width;
+        switch (mode) {
+            case 1:
+                return pixels[i - 1];
+            case 2:
+                return pixels[top];
+            case 3:
+                return pixels[top + 1];
+            case 4:
+                return pixels[top - 1];
+            case 5:
+                return average2(average2(pixels[i - 1], pixels[top + 1]), pixels[top]);
+            case 6:
+                return average2(pixels[i - 1], pixels[top - 1]);
+            case 7:
+                return average2(pixels[i - 1], pixels[top]);
+            case 8:
+                return average2(pixels[top - 1], pixels[top]);
+            case 9:
+                return average2(pixels[top], pixels[top + 1]);
+            case 10:
+                return average2(average2(pixels[i - 1], pixels[top - 1]), average2(pixels[top], pixels[top + 1]));
+            case 11:
+                return select(pixels[top], pixels[i - 1], pixels[top - 1]);
+            case 12:
+                return clampedAddSubtractFull(pixels[i - 1], pixels[top], pixels[top - 1]);
+            case 13:
+                return clampedAddSubtractHalf(average2(pixels[i - 1], pixels[top]), pixels[top - 1]);
+            default:
+                return 0xFF000000;
+        }
+    }
+
+    /** The delta of the cross color transform, on the signed multiplier in the low byte and a signed channel */
+    static int colorTransformDelta(int multiplier, int color) {
+        return ((byte) multiplier * color) >> 5;
+    }
+
+    static int select(int top, int left, int topLeft) {
+        int predictLeftMinusTop = sub3(top >>> 24, left >>> 24, topLeft >>> 24)
+                + sub3((top >> 16) & 0xFF, (left >> 16) & 0xFF, (topLeft >> 16) & 0xFF)
+                + sub3((top >> 8) & 0xFF, (left >> 8) & 0xFF, (topLeft >> 8) & 0xFF)
+                + sub3(top & 0xFF, left & 0xFF, topLeft & 0xFF);
+        return predictLeftMinusTop <= 0 ? top : left;
+    }
+
+    private static int sub3(int a, int b, int c) {
+        return Math.abs(b - c) - Math.abs(a - c);
+    }
+
+    static int clampedAddSubtractFull(int a, int b, int c) {
+        int alpha = clip255((a >>> 24) + (b >>> 24) - (c >>> 24));
+        int red = clip255(((a >> 16) & 0xFF) + ((b >> 16) & 0xFF) - ((c >> 16) & 0xFF));
+        int green = clip255(((a >> 8) & 0xFF) + ((b >> 8) & 0xFF) - ((c >> 8) & 0xFF));
+        int blue = clip255((a & 0xFF) + (b & 0xFF) - (c & 0xFF));
+        return (alpha << 24) | (red << 16) | (green << 8) | blue;
+    }
+
+    static int clampedAddSubtractHalf(int a, int b) {
+        int alpha = addSubtractHalf(a >>> 24, b >>> 24);
+        int red = addSubtractHalf((a >> 16) & 0xFF, (b >> 16) & 0xFF);
+        int green = addSubtractHalf((a >> 8) & 0xFF, (b >> 8) & 0xFF);
+        int blue = addSubtractHalf(a & 0xFF, b & 0xFF);
+        return (alpha << 24) | (red << 16) | (green << 8) | blue;
+    }
+
+    private static int addSubtractHalf(int a, int b) {
+        return clip255(a + (a - b) / 2);
+    }
+
+    private static int clip255(int value) {
+        return value < 0 ? 0 : value > 255 ? 255 : value;
+    }
+}
@@ -0,0 +1,616 @@
+/*
+ *    ImageI/O-Ext - OpenSource Java Image translation Library
+ *    http://www.geo-solutions.it/
+ *    https://github.com/geosolutions-it/imageio-ext
+ *    (C) 2026, GeoSolutions
+ *    All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of GeoSolutions nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY GeoSolutions ``AS IS'' AND ANY
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL GeoSolutions BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package it.geosolutions.imageio.compression.webp;
+
+import java.util.Arrays;
+
+/**
+ * Encoder of VP8L lossless images. The pixels go through the subtract green and the predictor transforms, the latter
+ * choosing for each 16x16 tile the mode with the smallest residuals, and are then entropy coded with LZ77 backward
+ * references found on hash chains and a single group of Huffman codes. The effort, from 1 to 100, sets how long the
+ * hash chains are searched.
+ */
+final class VP8LEncoder {
+
+    private static final int PREDICTOR_BITS = 4;
+
+    private static final int NUM_PREDICTORS = 14;
+
+    private static final int MIN_LENGTH = 3;
+
+    private static final int MAX_LENGTH = 4096;
+
+    /** Largest distance that can be coded, plane codes taking the first 120 values */
+    private static final int MAX_DISTANCE = (1 << 20) - 120;
+
+    private static final int HASH_BITS = 16;
+
+    private static final int MAX_CODE_LENGTH = 15;
+
+    private static final int MAX_CODE_LENGTH_CODE_LENGTH = 7;
+
+    /** Plane codes by (y << 4) | (8 - x) offsets, -1 when the offset has none */
+    private static final int[] PLANE_TO_CODE = new int[128];
+
+    static {
+        Arrays.fill(PLANE_TO_CODE, -1);
+        for (int i = 0; i < VP8LDecoder.CODE_TO_PLANE.length; i++) {
+            PLANE_TO_CODE[VP8LDecoder.CODE_TO_PLANE[i]] = i + 1;
+        }
+    }
+
+    private final VP8LBitWriter writer;
+
+    private final int maxChainLength;
+
+    private VP8LEncoder(int capacity, int effort) {
+        this.writer = new VP8LBitWriter(capacity);
+        this.maxChainLength = 1 + Math.max(0, Math.min(100, effort)) / 2;
+    }
+
+    /**
+     * Encodes ARGB pixels to a complete WebP file
+     *
+     * @param hasAlpha whether the alpha channel is meaningful, only used as a hint by decoders
+     * @param effort the compression effort, from 1 to 100
+     * @return the WebP file, the first {@code length[0]} bytes of the returned buffer
+     */
+    static byte[] encode(int[] argb, int width, int height, boolean hasAlpha, int effort, int[] length) {
+        VP8LEncoder encoder = new VP8LEncoder(width * height + 64, effort);
+        VP8LBitWriter w = encoder.writer;
+        // RIFF header and VP8L chunk header, sizes being patched at the end
+        for (int i = 0; i < 20; i++) {
+            w.writeBits(0, 8);
+        }
+        w.writeBits(VP8LDecoder.SIGNATURE, 8);
+        w.writeBits(width - 1, 14);
+        w.writeBits(height - 1, 14);
+        w.writeBits(hasAlpha ? 1 : 0, 1);
+        w.writeBits(0, 3);
+
+        int[] pixels = argb.clone();
+        w.writeBits(1, 1);
+        w.writeBits(VP8LDecoder.SUBTRACT_GREEN_TRANSFORM, 2);
+        subtractGreen(pixels);
+
+        w.writeBits(1, 1);
+        w.writeBits(VP8LDecoder.PREDICTOR_TRANSFORM, 2);
+        w.writeBits(PREDICTOR_BITS - 2, 3);
+        int[] modes = selectPredictors(pixels, width, height);
+        pixels = predict(pixels, width, height, modes);
+        encoder.writeImageStream(
+                modes,
+                VP8LDecoder.subSampleSize(width, PREDICTOR_BITS),
+                VP8LDecoder.subSampleSize(height, PREDICTOR_BITS),
+                false);
+
+        w.writeBits(0, 1);
+        encoder.writeImageStream(pixels, width, height, true);
+        w.flush();
+
+        int size = w.size();
+        int chunkSize = size - 20;
+        if ((chunkSize & 1) != 0) {
+            w.writeBits(0, 8);
+        }
+        byte[] data = w.getBuffer();
+        writeTag(data, 0, "RIFF");
+        writeLE32(data, 4, w.size() - 8);
+        writeTag(data, 8, "WEBP");
+        writeTag(data, 12, "VP8L");
+        writeLE32(data, 16, chunkSize);
+        length[0] = w.size();
+        return data;
+    }
+
+    private static void writeTag(byte[] data, int offset, String tag) {
+        for (int i = 0; i < 4; i++) {
+            data[offset + i] = (byte) tag.charAt(i);
+        }
+    }
+
+    private static void writeLE32(byte[] data, int offset, int value) {
+        data[offset] = (byte) value;
+        data[offset + 1] = (byte) (value >> 8);
+        data[offset + 2] = (byte) (value >> 16);
+        data[offset + 3] = (byte) (value >> 24);
+    }
+
+    private static void subtractGreen(int[] pixels) {
+        for (int i = 0; i < pixels.length; i++) {
+            int argb = pixels[i];
+            int green = (argb >> 8) & 0xFF;
+            int red = ((argb >> 16) - green) & 0xFF;
+            int blue = (argb - green) & 0xFF;
+            pixels[i] = (argb & 0xFF00FF00) | (red << 16) | blue;
+        }
+    }
+
+    /** Subtracts two pixels, channel by channel, modulo 256 */
+    private static int subtractPixels(int a, int b) {
+        int alphaAndGreen = 0x00FF00FF + (a & 0xFF00FF00) - (b & 0xFF00FF00);
+        int redAndBlue = 0xFF00FF00 + (a & 0x00FF00FF) - (b & 0x00FF00FF);
+        return (alphaAndGreen & 0xFF00FF00) | (redAndBlue & 0x00FF00FF);
+    }
+
+    /** Sum of the absolute values of the residual channels, taken as signed bytes */
+    private static int residualCost(int residual) {
+        return Math.abs((byte) (residual >> 24))
+                + Math.abs((byte) (residual >> 16))
+                + Math.abs((byte) (residual >> 8))
+                + Math.abs((byte) residual);
+    }
+
+    /** Chooses the predictor of each tile, returned as a sub image with the mode in the green channel */
+    private static int[] selectPredictors(int[] pixels, int width, int height) {
+        int tilesX = VP8LDecoder.subSampleSize(width, PREDICTOR_BITS);
+        int tilesY = VP8LDecoder.subSampleSize(height, PREDICTOR_BITS);
+        int[] modes = new int[tilesX * tilesY];
+        int tileSize = 1 << PREDICTOR_BITS;
+        for (int ty = 0; ty < tilesY; ty++) {
+            for (int tx = 0; tx < tilesX; tx++) {
+                int bestMode = 0;
+                long bestCost = Long.MAX_VALUE;
+                int startY = Math.max(1, ty * tileSize);
+                int endY = Math.min(height, (ty + 1) * tileSize);
+                int startX = Math.max(1, tx * tileSize);
+                int endX = Math.min(width, (tx + 1) * tileSize);
+                for (int mode = 0; mode < NUM_PREDICTORS; mode++) {
+                    long cost = 0;
+                    for (int y = startY; y < endY && cost < bestCost; y++) {
+                        for (int x = startX, i = y * width + startX; x < endX; x++, i++) {
+                            cost += residualCost(
+                                    subtractPixels(pixels[i], VP8LDecoder.predict(mode, pixels, i, width)));
+                        }
+                    }
+                    if (cost < bestCost) {
+                        bestCost = cost;
+                        bestMode = mode;
+                    }
+                }
+                modes[ty * tilesX + tx] = 0xFF000000 | (bestMode << 8);
+            }
+        }
+        return modes;
+    }
+
+    /** Returns the residuals of the predictor transform */
+    private static int[] predict(int[] pixels, int width, int height, int[] modes) {
+        int[] residuals = new int[pixels.length];
+        residuals[0] = subtractPixels(pixels[0], 0xFF000000);
+        for (int x = 1; x < width; x++) {
+            residuals[x] = subtractPixels(pixels[x], pixels[x - 1]);
+        }
+        int tilesPerRow = VP8LDecoder.subSampleSize(width, PREDICTOR_BITS);
+        for (int y = 1; y < height; y++) {
+            int row = y * width;
+            int tiles = (y >> PREDICTOR_BITS) * tilesPerRow;
+            residuals[row] = subtractPixels(pixels[row], pixels[row - width]);
+            for (int x = 1; x < width; x++) {
+                int mode = (modes[tiles + (x >> PREDICTOR_BITS)] >> 8) & 0xF;
+                int i = row + x;
+                residuals[i] = subtractPixels(pixels[i], VP8LDecoder.predict(mode, pixels, i, width));
+            }
+        }
+        return residuals;
+    }
+
+    /**
+     * Writes an entropy coded image, without color cache. Main images also have no meta prefix codes, a single group of
+     * Huffman codes being used for the whole image.
+     */
+    private void writeImageStream(int[] pixels, int width, int height, boolean mainImage) {
+        writer.writeBits(0, 1); // no color cache
+        if (mainImage) {
+            writer.writeBits(0, 1); // no meta prefix codes
+        }
+
+        // tokens are literal pixels, or backward references packed as length << 32 | distance code
+        long[] tokens = new long[pixels.length];
+        int numTokens = findBackwardReferences(pixels, width, tokens);
+
+        int[][] histograms = {
+            new int[VP8LDecoder.NUM_LITERAL_CODES + VP8LDecoder.NUM_LENGTH_CODES],
+            new int[VP8LDecoder.NUM_LITERAL_CODES],
+            new int[VP8LDecoder.NUM_LITERAL_CODES],
+            new int[VP8LDecoder.NUM_LITERAL_CODES],
+            new int[VP8LDecoder.NUM_DISTANCE_CODES]
+        };
+        for (int t = 0; t < numTokens; t++) {
+            long token = tokens[t];
+            if ((token >>> 32) == 0) {
+                int argb = pixels[(int) token];
+                histograms[0][(argb >> 8) & 0xFF]++;
+                histograms[1][(argb >> 16) & 0xFF]++;
+                histograms[2][argb & 0xFF]++;
+                histograms[3][argb >>> 24]++;
+            } else {
+                histograms[0][VP8LDecoder.NUM_LITERAL_CODES + prefix((int) (token >>> 32))]++;
+                histograms[4][prefix((int) token)]++;
+            }
+        }
+
+        HuffmanCode[] codes = new HuffmanCode[histograms.length];
+        for (int i = 0; i < codes.length; i++) {
+            codes[i] = new HuffmanCode(histograms[i], MAX_CODE_LENGTH);
+            writeHuffmanCode(codes[i]);
+        }
+
+        for (int t = 0; t < numTokens; t++) {
+            long token = tokens[t];
+            if ((token >>> 32) == 0) {
+                int argb = pixels[(int) token];
+                codes[0].write(writer, (argb >> 8) & 0xFF);
+                codes[1].write(writer, (argb >> 16) & 0xFF);
+                codes[2].write(writer, argb & 0xFF);
+                codes[3].write(writer, argb >>> 24);
+            } else {
+                int length = (int) (token >>> 32);
+                int distanceCode = (int) token;
+                codes[0].write(writer, VP8LDecoder.NUM_LITERAL_CODES + prefix(length));
+                writeExtraBits(length);
+                codes[4].write(writer, prefix(distanceCode));
+                writeExtraBits(distanceCode);
+            }
+        }
+    }
+
+    /**
+     * Greedy LZ77 parsing on hash chains of pixel pairs. Literals are stored as their pixel index, backward references
+     * as their length in the high half and their distance code in the low half.
+     *
+     * @return the number of tokens
+     */
+    private int findBackwardReferences(int[] pixels, int width, long[] tokens) {
+        int n = pixels.length;
+        int[] head = new int[1 << HASH_BITS];
+        Arrays.fill(head, -1);
+        int[] chain = new int[n];
+        int numTokens = 0;
+        int i = 0;
+        while (i < n) {
+            int bestLength = 0;
+            int bestDistance = 0;
+            if (i + 1 < n) {
+                int maxLength = Math.min(MAX_LENGTH, n - i);
+                // the pixel on the left and the one above are the most likely matches
+                if (i >= 1) {
+                    bestLength = matchLength(pixels, i - 1, i, maxLength);
+                    bestDistance = 1;
+                }
+                if (i >= width && width > 1) {
+                    int length = matchLength(pixels, i - width, i, maxLength);
+                    if (length > bestLength) {
+                        bestLength = length;
+                        bestDistance = width;
+                    }
+                }
+                int candidate = head[hash(pixels, i)];
+                for (int c = 0; c < maxChainLength && candidate >= 0 && bestLength < maxLength; c++) {
+                    int distance = i - candidate;
+                    if (distance > MAX_DISTANCE) {
+                        break;
+                    }
+                    int length = matchLength(pixels, candidate, i, maxLength);
+                    if (length > bestLength) {
+                        bestLength = length;
+                        bestDistance = distance;
+                    }
+                    candidate = chain[candidate];
+                }
+            }
+            int step = bestLength >= MIN_LENGTH ? bestLength : 1;
+            if (step > 1) {
+                tokens[numTokens++] = ((long) bestLength << 32) | distanceToCode(width, bestDistance);
+            } else {
+                tokens[numTokens++] = i;
+            }
+            for (int end = i + step; i < end; i++) {
+                if (i + 1 < n) {
+                    int h = hash(pixels, i);
+                    chain[i] = head[h];
+                    head[h] = i;
+                }
+            }
+        }
+        return numTokens;
+    }
+
+    private static int hash(int[] pixels, int i) {
+        long key = (pixels[i] & 0xFFFFFFFFL) * 0x9E3779B1L + pixels[i + 1];
+        return (int) ((key * 0x1E35A7BDL) >>> (32 - HASH_BITS)) & ((1 << HASH_BITS) - 1);
+    }
+
+    private static int matchLength(int[] pixels, int from, int to, int maxLength) {
+        int length = 0;
+        while (length < maxLength && pixels[from + length] == pixels[to + length]) {
+            length++;
+        }
+        return length;
+    }
+
+    /** Returns the distance code of a distance in pixels, using the short plane codes when possible */
+    private static int distanceToCode(int width, int distance) {
+        int yOffset = distance / width;
+        int xOffset = distance - yOffset * width;
+        int key = -1;
+        if (xOffset <= 8 && yOffset < 8) {
+            key = (yOffset << 4) | (8 - xOffset);
+        } else if (xOffset > width - 8 && yOffset < 7) {
+            key = ((yOffset + 1) << 4) | (8 + width - xOffset);
+        }
+        if (key >= 0 && key < PLANE_TO_CODE.length) {
+            int code = PLANE_TO_CODE[key];
+            if (code > 0) {
+                int planeCode = VP8LDecoder.CODE_TO_PLANE[code - 1];
+                int decoded = Math.max((planeCode >> 4) * width + 8 - (planeCode & 0xF), 1);
+                if (decoded == distance) {
+                    return code;
+                }
+            }
+        }
+        return distance + VP8LDecoder.CODE_TO_PLANE.length;
+    }
+
+    /** Returns the prefix symbol of a length or distance code */
+    private static int prefix(int value) {
+        int d = value - 1;
+        if (d < 4) {
+            return d;
+        }
+        int highestBit = 31 - Integer.numberOfLeadingZeros(d);
+        int secondBit = (d >> (highestBit - 1)) & 1;
+        return 2 * highestBit + secondBit;
+    }
+
+    private void writeExtraBits(int value) {
+        int d = value - 1;
+        if (d >= 4) {
+            int extraBits = 30 - Integer.numberOfLeadingZeros(d);
+            writer.writeBits(d & ((1 << extraBits) - 1), extraBits);
+        }
+    }
+
+    private void writeHuffmanCode(HuffmanCode code) {
+        int[] symbols = code.symbols;
+        if (symbols.length <= 2 && (symbols.length == 0 || symbols[symbols.length - 1] < 256)) {
+            // simple code, with 1 or 2 symbols
+            writer.writeBits(1, 1);
+            writer.writeBits(Math.max(symbols.length, 1) - 1, 1);
+            int first = symbols.length == 0 ? 0 : symbols[0];
+            if (first < 2) {
+                writer.writeBits(0, 1);
+                writer.writeBits(first, 1);
+            } else {
+                writer.writeBits(1, 1);
+                writer.writeBits(first, 8);
+            }
+            if (symbols.length == 2) {
+                writer.writeBits(symbols[1], 8);
+            }
+            return;
+        }
+
+        writer.writeBits(0, 1);
+        // run length coding of the code lengths
+        int[] lengths = code.lengths;
+        int numSymbols = lengths.length;
+        int[] tokens = new int[numSymbols];
+        int[] extras = new int[numSymbols];
+        int numTokens = 0;
+        int previous = 8;
+        for (int i = 0; i < numSymbols; ) {
+            int value = lengths[i];
+            int run = 1;
+            while (i + run < numSymbols && lengths[i + run] == value) {
+                run++;
+            }
+            i += run;
+            if (value == 0) {
+                while (run >= 3) {
+                    if (run >= 11) {
+                        int count = Math.min(run, 138);
+                        tokens[numTokens] = 18;
+                        extras[numTokens++] = count - 11;
+                        run -= count;
+                    } else {
+                        int count = Math.min(run, 10);
+                        tokens[numTokens] = 17;
+                        extras[numTokens++] = count - 3;
+                        run -= count;
+                    }
+                }
+                while (run-- > 0) {
+                    tokens[numTokens++] = 0;
+                }
+            } else {
+                if (value != previous) {
+                    tokens[numTokens++] = value;
+                    run--;
+                    previous = value;
+                }
+                while (run >= 3) {
+                    int count = Math.min(run, 6);
+                    tokens[numTokens] = 16;
+                    extras[numTokens++] = count - 3;
+                    run -= count;
+                }
+                while (run-- > 0) {
+                    tokens[numTokens++] = value;
+                }
+            }
+        }
+
+        int[] histogram = new int[VP8LDecoder.NUM_CODE_LENGTH_CODES];
+        for (int t = 0; t < numTokens; t++) {
+            histogram[tokens[t]]++;
+        }
+        HuffmanCode lengthsCode = new HuffmanCode(histogram, MAX_CODE_LENGTH_CODE_LENGTH);
+        int numCodes = VP8LDecoder.NUM_CODE_LENGTH_CODES;
+        while (numCodes > 4 && lengthsCode.lengths[VP8LDecoder.CODE_LENGTH_CODE_ORDER[numCodes - 1]] == 0) {
+            numCodes--;
+        }
+        writer.writeBits(numCodes - 4, 4);
+        for (int i = 0; i < numCodes; i++) {
+            writer.writeBits(lengthsCode.lengths[VP8LDecoder.CODE_LENGTH_CODE_ORDER[i]], 3);
+        }
+        writer.writeBits(0, 1); // all the symbols are coded
+        for (int t = 0; t < numTokens; t++) {
+            int token = tokens[t];
+            lengthsCode.write(writer, token);
+            if (token == 16) {
+                writer.writeBits(extras[t], 2);
+            } else if (token == 17) {
+                writer.writeBits(extras[t], 3);
+            } else if (token == 18) {
+                writer.writeBits(extras[t], 7);
+            }
+        }
+    }
+
+    /** A canonical Huffman code, with bit reversed codes as VP8L writes them least significant bit first */
+    private static final class HuffmanCode {
+
+        /** The used symbols, in increasing order */
+        final int[] symbols;
+
+        final int[] lengths;
+
+        final int[] codes;
+
+        HuffmanCode(int[] histogram, int maxLength) {
+            int numSymbols = histogram.length;
+            int used = 0;
+            for (int count : histogram) {
+                if (count > 0) {
+                    used++;
+                }
+            }
+            symbols = new int[used];
+            for (int s = 0, u = 0; s < numSymbols; s++) {
+                if (histogram[s] > 0) {
+                    symbols[u++] = s;
+                }
+            }
+            lengths = new int[numSymbols];
+            codes = new int[numSymbols];
+            if (used == 1) {
+                // a single symbol takes no bits, but is still given a length to be transmitted
+                lengths[symbols[0]] = 1;
+                return;
+            }
+            if (used == 0) {
+                return;
+            }
+            buildLengths(histogram, maxLength);
+
+            // canonical codes
+            int[] nextCode = new int[maxLength + 2];
+            int[] lengthCounts = new int[maxLength + 1];
+            for (int s : symbols) {
+                lengthCounts[lengths[s]]++;
+            }
+            int code = 0;
+            for (int len = 1; len <= maxLength; len++) {
+                code = (code + lengthCounts[len - 1]) << 1;
+                nextCode[len] = code;
+            }
+            for (int s : symbols) {
+                int len = lengths[s];
+                codes[s] = Integer.reverse(nextCode[len]++) >>> (32 - len);
+            }
+        }
+
+        /** Builds the code lengths, flattening the histogram until the tree fits in maxLength */
+        private void buildLengths(int[] histogram, int maxLength) {
+            int used = symbols.length;
+            long[] counts = new long[used];
+            for (int countMin = 1; ; countMin *= 2) {
+                for (int u = 0; u < used; u++) {
+                    counts[u] = Math.max(histogram[symbols[u]], countMin);
+                }
+                if (buildTree(counts, maxLength)) {
+                    return;
+                }
+            }
+        }
+
+        /** Builds the Huffman tree and its code lengths, returning false when it is too deep */
+        private boolean buildTree(long[] counts, int maxLength) {
+            int used = counts.length;
+            // leaves sorted by count, then internal nodes in creation order, which are sorted as well
+            Integer[] order = new Integer[used];
+            for (int u = 0; u < used; u++) {
+                order[u] = u;
+            }
+            Arrays.sort(order, (a, b) -> Long.compare(counts[a], counts[b]));
+            int numNodes = 2 * used - 1;
+            long[] weights = new long[numNodes];
+            int[] parents = new int[numNodes];
+            for (int u = 0; u < used; u++) {
+                weights[u] = counts[order[u]];
+            }
+            int leaf = 0;
+            int internal = used;
+            for (int next = used; next < numNodes; next++) {
+                int[] children = new int[2];
+                for (int c = 0; c < 2; c++) {
+                    if (leaf < used && (internal >= next || weights[leaf] <= weights[internal])) {
+                        children[c] = leaf++;
+                    } else {
+                        children[c] = internal++;
+                    }
+                }
+                weights[next] = weights[children[0]] + weights[children[1]];
+                parents[children[0]] = next;
+                parents[children[1]] = next;
+            }
+            int[] depths = new int[numNodes];
+            for (int node = numNodes - 2; node >= 0; node--) {
+                depths[node] = depths[parents[node]] + 1;
+            }
+            for (int u = 0; u < used; u++) {
+                if (depths[u] > maxLength) {
+                    return false;
+                }
+            }
+            for (int u = 0; u < used; u++) {
+                lengths[symbols[order[u]]] = depths[u];
+            }
+            return true;
+        }
+
+        void write(VP8LBitWriter writer, int symbol) {
+            if (symbols.length > 1) {
+                writer.writeBits(codes[symbol], lengths[symbol]);
+            }
+        }
+    }
+}
@@ -0,0 +1,187 @@
+/*
+ *    ImageI/O-Ext - OpenSource Java Image translation Library
+ *    http://www.geo-solutions.it/
+ *    https://github.com/geosolutions-it/imageio-ext
+ *    (C) 2026, GeoSolutions
+ *    All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of GeoSolutions nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY GeoSolutions ``AS IS'' AND ANY
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL GeoSolutions BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package it.geosolutions.imageio.compression.webp;
+
+import java.util.Arrays;
+
+/**
+ * Canonical Huffman codes of the VP8L lossless format, decoded through two level lookup tables. The entries of a table
+ * pack the code length in the upper 16 bits and the symbol in the lower ones. Root entries of codes longer than the
+ * root bits point instead to a second level table, holding the total length of the code and the offset of the table.
+ */
+final class VP8LHuffman {
+
+    static final int MAX_CODE_LENGTH = 15;
+
+    private VP8LHuffman() {}
+
+    /**
+     * Builds the lookup table of the code with the given lengths.
+     *
+     * @return the table, or null if the lengths do not describe a complete code
+     */
+    static int[] buildTable(int[] codeLengths, int numSymbols, int rootBits) {
+        int[] count = new int[MAX_CODE_LENGTH + 1];
+        for (int symbol = 0; symbol < numSymbols; symbol++) {
+            int length = codeLengths[symbol];
+            if (length > MAX_CODE_LENGTH) {
+                return null;
+            }
+            count[length]++;
+        }
+        if (count[0] == numSymbols) {
+            return null;
+        }
+
+        // sort the symbols by code length, then by value
+        int[] offset = new int[MAX_CODE_LENGTH + 1];
+        for (int length = 1; length < MAX_CODE_LENGTH; length++) {
+            offset[length + 1] = offset[length] + count[length];
+        }
+        int[] sorted = new int[numSymbols];
+        for (int symbol = 0; symbol < numSymbols; symbol++) {
+            int length = codeLengths[symbol];
+            if (length > 0) {
+                sorted[offset[length]++] = symbol;
+            }
+        }
+        int numCoded = offset[MAX_CODE_LENGTH];
+
+        int tableSize = 1 << rootBits;
+        int[] table = new int[tableSize];
+        if (numCoded == 1) {
+            // a single symbol is decoded without reading any bit
+            Arrays.fill(table, sorted[0]);
+            return table;
+        }
+
+        int totalSize = tableSize;
+        int mask = tableSize - 1;
+        int low = -1;
+        int tableStart = 0;
+        int key = 0;
+        int numNodes = 1;
+        int numOpen = 1;
+        int symbol = 0;
+        for (int length = 1, step = 2; length <= rootBits; length++, step <<= 1) {
+            numOpen <<= 1;
+            numNodes += numOpen;
+            numOpen -= count[length];
+            if (numOpen < 0) {
+                return null;
+            }
+            for (; count[length] > 0; count[length]--) {
+                replicate(table, key, step, tableSize, (length << 16) | sorted[symbol++]);
+                key = nextKey(key, length);
+            }
+        }
+        for (int length = rootBits + 1, step = 2; length <= MAX_CODE_LENGTH; length++, step <<= 1) {
+            numOpen <<= 1;
+            numNodes += numOpen;
+            numOpen -= count[length];
+            if (numOpen < 0) {
+                return null;
+            }
+            for (; count[length] > 0; count[length]--) {
+                if ((key & mask) != low) {
+                    // open a new second level table
+                    tableStart += tableSize;
+                    int tableBits = nextTableBits(count, length, rootBits);
+                    tableSize = 1 << tableBits;
+                    totalSize += tableSize;
+                    table = Arrays.copyOf(table, totalSize);
+                    low = key & mask;
+                    table[low] = ((tableBits + rootBits) << 16) | (tableStart - low);
+                }
+                replicate(
+                        table,
+                        tableStart + (key >> rootBits),
+                        step,
+                        tableSize,
+                        ((length - rootBits) << 16) | sorted[symbol++]);
+                key = nextKey(key, length);
+            }
+        }
+        return numNodes == 2 * numCoded - 1 ? table : null;
+    }
+
+    /** Reads a symbol with the given table, having root entries addressed by 8 bits */
+    static int readSymbol(int[] table, VP8LBitReader reader) {
+        int bits = reader.peekBits();
+        int index = bits & 0xFF;
+        int entry = table[index];
+        int length = entry >>> 16;
+        if (length > 8) {
+            reader.skipBits(8);
+            index += (entry & 0xFFFF) + ((reader.peekBits() & ((1 << (length - 8)) - 1)));
+            entry = table[index];
+            length = entry >>> 16;
+        }
+        reader.skipBits(length);
+        return entry & 0xFFFF;
+    }
+
+    /** Same as {@link #readSymbol(int[], VP8LBitReader)}, with root entries addressed by the given bits */
+    static int readSymbol(int[] table, int rootBits, VP8LBitReader reader) {
+        int entry = table[reader.peekBits() & ((1 << rootBits) - 1)];
+        reader.skipBits(entry >>> 16);
+        return entry & 0xFFFF;
+    }
+
+    private static void replicate(int[] table, int base, int step, int end, int entry) {
+        do {
+            end -= step;
+            table[base + end] = entry;
+        } while (end > 0);
+    }
+
+    /** Returns the bit reversed increment of the key, as codes are read from their most significant bit */
+    private static int nextKey(int key, int length) {
+        int step = 1 << (length - 1);
+        while ((key & step) != 0) {
+            step >>= 1;
+        }
+        return step != 0 ? (key & (step - 1)) + step : key;
+    }
+
+    /** Returns the bits addressing a second level table, large enough for the remaining codes sharing its prefix */
+    private static int nextTableBits(int[] count, int length, int rootBits) {
+        int left = 1 << (length - rootBits);
+        while (length < MAX_CODE_LENGTH) {
+            left -= count[length];
+            if (left <= 0) {
+                break;
+            }
+            length++;
+            left <<= 1;
+        }
+        return length - rootBits;
+    }
+}
@@ -0,0 +1,107 @@
+/*
+ *    ImageI/O-Ext - OpenSource Java Image translation Library
+ *    http://www.geo-solutions.it/
+ *    https://github.com/geosolutions-it/imageio-ext
+ *    (C) 2026, GeoSolutions
+ *    All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of GeoSolutions nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY GeoSolutions ``AS IS'' AND ANY
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL GeoSolutions BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package it.geosolutions.imageio.compression.webp;
+
+import it.geosolutions.imageio.compression.Compressor;
+
+/**
+ * Pure Java WebP compressor, turning an image made of 8 bits interleaved RGB or RGBA samples into a lossless WebP
+ * image. The level, from 1 to 100, sets the compression effort. The compressed image is returned by consecutive
+ * {@link #compress(byte[], int, int, int, int)} calls, until they return 0.
+ */
+public class WebPCompressor implements Compressor {
+
+    private final int level;
+
+    private int width;
+
+    private int height;
+
+    private int numBands = 3;
+
+    private byte[] input;
+
+    private byte[] output;
+
+    private int outputLength;
+
+    private int outputPosition;
+
+    public WebPCompressor(int level) {
+        this.level = level;
+    }
+
+    @Override
+    public void setImageLayout(int width, int height, int numBands) {
+        if (numBands != 3 && numBands != 4) {
+            throw new IllegalArgumentException("WebP images have 3 or 4 bands, not " + numBands);
+        }
+        this.width = width;
+        this.height = height;
+        this.numBands = numBands;
+    }
+
+    @Override
+    public void setInput(byte[] srcData) {
+        input = srcData;
+        output = null;
+    }
+
+    @Override
+    public int compress(byte[] destData, int srcOffset, int srcLength, int destOffset, int destLength) {
+        if (output == null) {
+            if (srcLength < width * height * numBands) {
+                throw new IllegalArgumentException("Input too small for a " + width + "x" + height + " image");
+            }
+            int[] argb = new int[width * height];
+            for (int i = 0, o = srcOffset; i < argb.length; i++, o += numBands) {
+                int alpha = numBands == 4 ? input[o + 3] & 0xFF : 0xFF;
+                argb[i] = (alpha << 24)
+                        | ((input[o] & 0xFF) << 16)
+                        | ((input[o + 1] & 0xFF) << 8)
+                        | (input[o + 2] & 0xFF);
+            }
+            int[] length = new int[1];
+            output = VP8LEncoder.encode(argb, width, height, numBands == 4, level, length);
+            outputLength = length[0];
+            outputPosition = 0;
+        }
+        int n = Math.min(destLength, outputLength - outputPosition);
+        System.arraycopy(output, outputPosition, destData, destOffset, n);
+        outputPosition += n;
+        return n;
+    }
+
+    @Override
+    public void done() {
+        input = null;
+        output = null;
+    }
+}
@@ -0,0 +1,251 @@
+/*
+ *    ImageI/O-Ext - OpenSource Java Image translation Library
+ *    http://www.geo-solutions.it/
+ *    https://github.com/geosolutions-it/imageio-ext
+ *    (C) 2026, GeoSolutions
+ *    All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of GeoSolutions nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY GeoSolutions ``AS IS'' AND ANY
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL GeoSolutions BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package it.geosolutions.imageio.compression.webp;
+
+import java.util.zip.DataFormatException;
+
+/**
+ * Decoder of still WebP images, parsing the RIFF container and dispatching the image data to the lossy (VP8) or the
+ * lossless (VP8L) decoder. Alpha is taken from the ALPH chunk of extended lossy images, or from the VP8L pixels.
+ */
+final class WebPDecoder {
+
+    private static final int ANIMATION_FLAG = 0x02;
+
+    private static final int ALPHA_FILTER_NONE = 0;
+
+    private static final int ALPHA_FILTER_HORIZONTAL = 1;
+
+    private static final int ALPHA_FILTER_VERTICAL = 2;
+
+    private static final int ALPHA_FILTER_GRADIENT = 3;
+
+    private WebPDecoder() {}
+
+    /**
+     * Decodes a WebP image to interleaved 8 bits samples, with 3 (RGB) or 4 (RGBA) samples per pixel. Alpha is set to
+     * 255 when the image has none. The image must be at least as large as the requested size, its top left portion
+     * being decoded.
+     */
+    static void decode(
+            byte[] data, int offset, int length, byte[] dst, int dstOffset, int width, int height, int numBands)
+            throws DataFormatException {
+        if (numBands != 3 && numBands != 4) {
+            throw new IllegalArgumentException("Unsupported number of bands for WebP: " + numBands);
+        }
+        int end = offset + length;
+        if (length < 12 || !isTag(data, offset, "RIFF") || !isTag(data, offset + 8, "WEBP")) {
+            throw new DataFormatException("Not a WebP image");
+        }
+        end = Math.min(end, offset + 8 + readLE32(data, offset + 4));
+        int pos = offset + 12;
+        int alphaOffset = -1;
+        int alphaLength = 0;
+        while (pos + 8 <= end) {
+            int chunkSize = readLE32(data, pos + 4);
+            int payload = pos + 8;
+            if (chunkSize < 0 || chunkSize > end - payload) {
+                throw new DataFormatException("Truncated WebP chunk");
+            }
+            if (isTag(data, pos, "VP8X")) {
+                if (chunkSize >= 1 && (data[payload] & ANIMATION_FLAG) != 0) {
+                    throw new DataFormatException("Animated WebP images are not supported");
+                }
+            } else if (isTag(data, pos, "ALPH")) {
+                alphaOffset = payload;
+                alphaLength = chunkSize;
+            } else if (isTag(data, pos, "VP8 ")) {
+                decodeLossy(
+                        data, payload, chunkSize, alphaOffset, alphaLength, dst, dstOffset, width, height, numBands);
+                return;
+            } else if (isTag(data, pos, "VP8L")) {
+                decodeLossless(data, payload, chunkSize, dst, dstOffset, width, height, numBands);
+                return;
+            }
+            // chunks are padded to an even size
+            pos = payload + chunkSize + (chunkSize & 1);
+        }
+        throw new DataFormatException("No image data in WebP stream");
+    }
+
+    private static void decodeLossy(
+            byte[] data,
+            int offset,
+            int length,
+            int alphaOffset,
+            int alphaLength,
+            byte[] dst,
+            int dstOffset,
+            int width,
+            int height,
+            int numBands)
+            throws DataFormatException {
+        VP8Decoder decoder = new VP8Decoder();
+        decoder.decode(data, offset, length);
+        checkSize(decoder.width, decoder.height, width, height);
+        int frameWidth = decoder.width;
+        int frameHeight = decoder.height;
+        byte[] rgb;
+        int rgbOffset;
+        if (frameWidth == width && frameHeight == height) {
+            rgb = dst;
+            rgbOffset = dstOffset;
+        } else {
+            rgb = new byte[frameWidth * frameHeight * numBands];
+            rgbOffset = 0;
+        }
+        decoder.toRGB(rgb, rgbOffset, numBands);
+        if (numBands == 4) {
+            if (alphaOffset >= 0) {
+                byte[] alpha = decodeAlpha(data, alphaOffset, alphaLength, frameWidth, frameHeight);
+                for (int i = 0, o = rgbOffset + 3; i < alpha.length; i++, o += 4) {
+                    rgb[o] = alpha[i];
+                }
+            } else {
+                for (int i = 0, o = rgbOffset + 3; i < frameWidth * frameHeight; i++, o += 4) {
+                    rgb[o] = (byte) 0xFF;
+                }
+            }
+        }
+        if (rgb != dst) {
+            int rowLength = width * numBands;
+            for (int y = 0; y < height; y++) {
+                System.arraycopy(rgb, y * frameWidth * numBands, dst, dstOffset + y * rowLength, rowLength);
+            }
+        }
+    }
+
+    private static void decodeLossless(
+            byte[] data, int offset, int length, byte[] dst, int dstOffset, int width, int height, int numBands)
+            throws DataFormatException {
+        int[] header = VP8LDecoder.readHeader(data, offset, length);
+        if (header == null) {
+            throw new DataFormatException("Invalid VP8L header");
+        }
+        int frameWidth = header[0];
+        checkSize(frameWidth, header[1], width, height);
+        int[] argb = VP8LDecoder.decode(data, offset, length);
+        int o = dstOffset;
+        for (int y = 0; y < height; y++) {
+            int i = y * frameWidth;
+            for (int x = 0; x < width; x++, i++, o += numBands) {
+                int p = argb[i];
+                dst[o] = (byte) (p >> 16);
+                dst[o + 1] = (byte) (p >> 8);
+                dst[o + 2] = (byte) p;
+                if (numBands == 4) {
+                    dst[o + 3] = (byte) (p >>> 24);
+                }
+            }
+        }
+    }
+
+    /** Decodes the content of an ALPH chunk */
+    private static byte[] decodeAlpha(byte[] data, int offset, int length, int width, int height)
+            throws DataFormatException {
+        if (length < 1) {
+            throw new DataFormatException("Truncated WebP alpha chunk");
+        }
+        int header = data[offset] & 0xFF;
+        int method = header & 0x03;
+        int filter = (header >> 2) & 0x03;
+        int size = width * height;
+        byte[] alpha = new byte[size];
+        if (method == 0) {
+            if (length - 1 < size) {
+                throw new DataFormatException("Truncated WebP alpha chunk");
+            }
+            System.arraycopy(data, offset + 1, alpha, 0, size);
+        } else if (method == 1) {
+            int[] argb = VP8LDecoder.decodeAlpha(data, offset + 1, length - 1, width, height);
+            for (int i = 0; i < size; i++) {
+                alpha[i] = (byte) (argb[i] >> 8);
+            }
+        } else {
+            throw new DataFormatException("Unsupported WebP alpha compression method: " + method);
+        }
+        if (filter != ALPHA_FILTER_NONE) {
+            unfilter(alpha, width, height, filter);
+        }
+        return alpha;
+    }
+
+    /** Reverts the spatial prediction of the alpha plane, in place */
+    private static void unfilter(byte[] alpha, int width, int height, int filter) {
+        for (int y = 0; y < height; y++) {
+            int row = y * width;
+            int prev = row - width;
+            if (y == 0 || filter == ALPHA_FILTER_HORIZONTAL) {
+                int pred = y == 0 ? 0 : alpha[prev] & 0xFF;
+                for (int x = 0; x < width; x++) {
+                    pred = (pred + alpha[row + x]) & 0xFF;
+                    alpha[row + x] = (byte) pred;
+                }
+            } else if (filter == ALPHA_FILTER_VERTICAL) {
+                for (int x = 0; x < width; x++) {
+                    alpha[row + x] += alpha[prev + x];
+                }
+            } else if (filter == ALPHA_FILTER_GRADIENT) {
+                int topLeft = alpha[prev] & 0xFF;
+                int left = topLeft;
+                for (int x = 0; x < width; x++) {
+                    int top = alpha[prev + x] & 0xFF;
+                    int pred = Math.min(255, Math.max(0, left + top - topLeft));
+                    left = (alpha[row + x] + pred) & 0xFF;
+                    alpha[row + x] = (byte) left;
+                    topLeft = top;
+                }
+            }
+        }
+    }
+
+    private static void checkSize(int frameWidth, int frameHeight, int width, int height) throws DataFormatException {
+        if (frameWidth < width || frameHeight < height) {
+            throw new DataFormatException(
+                    "WebP image is " + frameWidth + "x" + frameHeight + ", expected at least " + width + "x" + height);
+        }
+    }
+
+    private static boolean isTag(byte[] data, int offset, String tag) {
+        for (int i = 0; i < 4; i++) {
+            if (data[offset + i] != tag.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    static int readLE32(byte[] data, int offset) {
+        return (data[offset] & 0xFF)
+                | ((data[offset + 1] & 0xFF) << 8)
+                | ((data[offset + 2] & 0xFF) << 16)
+                | ((data[offset + 3] & 0xFF) << 24);
+    }
+}
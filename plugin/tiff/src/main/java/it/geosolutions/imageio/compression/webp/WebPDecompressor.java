@@ -0,0 +1,87 @@
+/*
+ *    ImageI/O-Ext - OpenSource Java Image translation Library
+ *    http://www.geo-solutions.it/
+ *    https://github.com/geosolutions-it/imageio-ext
+ *    (C) 2026, GeoSolutions
+ *    All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of GeoSolutions nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY GeoSolutions ``AS IS'' AND ANY
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL GeoSolutions BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package it.geosolutions.imageio.compression.webp;
+
+import it.geosolutions.imageio.compression.Decompressor;
+import java.util.zip.DataFormatException;
+
+/**
+ * Pure Java WebP decompressor, supporting lossy and lossless still images. The decompressed image is made of 8 bits
+ * interleaved RGB or RGBA samples, depending on the number of bands set with {@link #setImageLayout(int, int, int)}.
+ */
+public class WebPDecompressor implements Decompressor {
+
+    private byte[] input;
+
+    private int inputOffset;
+
+    private int inputLength;
+
+    private int width;
+
+    private int height;
+
+    private int numBands = 3;
+
+    @Override
+    public void setImageLayout(int width, int height, int numBands) {
+        if (numBands != 3 && numBands != 4) {
+            throw new IllegalArgumentException("WebP images have 3 or 4 bands, not " + numBands);
+        }
+        this.width = width;
+        this.height = height;
+        this.numBands = numBands;
+    }
+
+    @Override
+    public void setInput(byte[] srcData) {
+        setInput(srcData, 0, srcData.length);
+    }
+
+    @Override
+    public void setInput(byte[] srcData, int offset, int length) {
+        this.input = srcData;
+        this.inputOffset = offset;
+        this.inputLength = length;
+    }
+
+    @Override
+    public void decompress(byte[] destData, int offset, int maxUncompressedSize) throws DataFormatException {
+        if (width * height * numBands > maxUncompressedSize) {
+            throw new DataFormatException("Destination too small for a " + width + "x" + height + " WebP image");
+        }
+        WebPDecoder.decode(input, inputOffset, inputLength, destData, offset, width, height, numBands);
+    }
+
+    @Override
+    public void done() {
+        input = null;
+    }
+}
@@ -46,13 +46,28 @@ public class ZipDeflateDecompressor implements Decompressor {
         inflater.setInput(srcData);
     }
 
+    @Override
+    public void setInput(byte[] srcData, int offset, int length) {
+        inflater.setInput(srcData, offset, length);
+    }
+
     @Override
     public void decompress(byte[] buffer, int offset, int maxUncompressedSize) throws DataFormatException {
         inflater.inflate(buffer, offset, maxUncompressedSize);
     }
 
+    @Override
+    public boolean isStreaming() {
+        return true;
+    }
+
     @Override
     public void done() {
         inflater.reset();
     }
+
+    @Override
+    public void dispose() {
+        inflater.end();
+    }
 }
@@ -46,6 +46,27 @@ public class PrivateTIFFTagSet extends TIFFTagSet {
     /** Used by ZSTD */
     public static final int COMPRESSION_ZSTD = 50000;
 
+    /** Used by WebP */
+    public static final int COMPRESSION_WEBP = 50001;
+
+    /** Used by LERC (Limited Error Raster Compression) */
+    public static final int COMPRESSION_LERC = 34887;
+
+    /** Used by GDAL: LERC version and additional compression of the LERC blobs. */
+    public static final int TAG_LERC_PARAMETERS = 50674;
+
+    /** LERC version, as found in the first value of the LercParameters tag */
+    public static final int LERC_VERSION_2_4 = 4;
+
+    /** LERC blobs are not further compressed */
+    public static final int LERC_ADD_COMPRESSION_NONE = 0;
+
+    /** LERC blobs are further compressed with Deflate */
+    public static final int LERC_ADD_COMPRESSION_DEFLATE = 1;
+
+    /** LERC blobs are further compressed with ZSTD */
+    public static final int LERC_ADD_COMPRESSION_ZSTD = 2;
+
     static class GDALNoData extends TIFFTag {
         public GDALNoData() {
             super("GDALNoDataTag", TAG_GDAL_NODATA, 1 << TIFFTag.TIFF_ASCII);
@@ -58,12 +79,19 @@ public class PrivateTIFFTagSet extends TIFFTagSet {
         }
     }
 
+    public static class LercParameters extends TIFFTag {
+        public LercParameters() {
+            super("LercParameters", TAG_LERC_PARAMETERS, 1 << TIFFTag.TIFF_LONG);
+        }
+    }
+
     private static List<TIFFTag> tags;
 
     private static void initTags() {
         tags = new ArrayList<TIFFTag>(1);
         tags.add(new PrivateTIFFTagSet.GDALNoData());
         tags.add(new PrivateTIFFTagSet.GDALMetadata());
+        tags.add(new PrivateTIFFTagSet.LercParameters());
     }
 
     private PrivateTIFFTagSet() {
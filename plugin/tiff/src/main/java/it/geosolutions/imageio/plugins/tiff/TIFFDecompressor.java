@@ -97,7 +97,13 @@ import java.awt.image.SinglePixelPackedSampleModel;
 import java.awt.image.WritableRaster;
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
-import java.nio.ByteOrder;
+import java.lang.ref.SoftReference;
+import java.nio.ByteBuffer;
+import java.nio.DoubleBuffer;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.nio.ShortBuffer;
+import java.util.Arrays;
 import javax.imageio.IIOException;
 import javax.imageio.ImageReader;
 import javax.imageio.ImageTypeSpecifier;
@@ -143,6 +149,25 @@ public abstract class TIFFDecompressor {
 
     private static final boolean DEBUG = false; // XXX false for release!
 
+    /** Scratch buffer holding the compressed bytes of a strip or tile */
+    protected static final int SCRATCH_COMPRESSED = 0;
+
+    /** Scratch buffer holding the decompressed bytes of a strip or tile, when they can't go to the destination */
+    protected static final int SCRATCH_DECOMPRESSED = 1;
+
+    /** Scratch buffer holding the raw bytes of a strip or tile to be reformatted into the destination */
+    protected static final int SCRATCH_RAW = 2;
+
+    /**
+     * Largest scratch buffer retained by a thread, larger ones are allocated at each use. Kept small, as every thread
+     * decoding images retains up to three of them.
+     */
+    private static final int MAX_SCRATCH_SIZE =
+            Integer.getInteger("it.geosolutions.imageio.tiff.decompressor.scratch.maxsize", 1024 * 1024);
+
+    /** The scratch buffers of each thread, softly referenced so that they can be reclaimed under memory pressure */
+    private static final ThreadLocal<SoftReference<byte[][]>> SCRATCH_BUFFERS = new ThreadLocal<>();
+
     /** The <code>ImageReader</code> calling this <code>TIFFDecompressor</code>. */
     protected ImageReader reader;
 
@@ -1691,32 +1716,14 @@ public abstract class TIFFDecompressor {
         int bytesPerRow = (srcWidth * bitsPerPixel + 7) / 8;
         int shortsPerRow = bytesPerRow / 2;
 
-        byte[] b = new byte[bytesPerRow * srcHeight];
+        byte[] b = getClearedScratchBuffer(SCRATCH_RAW, bytesPerRow * srcHeight);
         decodeRaw(b, 0, bitsPerPixel, bytesPerRow);
 
-        int bOffset = 0;
-        if (stream.getByteOrder() == ByteOrder.BIG_ENDIAN) {
-            for (int j = 0; j < srcHeight; j++) {
-                for (int i = 0; i < shortsPerRow; i++) {
-                    short hiVal = b[bOffset++];
-                    short loVal = b[bOffset++];
-                    short sval = (short) ((hiVal << 8) | (loVal & 0xff));
-                    s[dstOffset + i] = sval;
-                }
-
-                dstOffset += scanlineStride;
-            }
-        } else { // ByteOrder.LITLE_ENDIAN
-            for (int j = 0; j < srcHeight; j++) {
-                for (int i = 0; i < shortsPerRow; i++) {
-                    short loVal = b[bOffset++];
-                    short hiVal = b[bOffset++];
-                    short sval = (short) ((hiVal << 8) | (loVal & 0xff));
-                    s[dstOffset + i] = sval;
-                }
-
-                dstOffset += scanlineStride;
-            }
+        // bulk copy through a view in the stream byte order, rows are contiguous in the decoded bytes
+        ShortBuffer view = ByteBuffer.wrap(b).order(stream.getByteOrder()).asShortBuffer();
+        for (int j = 0; j < srcHeight; j++) {
+            view.get(s, dstOffset, shortsPerRow);
+            dstOffset += scanlineStride;
         }
     }
 
@@ -1739,36 +1746,13 @@ public abstract class TIFFDecompressor {
         int intsPerRow = srcWidth * numBands;
         int bytesPerRow = intsPerRow * 4;
 
-        byte[] b = new byte[bytesPerRow * srcHeight];
+        byte[] b = getClearedScratchBuffer(SCRATCH_RAW, bytesPerRow * srcHeight);
         decodeRaw(b, 0, bitsPerPixel, bytesPerRow);
 
-        int bOffset = 0;
-        if (stream.getByteOrder() == ByteOrder.BIG_ENDIAN) {
-            for (int j = 0; j < srcHeight; j++) {
-                for (int k = 0; k < intsPerRow; k++) {
-                    int v0 = b[bOffset++] & 0xff;
-                    int v1 = b[bOffset++] & 0xff;
-                    int v2 = b[bOffset++] & 0xff;
-                    int v3 = b[bOffset++] & 0xff;
-                    int ival = (v0 << 24) | (v1 << 16) | (v2 << 8) | v3;
-                    i[dstOffset + k] = ival;
-                }
-
-                dstOffset += scanlineStride;
-            }
-        } else { // ByteOrder.LITLE_ENDIAN
-            for (int j = 0; j < srcHeight; j++) {
-                for (int k = 0; k < intsPerRow; k++) {
-                    int v3 = b[bOffset++] & 0xff;
-                    int v2 = b[bOffset++] & 0xff;
-                    int v1 = b[bOffset++] & 0xff;
-                    int v0 = b[bOffset++] & 0xff;
-                    int ival = (v0 << 24) | (v1 << 16) | (v2 << 8) | v3;
-                    i[dstOffset + k] = ival;
-                }
-
-                dstOffset += scanlineStride;
-            }
+        IntBuffer view = ByteBuffer.wrap(b).order(stream.getByteOrder()).asIntBuffer();
+        for (int j = 0; j < srcHeight; j++) {
+            view.get(i, dstOffset, intsPerRow);
+            dstOffset += scanlineStride;
         }
     }
 
@@ -1791,39 +1775,13 @@ public abstract class TIFFDecompressor {
         int floatsPerRow = srcWidth * numBands;
         int bytesPerRow = floatsPerRow * 4;
 
-        byte[] b = new byte[bytesPerRow * srcHeight];
+        byte[] b = getClearedScratchBuffer(SCRATCH_RAW, bytesPerRow * srcHeight);
         decodeRaw(b, 0, bitsPerPixel, bytesPerRow);
 
-        int bOffset = 0;
-        if (stream.getByteOrder() == ByteOrder.BIG_ENDIAN) {
-            for (int j = 0; j < srcHeight; j++) {
-                for (int i = 0; i < floatsPerRow; i++) {
-                    int v0 = b[bOffset++] & 0xff;
-                    int v1 = b[bOffset++] & 0xff;
-                    int v2 = b[bOffset++] & 0xff;
-                    int v3 = b[bOffset++] & 0xff;
-                    int ival = (v0 << 24) | (v1 << 16) | (v2 << 8) | v3;
-                    float fval = Float.intBitsToFloat(ival);
-                    f[dstOffset + i] = fval;
-                }
-
-                dstOffset += scanlineStride;
-            }
-        } else { // ByteOrder.LITLE_ENDIAN
-            for (int j = 0; j < srcHeight; j++) {
-                for (int i = 0; i < floatsPerRow; i++) {
-                    int v3 = b[bOffset++] & 0xff;
-                    int v2 = b[bOffset++] & 0xff;
-                    int v1 = b[bOffset++] & 0xff;
-                    int v0 = b[bOffset++] & 0xff;
-                    int ival = (v0 << 24) | (v1 << 16) | (v2 << 8) | v3;
-                    float fval = Float.intBitsToFloat(ival);
-                    //                    System.out.println(ival+" "+fval);
-                    f[dstOffset + i] = fval;
-                }
-
-                dstOffset += scanlineStride;
-            }
+        FloatBuffer view = ByteBuffer.wrap(b).order(stream.getByteOrder()).asFloatBuffer();
+        for (int j = 0; j < srcHeight; j++) {
+            view.get(f, dstOffset, floatsPerRow);
+            dstOffset += scanlineStride;
         }
     }
 
@@ -2225,7 +2183,7 @@ public abstract class TIFFDecompressor {
                                 // Decode into bytes and reformat into shorts.
                                 int bpp = getBitsPerPixel(sm);
                                 int bytesPerRow = (bpp * srcWidth + 7) / 8;
-                                byte[] buf = new byte[bytesPerRow * srcHeight];
+                                byte[] buf = getClearedScratchBuffer(SCRATCH_RAW, bytesPerRow * srcHeight);
                                 decodeRaw(buf, 0, bpp, bytesPerRow);
                                 reformatData(buf, bytesPerRow, srcHeight, shortData, null, dstOffset, scanlineStride);
                             }
@@ -2247,7 +2205,7 @@ public abstract class TIFFDecompressor {
                                 // Decode into bytes and reformat into ints.
                                 int bpp = getBitsPerPixel(sm);
                                 int bytesPerRow = (bpp * srcWidth + 7) / 8;
-                                byte[] buf = new byte[bytesPerRow * srcHeight];
+                                byte[] buf = getClearedScratchBuffer(SCRATCH_RAW, bytesPerRow * srcHeight);
                                 decodeRaw(buf, 0, bpp, bytesPerRow);
                                 reformatData(buf, bytesPerRow, srcHeight, null, intData, dstOffset, scanlineStride);
                             }
@@ -2261,7 +2219,7 @@ public abstract class TIFFDecompressor {
                     // into the Raster.
                     int bpp = getBitsPerPixel(sm);
                     int bytesPerRow = (bpp * srcWidth + 7) / 8;
-                    byte[] buf = new byte[bytesPerRow * srcHeight];
+                    byte[] buf = getClearedScratchBuffer(SCRATCH_RAW, bytesPerRow * srcHeight);
                     decodeRaw(buf, 0, bpp, bytesPerRow);
                     reformatDiscontiguousData(buf, bytesPerRow, srcWidth, srcHeight, ras);
                 }
@@ -2630,60 +2588,13 @@ public abstract class TIFFDecompressor {
         int doublesPerRow = srcWidth * numBands;
         int bytesPerRow = doublesPerRow * 8;
 
-        byte[] b = new byte[bytesPerRow * srcHeight];
+        byte[] b = getClearedScratchBuffer(SCRATCH_RAW, bytesPerRow * srcHeight);
         decodeRaw(b, 0, pixelBitStride, bytesPerRow);
 
-        int bOffset = 0;
-        if (stream.getByteOrder() == ByteOrder.BIG_ENDIAN) {
-            for (int j = 0; j < srcHeight; j++) {
-                for (int i = 0; i < doublesPerRow; i++) {
-                    long v0 = b[bOffset++] & 0xFFL;
-                    long v1 = b[bOffset++] & 0xFFL;
-                    long v2 = b[bOffset++] & 0xFFL;
-                    long v3 = b[bOffset++] & 0xFFL;
-                    long v4 = b[bOffset++] & 0xFFL;
-                    long v5 = b[bOffset++] & 0xFFL;
-                    long v6 = b[bOffset++] & 0xFFL;
-                    long v7 = b[bOffset++] & 0xFFL;
-                    long ival = (v0 << 56)
-                            | (v1 << 48)
-                            | (v2 << 40)
-                            | (v3 << 32)
-                            | (v4 << 24)
-                            | (v5 << 16)
-                            | (v6 << 8)
-                            | v7;
-                    double dval = Double.longBitsToDouble(ival);
-                    doubleData[dstOffset + i] = dval;
-                }
-
-                dstOffset += scanlineStride;
-            }
-        } else { // ByteOrder.LITLE_ENDIAN
-            for (int j = 0; j < srcHeight; j++) {
-                for (int i = 0; i < doublesPerRow; i++) {
-                    long v7 = b[bOffset++] & 0xFFL;
-                    long v6 = b[bOffset++] & 0xFFL;
-                    long v5 = b[bOffset++] & 0xFFL;
-                    long v4 = b[bOffset++] & 0xFFL;
-                    long v3 = b[bOffset++] & 0xFFL;
-                    long v2 = b[bOffset++] & 0xFFL;
-                    long v1 = b[bOffset++] & 0xFFL;
-                    long v0 = b[bOffset++] & 0xFFL;
-                    long ival = (v0 << 56)
-                            | (v1 << 48)
-                            | (v2 << 40)
-                            | (v3 << 32)
-                            | (v4 << 24)
-                            | (v5 << 16)
-                            | (v6 << 8)
-                            | v7;
-                    double dval = Double.longBitsToDouble(ival);
-                    doubleData[dstOffset + i] = dval;
-                }
-
-                dstOffset += scanlineStride;
-            }
+        DoubleBuffer view = ByteBuffer.wrap(b).order(stream.getByteOrder()).asDoubleBuffer();
+        for (int j = 0; j < srcHeight; j++) {
+            view.get(doubleData, dstOffset, doublesPerRow);
+            dstOffset += scanlineStride;
         }
     }
 
@@ -2694,6 +2605,40 @@ public abstract class TIFFDecompressor {
         this.colorMap = null;
     }
 
+    /**
+     * Returns a buffer of at least the requested length, reused by the strips and tiles decoded by the current thread,
+     * so that steady state decoding does not allocate. Each slot can be used by a single caller at a time. The buffer
+     * content is not cleared. Buffers larger than <code>it.geosolutions.imageio.tiff.decompressor.scratch.maxsize
+     * </code> bytes, 1MB by default, are not retained.
+     *
+     * @param slot one of {@link #SCRATCH_COMPRESSED}, {@link #SCRATCH_DECOMPRESSED}, {@link #SCRATCH_RAW}
+     * @param length the minimum buffer length
+     * @return the scratch buffer
+     */
+    protected static byte[] getScratchBuffer(int slot, int length) {
+        SoftReference<byte[][]> reference = SCRATCH_BUFFERS.get();
+        byte[][] buffers = reference != null ? reference.get() : null;
+        if (buffers == null) {
+            buffers = new byte[3][];
+            SCRATCH_BUFFERS.set(new SoftReference<>(buffers));
+        }
+        byte[] buffer = buffers[slot];
+        if (buffer == null || buffer.length < length) {
+            buffer = new byte[length];
+            if (length <= MAX_SCRATCH_SIZE) {
+                buffers[slot] = buffer;
+            }
+        }
+        return buffer;
+    }
+
+    /** Returns a cleared scratch buffer of at least the requested length, see {@link #getScratchBuffer(int, int)} */
+    protected static byte[] getClearedScratchBuffer(int slot, int length) {
+        byte[] buffer = getScratchBuffer(slot, length);
+        Arrays.fill(buffer, 0, length, (byte) 0);
+        return buffer;
+    }
+
     public static int readIntegerFromBuffer(byte[] buf, int offset1, int offset2, int offset3, int offset4) {
         return (buf[offset1] & 0xFF)
                 | ((buf[offset2] & 0xFF) << 8)
@@ -76,6 +76,7 @@ package it.geosolutions.imageio.plugins.tiff;
 import it.geosolutions.imageio.imageioimpl.EnhancedImageReadParam;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.Executor;
 import javax.imageio.ImageReadParam;
 
 /**
@@ -98,12 +99,18 @@ import javax.imageio.ImageReadParam;
  */
 public class TIFFImageReadParam extends EnhancedImageReadParam {
 
-    List allowedTagSets = new ArrayList(5);
+    List<TIFFTagSet> allowedTagSets = new ArrayList<>(5);
 
     TIFFDecompressor decompressor = null;
 
     TIFFColorConverter colorConverter = null;
 
+    int decodingParallelism = -1;
+
+    Executor decodingExecutor = null;
+
+    boolean overviewSelection = false;
+
     /**
      * Constructs a <code>TIFFImageReadParam</code>. Tags defined by the <code>TIFFTagSet</code>s <code>
      * BaselineTIFFTagSet</code>, <code>FaxTIFFTagSet</code>, <code>EXIFParentTIFFTagSet</code>, and <code>GeoTIFFTagSet
@@ -204,4 +211,93 @@ public class TIFFImageReadParam extends EnhancedImageReadParam {
     public TIFFColorConverter getColorConverter() {
         return this.colorConverter;
     }
+
+    /**
+     * Sets the number of strips or tiles the reader is allowed to decode concurrently. The compressed bytes are still
+     * read sequentially, while decompression and copy to the destination image run in parallel, each concurrent task
+     * using its own <code>TIFFDecompressor</code>. A value of 0 or 1 disables parallel decoding, while a negative value
+     * falls back on the <code>it.geosolutions.imageio.tiff.decode.parallelism</code> system property, which defaults to
+     * sequential decoding.
+     *
+     * <p>Parallel decoding is ignored when a custom <code>TIFFDecompressor</code> or <code>TIFFColorConverter</code> is
+     * set, since those cannot be replicated, and for the compressions and layouts where concurrent tasks could not work
+     * on disjoint parts of the destination.
+     *
+     * @param decodingParallelism the maximum number of strips or tiles decoded concurrently.
+     * @see #getDecodingParallelism
+     */
+    public void setDecodingParallelism(int decodingParallelism) {
+        this.decodingParallelism = decodingParallelism;
+    }
+
+    /**
+     * Returns the maximum number of strips or tiles decoded concurrently, or a negative value if the system default
+     * should be used.
+     *
+     * @return the maximum number of strips or tiles decoded concurrently.
+     * @see #setDecodingParallelism(int)
+     */
+    public int getDecodingParallelism() {
+        return decodingParallelism;
+    }
+
+    /**
+     * Sets the <code>Executor</code> running the parallel decoding tasks. A value of <code>null</code> uses the common
+     * fork-join pool.
+     *
+     * @param decodingExecutor the executor running the decoding tasks, or <code>null</code>.
+     * @see #setDecodingParallelism(int)
+     */
+    public void setDecodingExecutor(Executor decodingExecutor) {
+        this.decodingExecutor = decodingExecutor;
+    }
+
+    /**
+     * Returns the <code>Executor</code> running the parallel decoding tasks, or <code>null</code> if the common
+     * fork-join pool is used.
+     *
+     * @return the executor running the decoding tasks, or <code>null</code>.
+     */
+    public Executor getDecodingExecutor() {
+        return decodingExecutor;
+    }
+
+    /**
+     * Enables the automatic selection of overviews. When reading a full resolution image with a source subsampling, the
+     * reader looks for the overview best matching the subsampling, among the internal reduced resolution images and the
+     * ones in the external <code>.ovr</code> file, and reads the source region from it, applying only the residual
+     * subsampling. Masks are read from the matching mask overviews.
+     *
+     * <p>The returned image covers the requested source region, but its size only matches the one of a plain subsampled
+     * read when the overview factors divide the subsampling factors. The selection is skipped when a destination image
+     * is set.
+     *
+     * @param overviewSelection whether the reader should read subsampled images from the overviews.
+     * @see #isOverviewSelection
+     */
+    public void setOverviewSelection(boolean overviewSelection) {
+        this.overviewSelection = overviewSelection;
+    }
+
+    /**
+     * Returns whether the reader reads subsampled images from the best matching overview.
+     *
+     * @return true if the automatic selection of overviews is enabled.
+     * @see #setOverviewSelection(boolean)
+     */
+    public boolean isOverviewSelection() {
+        return overviewSelection;
+    }
+
+    public Object clone() throws CloneNotSupportedException {
+        TIFFImageReadParam param = new TIFFImageReadParam();
+        narrowClone(param);
+        param.allowedTagSets = new ArrayList<>(allowedTagSets);
+        param.decompressor = decompressor;
+        param.colorConverter = colorConverter;
+        param.decodingParallelism = decodingParallelism;
+        param.decodingExecutor = decodingExecutor;
+        param.overviewSelection = overviewSelection;
+        return param;
+    }
 }
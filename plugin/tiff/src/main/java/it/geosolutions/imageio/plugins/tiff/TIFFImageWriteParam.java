@@ -74,7 +74,9 @@
 package it.geosolutions.imageio.plugins.tiff;
 
 import it.geosolutions.imageioimpl.plugins.tiff.TIFFImageWriter;
+import java.awt.image.RenderedImage;
 import java.util.Locale;
+import java.util.concurrent.Executor;
 import javax.imageio.ImageWriteParam;
 
 /**
@@ -134,6 +136,17 @@ import javax.imageio.ImageWriteParam;
  * <td>EXIF-specific JPEG compression (see note following this table)</td>
  * <td><a href="http://www.exif.org/Exif2-2.PDF">EXIF 2.2 Specification</a>
  * (PDF), section 4.5.5, "Basic Structure of Thumbnail Data"</td>
+ * </tr>
+ * <tr>
+ * <td>LERC, LERC_DEFLATE, LERC_ZSTD</td>
+ * <td>Limited Error Raster Compression, optionally followed by Deflate or ZSTD (see note following this table)</td>
+ * <td><a href="https://github.com/Esri/lerc">LERC</a></td>
+ * </tr>
+ * <tr>
+ * <td>WebP</td>
+ * <td>WebP compression of 3- and 4-band byte images (see note following this table)</td>
+ * <td><a href="https://developers.google.com/speed/webp/docs/riff_container">WebP Container Specification</a></td>
+ * </tr>
  * </table>
  *
  * <p>Old-style JPEG compression as described in section 22 of the TIFF 6.0 Specification is <i>not</i> supported.
@@ -145,6 +158,14 @@ import javax.imageio.ImageWriteParam;
  * Compression field has value 8 whereas for Deflate it has value 32946 (0x80b2). In both cases each image segment
  * (strip or tile) is written as a single complete zlib data stream.
  *
+ * <p>LERC compression quantizes samples so that they differ from the original ones by at most the value set with
+ * {@link #setLercMaxZError(double)}, zero by default, meaning lossless compression. It is written with the
+ * LercParameters tag used by GDAL to identify the additional compression.
+ *
+ * <p>WebP compression writes each strip or tile as a complete WebP image, as GDAL does. The compression quality is
+ * mapped to the WebP levels, from 1 to 100. The built-in compressor always writes lossless images, the level setting
+ * its effort; a higher priority compressor registered for {@code CompressionType.WEBP} may honour it as lossy quality.
+ *
  * <p>"EXIF JPEG" is a compression type used when writing the contents of an APP1 EXIF marker segment for inclusion in a
  * JPEG native image metadata tree. The contents appended to the output when this compression type is used are a
  * function of whether an empty or non-empty image is written. If the image is empty, then a TIFF IFD adhering to the
@@ -168,6 +189,17 @@ import javax.imageio.ImageWriteParam;
  */
 public class TIFFImageWriteParam extends ImageWriteParam {
 
+    /** The resampling used to compute each overview from the previous level, halving its size. */
+    public enum OverviewResampling {
+        /** Picks the top left pixel of each 2x2 block. */
+        NEAREST,
+        /**
+         * Averages each 2x2 box of pixels, rounding to the nearest integer for integral data and skipping NaNs for
+         * floating point data. Palette and bilevel images are always resampled with {@link #NEAREST}.
+         */
+        AVERAGE
+    }
+
     TIFFCompressor compressor = null;
 
     TIFFColorConverter colorConverter = null;
@@ -177,6 +209,20 @@ public class TIFFImageWriteParam extends ImageWriteParam {
 
     private boolean forceToBigTIFF = false;
 
+    private double lercMaxZError = 0;
+
+    private int encodingParallelism = -1;
+
+    private Executor encodingExecutor = null;
+
+    private boolean cloudOptimized = false;
+
+    private int overviewLevels = -1;
+
+    private RenderedImage mask = null;
+
+    private OverviewResampling overviewResampling = null;
+
     public boolean isForceToBigTIFF() {
         return forceToBigTIFF;
     }
@@ -212,8 +258,9 @@ public class TIFFImageWriteParam extends ImageWriteParam {
             return compressor.isCompressionLossless();
         }
 
-        for (int i = 0; i < compressionTypes.length; i++) {
-            if (compressionType.equals(compressionTypes[i])) {
+        String[] knownTypes = TIFFImageWriter.compressionTypes;
+        for (int i = 0; i < knownTypes.length; i++) {
+            if (compressionType.equals(knownTypes[i])) {
                 return TIFFImageWriter.isCompressionLossless[i];
             }
         }
@@ -221,6 +268,182 @@ public class TIFFImageWriteParam extends ImageWriteParam {
         return false;
     }
 
+    /**
+     * Sets the maximum error allowed on each sample when using one of the LERC compression types. Zero, the default,
+     * makes LERC lossless. For integer data the value is rounded down to an integer.
+     *
+     * @param lercMaxZError the maximum absolute difference between the original and the decoded samples.
+     * @throws IllegalArgumentException if the value is negative or NaN.
+     */
+    public void setLercMaxZError(double lercMaxZError) {
+        if (!(lercMaxZError >= 0)) {
+            throw new IllegalArgumentException("Invalid LERC max error " + lercMaxZError);
+        }
+        this.lercMaxZError = lercMaxZError;
+    }
+
+    /**
+     * Returns the maximum error allowed on each sample when using one of the LERC compression types.
+     *
+     * @return the maximum error, zero meaning lossless.
+     * @see #setLercMaxZError(double)
+     */
+    public double getLercMaxZError() {
+        return lercMaxZError;
+    }
+
+    /**
+     * Sets the number of strips or tiles the writer is allowed to compress concurrently. Compression runs in parallel,
+     * each concurrent task using its own <code>TIFFCompressor</code>, while the compressed strips or tiles are still
+     * written in order by the calling thread, which also fills in their offsets and byte counts. A value of 0 or 1
+     * disables parallel encoding, while a negative value falls back on the <code>
+     * it.geosolutions.imageio.tiff.encode.parallelism</code> system property, which defaults to sequential encoding.
+     *
+     * <p>Parallel encoding is ignored when a custom <code>TIFFCompressor</code> or <code>TIFFColorConverter</code> is
+     * used, since those cannot be replicated, and for the compressions whose compressors share state across strips or
+     * tiles (JPEG and the CCITT ones).
+     *
+     * @param encodingParallelism the maximum number of strips or tiles compressed concurrently.
+     * @see #getEncodingParallelism
+     */
+    public void setEncodingParallelism(int encodingParallelism) {
+        this.encodingParallelism = encodingParallelism;
+    }
+
+    /**
+     * Returns the maximum number of strips or tiles compressed concurrently, or a negative value if the system default
+     * should be used.
+     *
+     * @return the maximum number of strips or tiles compressed concurrently.
+     * @see #setEncodingParallelism(int)
+     */
+    public int getEncodingParallelism() {
+        return encodingParallelism;
+    }
+
+    /**
+     * Sets the <code>Executor</code> running the parallel encoding tasks. A value of <code>null</code> uses the common
+     * fork-join pool.
+     *
+     * @param encodingExecutor the executor running the encoding tasks, or <code>null</code>.
+     * @see #setEncodingParallelism(int)
+     */
+    public void setEncodingExecutor(Executor encodingExecutor) {
+        this.encodingExecutor = encodingExecutor;
+    }
+
+    /**
+     * Returns the <code>Executor</code> running the parallel encoding tasks, or <code>null</code> if the common
+     * fork-join pool is used.
+     *
+     * @return the executor running the encoding tasks, or <code>null</code>.
+     */
+    public Executor getEncodingExecutor() {
+        return encodingExecutor;
+    }
+
+    /**
+     * Sets whether the image should be written as a cloud optimized GeoTIFF. In this mode the writer computes the IFDs
+     * of the full resolution image, of its reduced resolution overviews and of the optional mask up front and places
+     * them all at the beginning of the file, followed by the tile data from the smallest overview to the full
+     * resolution image. The file also follows the GDAL conventions for cloud optimized GeoTIFF, declaring its layout in
+     * a ghost area right after the header and surrounding each tile with its byte count and a copy of its last 4 bytes.
+     *
+     * <p>The image is always tiled, using 512x512 tiles unless a tiling is explicitly set. The overviews are computed
+     * with the overview resampling, nearest neighbour unless set otherwise. Only georeferencing tags are dropped from
+     * the overviews, which otherwise share the image metadata and compression. This mode is only honoured by <code>
+     * ImageWriter.write</code>, not when writing or inserting images in a sequence.
+     *
+     * @param cloudOptimized whether to write a cloud optimized GeoTIFF.
+     * @see #setOverviewLevels(int)
+     * @see #setMask(RenderedImage)
+     */
+    public void setCloudOptimized(boolean cloudOptimized) {
+        this.cloudOptimized = cloudOptimized;
+    }
+
+    /**
+     * Returns whether the image is written as a cloud optimized GeoTIFF.
+     *
+     * @return <code>true</code> if the image is written as a cloud optimized GeoTIFF.
+     * @see #setCloudOptimized(boolean)
+     */
+    public boolean isCloudOptimized() {
+        return cloudOptimized;
+    }
+
+    /**
+     * Sets the number of overviews written in cloud optimized mode or when an overview resampling is set, each one
+     * halving the size of the previous one. A negative value, the default, adds overviews until the smallest one fits
+     * in a single tile, or in 256x256 pixels for striped images.
+     *
+     * @param overviewLevels the number of overviews, or a negative value to compute it from the image size.
+     * @see #setCloudOptimized(boolean)
+     * @see #setOverviewResampling(OverviewResampling)
+     */
+    public void setOverviewLevels(int overviewLevels) {
+        this.overviewLevels = overviewLevels;
+    }
+
+    /**
+     * Returns the number of overviews written in cloud optimized mode, or a negative value if computed from the image
+     * size.
+     *
+     * @return the number of overviews.
+     * @see #setOverviewLevels(int)
+     */
+    public int getOverviewLevels() {
+        return overviewLevels;
+    }
+
+    /**
+     * Sets the resampling used to compute the overviews. Outside of cloud optimized mode, setting a resampling also
+     * makes <code>ImageWriter.write</code> add the overviews as subsequent reduced resolution IFDs. They are computed
+     * in a single streaming pass while the image is written, each level from the previous one, and their tile rows are
+     * written as soon as the image rows they depend on are, so that only a few tile rows per level are held in memory.
+     * The overviews share the compression, tiling and encoding settings of the image, which cannot use a custom <code>
+     * TIFFCompressor</code> in this case.
+     *
+     * @param overviewResampling the resampling of the overviews, or <code>null</code> to write no overviews outside of
+     *     cloud optimized mode.
+     * @see #setOverviewLevels(int)
+     */
+    public void setOverviewResampling(OverviewResampling overviewResampling) {
+        this.overviewResampling = overviewResampling;
+    }
+
+    /**
+     * Returns the resampling used to compute the overviews, if any.
+     *
+     * @return the resampling of the overviews, or <code>null</code>.
+     * @see #setOverviewResampling(OverviewResampling)
+     */
+    public OverviewResampling getOverviewResampling() {
+        return overviewResampling;
+    }
+
+    /**
+     * Sets the mask written along with the image in cloud optimized mode, as a Deflate compressed transparency mask
+     * following the image and each of its overviews. The mask must be a single band 1 bit image, with the same bounds
+     * as the image being written, whose non zero samples mark the valid pixels.
+     *
+     * @param mask the mask, or <code>null</code> to write no mask.
+     * @see #setCloudOptimized(boolean)
+     */
+    public void setMask(RenderedImage mask) {
+        this.mask = mask;
+    }
+
+    /**
+     * Returns the mask written along with the image in cloud optimized mode, if any.
+     *
+     * @return the mask, or <code>null</code>.
+     * @see #setMask(RenderedImage)
+     */
+    public RenderedImage getMask() {
+        return mask;
+    }
+
     /**
      * Sets the <code>TIFFCompressor</code> object to be used by the <code>ImageWriter</code> to encode each image strip
      * or tile. A value of <code>null</code> allows the writer to choose its own TIFFCompressor.
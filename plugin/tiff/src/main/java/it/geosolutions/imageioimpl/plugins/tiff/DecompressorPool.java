@@ -0,0 +1,86 @@
+/*
+ *    ImageI/O-Ext - OpenSource Java Image translation Library
+ *    http://www.geo-solutions.it/
+ *    https://github.com/geosolutions-it/imageio-ext
+ *    (C) 2026, GeoSolutions
+ *    All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of GeoSolutions nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY GeoSolutions ``AS IS'' AND ANY
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL GeoSolutions BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package it.geosolutions.imageioimpl.plugins.tiff;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * A bounded pool of codec instances (e.g. inflaters) that are expensive to set up, so that they can be reused across
+ * reads rather than being created for each one. Instances released when the pool is full are disposed, so that the
+ * native resources they hold (e.g. zlib memory) get freed right away rather than on finalization.
+ *
+ * @param <T> the pooled type
+ */
+final class DecompressorPool<T> {
+
+    /** Maximum number of idle instances kept for each codec, 0 disables pooling */
+    static final int POOL_SIZE = Integer.getInteger(
+            "it.geosolutions.imageio.tiff.decompressor.pool.size",
+            2 * Runtime.getRuntime().availableProcessors());
+
+    private final BlockingQueue<T> pool;
+
+    private final Supplier<T> factory;
+
+    private final Consumer<T> disposer;
+
+    DecompressorPool(Supplier<T> factory) {
+        this(factory, null);
+    }
+
+    DecompressorPool(Supplier<T> factory, Consumer<T> disposer) {
+        this(factory, disposer, POOL_SIZE);
+    }
+
+    DecompressorPool(Supplier<T> factory, Consumer<T> disposer, int size) {
+        this.factory = factory;
+        this.disposer = disposer;
+        this.pool = size > 0 ? new ArrayBlockingQueue<>(size) : null;
+    }
+
+    /** Returns an idle instance, or a new one if none is available */
+    T acquire() {
+        T instance = pool != null ? pool.poll() : null;
+        return instance != null ? instance : factory.get();
+    }
+
+    /** Gives back an instance no longer in use, disposing it if the pool is full */
+    void release(T instance) {
+        if (instance == null) {
+            return;
+        }
+        if ((pool == null || !pool.offer(instance)) && disposer != null) {
+            disposer.accept(instance);
+        }
+    }
+}
@@ -30,7 +30,8 @@
 package it.geosolutions.imageioimpl.plugins.tiff;
 
 import it.geosolutions.imageio.plugins.tiff.BaselineTIFFTagSet;
-import it.geosolutions.imageio.plugins.tiff.TIFFDecompressor;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
 import java.nio.ByteOrder;
 import java.util.Arrays;
 import javax.imageio.IIOException;
@@ -38,6 +39,16 @@ import javax.imageio.IIOException;
 /** Class applying the Predictor algorithm to restore the data from its compressed form. */
 public class PredictorDecompressor {
 
+    // Views reading and writing whole samples out of byte arrays, in both byte orders
+    private static final VarHandle SHORT_LE =
+            MethodHandles.byteArrayViewVarHandle(short[].class, ByteOrder.LITTLE_ENDIAN);
+    private static final VarHandle SHORT_BE = MethodHandles.byteArrayViewVarHandle(short[].class, ByteOrder.BIG_ENDIAN);
+    private static final VarHandle INT_LE = MethodHandles.byteArrayViewVarHandle(int[].class, ByteOrder.LITTLE_ENDIAN);
+    private static final VarHandle INT_BE = MethodHandles.byteArrayViewVarHandle(int[].class, ByteOrder.BIG_ENDIAN);
+    private static final VarHandle LONG_LE =
+            MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.LITTLE_ENDIAN);
+    private static final VarHandle LONG_BE = MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.BIG_ENDIAN);
+
     /** predictor's type */
     private final int predictor;
 
@@ -46,6 +57,9 @@ public class PredictorDecompressor {
     private int samplesPerPixel;
     private ByteOrder byteOrder;
 
+    /** Row buffer used to reorder the bytes of the floating point predictor, reused across rows and tiles */
+    private byte[] rowBuffer;
+
     public PredictorDecompressor(
             int predictor, int[] bitsPerSample, int[] sampleFormat, int samplesPerPixel, ByteOrder byteOrder) {
         this.predictor = predictor;
@@ -55,6 +69,19 @@ public class PredictorDecompressor {
         this.byteOrder = byteOrder;
     }
 
+    /**
+     * Returns true if this instance is set up for the given configuration, and can thus be reused for it rather than
+     * creating a new one.
+     */
+    public boolean matches(
+            int predictor, int[] bitsPerSample, int[] sampleFormat, int samplesPerPixel, ByteOrder byteOrder) {
+        return this.predictor == predictor
+                && this.samplesPerPixel == samplesPerPixel
+                && this.byteOrder == byteOrder
+                && Arrays.equals(this.bitsPerSample, bitsPerSample)
+                && Arrays.equals(this.sampleFormat, sampleFormat);
+    }
+
     /** Decompress the buffer content by applying the proper predictor algorithm */
     public void decompress(byte[] buf, int bufOffset, int dstOffset, int srcHeight, int srcWidth, int bytesPerRow)
             throws IIOException {
@@ -68,131 +95,11 @@ public class PredictorDecompressor {
                     }
                 }
             } else if (bitsPerSample[0] == 16) {
-                if (byteOrder == ByteOrder.LITTLE_ENDIAN) {
-                    for (int j = 0; j < srcHeight; j++) {
-                        int count = dstOffset + samplesPerPixel * (j * srcWidth + 1) * 2;
-                        for (int i = samplesPerPixel; i < srcWidth * samplesPerPixel; i++) {
-                            int curr = (((int) buf[count]) & 0xFF) | (buf[count + 1] << 8);
-                            int prev = (((int) buf[count - samplesPerPixel * 2]) & 0xFF)
-                                    | (buf[count + 1 - samplesPerPixel * 2] << 8);
-                            curr += prev;
-                            buf[count] = (byte) curr;
-                            buf[count + 1] = (byte) (curr >> 8);
-                            count += 2;
-                        }
-                    }
-                } else {
-                    for (int j = 0; j < srcHeight; j++) {
-                        int count = dstOffset + samplesPerPixel * (j * srcWidth + 1) * 2;
-                        for (int i = samplesPerPixel; i < srcWidth * samplesPerPixel; i++) {
-                            int curr = (((int) buf[count + 1]) & 0xFF) | (buf[count] << 8);
-                            int prev = (((int) buf[count + 1 - samplesPerPixel * 2]) & 0xFF)
-                                    | (buf[count - samplesPerPixel * 2] << 8);
-                            curr += prev;
-                            buf[count + 1] = (byte) curr;
-                            buf[count] = (byte) (curr >> 8);
-                            count += 2;
-                        }
-                    }
-                }
+                undoShortDifferencing(buf, dstOffset, srcHeight, srcWidth, shortView(byteOrder));
             } else if (bitsPerSample[0] == 32) {
-                if (byteOrder == ByteOrder.LITTLE_ENDIAN) {
-                    for (int j = 0; j < srcHeight; j++) {
-                        int count = dstOffset + samplesPerPixel * (j * srcWidth + 1) * 4;
-                        for (int i = samplesPerPixel; i < srcWidth * samplesPerPixel; i++) {
-                            int prevBase = count - samplesPerPixel * 4;
-                            int prev = TIFFDecompressor.readIntegerFromBuffer(
-                                    buf, prevBase, prevBase + 1, prevBase + 2, prevBase + 3);
-                            int curr =
-                                    TIFFDecompressor.readIntegerFromBuffer(buf, count, count + 1, count + 2, count + 3);
-                            int sum = curr + prev;
-                            buf[count] = (byte) (sum & 0xFF);
-                            buf[count + 1] = (byte) ((sum >> 8) & 0xFF);
-                            buf[count + 2] = (byte) ((sum >> 16) & 0xFF);
-                            buf[count + 3] = (byte) ((sum >> 24) & 0xFF);
-                            count += 4;
-                        }
-                    }
-                } else {
-                    for (int j = 0; j < srcHeight; j++) {
-                        int count = dstOffset + samplesPerPixel * (j * srcWidth + 1) * 4;
-                        for (int i = samplesPerPixel; i < srcWidth * samplesPerPixel; i++) {
-                            int prevBase = count - samplesPerPixel * 4;
-                            int prev = TIFFDecompressor.readIntegerFromBuffer(
-                                    buf, prevBase + 3, prevBase + 2, prevBase + 1, prevBase);
-                            int curr =
-                                    TIFFDecompressor.readIntegerFromBuffer(buf, count + 3, count + 2, count + 1, count);
-                            int sum = curr + prev;
-                            buf[count + 3] = (byte) (sum & 0xFF);
-                            buf[count + 2] = (byte) (sum >> 8 & 0xFF);
-                            buf[count + 1] = (byte) (sum >> 16 & 0xFF);
-                            buf[count] = (byte) (sum >> 24 & 0xFF);
-                            count += 4;
-                        }
-                    }
-                }
+                undoIntDifferencing(buf, dstOffset, srcHeight, srcWidth, intView(byteOrder));
             } else if (bitsPerSample[0] == 64) {
-                if (byteOrder == ByteOrder.LITTLE_ENDIAN) {
-                    for (int j = 0; j < srcHeight; j++) {
-                        int count = dstOffset + samplesPerPixel * (j * srcWidth + 1) * 8;
-                        for (int i = samplesPerPixel; i < srcWidth * samplesPerPixel; i++) {
-                            int prevBase = count - samplesPerPixel * 8;
-                            long prev = TIFFDecompressor.readLongFromBuffer(
-                                    buf,
-                                    prevBase,
-                                    prevBase + 1,
-                                    prevBase + 2,
-                                    prevBase + 3,
-                                    prevBase + 4,
-                                    prevBase + 5,
-                                    prevBase + 6,
-                                    prevBase + 7);
-                            long curr = TIFFDecompressor.readLongFromBuffer(
-                                    buf, count, count + 1, count + 2, count + 3, count + 4, count + 5, count + 6,
-                                    count + 7);
-                            long sum = curr + prev;
-                            buf[count] = (byte) (sum & 0xFF);
-                            buf[count + 1] = (byte) ((sum >> 8) & 0xFF);
-                            buf[count + 2] = (byte) ((sum >> 16) & 0xFF);
-                            buf[count + 3] = (byte) ((sum >> 24) & 0xFF);
-                            buf[count + 4] = (byte) ((sum >> 32) & 0xFF);
-                            buf[count + 5] = (byte) ((sum >> 40) & 0xFF);
-                            buf[count + 6] = (byte) ((sum >> 48) & 0xFF);
-                            buf[count + 7] = (byte) ((sum >> 56) & 0xFF);
-                            count += 8;
-                        }
-                    }
-                } else {
-                    for (int j = 0; j < srcHeight; j++) {
-                        int count = dstOffset + samplesPerPixel * (j * srcWidth + 1) * 8;
-                        for (int i = samplesPerPixel; i < srcWidth * samplesPerPixel; i++) {
-                            int prevBase = count - samplesPerPixel * 8;
-                            long prev = TIFFDecompressor.readLongFromBuffer(
-                                    buf,
-                                    prevBase + 7,
-                                    prevBase + 6,
-                                    prevBase + 5,
-                                    prevBase + 4,
-                                    prevBase + 3,
-                                    prevBase + 2,
-                                    prevBase + 1,
-                                    prevBase);
-                            long curr = TIFFDecompressor.readLongFromBuffer(
-                                    buf, count + 7, count + 6, count + 5, count + 4, count + 3, count + 2, count + 1,
-                                    count);
-                            long sum = curr + prev;
-                            buf[count + 7] = (byte) (sum & 0xFF);
-                            buf[count + 6] = (byte) ((sum >> 8) & 0xFF);
-                            buf[count + 5] = (byte) ((sum >> 16) & 0xFF);
-                            buf[count + 4] = (byte) ((sum >> 24) & 0xFF);
-                            buf[count + 3] = (byte) ((sum >> 32) & 0xFF);
-                            buf[count + 2] = (byte) ((sum >> 40) & 0xFF);
-                            buf[count + 1] = (byte) ((sum >> 48) & 0xFF);
-                            buf[count] = (byte) ((sum >> 56) & 0xFF);
-                            count += 8;
-                        }
-                    }
-                }
+                undoLongDifferencing(buf, dstOffset, srcHeight, srcWidth, longView(byteOrder));
             } else
                 throw new IIOException(
                         "Unexpected branch of Horizontal differencing Predictor, bps=" + bitsPerSample[0]);
@@ -212,9 +119,17 @@ public class PredictorDecompressor {
                 }
 
                 // Reorder the semi-BigEndian bytes.
-                byte[] tmp = Arrays.copyOfRange(buf, offset, offset + bytesPerRow);
+                if (rowBuffer == null || rowBuffer.length < bytesPerRow) {
+                    rowBuffer = new byte[bytesPerRow];
+                }
+                byte[] tmp = rowBuffer;
+                System.arraycopy(buf, offset, tmp, 0, bytesPerRow);
                 int samplesPerRow = srcWidth * samplesPerPixel;
-                if (byteOrder == ByteOrder.BIG_ENDIAN) {
+                if (bytesPerSample == 4) {
+                    reorderIntSamples(tmp, buf, offset, samplesPerRow, intView(byteOrder));
+                } else if (bytesPerSample == 8) {
+                    reorderLongSamples(tmp, buf, offset, samplesPerRow, longView(byteOrder));
+                } else if (byteOrder == ByteOrder.BIG_ENDIAN) {
                     for (int i = 0; i < samplesPerRow; i++) {
                         for (int k = 0; k < bytesPerSample; k++) {
                             buf[offset + i * bytesPerSample + k] = tmp[k * samplesPerRow + i];
@@ -231,6 +146,91 @@ public class PredictorDecompressor {
         }
     }
 
+    /** Undoes horizontal differencing of 16 bit samples, reading and writing them as whole values */
+    private void undoShortDifferencing(byte[] buf, int offset, int srcHeight, int srcWidth, VarHandle view) {
+        int stride = samplesPerPixel * 2;
+        int rowLength = srcWidth * stride;
+        for (int j = 0; j < srcHeight; j++) {
+            int rowStart = offset + j * rowLength;
+            int rowEnd = rowStart + rowLength;
+            for (int count = rowStart + stride; count < rowEnd; count += 2) {
+                short sum = (short) ((short) view.get(buf, count) + (short) view.get(buf, count - stride));
+                view.set(buf, count, sum);
+            }
+        }
+    }
+
+    /** Undoes horizontal differencing of 32 bit samples, reading and writing them as whole values */
+    private void undoIntDifferencing(byte[] buf, int offset, int srcHeight, int srcWidth, VarHandle view) {
+        int stride = samplesPerPixel * 4;
+        int rowLength = srcWidth * stride;
+        for (int j = 0; j < srcHeight; j++) {
+            int rowStart = offset + j * rowLength;
+            int rowEnd = rowStart + rowLength;
+            for (int count = rowStart + stride; count < rowEnd; count += 4) {
+                int sum = (int) view.get(buf, count) + (int) view.get(buf, count - stride);
+                view.set(buf, count, sum);
+            }
+        }
+    }
+
+    /** Undoes horizontal differencing of 64 bit samples, reading and writing them as whole values */
+    private void undoLongDifferencing(byte[] buf, int offset, int srcHeight, int srcWidth, VarHandle view) {
+        int stride = samplesPerPixel * 8;
+        int rowLength = srcWidth * stride;
+        for (int j = 0; j < srcHeight; j++) {
+            int rowStart = offset + j * rowLength;
+            int rowEnd = rowStart + rowLength;
+            for (int count = rowStart + stride; count < rowEnd; count += 8) {
+                long sum = (long) view.get(buf, count) + (long) view.get(buf, count - stride);
+                view.set(buf, count, sum);
+            }
+        }
+    }
+
+    /**
+     * Rebuilds 32 bit samples from the byte planes of the floating point predictor (most significant byte plane first)
+     * and writes them as whole values in the target byte order
+     */
+    private static void reorderIntSamples(byte[] tmp, byte[] buf, int offset, int samplesPerRow, VarHandle view) {
+        int p1 = samplesPerRow;
+        int p2 = samplesPerRow * 2;
+        int p3 = samplesPerRow * 3;
+        for (int i = 0; i < samplesPerRow; i++) {
+            int value = ((tmp[i] & 0xFF) << 24)
+                    | ((tmp[p1 + i] & 0xFF) << 16)
+                    | ((tmp[p2 + i] & 0xFF) << 8)
+                    | (tmp[p3 + i] & 0xFF);
+            view.set(buf, offset + i * 4, value);
+        }
+    }
+
+    /**
+     * Rebuilds 64 bit samples from the byte planes of the floating point predictor (most significant byte plane first)
+     * and writes them as whole values in the target byte order
+     */
+    private static void reorderLongSamples(byte[] tmp, byte[] buf, int offset, int samplesPerRow, VarHandle view) {
+        for (int i = 0; i < samplesPerRow; i++) {
+            long value = 0;
+            for (int k = 0, plane = i; k < 8; k++, plane += samplesPerRow) {
+                value = (value << 8) | (tmp[plane] & 0xFF);
+            }
+            view.set(buf, offset + i * 8, value);
+        }
+    }
+
+    private static VarHandle shortView(ByteOrder byteOrder) {
+        return byteOrder == ByteOrder.LITTLE_ENDIAN ? SHORT_LE : SHORT_BE;
+    }
+
+    private static VarHandle intView(ByteOrder byteOrder) {
+        return byteOrder == ByteOrder.LITTLE_ENDIAN ? INT_LE : INT_BE;
+    }
+
+    private static VarHandle longView(ByteOrder byteOrder) {
+        return byteOrder == ByteOrder.LITTLE_ENDIAN ? LONG_LE : LONG_BE;
+    }
+
     /** Validate the current predictor setup */
     public void validate() throws IIOException {
         // Check bitsPerSample.
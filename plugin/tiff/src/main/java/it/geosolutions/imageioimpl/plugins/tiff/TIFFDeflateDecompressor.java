@@ -79,14 +79,20 @@ import it.geosolutions.imageio.compression.Decompressor;
 import it.geosolutions.imageio.plugins.tiff.BaselineTIFFTagSet;
 import it.geosolutions.imageio.plugins.tiff.TIFFDecompressor;
 import java.io.IOException;
+import java.nio.ByteOrder;
 import java.util.zip.DataFormatException;
 import javax.imageio.IIOException;
 
 public class TIFFDeflateDecompressor extends TIFFDecompressor {
 
     private static final boolean DEBUG = false;
+    /** Deflate decompressors, reused across reads */
+    private static final DecompressorPool<Decompressor> DEFLATE_DECOMPRESSORS = new DecompressorPool<>(
+            () -> CompressionFinder.getDecompressor(CompressionType.DEFLATE), Decompressor::dispose);
+
     int predictor;
     Decompressor deflateDecompressor;
+    PredictorDecompressor predictorDecompressor;
 
     public TIFFDeflateDecompressor(int predictor) throws IIOException {
         if (predictor != BaselineTIFFTagSet.PREDICTOR_NONE
@@ -100,35 +106,53 @@ public class TIFFDeflateDecompressor extends TIFFDecompressor {
         }
 
         this.predictor = predictor;
-        deflateDecompressor = CompressionFinder.getDecompressor(CompressionType.DEFLATE);
+        deflateDecompressor = DEFLATE_DECOMPRESSORS.acquire();
     }
 
     public synchronized void decodeRaw(byte[] b, int dstOffset, int bitsPerPixel, int scanlineStride)
             throws IOException {
 
-        PredictorDecompressor predictorDecompressor = new PredictorDecompressor(
-                predictor, bitsPerSample, sampleFormat, planar ? 1 : samplesPerPixel, stream.getByteOrder());
-        predictorDecompressor.validate();
+        PredictorDecompressor predictorDecompressor = getPredictorDecompressor();
+        if (deflateDecompressor == null) {
+            deflateDecompressor = DEFLATE_DECOMPRESSORS.acquire();
+        }
 
         // Seek to current tile data offset.
         stream.seek(offset);
 
         // Read the deflated data.
-        byte[] srcData = new byte[byteCount];
-        stream.readFully(srcData);
+        byte[] srcData = getScratchBuffer(SCRATCH_COMPRESSED, byteCount);
+        stream.readFully(srcData, 0, byteCount);
 
         int bytesPerRow = (srcWidth * bitsPerPixel + 7) / 8;
+        if (bytesPerRow != scanlineStride && deflateDecompressor.isStreaming()) {
+            // inflate one row at a time straight into the destination, no intermediate buffer needed
+            deflateDecompressor.setInput(srcData, 0, byteCount);
+            try {
+                for (int y = 0; y < srcHeight; y++) {
+                    deflateDecompressor.decompress(b, dstOffset, bytesPerRow);
+                    predictorDecompressor.decompress(b, dstOffset, dstOffset, 1, srcWidth, bytesPerRow);
+                    dstOffset += scanlineStride;
+                }
+            } catch (DataFormatException dfe) {
+                throw new IIOException("Data format exception during deflate decompression", dfe);
+            } finally {
+                deflateDecompressor.done();
+            }
+            return;
+        }
+
         byte[] buf;
         int bufOffset;
         if (bytesPerRow == scanlineStride) {
             buf = b;
             bufOffset = dstOffset;
         } else {
-            buf = new byte[bytesPerRow * srcHeight];
+            buf = getClearedScratchBuffer(SCRATCH_DECOMPRESSED, bytesPerRow * srcHeight);
             bufOffset = 0;
         }
 
-        deflateDecompressor.setInput(srcData);
+        deflateDecompressor.setInput(srcData, 0, byteCount);
         try {
             deflateDecompressor.decompress(buf, bufOffset, bytesPerRow * srcHeight);
         } catch (DataFormatException dfe) {
@@ -150,4 +174,22 @@ public class TIFFDeflateDecompressor extends TIFFDecompressor {
             }
         }
     }
+
+    private PredictorDecompressor getPredictorDecompressor() throws IIOException {
+        int spp = planar ? 1 : samplesPerPixel;
+        ByteOrder byteOrder = stream.getByteOrder();
+        if (predictorDecompressor == null
+                || !predictorDecompressor.matches(predictor, bitsPerSample, sampleFormat, spp, byteOrder)) {
+            predictorDecompressor = new PredictorDecompressor(predictor, bitsPerSample, sampleFormat, spp, byteOrder);
+            predictorDecompressor.validate();
+        }
+        return predictorDecompressor;
+    }
+
+    @Override
+    public void dispose() {
+        super.dispose();
+        DEFLATE_DECOMPRESSORS.release(deflateDecompressor);
+        deflateDecompressor = null;
+    }
 }
@@ -80,8 +80,12 @@ import it.geosolutions.imageio.plugins.tiff.TIFFTag;
 import it.geosolutions.imageio.plugins.tiff.TIFFTagSet;
 import java.io.EOFException;
 import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Comparator;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Set;
@@ -91,12 +95,33 @@ import javax.imageio.stream.ImageOutputStream;
 public class TIFFIFD extends TIFFDirectory {
 
     /** we do not allow lazy loading by default.* */
-    private static final boolean LAZY_LOADING = Boolean.getBoolean("it.geosolutions.imageio.tiff.lazy");
+    static final boolean LAZY_LOADING = Boolean.getBoolean("it.geosolutions.imageio.tiff.lazy");
+
+    /** Entry tables larger than this are read in chunks of this size */
+    private static final int MAX_TABLE_SIZE = 1 << 24;
+
+    /** Out of line values closer than this are read at once */
+    private static final int MAX_VALUE_GAP = 1024;
+
+    /** Upper bound to the size of a single read of out of line values */
+    private static final int MAX_BATCH_SIZE = 1 << 26;
 
     private long stripOrTileByteCountsPosition = -1;
     private long stripOrTileOffsetsPosition = -1;
     private long lastPosition = -1;
 
+    /** Returns the lazy counterpart of LONG and LONG8 types, leaving other types (e.g., SHORT) as they are */
+    private static int getLazyType(int type) {
+        switch (type) {
+            case TIFFTag.TIFF_LONG:
+                return TIFFTag.TIFF_LAZY_LONG;
+            case TIFFTag.TIFF_LONG8:
+                return TIFFTag.TIFF_LAZY_LONG8;
+            default:
+                return type;
+        }
+    }
+
     public static TIFFTag getTag(int tagNumber, List tagSets) {
         Iterator iter = tagSets.iterator();
         while (iter.hasNext()) {
@@ -221,257 +246,409 @@ public class TIFFIFD extends TIFFDirectory {
             throws IOException {
         removeTIFFFields();
 
-        List tagSetList = getTagSetList();
-
         final long numEntries;
         if (isBTIFF) numEntries = stream.readLong();
         else numEntries = stream.readUnsignedShort();
 
-        for (int i = 0; i < numEntries; i++) {
-            // Read tag number, value type, and value count.
-            int tag = stream.readUnsignedShort();
-            int type = stream.readUnsignedShort();
-            int count;
-            if (isBTIFF) {
-                long count_ = stream.readLong();
-                count = (int) count_;
-                if (count != count_) throw new IllegalArgumentException("unable to use long number of values");
-            } else count = (int) stream.readUnsignedInt();
-
-            // Get the associated TIFFTag.
-            TIFFTag tiffTag = getTag(tag, tagSetList);
-
-            // Ignore unknown fields.
-            if (ignoreUnknownFields && tiffTag == null) {
-                // Skip the value/offset so as to leave the stream
-                // position at the start of the next IFD entry.
-
-                if (isBTIFF) stream.skipBytes(8);
-                else stream.skipBytes(4);
-
-                // XXX Warning message ...
-
-                // Continue with the next IFD entry.
-                continue;
-            }
-
-            long nextTagOffset;
-
-            if (isBTIFF) {
-                nextTagOffset = stream.getStreamPosition() + 8;
-                int sizeOfType = TIFFTag.getSizeOfType(type);
-                if (count * sizeOfType > 8) {
-                    long value = stream.readLong();
-                    stream.seek(value);
-                }
-            } else {
-                nextTagOffset = stream.getStreamPosition() + 4;
-                int sizeOfType = TIFFTag.getSizeOfType(type);
-                if (count * sizeOfType > 4) {
-                    long value = stream.readUnsignedInt();
-                    stream.seek(value);
-                }
-            }
-
-            if (tag == BaselineTIFFTagSet.TAG_STRIP_BYTE_COUNTS
-                    || tag == BaselineTIFFTagSet.TAG_TILE_BYTE_COUNTS
-                    || tag == BaselineTIFFTagSet.TAG_JPEG_INTERCHANGE_FORMAT_LENGTH) {
-                this.stripOrTileByteCountsPosition = stream.getStreamPosition();
-                if (LAZY_LOADING) {
-                    type = type == TIFFTag.TIFF_LONG ? TIFFTag.TIFF_LAZY_LONG : TIFFTag.TIFF_LAZY_LONG8;
-                }
-            } else if (tag == BaselineTIFFTagSet.TAG_STRIP_OFFSETS
-                    || tag == BaselineTIFFTagSet.TAG_TILE_OFFSETS
-                    || tag == BaselineTIFFTagSet.TAG_JPEG_INTERCHANGE_FORMAT) {
-                this.stripOrTileOffsetsPosition = stream.getStreamPosition();
-                if (LAZY_LOADING) {
-                    type = type == TIFFTag.TIFF_LONG ? TIFFTag.TIFF_LAZY_LONG : TIFFTag.TIFF_LAZY_LONG8;
+        List<TIFFTagSet> tagSetList = Arrays.asList(getTagSets());
+        ByteOrderViews views = ByteOrderViews.of(stream.getByteOrder());
+        int entrySize = isBTIFF ? 20 : 12;
+
+        // read the entry table at once, in chunks of MAX_TABLE_SIZE bytes for huge tables
+        List<IFDEntry> entries = new ArrayList<>();
+        List<IFDEntry> outOfLine = new ArrayList<>();
+        long tablePosition = stream.getStreamPosition();
+        long remaining = numEntries;
+        while (remaining > 0) {
+            int chunkEntries = (int) Math.min(remaining, MAX_TABLE_SIZE / entrySize);
+            byte[] table = new byte[chunkEntries * entrySize];
+            stream.readFully(table);
+            for (int offset = 0; offset < table.length; offset += entrySize) {
+                IFDEntry entry = parseEntry(
+                        stream, table, offset, tablePosition, isBTIFF, views, tagSetList, ignoreUnknownFields);
+                if (entry != null) {
+                    entries.add(entry);
+                    if (entry.length > 0) {
+                        outOfLine.add(entry);
+                    }
                 }
             }
+            tablePosition += table.length;
+            remaining -= chunkEntries;
+        }
+        this.lastPosition = tablePosition;
 
-            Object obj = null;
-
-            try {
-                switch (type) {
-                    case TIFFTag.TIFF_BYTE:
-                    case TIFFTag.TIFF_SBYTE:
-                    case TIFFTag.TIFF_UNDEFINED:
-                    case TIFFTag.TIFF_ASCII:
-                        byte[] bvalues = new byte[count];
-                        stream.readFully(bvalues, 0, count);
-
-                        if (type == TIFFTag.TIFF_ASCII) {
-                            // Can be multiple strings
-                            final List<String> v = new ArrayList<String>();
-                            boolean inString = false;
-                            int prevIndex = 0;
-                            for (int index = 0; index <= count; index++) {
-                                if (index < count && bvalues[index] != 0) {
-                                    if (!inString) {
-                                        // start of string
-                                        prevIndex = index;
-                                        inString = true;
-                                    }
-                                } else { // null or special case at end of string
-                                    if (inString) {
-                                        // end of string
-                                        final String s = new String(bvalues, prevIndex, index - prevIndex);
-                                        v.add(s);
-                                        inString = false;
-                                    }
-                                }
-                            }
-
-                            count = v.size();
-                            String[] strings;
-                            if (count != 0) {
-                                strings = new String[count];
-                                for (int c = 0; c < count; c++) {
-                                    strings[c] = v.get(c);
-                                }
-                            } else {
-                                // This case has been observed when the value of
-                                // 'count' recorded in the field is non-zero but
-                                // the value portion contains all nulls.
-                                count = 1;
-                                strings = new String[] {""};
-                            }
-
-                            obj = strings;
-                        } else {
-                            obj = bvalues;
-                        }
-                        break;
-
-                    case TIFFTag.TIFF_SHORT:
-                        char[] cvalues = new char[count];
-                        for (int j = 0; j < count; j++) {
-                            cvalues[j] = (char) (stream.readUnsignedShort());
-                        }
-                        obj = cvalues;
-                        break;
-
-                    case TIFFTag.TIFF_LONG:
-                    case TIFFTag.TIFF_IFD_POINTER:
-                        long[] lvalues = new long[count];
-                        for (int j = 0; j < count; j++) {
-                            lvalues[j] = stream.readUnsignedInt();
-                        }
-                        obj = lvalues;
-                        break;
-
-                    case TIFFTag.TIFF_RATIONAL:
-                        long[][] llvalues = new long[count][2];
-                        for (int j = 0; j < count; j++) {
-                            llvalues[j][0] = stream.readUnsignedInt();
-                            llvalues[j][1] = stream.readUnsignedInt();
-                        }
-                        obj = llvalues;
-                        break;
-
-                    case TIFFTag.TIFF_SSHORT:
-                        short[] svalues = new short[count];
-                        for (int j = 0; j < count; j++) {
-                            svalues[j] = stream.readShort();
-                        }
-                        obj = svalues;
-                        break;
-
-                    case TIFFTag.TIFF_SLONG:
-                        int[] ivalues = new int[count];
-                        for (int j = 0; j < count; j++) {
-                            ivalues[j] = stream.readInt();
-                        }
-                        obj = ivalues;
-                        break;
-
-                    case TIFFTag.TIFF_SRATIONAL:
-                        int[][] iivalues = new int[count][2];
-                        for (int j = 0; j < count; j++) {
-                            iivalues[j][0] = stream.readInt();
-                            iivalues[j][1] = stream.readInt();
-                        }
-                        obj = iivalues;
-                        break;
-
-                    case TIFFTag.TIFF_FLOAT:
-                        float[] fvalues = new float[count];
-                        for (int j = 0; j < count; j++) {
-                            fvalues[j] = stream.readFloat();
-                        }
-                        obj = fvalues;
-                        break;
-
-                    case TIFFTag.TIFF_DOUBLE:
-                        double[] dvalues = new double[count];
-                        for (int j = 0; j < count; j++) {
-                            dvalues[j] = stream.readDouble();
-                        }
-                        obj = dvalues;
-                        break;
-
-                    case TIFFTag.TIFF_LONG8:
-                    case TIFFTag.TIFF_SLONG8:
-                    case TIFFTag.TIFF_IFD8:
-                        long[] lBvalues = new long[count];
-                        for (int j = 0; j < count; j++) {
-                            lBvalues[j] = stream.readLong();
-                        }
-                        obj = lBvalues;
-                        break;
-
-                    case TIFFTag.TIFF_LAZY_LONG8:
-                    case TIFFTag.TIFF_LAZY_LONG:
-                        obj = new TIFFLazyData(stream, type, count);
-                        break;
-                    default:
-                        // XXX Warning
-                        break;
-                }
-            } catch (EOFException eofe) {
-                // The TIFF 6.0 fields have tag numbers less than or equal
-                // to 532 (ReferenceBlackWhite) or equal to 33432 (Copyright).
-                // If there is an error reading a baseline tag, then re-throw
-                // the exception and fail; otherwise continue with the next
-                // field.
-                if (BaselineTIFFTagSet.getInstance().getTag(tag) == null) {
-                    throw eofe;
-                }
-            }
+        readValues(stream, outOfLine, views);
 
+        for (IFDEntry entry : entries) {
+            TIFFTag tiffTag = entry.tiffTag;
+            Object obj = entry.value;
             if (tiffTag == null) {
                 // XXX Warning: unknown tag
-            } else if (!tiffTag.isDataTypeOK(type)) {
+            } else if (!tiffTag.isDataTypeOK(entry.type)) {
                 // XXX Warning: bad data type
             } else if (tiffTag.isIFDPointer() && obj != null) {
-                stream.mark();
                 stream.seek(((long[]) obj)[0]);
 
-                List tagSets = new ArrayList(1);
+                List<TIFFTagSet> tagSets = new ArrayList<>(1);
                 tagSets.add(tiffTag.getTagSet());
                 TIFFIFD subIFD = new TIFFIFD(tagSets);
 
                 // XXX Use same ignore policy for sub-IFD fields?
                 subIFD.initialize(stream, ignoreUnknownFields, isBTIFF);
                 obj = subIFD;
-                stream.reset();
             }
 
             if (tiffTag == null) {
-                tiffTag = new TIFFTag(null, tag, 1 << type, null);
+                tiffTag = new TIFFTag(null, entry.tag, 1 << entry.type, null);
             }
 
             // Add the field if its contents have been initialized which
-            // will not be the case if an EOF was ignored above.
+            // will not be the case if an EOF was ignored
             if (obj != null) {
-                TIFFField f = new TIFFField(tiffTag, type, count, obj);
-                addTIFFField(f);
+                addTIFFField(new TIFFField(tiffTag, entry.type, entry.count, obj));
+            }
+        }
+
+        stream.seek(lastPosition);
+    }
+
+    /**
+     * Parses the IFD entry at the given offset of the entry table. Values fitting in the entry are decoded right away,
+     * the entries with a value stored elsewhere are returned with a positive length, for {@link #readValues} to read
+     * them.
+     *
+     * @return the entry, or null if the tag is unknown and unknown fields are ignored
+     */
+    private IFDEntry parseEntry(
+            ImageInputStream stream,
+            byte[] table,
+            int offset,
+            long tablePosition,
+            boolean isBTIFF,
+            ByteOrderViews views,
+            List<TIFFTagSet> tagSetList,
+            boolean ignoreUnknownFields) {
+        int tag = views.getUnsignedShort(table, offset);
+        int type = views.getUnsignedShort(table, offset + 2);
+        int count;
+        if (isBTIFF) {
+            long count_ = views.getLong(table, offset + 4);
+            count = (int) count_;
+            if (count != count_) throw new IllegalArgumentException("unable to use long number of values");
+        } else count = (int) views.getUnsignedInt(table, offset + 4);
+
+        // Get the associated TIFFTag, ignoring unknown fields if requested
+        TIFFTag tiffTag = getTag(tag, tagSetList);
+        if (ignoreUnknownFields && tiffTag == null) {
+            return null;
+        }
+
+        int valueSize = isBTIFF ? 8 : 4;
+        int valueOffset = offset + (isBTIFF ? 12 : 8);
+        long length = (long) count * TIFFTag.getSizeOfType(type);
+        boolean inline = length <= valueSize;
+        long position;
+        if (inline) {
+            position = tablePosition + valueOffset;
+        } else {
+            position = isBTIFF ? views.getLong(table, valueOffset) : views.getUnsignedInt(table, valueOffset);
+        }
+
+        boolean lazy = false;
+        if (tag == BaselineTIFFTagSet.TAG_STRIP_BYTE_COUNTS
+                || tag == BaselineTIFFTagSet.TAG_TILE_BYTE_COUNTS
+                || tag == BaselineTIFFTagSet.TAG_JPEG_INTERCHANGE_FORMAT_LENGTH) {
+            this.stripOrTileByteCountsPosition = position;
+            lazy = LAZY_LOADING;
+        } else if (tag == BaselineTIFFTagSet.TAG_STRIP_OFFSETS
+                || tag == BaselineTIFFTagSet.TAG_TILE_OFFSETS
+                || tag == BaselineTIFFTagSet.TAG_JPEG_INTERCHANGE_FORMAT) {
+            this.stripOrTileOffsetsPosition = position;
+            lazy = LAZY_LOADING;
+        }
+        if (lazy) {
+            type = getLazyType(type);
+        }
+
+        IFDEntry entry = new IFDEntry(tag, type, count, tiffTag);
+        entry.position = position;
+        if (type == TIFFTag.TIFF_LAZY_LONG || type == TIFFTag.TIFF_LAZY_LONG8) {
+            entry.value = new TIFFLazyData(stream, type, count, position);
+        } else if (inline) {
+            entry.decode(table, valueOffset, views);
+        } else {
+            entry.length = length;
+        }
+        return entry;
+    }
+
+    /**
+     * Reads the values of the entries not fitting in the entry table. Values are read in offset order, and values
+     * separated by less than {@link #MAX_VALUE_GAP} bytes are fetched with a single read.
+     */
+    private static void readValues(ImageInputStream stream, List<IFDEntry> entries, ByteOrderViews views)
+            throws IOException {
+        entries.sort(Comparator.comparingLong(e -> e.position));
+        int size = entries.size();
+        int i = 0;
+        while (i < size) {
+            IFDEntry first = entries.get(i);
+            long start = first.position;
+            long end = start + first.length;
+            int j = i + 1;
+            while (j < size) {
+                IFDEntry next = entries.get(j);
+                long nextEnd = Math.max(end, next.position + next.length);
+                if (next.position - end > MAX_VALUE_GAP || nextEnd - start > MAX_BATCH_SIZE) {
+                    break;
+                }
+                end = nextEnd;
+                j++;
+            }
+
+            if (end - start > MAX_BATCH_SIZE) {
+                // a single huge value, read on its own
+                readValue(stream, first, views);
+            } else {
+                byte[] buffer = new byte[(int) (end - start)];
+                try {
+                    stream.seek(start);
+                    stream.readFully(buffer);
+                    for (int k = i; k < j; k++) {
+                        IFDEntry entry = entries.get(k);
+                        entry.decode(buffer, (int) (entry.position - start), views);
+                    }
+                } catch (EOFException e) {
+                    // some values are past the end of the file, find out which ones
+                    for (int k = i; k < j; k++) {
+                        readValue(stream, entries.get(k), views);
+                    }
+                }
+            }
+            i = j;
+        }
+    }
+
+    private static void readValue(ImageInputStream stream, IFDEntry entry, ByteOrderViews views) throws IOException {
+        try {
+            if (entry.length > Integer.MAX_VALUE - 8) {
+                throw new EOFException();
+            }
+            byte[] buffer = new byte[(int) entry.length];
+            stream.seek(entry.position);
+            stream.readFully(buffer);
+            entry.decode(buffer, 0, views);
+        } catch (EOFException eofe) {
+            // The TIFF 6.0 fields have tag numbers less than or equal
+            // to 532 (ReferenceBlackWhite) or equal to 33432 (Copyright).
+            // If there is an error reading a baseline tag, then re-throw
+            // the exception and fail; otherwise continue with the next
+            // field.
+            if (BaselineTIFFTagSet.getInstance().getTag(entry.tag) == null) {
+                throw eofe;
+            }
+        }
+    }
+
+    /** Splits a TIFF_ASCII value into its null terminated strings */
+    private static String[] toStrings(byte[] bvalues, int offset, int count) {
+        // Can be multiple strings
+        final List<String> v = new ArrayList<String>();
+        boolean inString = false;
+        int prevIndex = 0;
+        for (int index = 0; index <= count; index++) {
+            if (index < count && bvalues[offset + index] != 0) {
+                if (!inString) {
+                    // start of string
+                    prevIndex = index;
+                    inString = true;
+                }
+            } else { // null or special case at end of string
+                if (inString) {
+                    // end of string
+                    final String s = new String(bvalues, offset + prevIndex, index - prevIndex);
+                    v.add(s);
+                    inString = false;
+                }
+            }
+        }
+
+        if (v.isEmpty()) {
+            // This case has been observed when the value of
+            // 'count' recorded in the field is non-zero but
+            // the value portion contains all nulls.
+            return new String[] {""};
+        }
+        return v.toArray(new String[v.size()]);
+    }
+
+    /** An IFD entry parsed from the entry table, along with the position and the decoded value */
+    private static final class IFDEntry {
+        final int tag;
+        final int type;
+        int count;
+        final TIFFTag tiffTag;
+        long position;
+        long length;
+        Object value;
+
+        IFDEntry(int tag, int type, int count, TIFFTag tiffTag) {
+            this.tag = tag;
+            this.type = type;
+            this.count = count;
+            this.tiffTag = tiffTag;
+        }
+
+        void decode(byte[] b, int offset, ByteOrderViews views) {
+            int count = this.count;
+            switch (type) {
+                case TIFFTag.TIFF_BYTE:
+                case TIFFTag.TIFF_SBYTE:
+                case TIFFTag.TIFF_UNDEFINED:
+                    value = Arrays.copyOfRange(b, offset, offset + count);
+                    break;
+
+                case TIFFTag.TIFF_ASCII:
+                    String[] strings = toStrings(b, offset, count);
+                    this.count = strings.length;
+                    value = strings;
+                    break;
+
+                case TIFFTag.TIFF_SHORT:
+                    char[] cvalues = new char[count];
+                    for (int j = 0; j < count; j++) {
+                        cvalues[j] = (char) views.getUnsignedShort(b, offset + 2 * j);
+                    }
+                    value = cvalues;
+                    break;
+
+                case TIFFTag.TIFF_LONG:
+                case TIFFTag.TIFF_IFD_POINTER:
+                    long[] lvalues = new long[count];
+                    for (int j = 0; j < count; j++) {
+                        lvalues[j] = views.getUnsignedInt(b, offset + 4 * j);
+                    }
+                    value = lvalues;
+                    break;
+
+                case TIFFTag.TIFF_RATIONAL:
+                    long[][] llvalues = new long[count][2];
+                    for (int j = 0; j < count; j++) {
+                        llvalues[j][0] = views.getUnsignedInt(b, offset + 8 * j);
+                        llvalues[j][1] = views.getUnsignedInt(b, offset + 8 * j + 4);
+                    }
+                    value = llvalues;
+                    break;
+
+                case TIFFTag.TIFF_SSHORT:
+                    short[] svalues = new short[count];
+                    for (int j = 0; j < count; j++) {
+                        svalues[j] = views.getShort(b, offset + 2 * j);
+                    }
+                    value = svalues;
+                    break;
+
+                case TIFFTag.TIFF_SLONG:
+                    int[] ivalues = new int[count];
+                    for (int j = 0; j < count; j++) {
+                        ivalues[j] = views.getInt(b, offset + 4 * j);
+                    }
+                    value = ivalues;
+                    break;
+
+                case TIFFTag.TIFF_SRATIONAL:
+                    int[][] iivalues = new int[count][2];
+                    for (int j = 0; j < count; j++) {
+                        iivalues[j][0] = views.getInt(b, offset + 8 * j);
+                        iivalues[j][1] = views.getInt(b, offset + 8 * j + 4);
+                    }
+                    value = iivalues;
+                    break;
+
+                case TIFFTag.TIFF_FLOAT:
+                    float[] fvalues = new float[count];
+                    for (int j = 0; j < count; j++) {
+                        fvalues[j] = views.getFloat(b, offset + 4 * j);
+                    }
+                    value = fvalues;
+                    break;
+
+                case TIFFTag.TIFF_DOUBLE:
+                    double[] dvalues = new double[count];
+                    for (int j = 0; j < count; j++) {
+                        dvalues[j] = views.getDouble(b, offset + 8 * j);
+                    }
+                    value = dvalues;
+                    break;
+
+                case TIFFTag.TIFF_LONG8:
+                case TIFFTag.TIFF_SLONG8:
+                case TIFFTag.TIFF_IFD8:
+                    long[] lBvalues = new long[count];
+                    for (int j = 0; j < count; j++) {
+                        lBvalues[j] = views.getLong(b, offset + 8 * j);
+                    }
+                    value = lBvalues;
+                    break;
+
+                default:
+                    // XXX Warning
+                    break;
             }
+        }
+    }
+
+    /** Byte order aware accessors to the primitive values stored in a byte array */
+    private static final class ByteOrderViews {
+        static final ByteOrderViews BIG_ENDIAN = new ByteOrderViews(ByteOrder.BIG_ENDIAN);
+        static final ByteOrderViews LITTLE_ENDIAN = new ByteOrderViews(ByteOrder.LITTLE_ENDIAN);
+
+        private final VarHandle shorts;
+        private final VarHandle ints;
+        private final VarHandle longs;
+        private final VarHandle floats;
+        private final VarHandle doubles;
+
+        private ByteOrderViews(ByteOrder order) {
+            shorts = MethodHandles.byteArrayViewVarHandle(short[].class, order);
+            ints = MethodHandles.byteArrayViewVarHandle(int[].class, order);
+            longs = MethodHandles.byteArrayViewVarHandle(long[].class, order);
+            floats = MethodHandles.byteArrayViewVarHandle(float[].class, order);
+            doubles = MethodHandles.byteArrayViewVarHandle(double[].class, order);
+        }
+
+        static ByteOrderViews of(ByteOrder order) {
+            return order == ByteOrder.LITTLE_ENDIAN ? LITTLE_ENDIAN : BIG_ENDIAN;
+        }
+
+        short getShort(byte[] b, int offset) {
+            return (short) shorts.get(b, offset);
+        }
+
+        int getUnsignedShort(byte[] b, int offset) {
+            return getShort(b, offset) & 0xffff;
+        }
 
-            stream.seek(nextTagOffset);
+        int getInt(byte[] b, int offset) {
+            return (int) ints.get(b, offset);
         }
 
-        this.lastPosition = stream.getStreamPosition();
+        long getUnsignedInt(byte[] b, int offset) {
+            return getInt(b, offset) & 0xffffffffL;
+        }
+
+        long getLong(byte[] b, int offset) {
+            return (long) longs.get(b, offset);
+        }
+
+        float getFloat(byte[] b, int offset) {
+            return (float) floats.get(b, offset);
+        }
+
+        double getDouble(byte[] b, int offset) {
+            return (double) doubles.get(b, offset);
+        }
     }
 
     public void writeToStream(ImageOutputStream stream, final boolean isBTIFF) throws IOException {
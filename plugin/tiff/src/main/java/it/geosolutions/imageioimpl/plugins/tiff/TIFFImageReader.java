@@ -81,8 +81,11 @@ import it.geosolutions.imageio.plugins.tiff.TIFFColorConverter;
 import it.geosolutions.imageio.plugins.tiff.TIFFDecompressor;
 import it.geosolutions.imageio.plugins.tiff.TIFFField;
 import it.geosolutions.imageio.plugins.tiff.TIFFImageReadParam;
+import it.geosolutions.imageio.plugins.tiff.TIFFTagSet;
 import it.geosolutions.imageio.stream.input.FileImageInputStreamExtImpl;
 import it.geosolutions.imageio.utilities.ImageIOUtilities;
+import it.geosolutions.imageioimpl.plugins.tiff.TIFFMetadataCache.CachedFile;
+import it.geosolutions.imageioimpl.plugins.tiff.TIFFMetadataCache.CachedPage;
 import it.geosolutions.imageioimpl.plugins.tiff.gdal.GDALMetadata;
 import it.geosolutions.imageioimpl.plugins.tiff.gdal.GDALMetadataParser;
 import java.awt.Point;
@@ -93,10 +96,12 @@ import java.awt.color.ICC_Profile;
 import java.awt.image.BufferedImage;
 import java.awt.image.ColorModel;
 import java.awt.image.ComponentColorModel;
+import java.awt.image.MultiPixelPackedSampleModel;
 import java.awt.image.Raster;
 import java.awt.image.RenderedImage;
 import java.awt.image.SampleModel;
 import java.awt.image.WritableRaster;
+import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.IOException;
 import java.lang.ref.SoftReference;
@@ -108,6 +113,14 @@ import java.util.Hashtable;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import java.util.stream.IntStream;
@@ -119,6 +132,7 @@ import javax.imageio.ImageTypeSpecifier;
 import javax.imageio.metadata.IIOMetadata;
 import javax.imageio.spi.ImageReaderSpi;
 import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.MemoryCacheImageInputStream;
 import org.w3c.dom.Node;
 
 public class TIFFImageReader extends ImageReader {
@@ -296,12 +310,21 @@ public class TIFFImageReader extends ImageReader {
 
     private static final boolean DEBUG = false; // XXX 'false' for release!!!
 
+    /** Default number of strips or tiles decoded concurrently, see {@link TIFFImageReadParam#setDecodingParallelism} */
+    static final int DECODING_PARALLELISM = Integer.getInteger("it.geosolutions.imageio.tiff.decode.parallelism", 0);
+
     /** Constant Value for External Mask suffix */
     private static final String MASK_SUFFIX = ".msk";
 
     /** Constant Value for External Overview suffix */
     private static final String OVR_SUFFIX = ".ovr";
 
+    /**
+     * Tolerance on the ratio between subsampling and overview factors, overview sizes are rounded and their factors are
+     * rarely integers
+     */
+    private static final double OVERVIEW_FACTOR_TOLERANCE = 0.1;
+
     private int magic = -1;
 
     private Map<Integer, PageInfo> pagesInfo = new HashMap<Integer, PageInfo>();
@@ -395,6 +418,15 @@ public class TIFFImageReader extends ImageReader {
     /** External File containing TIFF masks overviews */
     private File maskOverviews;
 
+    /** Key of the input in the shared {@link TIFFMetadataCache}, or null if its metadata is not shared */
+    private String metadataCacheKey;
+
+    /** The structure of the input shared through the {@link TIFFMetadataCache}, once its header is known */
+    private CachedFile cachedFile;
+
+    /** Reader of the external overviews, opened on the first read selecting one of them */
+    private TIFFImageReader externalOverviewsReader;
+
     public TIFFImageReader(ImageReaderSpi originatingProvider) {
         super(originatingProvider);
     }
@@ -444,6 +476,29 @@ public class TIFFImageReader extends ImageReader {
         }
         // Creating the New DatasetLayout for handling Overviews and Masking
         layout = new TiffDatasetLayoutImpl();
+
+        // lazily loaded offsets keep a reference to the stream, they cannot be shared
+        if (stream != null && TIFFMetadataCache.isEnabled() && !TIFFIFD.LAZY_LOADING) {
+            metadataCacheKey = getMetadataCacheKey(stream);
+        }
+    }
+
+    /**
+     * Returns the key identifying the input in the shared {@link TIFFMetadataCache}, or null if it cannot be
+     * identified, in which case its metadata is not shared. Local files are identified by path, size and last
+     * modification time.
+     *
+     * @param stream the input stream
+     * @return the key of the input, or null
+     */
+    protected String getMetadataCacheKey(ImageInputStream stream) {
+        if (stream instanceof FileImageInputStreamExtImpl) {
+            File file = ((FileImageInputStreamExtImpl) stream).getFile();
+            if (file != null) {
+                return file.getAbsolutePath() + '|' + file.length() + '|' + file.lastModified();
+            }
+        }
+        return null;
     }
 
     // Do not seek to the beginning of the stream so as to allow users to
@@ -460,6 +515,16 @@ public class TIFFImageReader extends ImageReader {
         this.streamMetadata = new TIFFStreamMetadata();
 
         try {
+            // the header of a file already seen is shared, unless the TIFF is not at the start of the stream
+            if (metadataCacheKey != null && stream.getStreamPosition() == 0) {
+                cachedFile = TIFFMetadataCache.get(metadataCacheKey);
+                if (cachedFile != null) {
+                    initializeFromCachedFile();
+                    gotTiffHeader = true;
+                    return;
+                }
+            }
+
             int byteOrder = stream.readUnsignedShort();
             if (byteOrder == 0x4d4d) {
                 streamMetadata.byteOrder = ByteOrder.BIG_ENDIAN;
@@ -505,6 +570,9 @@ public class TIFFImageReader extends ImageReader {
             if (offset >= 0) {
                 imageStartPosition.add(Long.valueOf(offset));
                 stream.seek(offset);
+                if (metadataCacheKey != null && offset > 0) {
+                    cachedFile = TIFFMetadataCache.put(metadataCacheKey, streamMetadata.byteOrder, magic, offset);
+                }
             } else processWarningOccurred("Error calculating offset");
 
         } catch (IOException e) {
@@ -514,6 +582,53 @@ public class TIFFImageReader extends ImageReader {
         gotTiffHeader = true;
     }
 
+    /** Sets up the header information and the known IFD positions from the shared structure of the input */
+    private void initializeFromCachedFile() throws IOException {
+        streamMetadata.byteOrder = cachedFile.byteOrder;
+        stream.setByteOrder(cachedFile.byteOrder);
+        magic = cachedFile.magic;
+        bigtiff = magic == 43;
+        for (long position : cachedFile.getImagePositions()) {
+            imageStartPosition.add(position);
+        }
+        numImages = cachedFile.getNumImages();
+        stream.seek(imageStartPosition.get(0));
+    }
+
+    /** Shares the IFD positions located so far, if the input structure is cached */
+    private void cacheImagePositions(boolean isComplete) {
+        if (cachedFile != null) {
+            cachedFile.setImagePositions(imageStartPosition, isComplete);
+        }
+    }
+
+    /** Returns the tag sets used to parse the image metadata */
+    private List<? extends TIFFTagSet> getAllowedTagSets() {
+        if (imageReadParam instanceof TIFFImageReadParam) {
+            return ((TIFFImageReadParam) imageReadParam).getAllowedTagSets();
+        }
+        List<BaselineTIFFTagSet> tagSets = new ArrayList<BaselineTIFFTagSet>(1);
+        tagSets.add(BaselineTIFFTagSet.getInstance());
+        return tagSets;
+    }
+
+    /** Returns the cached metadata of the given image, as parsed with the current tag sets and metadata policy */
+    private CachedPage getCachedPage(int imageIndex) {
+        if (cachedFile == null) {
+            return null;
+        }
+        return cachedFile.getPage(getParseProfile(), imageIndex);
+    }
+
+    /** Identifies the tag sets and the metadata policy affecting the parsed metadata */
+    private String getParseProfile() {
+        StringBuilder profile = new StringBuilder(ignoreMetadata ? "ignore" : "all");
+        for (TIFFTagSet tagSet : getAllowedTagSets()) {
+            profile.append(',').append(tagSet.getClass().getName());
+        }
+        return profile.toString();
+    }
+
     /**
      * Method used for populating reader's {@link DatasetLayout}
      *
@@ -668,6 +783,7 @@ public class TIFFImageReader extends ImageReader {
                             imageMetadata = null;
                             // the current image index has changed, we got to reinitialized
                             initialized = false;
+                            cacheImagePositions(true);
                             return index;
                         }
 
@@ -688,6 +804,7 @@ public class TIFFImageReader extends ImageReader {
                             imageMetadata = null;
                             // the current image index has changed, we got to reinitialized
                             initialized = false;
+                            cacheImagePositions(true);
                             return index;
                         }
 
@@ -697,6 +814,7 @@ public class TIFFImageReader extends ImageReader {
                     }
                     break;
             }
+            cacheImagePositions(false);
         } catch (IOException e) {
             throw new IIOException("Couldn't seek!", e);
         }
@@ -790,6 +908,13 @@ public class TIFFImageReader extends ImageReader {
             initializeFromMetadata();
             return;
         }
+        // the page might have been parsed already by another reader
+        if (!pagesInfo.containsKey(i)) {
+            CachedPage page = getCachedPage(index);
+            if (page != null) {
+                pagesInfo.put(i, page.info);
+            }
+        }
         // in case we have cache the info for this page
         if (pagesInfo.containsKey(i)) {
             // initialize from cachedinfo only if needed
@@ -826,6 +951,8 @@ public class TIFFImageReader extends ImageReader {
         this.tileOrStripWidth = pageInfo.tileOrStripWidth;
         this.width = pageInfo.width;
         this.noData = pageInfo.noData;
+        this.offsets = pageInfo.offsets;
+        this.scales = pageInfo.scales;
         this.imageMetadata = imageMetadata;
     }
 
@@ -842,15 +969,7 @@ public class TIFFImageReader extends ImageReader {
 
         try {
             // Create an object to store the image metadata
-            List<BaselineTIFFTagSet> tagSets;
-            if (imageReadParam instanceof TIFFImageReadParam) {
-                tagSets = ((TIFFImageReadParam) imageReadParam).getAllowedTagSets();
-            } else {
-                tagSets = new ArrayList<BaselineTIFFTagSet>(1);
-                tagSets.add(BaselineTIFFTagSet.getInstance());
-            }
-
-            this.imageMetadata = new TIFFImageMetadata(tagSets);
+            this.imageMetadata = new TIFFImageMetadata(getAllowedTagSets());
             imageMetadata.initializeFromStream(stream, ignoreMetadata, bigtiff);
             // we got to reinitialize!!!
             initialized = false;
@@ -1264,28 +1383,30 @@ public class TIFFImageReader extends ImageReader {
         initialized = true;
 
         // cache the page info for later reuse
-        pagesInfo.put(
-                currIndex,
-                new PageInfo(
-                        imageMetadata,
-                        bigtiff,
-                        bitsPerSample,
-                        colorMap,
-                        compression,
-                        height,
-                        numBands,
-                        photometricInterpretation,
-                        width,
-                        tileOrStripWidth,
-                        tileOrStripHeight,
-                        planarConfiguration,
-                        isImageTiled,
-                        samplesPerPixel,
-                        sampleFormat,
-                        extraSamples,
-                        noData,
-                        offsets,
-                        scales));
+        PageInfo pageInfo = new PageInfo(
+                imageMetadata,
+                bigtiff,
+                bitsPerSample,
+                colorMap,
+                compression,
+                height,
+                numBands,
+                photometricInterpretation,
+                width,
+                tileOrStripWidth,
+                tileOrStripHeight,
+                planarConfiguration,
+                isImageTiled,
+                samplesPerPixel,
+                sampleFormat,
+                extraSamples,
+                noData,
+                offsets,
+                scales);
+        pagesInfo.put(currIndex, pageInfo);
+        if (cachedFile != null) {
+            cachedFile.putPage(getParseProfile(), currIndex, pageInfo, imageMetadata);
+        }
     }
 
     public Iterator<ImageTypeSpecifier> getImageTypes(int imageIndex) throws IIOException {
@@ -1300,6 +1421,11 @@ public class TIFFImageReader extends ImageReader {
         // Create the ITS and cache if for later use so that this method
         // always returns an Iterator containing the same ITS objects.
         seekToImage(imageIndex, true);
+        CachedPage page = getCachedPage(imageIndex);
+        if (page != null && page.getImageTypes() != null) {
+            imageTypeMap.put(imageIndexInteger, page.getImageTypes());
+            return page.getImageTypes().iterator();
+        }
         ImageTypeSpecifier itsRaw = TIFFDecompressor.getRawImageTypeSpecifier(
                 photometricInterpretation,
                 compression,
@@ -1372,6 +1498,9 @@ public class TIFFImageReader extends ImageReader {
 
         // Cache the ITS List.
         imageTypeMap.put(imageIndexInteger, l);
+        if (page != null) {
+            page.setImageTypes(l);
+        }
         return l.iterator();
     }
 
@@ -1499,6 +1628,27 @@ public class TIFFImageReader extends ImageReader {
         return num / den;
     }
 
+    /**
+     * Returns whether a strip or tile column (or row) holds any of the source pixels sampled along that axis, that is,
+     * the pixels <code>regionStart + k * subsampling</code> falling inside the source region. Strips and tiles strided
+     * past by the subsampling contribute no destination pixels, and need not be read.
+     *
+     * @param tile the tile column (or row)
+     * @param tileSize the tile width (or height)
+     * @param regionStart the first sampled pixel, that is, the start of the source region shifted by the subsampling
+     *     offset
+     * @param regionLength the source region width (or height), starting from <code>regionStart</code>
+     * @param subsampling the source subsampling
+     */
+    protected static boolean isTileSampled(int tile, int tileSize, int regionStart, int regionLength, int subsampling) {
+        long tileStart = (long) tile * tileSize;
+        long firstSample = regionStart;
+        if (tileStart > regionStart) {
+            firstSample += (tileStart - regionStart + subsampling - 1) / subsampling * subsampling;
+        }
+        return firstSample < Math.min(tileStart + tileSize, (long) regionStart + regionLength);
+    }
+
     protected void prepareRead(int imageIndex, ImageReadParam param) throws IOException {
         if (stream == null) {
             throw new IllegalStateException("Input not set!");
@@ -1591,6 +1741,26 @@ public class TIFFImageReader extends ImageReader {
         if (DEBUG) {
             System.out.println("decodeTile(" + ti + "," + tj + "," + band + ")");
         }
+        if (setupTile(theImage, decompressor, ti, tj, band) == null) {
+            return;
+        }
+
+        decompressor.setStream(stream);
+        decompressor.beginDecoding();
+
+        stream.mark();
+        decompressor.decode();
+        stream.reset();
+    }
+
+    /**
+     * Sets up the decompressor regions, offset and byte count for the given strip or tile, updating the destination
+     * region fields of the reader too.
+     *
+     * @return the offset and byte count of the strip or tile, or <code>null</code> if there is nothing to decode
+     */
+    private long[] setupTile(BufferedImage theImage, TIFFDecompressor decompressor, int ti, int tj, int band)
+            throws IOException {
 
         // Compute the region covered by the strip or tile
         Rectangle tileRect =
@@ -1604,7 +1774,7 @@ public class TIFFImageReader extends ImageReader {
 
         // Return if the intersection is empty.
         if (tileRect.width <= 0 || tileRect.height <= 0) {
-            return;
+            return null;
         }
 
         int srcMinX = tileRect.x;
@@ -1640,7 +1810,7 @@ public class TIFFImageReader extends ImageReader {
         dstHeight = dstRect.height;
 
         if (dstWidth <= 0 || dstHeight <= 0) {
-            return;
+            return null;
         }
 
         // Backwards map dest region to source to determine
@@ -1690,29 +1860,34 @@ public class TIFFImageReader extends ImageReader {
             processWarningOccurred("Attempting to process truncated stream.");
             if (Math.max(byteCount = streamLength - offset, 0) == 0) {
                 processWarningOccurred("No bytes in strip/tile: skipping.");
-                return;
+                return null;
             }
         }
 
-        decompressor.setStream(stream);
         decompressor.setOffset(offset);
         decompressor.setByteCount((int) byteCount);
         ((TIFFDecompressor) decompressor).setNoData(noData);
-        decompressor.beginDecoding();
-
-        stream.mark();
-        decompressor.decode();
-        stream.reset();
+        return new long[] {offset, byteCount};
     }
 
     private void reportProgress(BufferedImage theImage) {
+        reportProgress(theImage, new Rectangle(dstMinX, dstMinY, dstWidth, dstHeight));
+    }
+
+    private void reportProgress(BufferedImage theImage, Rectangle region) {
         // Report image progress/update to listeners after each tile
-        pixelsRead += dstWidth * dstHeight;
+        pixelsRead += region.width * region.height;
         processImageProgress(100.0f * pixelsRead / pixelsToRead);
-        processImageUpdate(theImage, dstMinX, dstMinY, dstWidth, dstHeight, 1, 1, destinationBands);
+        processImageUpdate(theImage, region.x, region.y, region.width, region.height, 1, 1, destinationBands);
     }
 
     public BufferedImage read(int imageIndex, ImageReadParam param) throws IOException {
+        if (param instanceof TIFFImageReadParam && ((TIFFImageReadParam) param).isOverviewSelection()) {
+            BufferedImage image = readFromOverview(imageIndex, (TIFFImageReadParam) param);
+            if (image != null) {
+                return image;
+            }
+        }
         prepareRead(imageIndex, param);
 
         // prepare for reading
@@ -1749,33 +1924,7 @@ public class TIFFImageReader extends ImageReader {
 
         TIFFDecompressor decompressor = null;
         try {
-            decompressor = getDecompressor(theImage);
-            TIFFColorConverter colorConverter = getColorConverter(theImage, decompressor);
-
-            decompressor.setReader(this);
-            decompressor.setMetadata(imageMetadata);
-            decompressor.setImage(theImage);
-
-            decompressor.setPhotometricInterpretation(photometricInterpretation);
-            decompressor.setCompression(compression);
-            decompressor.setSamplesPerPixel(samplesPerPixel);
-            decompressor.setBitsPerSample(bitsPerSample);
-            decompressor.setSampleFormat(sampleFormat);
-            decompressor.setExtraSamples(extraSamples);
-            decompressor.setColorMap(colorMap);
-
-            decompressor.setColorConverter(colorConverter);
-
-            decompressor.setSourceXOffset(sourceXOffset);
-            decompressor.setSourceYOffset(sourceYOffset);
-            decompressor.setSubsampleX(srcXSubsampling);
-            decompressor.setSubsampleY(srcYSubsampling);
-
-            decompressor.setDstXOffset(dstXOffset);
-            decompressor.setDstYOffset(dstYOffset);
-
-            decompressor.setSourceBands(sourceBands);
-            decompressor.setDestinationBands(destinationBands);
+            decompressor = createDecompressor(theImage);
 
             // Compute bounds on the tile indices for this source region.
             int minTileX = TIFFImageWriter.XToTileX(srcRegion.x, 0, tileOrStripWidth);
@@ -1784,14 +1933,26 @@ public class TIFFImageReader extends ImageReader {
             int maxTileY = TIFFImageWriter.YToTileY(srcRegion.y + srcRegion.height - 1, 0, tileOrStripHeight);
 
             boolean isAbortRequested = false;
-            if (planarConfiguration == BaselineTIFFTagSet.PLANAR_CONFIGURATION_PLANAR) {
+            int parallelism = getDecodingParallelism();
+            if (parallelism > 1
+                    && (maxTileX > minTileX || maxTileY > minTileY)
+                    && canDecodeInParallel(theImage, decompressor)) {
+                isAbortRequested = decodeTilesInParallel(
+                        theImage, decompressor, parallelism, srcRegion, minTileX, minTileY, maxTileX, maxTileY);
+            } else if (planarConfiguration == BaselineTIFFTagSet.PLANAR_CONFIGURATION_PLANAR) {
 
                 decompressor.setPlanar(true);
 
                 int[] sb = new int[1];
                 int[] db = new int[1];
                 for (int tj = minTileY; tj <= maxTileY; tj++) {
+                    if (!isTileSampled(tj, tileOrStripHeight, srcRegion.y, srcRegion.height, srcYSubsampling)) {
+                        continue;
+                    }
                     for (int ti = minTileX; ti <= maxTileX; ti++) {
+                        if (!isTileSampled(ti, tileOrStripWidth, srcRegion.x, srcRegion.width, srcXSubsampling)) {
+                            continue;
+                        }
                         for (int band = 0; band < sourceBands.length; band++) {
                             sb[0] = sourceBands[band];
                             decompressor.setSourceBands(sb);
@@ -1821,7 +1982,13 @@ public class TIFFImageReader extends ImageReader {
                 // XXX decompressor.beginDecoding();
 
                 for (int tj = minTileY; tj <= maxTileY; tj++) {
+                    if (!isTileSampled(tj, tileOrStripHeight, srcRegion.y, srcRegion.height, srcYSubsampling)) {
+                        continue;
+                    }
                     for (int ti = minTileX; ti <= maxTileX; ti++) {
+                        if (!isTileSampled(ti, tileOrStripWidth, srcRegion.x, srcRegion.width, srcXSubsampling)) {
+                            continue;
+                        }
                         // The method abortRequested() is synchronized
                         // so check it only once per loop just before
                         // doing any actual decoding.
@@ -1851,6 +2018,228 @@ public class TIFFImageReader extends ImageReader {
         }
     }
 
+    /** Creates a decompressor for the image being read, configured for the current read parameters. */
+    private TIFFDecompressor createDecompressor(BufferedImage theImage) throws IIOException {
+        TIFFDecompressor decompressor = getDecompressor(theImage);
+        TIFFColorConverter colorConverter = getColorConverter(theImage, decompressor);
+
+        decompressor.setReader(this);
+        decompressor.setMetadata(imageMetadata);
+        decompressor.setImage(theImage);
+
+        decompressor.setPhotometricInterpretation(photometricInterpretation);
+        decompressor.setCompression(compression);
+        decompressor.setSamplesPerPixel(samplesPerPixel);
+        decompressor.setBitsPerSample(bitsPerSample);
+        decompressor.setSampleFormat(sampleFormat);
+        decompressor.setExtraSamples(extraSamples);
+        decompressor.setColorMap(colorMap);
+
+        decompressor.setColorConverter(colorConverter);
+
+        decompressor.setSourceXOffset(sourceXOffset);
+        decompressor.setSourceYOffset(sourceYOffset);
+        decompressor.setSubsampleX(srcXSubsampling);
+        decompressor.setSubsampleY(srcYSubsampling);
+
+        decompressor.setDstXOffset(dstXOffset);
+        decompressor.setDstYOffset(dstYOffset);
+
+        decompressor.setSourceBands(sourceBands);
+        decompressor.setDestinationBands(destinationBands);
+        return decompressor;
+    }
+
+    /** Returns the number of strips or tiles that can be decoded concurrently, from the read param or the system */
+    private int getDecodingParallelism() {
+        if (imageReadParam instanceof TIFFImageReadParam) {
+            int parallelism = ((TIFFImageReadParam) imageReadParam).getDecodingParallelism();
+            if (parallelism >= 0) {
+                return parallelism;
+            }
+        }
+        return DECODING_PARALLELISM;
+    }
+
+    /**
+     * Parallel decoding requires decompressors that can be replicated, working on their own copy of the compressed
+     * bytes, and concurrent tasks writing on disjoint parts of the destination, which is not the case when pixels are
+     * packed in bytes shared by adjacent strips or tiles.
+     */
+    private boolean canDecodeInParallel(BufferedImage theImage, TIFFDecompressor decompressor) {
+        if (planarConfiguration != BaselineTIFFTagSet.PLANAR_CONFIGURATION_CHUNKY) {
+            return false;
+        }
+        if (imageReadParam instanceof TIFFImageReadParam) {
+            TIFFImageReadParam tparam = (TIFFImageReadParam) imageReadParam;
+            if (tparam.getTIFFDecompressor() != null || tparam.getColorConverter() != null) {
+                return false;
+            }
+        }
+        if (!(decompressor instanceof TIFFNullDecompressor
+                || decompressor instanceof TIFFLZWDecompressor
+                || decompressor instanceof TIFFDeflateDecompressor
+                || decompressor instanceof TIFFZSTDDecompressor
+                || decompressor instanceof TIFFLERCDecompressor
+                || decompressor instanceof TIFFWebPDecompressor
+                || decompressor instanceof TIFFPackBitsDecompressor
+                || decompressor instanceof TIFFJPEGDecompressor)) {
+            return false;
+        }
+        for (int bits : bitsPerSample) {
+            if (bits % 8 != 0) {
+                return false;
+            }
+        }
+        return !(theImage.getSampleModel() instanceof MultiPixelPackedSampleModel);
+    }
+
+    /**
+     * Decodes the chunky strips or tiles in the given range concurrently. The compressed bytes are read from the stream
+     * in order by the calling thread and handed, along with a decompressor, to a task decoding them into the
+     * destination. Decompressors are pooled, each one being used by a single task at a time, and their number bounds
+     * the strips or tiles in flight. Progress is reported by the calling thread as the tasks complete. Strips and tiles
+     * strided past by the subsampling are skipped.
+     *
+     * @return true if the read has been aborted
+     */
+    private boolean decodeTilesInParallel(
+            BufferedImage theImage,
+            TIFFDecompressor decompressor,
+            int parallelism,
+            Rectangle srcRegion,
+            int minTileX,
+            int minTileY,
+            int maxTileX,
+            int maxTileY)
+            throws IOException {
+        Executor executor = null;
+        if (imageReadParam instanceof TIFFImageReadParam) {
+            executor = ((TIFFImageReadParam) imageReadParam).getDecodingExecutor();
+        }
+        if (executor == null) {
+            executor = ForkJoinPool.commonPool();
+        }
+
+        BlockingQueue<TIFFDecompressor> decompressors = new ArrayBlockingQueue<>(parallelism);
+        List<TIFFDecompressor> created = new ArrayList<>(parallelism);
+        decompressors.add(decompressor);
+        created.add(decompressor);
+        Queue<Rectangle> decoded = new ConcurrentLinkedQueue<>();
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        ByteOrder byteOrder = stream.getByteOrder();
+        boolean isAbortRequested = false;
+        try {
+            tiles:
+            for (int tj = minTileY; tj <= maxTileY; tj++) {
+                if (!isTileSampled(tj, tileOrStripHeight, srcRegion.y, srcRegion.height, srcYSubsampling)) {
+                    continue;
+                }
+                for (int ti = minTileX; ti <= maxTileX; ti++) {
+                    if (!isTileSampled(ti, tileOrStripWidth, srcRegion.x, srcRegion.width, srcXSubsampling)) {
+                        continue;
+                    }
+                    if (abortRequested()) {
+                        isAbortRequested = true;
+                        break tiles;
+                    }
+
+                    TIFFDecompressor tileDecompressor = decompressors.poll();
+                    if (tileDecompressor == null && created.size() < parallelism) {
+                        tileDecompressor = createDecompressor(theImage);
+                        created.add(tileDecompressor);
+                    } else if (tileDecompressor == null) {
+                        tileDecompressor = takeDecompressor(decompressors);
+                    }
+                    // the decompressor goes back to the pool unless a task has been scheduled with it
+                    boolean submitted = false;
+                    try {
+                        reportDecoded(theImage, decoded);
+                        if (failure.get() != null) {
+                            break tiles;
+                        }
+
+                        long[] segment = setupTile(theImage, tileDecompressor, ti, tj, -1);
+                        if (segment == null) {
+                            continue;
+                        }
+                        byte[] data = new byte[(int) segment[1]];
+                        stream.seek(segment[0]);
+                        stream.readFully(data);
+                        tileDecompressor.setOffset(0);
+
+                        Rectangle region = new Rectangle(dstMinX, dstMinY, dstWidth, dstHeight);
+                        TIFFDecompressor task = tileDecompressor;
+                        try {
+                            executor.execute(() -> {
+                                try (ImageInputStream tileStream =
+                                        new MemoryCacheImageInputStream(new ByteArrayInputStream(data))) {
+                                    tileStream.setByteOrder(byteOrder);
+                                    task.setStream(tileStream);
+                                    task.beginDecoding();
+                                    task.decode();
+                                    decoded.add(region);
+                                } catch (Throwable t) {
+                                    failure.compareAndSet(null, t);
+                                } finally {
+                                    decompressors.add(task);
+                                }
+                            });
+                            submitted = true;
+                        } catch (RejectedExecutionException e) {
+                            throw new IIOException("Unable to schedule the decoding of tile " + ti + "," + tj, e);
+                        }
+                    } finally {
+                        if (!submitted) {
+                            decompressors.add(tileDecompressor);
+                        }
+                    }
+                }
+            }
+        } catch (IOException | RuntimeException | Error e) {
+            // reported along with the failures of the tasks, the first one wins
+            failure.compareAndSet(null, e);
+        } finally {
+            // wait for all the tasks in flight, they give back their decompressor on completion
+            for (int i = 0; i < created.size(); i++) {
+                takeDecompressor(decompressors);
+            }
+            for (TIFFDecompressor d : created) {
+                if (d != decompressor) {
+                    d.dispose();
+                }
+            }
+        }
+        reportDecoded(theImage, decoded);
+
+        Throwable t = failure.get();
+        if (t instanceof IOException) {
+            throw (IOException) t;
+        } else if (t instanceof RuntimeException) {
+            throw (RuntimeException) t;
+        } else if (t instanceof Error) {
+            throw (Error) t;
+        }
+        return isAbortRequested;
+    }
+
+    private static TIFFDecompressor takeDecompressor(BlockingQueue<TIFFDecompressor> decompressors)
+            throws IIOException {
+        try {
+            return decompressors.take();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IIOException("Interrupted while decoding tiles", e);
+        }
+    }
+
+    private void reportDecoded(BufferedImage theImage, Queue<Rectangle> decoded) {
+        Rectangle region;
+        while ((region = decoded.poll()) != null) {
+            reportProgress(theImage, region);
+        }
+    }
+
     private TIFFDecompressor getDecompressor(BufferedImage theImage) throws IIOException {
         TIFFDecompressor decompressor = null;
         if (imageReadParam instanceof TIFFImageReadParam) {
@@ -1924,6 +2313,10 @@ public class TIFFImageReader extends ImageReader {
                 int predictor =
                         ((predictorField == null) ? BaselineTIFFTagSet.PREDICTOR_NONE : predictorField.getAsInt(0));
                 decompressor = new TIFFZSTDDecompressor(predictor);
+            } else if (compression == PrivateTIFFTagSet.COMPRESSION_LERC) {
+                decompressor = new TIFFLERCDecompressor();
+            } else if (compression == PrivateTIFFTagSet.COMPRESSION_WEBP) {
+                decompressor = new TIFFWebPDecompressor();
             } else {
                 throw new IIOException("Unsupported compression type (tag number = " + compression + ")!");
             }
@@ -1973,8 +2366,14 @@ public class TIFFImageReader extends ImageReader {
     }
 
     protected void resetLocal() {
+        disposeExternalOverviewsReader();
+        externalMask = null;
+        externalOverviews = null;
+        maskOverviews = null;
         imageStartPosition.clear();
         pagesInfo.clear();
+        metadataCacheKey = null;
+        cachedFile = null;
         stream = null;
         gotTiffHeader = false;
         imageReadParam = getDefaultReadParam();
@@ -1993,6 +2392,213 @@ public class TIFFImageReader extends ImageReader {
         planarConfiguration = BaselineTIFFTagSet.PLANAR_CONFIGURATION_CHUNKY;
     }
 
+    /**
+     * Reads the source region of a full resolution image from the overview best matching the requested subsampling.
+     *
+     * @return the image read from the overview, or null if no overview is suitable
+     * @see #selectOverview(int, TIFFImageReadParam)
+     */
+    private BufferedImage readFromOverview(int imageIndex, TIFFImageReadParam param) throws IOException {
+        OverviewSelection overview = selectOverview(imageIndex, param);
+        if (overview == null) {
+            return null;
+        }
+        return overview.getReader().read(overview.getImageIndex(), overview.getParam());
+    }
+
+    /**
+     * Selects the overview best matching the subsampling requested for a full resolution image, along with the source
+     * region and residual subsampling to read from it. Internal overviews are recognized by their NewSubfileType, masks
+     * being read from the mask overviews, while external overviews are only used for the image itself.
+     *
+     * @return the overview selection, or null if no overview is coarser than the image and not coarser than the
+     *     requested subsampling
+     */
+    protected OverviewSelection selectOverview(int imageIndex, TIFFImageReadParam param) throws IOException {
+        int xSubsampling = param.getSourceXSubsampling();
+        int ySubsampling = param.getSourceYSubsampling();
+        if ((xSubsampling == 1 && ySubsampling == 1) || param.getDestination() != null) {
+            return null;
+        }
+        // only full resolution images have overviews
+        long subfileType = getNewSubfileType(imageIndex);
+        if ((subfileType & BaselineTIFFTagSet.NEW_SUBFILE_TYPE_REDUCED_RESOLUTION) != 0) {
+            return null;
+        }
+        boolean mask = (subfileType & BaselineTIFFTagSet.NEW_SUBFILE_TYPE_TRANSPARENCY) != 0;
+        int width = getWidth(imageIndex);
+        int height = getHeight(imageIndex);
+        Rectangle region = new Rectangle(0, 0, width, height);
+        if (param.getSourceRegion() != null) {
+            region = region.intersection(param.getSourceRegion());
+            if (region.isEmpty()) {
+                // let the plain read report the error
+                return null;
+            }
+        }
+
+        // look for the coarsest overview not coarser than the requested subsampling
+        defineDatasetLayout();
+        defineExternalMasks();
+        TIFFImageReader bestReader = null;
+        int bestIndex = -1;
+        double bestXFactor = 1;
+        double bestYFactor = 1;
+        boolean hasInternalOverviews = mask ? layout.getNumInternalMasks() > 1 : layout.getNumInternalOverviews() > 0;
+        if (hasInternalOverviews) {
+            int numImages = getNumImages(true);
+            for (int i = 0; i < numImages; i++) {
+                long type = getNewSubfileType(i);
+                if ((type & BaselineTIFFTagSet.NEW_SUBFILE_TYPE_REDUCED_RESOLUTION) == 0
+                        || ((type & BaselineTIFFTagSet.NEW_SUBFILE_TYPE_TRANSPARENCY) != 0) != mask) {
+                    continue;
+                }
+                double xFactor = getOverviewFactor(width, getWidth(i));
+                double yFactor = getOverviewFactor(height, getHeight(i));
+                if (isBetterOverview(xFactor, yFactor, bestXFactor, bestYFactor, xSubsampling, ySubsampling)) {
+                    bestReader = this;
+                    bestIndex = i;
+                    bestXFactor = xFactor;
+                    bestYFactor = yFactor;
+                }
+            }
+        }
+        if (!mask && layout.getNumExternalOverviews() > 0) {
+            TIFFImageReader reader = getExternalOverviewsReader();
+            for (int i = 0; i < layout.getNumExternalOverviews(); i++) {
+                double xFactor = getOverviewFactor(width, reader.getWidth(i));
+                double yFactor = getOverviewFactor(height, reader.getHeight(i));
+                if (isBetterOverview(xFactor, yFactor, bestXFactor, bestYFactor, xSubsampling, ySubsampling)) {
+                    bestReader = reader;
+                    bestIndex = i;
+                    bestXFactor = xFactor;
+                    bestYFactor = yFactor;
+                }
+            }
+        }
+        if (bestReader == null) {
+            return null;
+        }
+
+        // rescale the source region and subsampling to the overview
+        int overviewWidth = bestReader.getWidth(bestIndex);
+        int overviewHeight = bestReader.getHeight(bestIndex);
+        int x = Math.min((int) Math.floor(region.x / bestXFactor), overviewWidth - 1);
+        int y = Math.min((int) Math.floor(region.y / bestYFactor), overviewHeight - 1);
+        int maxX = Math.min((int) Math.ceil((region.x + region.width) / bestXFactor), overviewWidth);
+        int maxY = Math.min((int) Math.ceil((region.y + region.height) / bestYFactor), overviewHeight);
+        int xResidual = getResidualSubsampling(xSubsampling, bestXFactor);
+        int yResidual = getResidualSubsampling(ySubsampling, bestYFactor);
+        TIFFImageReadParam overviewParam;
+        try {
+            overviewParam = (TIFFImageReadParam) param.clone();
+        } catch (CloneNotSupportedException e) {
+            throw new IIOException("Unable to copy the read parameters", e);
+        }
+        overviewParam.setOverviewSelection(false);
+        overviewParam.setSourceRegion(new Rectangle(x, y, Math.max(maxX - x, 1), Math.max(maxY - y, 1)));
+        overviewParam.setSourceSubsampling(
+                xResidual,
+                yResidual,
+                Math.min((int) (param.getSubsamplingXOffset() / bestXFactor), xResidual - 1),
+                Math.min((int) (param.getSubsamplingYOffset() / bestYFactor), yResidual - 1));
+        if (LOGGER.isLoggable(Level.FINE)) {
+            LOGGER.fine("Reading image " + imageIndex + " with subsampling " + xSubsampling + "x" + ySubsampling
+                    + " from " + (bestReader == this ? "internal" : "external") + " overview " + bestIndex);
+        }
+        return new OverviewSelection(bestReader, bestIndex, overviewParam);
+    }
+
+    /** The overview selected to read a subsampled image, with the parameters to read it */
+    protected static final class OverviewSelection {
+
+        private final TIFFImageReader reader;
+
+        private final int imageIndex;
+
+        private final TIFFImageReadParam param;
+
+        OverviewSelection(TIFFImageReader reader, int imageIndex, TIFFImageReadParam param) {
+            this.reader = reader;
+            this.imageIndex = imageIndex;
+            this.param = param;
+        }
+
+        /** Returns the reader of the overview, this reader for internal overviews */
+        public TIFFImageReader getReader() {
+            return reader;
+        }
+
+        /** Returns the index of the overview image */
+        public int getImageIndex() {
+            return imageIndex;
+        }
+
+        /** Returns the parameters reading the requested region from the overview, with the residual subsampling */
+        public TIFFImageReadParam getParam() {
+            return param;
+        }
+    }
+
+    private static boolean isBetterOverview(
+            double xFactor,
+            double yFactor,
+            double bestXFactor,
+            double bestYFactor,
+            int xSubsampling,
+            int ySubsampling) {
+        return xFactor * yFactor > bestXFactor * bestYFactor
+                && getResidualSubsampling(xSubsampling, xFactor) >= 1
+                && getResidualSubsampling(ySubsampling, yFactor) >= 1;
+    }
+
+    /**
+     * Returns the decimation factor of an overview. Overview sizes are the image ones divided by an integer factor and
+     * rounded, that factor is returned when it can be recognized, so that regions map exactly on the overview.
+     */
+    private static double getOverviewFactor(int size, int overviewSize) {
+        long factor = Math.round((double) size / overviewSize);
+        if (factor >= 1 && ((size + factor - 1) / factor == overviewSize || size / factor == overviewSize)) {
+            return factor;
+        }
+        return (double) size / overviewSize;
+    }
+
+    private static int getResidualSubsampling(int subsampling, double overviewFactor) {
+        return (int) Math.floor(subsampling / overviewFactor + OVERVIEW_FACTOR_TOLERANCE);
+    }
+
+    /** Returns the NewSubfileType of the given image, 0 if missing */
+    private long getNewSubfileType(int imageIndex) throws IOException {
+        seekToImage(imageIndex);
+        TIFFField f = imageMetadata.getTIFFField(BaselineTIFFTagSet.TAG_NEW_SUBFILE_TYPE);
+        return f != null && f.getData() instanceof long[] ? f.getAsLong(0) : 0;
+    }
+
+    private TIFFImageReader getExternalOverviewsReader() throws IOException {
+        if (externalOverviewsReader == null) {
+            TIFFImageReader reader = new TIFFImageReader(originatingProvider);
+            reader.setInput(new FileImageInputStreamExtImpl(layout.getExternalOverviews()));
+            externalOverviewsReader = reader;
+        }
+        return externalOverviewsReader;
+    }
+
+    private void disposeExternalOverviewsReader() {
+        if (externalOverviewsReader != null) {
+            ImageInputStream input = externalOverviewsReader.stream;
+            externalOverviewsReader.dispose();
+            externalOverviewsReader = null;
+            try {
+                if (input != null) {
+                    input.close();
+                }
+            } catch (IOException e) {
+                LOGGER.log(Level.FINE, "Failed to close the external overviews", e);
+            }
+        }
+    }
+
     /** Package scope method to allow decompressors, for example, to emit warning messages. */
     void forwardWarningMessage(String warning) {
         processWarningOccurred(warning);
@@ -2058,6 +2664,7 @@ public class TIFFImageReader extends ImageReader {
 
     @Override
     public void dispose() {
+        disposeExternalOverviewsReader();
         this.layout = null;
         this.imageStartPosition = null;
         this.imageMetadata = null;
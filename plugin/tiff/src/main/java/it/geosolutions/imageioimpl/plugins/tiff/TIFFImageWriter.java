@@ -76,11 +76,13 @@ package it.geosolutions.imageioimpl.plugins.tiff;
 import it.geosolutions.imageio.plugins.tiff.BaselineTIFFTagSet;
 import it.geosolutions.imageio.plugins.tiff.EXIFParentTIFFTagSet;
 import it.geosolutions.imageio.plugins.tiff.EXIFTIFFTagSet;
+import it.geosolutions.imageio.plugins.tiff.GeoTIFFTagSet;
 import it.geosolutions.imageio.plugins.tiff.PrivateTIFFTagSet;
 import it.geosolutions.imageio.plugins.tiff.TIFFColorConverter;
 import it.geosolutions.imageio.plugins.tiff.TIFFCompressor;
 import it.geosolutions.imageio.plugins.tiff.TIFFField;
 import it.geosolutions.imageio.plugins.tiff.TIFFImageWriteParam;
+import it.geosolutions.imageio.plugins.tiff.TIFFImageWriteParam.OverviewResampling;
 import it.geosolutions.imageio.plugins.tiff.TIFFTag;
 import it.geosolutions.imageio.plugins.tiff.TIFFTagSet;
 import it.geosolutions.imageio.utilities.ImageIOUtilities;
@@ -99,12 +101,24 @@ import java.awt.image.Raster;
 import java.awt.image.RenderedImage;
 import java.awt.image.SampleModel;
 import java.awt.image.WritableRaster;
+import java.io.ByteArrayOutputStream;
 import java.io.EOFException;
 import java.io.IOException;
 import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Deque;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import javax.imageio.IIOException;
@@ -117,6 +131,7 @@ import javax.imageio.metadata.IIOMetadata;
 import javax.imageio.metadata.IIOMetadataFormatImpl;
 import javax.imageio.spi.ImageWriterSpi;
 import javax.imageio.stream.ImageOutputStream;
+import javax.imageio.stream.MemoryCacheImageOutputStream;
 import org.w3c.dom.Node;
 
 public class TIFFImageWriter extends ImageWriter {
@@ -133,6 +148,53 @@ public class TIFFImageWriter extends ImageWriter {
 
     private static final Logger LOGGER = Logger.getLogger(TIFFImageWriter.class.toString());
 
+    /**
+     * Default number of strips or tiles compressed concurrently, see {@link TIFFImageWriteParam#setEncodingParallelism}
+     */
+    static final int ENCODING_PARALLELISM = Integer.getInteger("it.geosolutions.imageio.tiff.encode.parallelism", 0);
+
+    /** Compressors holding no state shared across strips or tiles, which can be replicated for parallel encoding */
+    private static final Set<Class<? extends TIFFCompressor>> REPLICABLE_COMPRESSORS = Set.of(
+            TIFFNullCompressor.class,
+            TIFFLSBCompressor.class,
+            TIFFLZWCompressor.class,
+            TIFFPackBitsCompressor.class,
+            TIFFDeflateCompressor.class,
+            TIFFZLibCompressor.class,
+            TIFFZSTDCompressor.class,
+            TIFFLERCCompressor.class,
+            TIFFWebPCompressor.class);
+
+    /** Tile size used in cloud optimized mode when no tiling is explicitly requested */
+    static final int DEFAULT_COG_TILE_SIZE = 512;
+
+    /** Size the smallest overview of a striped image fits in, when the number of overviews is not set */
+    static final int DEFAULT_OVERVIEW_SIZE = 256;
+
+    /** GDAL structural metadata written right after the header in cloud optimized mode */
+    private static final byte[] COG_GHOST_AREA;
+
+    /** Tags holding the georeferencing, which is only written along with the full resolution image */
+    private static final int[] GEOREFERENCING_TAGS = {
+        GeoTIFFTagSet.TAG_MODEL_PIXEL_SCALE,
+        GeoTIFFTagSet.TAG_MODEL_TIE_POINT,
+        GeoTIFFTagSet.TAG_MODEL_TRANSFORMATION,
+        GeoTIFFTagSet.TAG_GEO_KEY_DIRECTORY,
+        GeoTIFFTagSet.TAG_GEO_DOUBLE_PARAMS,
+        GeoTIFFTagSet.TAG_GEO_ASCII_PARAMS
+    };
+
+    static {
+        // the trailing space leaves room to turn NO into YES, as GDAL does
+        String layout = "LAYOUT=IFDS_BEFORE_DATA\n"
+                + "BLOCK_ORDER=ROW_MAJOR\n"
+                + "BLOCK_LEADER=SIZE_AS_UINT4\n"
+                + "BLOCK_TRAILER=LAST_4_BYTES_REPEATED\n"
+                + "KNOWN_INCOMPATIBLE_EDITION=NO\n ";
+        String ghostArea = String.format("GDAL_STRUCTURAL_METADATA_SIZE=%06d bytes\n", layout.length()) + layout;
+        COG_GHOST_AREA = ghostArea.getBytes(StandardCharsets.US_ASCII);
+    }
+
     static {
         // Initializing the progress factor multiplier
         final String multiplier = System.getProperty("it.geosolutions.tiff.progressmultiplier");
@@ -164,7 +226,11 @@ public class TIFFImageWriter extends ImageWriter {
         "PackBits",
         "Deflate",
         EXIF_JPEG_COMPRESSION_TYPE,
-        "ZSTD"
+        "ZSTD",
+        "LERC",
+        "LERC_DEFLATE",
+        "LERC_ZSTD",
+        "WebP"
     };
 
     //
@@ -185,7 +251,11 @@ public class TIFFImageWriter extends ImageWriter {
         "PackBits",
         "Deflate",
         EXIF_JPEG_COMPRESSION_TYPE,
-        "ZSTD"
+        "ZSTD",
+        "LERC",
+        "LERC_DEFLATE",
+        "LERC_ZSTD",
+        "WebP"
     };
 
     /** Lossless flag for known compression types. */
@@ -200,7 +270,11 @@ public class TIFFImageWriter extends ImageWriter {
         true, // PackBits
         true, // DEFLATE
         false, // EXIF JPEG
-        true // ZSTD
+        true, // ZSTD
+        false, // LERC
+        false, // LERC_DEFLATE
+        false, // LERC_ZSTD
+        false // WebP
     };
 
     /** Compression tag values for known compression types. */
@@ -215,7 +289,11 @@ public class TIFFImageWriter extends ImageWriter {
         BaselineTIFFTagSet.COMPRESSION_PACKBITS,
         BaselineTIFFTagSet.COMPRESSION_DEFLATE,
         BaselineTIFFTagSet.COMPRESSION_OLD_JPEG, // EXIF JPEG
-        PrivateTIFFTagSet.COMPRESSION_ZSTD
+        PrivateTIFFTagSet.COMPRESSION_ZSTD,
+        PrivateTIFFTagSet.COMPRESSION_LERC,
+        PrivateTIFFTagSet.COMPRESSION_LERC,
+        PrivateTIFFTagSet.COMPRESSION_LERC,
+        PrivateTIFFTagSet.COMPRESSION_WEBP
     };
 
     ImageOutputStream stream;
@@ -272,6 +350,7 @@ public class TIFFImageWriter extends ImageWriter {
 
     int totalPixels;
     int pixelsDone;
+    int progressStep;
 
     long nextIFDPointerPos;
 
@@ -283,6 +362,9 @@ public class TIFFImageWriter extends ImageWriter {
 
     private boolean isBtiff = false;
 
+    // Whether a cloud optimized GeoTIFF is being written.
+    private boolean isCloudOptimized = false;
+
     /**
      * Converts a pixel's X coordinate into a horizontal tile index relative to a given tile grid layout specified by
      * its X offset and tile width.
@@ -545,6 +627,27 @@ public class TIFFImageWriter extends ImageWriter {
         return outData;
     }
 
+    /**
+     * Returns the compression applied on top of LERC, from the compression type of the write param, or the
+     * LercParameters field when compression is copied from metadata.
+     */
+    private int getLercAdditionalCompression(TIFFIFD rootIFD) {
+        if (param != null && param.getCompressionMode() == ImageWriteParam.MODE_EXPLICIT) {
+            String compressionType = param.getCompressionType();
+            if ("LERC_DEFLATE".equals(compressionType)) {
+                return PrivateTIFFTagSet.LERC_ADD_COMPRESSION_DEFLATE;
+            } else if ("LERC_ZSTD".equals(compressionType)) {
+                return PrivateTIFFTagSet.LERC_ADD_COMPRESSION_ZSTD;
+            }
+            return PrivateTIFFTagSet.LERC_ADD_COMPRESSION_NONE;
+        }
+        TIFFField f = rootIFD.getTIFFField(PrivateTIFFTagSet.TAG_LERC_PARAMETERS);
+        if (f != null && f.getCount() > 1) {
+            return f.getAsInt(1);
+        }
+        return PrivateTIFFTagSet.LERC_ADD_COMPRESSION_NONE;
+    }
+
     /**
      * Sets up the output metadata adding, removing, and overriding fields as needed. The destination image dimensions
      * are provided as parameters because these might differ from those of the source due to subsampling.
@@ -891,6 +994,22 @@ public class TIFFImageWriter extends ImageWriter {
                 compressor = new TIFFDeflateCompressor(param, predictor);
             } else if (compression == PrivateTIFFTagSet.COMPRESSION_ZSTD) {
                 compressor = new TIFFZSTDCompressor(param, predictor);
+            } else if (compression == PrivateTIFFTagSet.COMPRESSION_LERC) {
+                int additionalCompression = getLercAdditionalCompression(rootIFD);
+                compressor = new TIFFLERCCompressor(param, additionalCompression);
+                rootIFD.addTIFFField(
+                        new TIFFField(new PrivateTIFFTagSet.LercParameters(), TIFFTag.TIFF_LONG, 2, new long[] {
+                            PrivateTIFFTagSet.LERC_VERSION_2_4, additionalCompression
+                        }));
+            } else if (compression == PrivateTIFFTagSet.COMPRESSION_WEBP) {
+                boolean isByteData = true;
+                for (int i = 0; i < numBands; i++) {
+                    isByteData &= sampleSize[i] == 8;
+                }
+                if ((numBands != 3 && numBands != 4) || !isByteData) {
+                    throw new IIOException("WebP compression supported for 3- and 4-band byte images only!");
+                }
+                compressor = new TIFFWebPCompressor(param);
             } else {
                 // Determine inverse fill setting.
                 f = rootIFD.getTIFFField(BaselineTIFFTagSet.TAG_FILL_ORDER);
@@ -1189,7 +1308,11 @@ public class TIFFImageWriter extends ImageWriter {
 
         // Analyze tiling parameters
         int tilingMode = param instanceof TIFFImageWriteParam ? param.getTilingMode() : ImageWriteParam.MODE_DEFAULT;
-        if (tilingMode == ImageWriteParam.MODE_DISABLED || tilingMode == ImageWriteParam.MODE_DEFAULT) {
+        if (isCloudOptimized && tilingMode != ImageWriteParam.MODE_EXPLICIT) {
+            // cloud optimized GeoTIFFs are always tiled
+            tileWidth = tileLength = DEFAULT_COG_TILE_SIZE;
+            useTiling = true;
+        } else if (tilingMode == ImageWriteParam.MODE_DISABLED || tilingMode == ImageWriteParam.MODE_DEFAULT) {
             this.tileWidth = width;
             this.tileLength = rowsPerStrip;
             useTiling = false;
@@ -2288,7 +2411,13 @@ public class TIFFImageWriter extends ImageWriter {
     }
 
     public void write(IIOMetadata sm, IIOImage iioimage, ImageWriteParam p) throws IOException {
-        write(sm, iioimage, p, true, true);
+        if (p instanceof TIFFImageWriteParam && ((TIFFImageWriteParam) p).isCloudOptimized()) {
+            writeCloudOptimized(sm, iioimage, (TIFFImageWriteParam) p);
+        } else if (p instanceof TIFFImageWriteParam && ((TIFFImageWriteParam) p).getOverviewResampling() != null) {
+            writeWithOverviews(sm, iioimage, (TIFFImageWriteParam) p);
+        } else {
+            write(sm, iioimage, p, true, true);
+        }
     }
 
     private void writeHeader() throws IOException {
@@ -2318,6 +2447,12 @@ public class TIFFImageWriter extends ImageWriter {
             nextSpace = stream.getStreamPosition();
             headerPosition = nextSpace - 16;
         }
+
+        if (isCloudOptimized) {
+            // GDAL structural metadata, declaring the cloud optimized layout
+            stream.write(COG_GHOST_AREA);
+            nextSpace = stream.getStreamPosition();
+        }
     }
 
     private void write(IIOMetadata sm, IIOImage iioimage, ImageWriteParam p, boolean writeHeader, boolean writeData)
@@ -2328,6 +2463,50 @@ public class TIFFImageWriter extends ImageWriter {
         if (iioimage == null) {
             throw new IllegalArgumentException("image == null!");
         }
+
+        clearAbortRequest();
+        this.progressStep = 1;
+        processImageStarted(0);
+
+        TIFFCompressor compressor = prepareImage(sm, iioimage, p, writeHeader);
+        try {
+            RenderedImage image = iioimage.getRenderedImage();
+            initializeEncoding(image, compressor);
+
+            TIFFIFD rootIFD = writeIFD();
+
+            // If not writing the image data, i.e., if writing or inserting an
+            // empty image, return.
+            if (!writeData) {
+                return;
+            }
+
+            // Get positions of fields within the IFD to update as we write
+            // each strip or tile
+            long stripOrTileByteCountsPosition = rootIFD.getStripOrTileByteCountsPosition();
+            long stripOrTileOffsetsPosition = rootIFD.getStripOrTileOffsetsPosition();
+
+            // Compute total number of pixels for progress notification
+            this.totalPixels = tileWidth * tileLength * tilesDown * tilesAcross;
+            this.pixelsDone = 0;
+
+            if (writeImageData(image, compressor, stripOrTileOffsetsPosition, stripOrTileByteCountsPosition)) {
+                processWriteAborted();
+                return;
+            }
+        } finally {
+            if (compressor != null) compressor.dispose();
+        }
+
+        processImageComplete();
+    }
+
+    /**
+     * Sets up the writer state for the given image and param, optionally writes the header, and returns the compressor
+     * to be used for the image once the image metadata has been set up.
+     */
+    private TIFFCompressor prepareImage(IIOMetadata sm, IIOImage iioimage, ImageWriteParam p, boolean writeHeader)
+            throws IOException {
         if (iioimage.hasRaster() && !canWriteRasters()) {
             throw new UnsupportedOperationException("TIFF ImageWriter cannot write Rasters!");
         }
@@ -2411,10 +2590,6 @@ public class TIFFImageWriter extends ImageWriter {
 
         // this.bitDepth = 8; // XXX fix?
 
-        clearAbortRequest();
-        int progressStep = 1;
-        processImageStarted(0);
-
         int[] sampleSize = sampleModel.getSampleSize();
 
         long tot = 0;
@@ -2459,6 +2634,7 @@ public class TIFFImageWriter extends ImageWriter {
                 nextSpace = (nextSpace + 7) & ~0x7;
                 stream.writeLong(nextSpace);
             }
+            stream.seek(nextSpace);
         }
 
         // Write out the IFD and any sub IFDs, followed by a zero
@@ -2491,138 +2667,876 @@ public class TIFFImageWriter extends ImageWriter {
         }
 
         // Set or overwrite mandatory fields in the root IFD
-        TIFFCompressor compressor = setupMetadata(colorModel, sampleModel, destWidth, destHeight);
-        try {
-            // Set compressor fields.
-            compressor.setWriter(this);
-            // Metadata needs to be set on the compressor before the IFD is
-            // written as the compressor could modify the metadata.
-            compressor.setMetadata(imageMetadata);
-            compressor.setStream(stream);
+        return setupMetadata(colorModel, sampleModel, destWidth, destHeight);
+    }
+
+    /** Configures the compressor and the flags driving the encoding of the image pixels */
+    private void initializeEncoding(RenderedImage image, TIFFCompressor compressor) throws IOException {
+        // Set compressor fields.
+        compressor.setWriter(this);
+        // Metadata needs to be set on the compressor before the IFD is
+        // written as the compressor could modify the metadata.
+        compressor.setMetadata(imageMetadata);
+        compressor.setStream(stream);
+
+        // Initialize scaling tables for this image
+        initializeScaleTables(image.getSampleModel().getSampleSize());
+
+        // Determine whether bilevel.
+        this.isBilevel = ImageIOUtilities.isBinary(image.getSampleModel());
+
+        // Check for photometric inversion.
+        this.isInverted = (nativePhotometricInterpretation
+                                == BaselineTIFFTagSet.PHOTOMETRIC_INTERPRETATION_BLACK_IS_ZERO
+                        && photometricInterpretation == BaselineTIFFTagSet.PHOTOMETRIC_INTERPRETATION_WHITE_IS_ZERO)
+                || (nativePhotometricInterpretation == BaselineTIFFTagSet.PHOTOMETRIC_INTERPRETATION_WHITE_IS_ZERO
+                        && photometricInterpretation == BaselineTIFFTagSet.PHOTOMETRIC_INTERPRETATION_BLACK_IS_ZERO);
+
+        // Analyze image data suitability for direct copy.
+        this.isImageSimple = (isBilevel || (!isInverted && ImageIOUtilities.imageIsContiguous(image)))
+                && !isRescaling
+                && // no value rescaling
+                sourceBands == null
+                && // no subbanding
+                periodX == 1
+                && periodY == 1
+                && // no subsampling
+                colorConverter == null;
+    }
 
-            // Initialize scaling tables for this image
-            initializeScaleTables(sampleModel.getSampleSize());
-
-            // Determine whether bilevel.
-            this.isBilevel = ImageIOUtilities.isBinary(image.getSampleModel());
-
-            // Check for photometric inversion.
-            this.isInverted = (nativePhotometricInterpretation
-                                    == BaselineTIFFTagSet.PHOTOMETRIC_INTERPRETATION_BLACK_IS_ZERO
-                            && photometricInterpretation == BaselineTIFFTagSet.PHOTOMETRIC_INTERPRETATION_WHITE_IS_ZERO)
-                    || (nativePhotometricInterpretation == BaselineTIFFTagSet.PHOTOMETRIC_INTERPRETATION_WHITE_IS_ZERO
-                            && photometricInterpretation
-                                    == BaselineTIFFTagSet.PHOTOMETRIC_INTERPRETATION_BLACK_IS_ZERO);
-
-            // Analyze image data suitability for direct copy.
-            this.isImageSimple = (isBilevel || (!isInverted && ImageIOUtilities.imageIsContiguous(image)))
-                    && !isRescaling
-                    && // no value rescaling
-                    sourceBands == null
-                    && // no subbanding
-                    periodX == 1
-                    && periodY == 1
-                    && // no subsampling
-                    colorConverter == null;
+    /** Writes out the IFD of the current image, followed by a zero next IFD pointer, and seeks past its data */
+    private TIFFIFD writeIFD() throws IOException {
+        TIFFIFD rootIFD = imageMetadata.getRootIFD();
 
-            TIFFIFD rootIFD = imageMetadata.getRootIFD();
+        rootIFD.writeToStream(stream, isBtiff);
 
-            rootIFD.writeToStream(stream, isBtiff);
+        this.nextIFDPointerPos = stream.getStreamPosition();
+        if (!isBtiff) {
+            stream.writeInt(0);
+        } else {
+            stream.writeLong(0);
+        }
 
-            this.nextIFDPointerPos = stream.getStreamPosition();
-            if (!isBtiff) {
-                stream.writeInt(0);
-            } else {
-                stream.writeLong(0);
-            }
+        // Seek to end of IFD data
+        long lastIFDPosition = rootIFD.getLastPosition();
+        stream.seek(lastIFDPosition);
+        if (lastIFDPosition > this.nextSpace) {
+            this.nextSpace = lastIFDPosition;
+        }
+        return rootIFD;
+    }
 
-            // Seek to end of IFD data
-            long lastIFDPosition = rootIFD.getLastPosition();
-            stream.seek(lastIFDPosition);
-            if (lastIFDPosition > this.nextSpace) {
-                this.nextSpace = lastIFDPosition;
+    /**
+     * Writes the image, a strip or tile at a time, filling in the strip or tile offsets and byte counts in the IFD.
+     *
+     * @return true if the write has been aborted
+     */
+    private boolean writeImageData(
+            RenderedImage image,
+            TIFFCompressor compressor,
+            long stripOrTileOffsetsPosition,
+            long stripOrTileByteCountsPosition)
+            throws IOException {
+        return writeImageData(
+                image, compressor, 0, tilesDown, stripOrTileOffsetsPosition, stripOrTileByteCountsPosition);
+    }
+
+    /**
+     * Writes the given rows of strips or tiles of the image, filling in their offsets and byte counts in the IFD.
+     *
+     * @return true if the write has been aborted
+     */
+    private boolean writeImageData(
+            RenderedImage image,
+            TIFFCompressor compressor,
+            int firstTileRow,
+            int endTileRow,
+            long stripOrTileOffsetsPosition,
+            long stripOrTileByteCountsPosition)
+            throws IOException {
+        int parallelism = getEncodingParallelism();
+        int firstTile = firstTileRow * tilesAcross;
+        int endTile = endTileRow * tilesAcross;
+        if (parallelism > 1 && endTile - firstTile > 1 && canEncodeInParallel(compressor)) {
+            return writeTilesInParallel(
+                    image,
+                    compressor,
+                    parallelism,
+                    firstTile,
+                    endTile,
+                    stripOrTileOffsetsPosition,
+                    stripOrTileByteCountsPosition);
+        }
+
+        for (int tj = firstTileRow; tj < endTileRow; tj++) {
+            for (int ti = 0; ti < tilesAcross; ti++) {
+                // Write the (possibly compressed) tile data
+                Rectangle tileRect = getTileRect(ti, tj);
+                int tileIndex = tj * tilesAcross + ti;
+                try {
+                    if (isCloudOptimized) {
+                        // the tile size must be known before the tile is written
+                        byte[] data = compressTile(image, tileRect, compressor, stream.getByteOrder());
+                        compressor.setStream(stream);
+                        writeCompressedTile(data, tileIndex, stripOrTileOffsetsPosition, stripOrTileByteCountsPosition);
+                    } else {
+                        long pos = stream.getStreamPosition();
+                        int byteCount = writeTile(image, tileRect, compressor);
+                        tileWritten(
+                                tileIndex,
+                                pos,
+                                byteCount,
+                                tileRect,
+                                stripOrTileOffsetsPosition,
+                                stripOrTileByteCountsPosition);
+                    }
+                } catch (IOException e) {
+                    throw new IIOException("I/O error writing TIFF file!", e);
+                }
+
+                if (abortRequested()) {
+                    return true;
+                }
             }
+        }
+        return false;
+    }
 
-            // If not writing the image data, i.e., if writing or inserting an
-            // empty image, return.
-            if (!writeData) {
-                return;
+    /** Returns the source region of the strip or tile at the given position in the strip or tile grid */
+    private Rectangle getTileRect(int ti, int tj) {
+        return new Rectangle(
+                sourceXOffset + ti * tileWidth * periodX,
+                sourceYOffset + tj * tileLength * periodY,
+                tileWidth * periodX,
+                tileLength * periodY);
+    }
+
+    /**
+     * Fills in the offset and byte count of a strip or tile just written in the IFD and reports the progress. The
+     * stream position is left unchanged.
+     */
+    private void tileWritten(
+            int tileIndex,
+            long pos,
+            int byteCount,
+            Rectangle tileRect,
+            long stripOrTileOffsetsPosition,
+            long stripOrTileByteCountsPosition)
+            throws IOException {
+        if (pos + byteCount > nextSpace) {
+            nextSpace = pos + byteCount;
+        }
+
+        pixelsDone += tileRect.width * tileRect.height;
+        float currentProgress = 100.0F * pixelsDone / totalPixels;
+        if (currentProgress > progressStep * PROGRESS_FACTOR_MULTIPLIER) {
+            processImageProgress(currentProgress);
+            progressStep++;
+        }
+
+        // Fill in the offset and byte count for the file
+        stream.mark();
+        if (!isBtiff) {
+            stream.seek(stripOrTileOffsetsPosition + 4L * tileIndex);
+            stream.writeInt((int) pos);
+            stream.seek(stripOrTileByteCountsPosition + 4L * tileIndex);
+            stream.writeInt(byteCount);
+        } else {
+            stream.seek(stripOrTileOffsetsPosition + 8L * tileIndex);
+            stream.writeLong(pos);
+            stream.seek(stripOrTileByteCountsPosition + 8L * tileIndex);
+            stream.writeLong(byteCount);
+        }
+        stream.reset();
+    }
+
+    /** Returns the number of strips or tiles that can be compressed concurrently, from the write param or the system */
+    private int getEncodingParallelism() {
+        if (param instanceof TIFFImageWriteParam) {
+            int parallelism = ((TIFFImageWriteParam) param).getEncodingParallelism();
+            if (parallelism >= 0) {
+                return parallelism;
             }
+        }
+        return ENCODING_PARALLELISM;
+    }
 
-            // Get positions of fields within the IFD to update as we write
-            // each strip or tile
-            long stripOrTileByteCountsPosition = rootIFD.getStripOrTileByteCountsPosition();
-            long stripOrTileOffsetsPosition = rootIFD.getStripOrTileOffsetsPosition();
+    /**
+     * Returns true if the compressor can be replicated, so that each concurrent task can use its own: it must be one of
+     * the writer own compressors holding no state shared across strips or tiles, and no custom color converter must be
+     * in use.
+     */
+    private boolean canEncodeInParallel(TIFFCompressor compressor) {
+        if (param instanceof TIFFImageWriteParam) {
+            TIFFImageWriteParam tparam = (TIFFImageWriteParam) param;
+            if (tparam.getTIFFCompressor() == compressor || tparam.getColorConverter() != null) {
+                return false;
+            }
+        }
+        return REPLICABLE_COMPRESSORS.contains(compressor.getClass());
+    }
 
-            // Compute total number of pixels for progress notification
-            this.totalPixels = tileWidth * tileLength * tilesDown * tilesAcross;
-            this.pixelsDone = 0;
+    /** Creates a new compressor with the same configuration as the given one, which must be replicable */
+    private TIFFCompressor replicateCompressor(TIFFCompressor compressor) {
+        TIFFCompressor replica;
+        if (compressor instanceof TIFFLZWCompressor) {
+            replica = new TIFFLZWCompressor(predictor);
+        } else if (compressor instanceof TIFFPackBitsCompressor) {
+            replica = new TIFFPackBitsCompressor();
+        } else if (compressor instanceof TIFFDeflateCompressor) {
+            replica = new TIFFDeflateCompressor(param, predictor);
+        } else if (compressor instanceof TIFFZLibCompressor) {
+            replica = new TIFFZLibCompressor(param, predictor);
+        } else if (compressor instanceof TIFFZSTDCompressor) {
+            replica = new TIFFZSTDCompressor(param, predictor);
+        } else if (compressor instanceof TIFFLERCCompressor) {
+            replica = new TIFFLERCCompressor(param, ((TIFFLERCCompressor) compressor).additionalCompression);
+        } else if (compressor instanceof TIFFWebPCompressor) {
+            replica = new TIFFWebPCompressor(param);
+        } else if (compressor instanceof TIFFLSBCompressor) {
+            replica = new TIFFLSBCompressor();
+        } else {
+            replica = new TIFFNullCompressor();
+        }
+        replica.setWriter(this);
+        replica.setMetadata(imageMetadata);
+        return replica;
+    }
 
-            // Write the image, a strip or tile at a time
-            for (int tj = 0; tj < tilesDown; tj++) {
-                for (int ti = 0; ti < tilesAcross; ti++) {
-                    long pos = stream.getStreamPosition();
+    /**
+     * Compresses the strips or tiles in the given index range concurrently on the encoding executor, each task with its
+     * own compressor, while the calling thread writes them out in order as they complete, filling in their offsets and
+     * byte counts. At most twice the parallelism strips or tiles are held in memory waiting to be written.
+     *
+     * @return true if the write has been aborted
+     */
+    private boolean writeTilesInParallel(
+            RenderedImage image,
+            TIFFCompressor compressor,
+            int parallelism,
+            int firstTile,
+            int endTile,
+            long stripOrTileOffsetsPosition,
+            long stripOrTileByteCountsPosition)
+            throws IOException {
+        Executor executor = null;
+        if (param instanceof TIFFImageWriteParam) {
+            executor = ((TIFFImageWriteParam) param).getEncodingExecutor();
+        }
+        if (executor == null) {
+            executor = ForkJoinPool.commonPool();
+        }
 
-                    // Write the (possibly compressed) tile data
+        BlockingQueue<TIFFCompressor> compressors = new ArrayBlockingQueue<>(parallelism);
+        List<TIFFCompressor> created = new ArrayList<>(parallelism);
+        compressors.add(compressor);
+        created.add(compressor);
+        Deque<CompletableFuture<byte[]>> pending = new ArrayDeque<>();
+        ByteOrder byteOrder = stream.getByteOrder();
+        int written = firstTile;
+        boolean isAbortRequested = false;
+        try {
+            for (int tileIndex = firstTile; tileIndex < endTile; tileIndex++) {
+                if (abortRequested()) {
+                    isAbortRequested = true;
+                    break;
+                }
 
-                    Rectangle tileRect = new Rectangle(
-                            sourceXOffset + ti * tileWidth * periodX,
-                            sourceYOffset + tj * tileLength * periodY,
-                            tileWidth * periodX,
-                            tileLength * periodY);
-                    // tileRect = tileRect.intersection(imageBounds); // XXX
+                // write out what is ready, waiting for the oldest tiles if too many are held in memory
+                while (!pending.isEmpty() && (pending.peekFirst().isDone() || pending.size() >= 2 * parallelism)) {
+                    writeCompressedTile(
+                            joinCompressedTile(pending.pollFirst()),
+                            written++,
+                            stripOrTileOffsetsPosition,
+                            stripOrTileByteCountsPosition);
+                }
 
-                    try {
-                        int byteCount = writeTile(image, tileRect, compressor);
+                TIFFCompressor tileCompressor = compressors.poll();
+                if (tileCompressor == null && created.size() < parallelism) {
+                    tileCompressor = replicateCompressor(compressor);
+                    created.add(tileCompressor);
+                } else if (tileCompressor == null) {
+                    tileCompressor = takeCompressor(compressors);
+                }
 
-                        if (pos + byteCount > nextSpace) {
-                            nextSpace = pos + byteCount;
+                Rectangle tileRect = getTileRect(tileIndex % tilesAcross, tileIndex / tilesAcross);
+                CompletableFuture<byte[]> result = new CompletableFuture<>();
+                TIFFCompressor task = tileCompressor;
+                try {
+                    executor.execute(() -> {
+                        try {
+                            result.complete(compressTile(image, tileRect, task, byteOrder));
+                        } catch (Throwable t) {
+                            result.completeExceptionally(t);
+                        } finally {
+                            compressors.add(task);
                         }
+                    });
+                } catch (RejectedExecutionException e) {
+                    compressors.add(task);
+                    throw new IIOException("Unable to schedule the encoding of tile " + tileIndex, e);
+                }
+                pending.addLast(result);
+            }
 
-                        pixelsDone += tileRect.width * tileRect.height;
-                        float currentProgress = 100.0F * pixelsDone / totalPixels;
-                        if (currentProgress > progressStep * PROGRESS_FACTOR_MULTIPLIER) {
-                            processImageProgress(currentProgress);
-                            progressStep++;
-                        }
+            while (!pending.isEmpty() && !isAbortRequested) {
+                writeCompressedTile(
+                        joinCompressedTile(pending.pollFirst()),
+                        written++,
+                        stripOrTileOffsetsPosition,
+                        stripOrTileByteCountsPosition);
+            }
+        } finally {
+            // wait for all the tasks in flight, they give back their compressor on completion
+            for (int i = 0; i < created.size(); i++) {
+                takeCompressor(compressors);
+            }
+            for (TIFFCompressor c : created) {
+                if (c != compressor) {
+                    c.dispose();
+                }
+            }
+            compressor.setStream(stream);
+        }
+        return isAbortRequested;
+    }
 
-                        // Fill in the offset and byte count for the file
-                        stream.mark();
-                        stream.seek(stripOrTileOffsetsPosition);
+    /** Compresses a strip or tile in memory, using the given compressor */
+    private byte[] compressTile(RenderedImage image, Rectangle tileRect, TIFFCompressor compressor, ByteOrder byteOrder)
+            throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        ImageOutputStream tileStream = new MemoryCacheImageOutputStream(bytes);
+        tileStream.setByteOrder(byteOrder);
+        compressor.setStream(tileStream);
+        writeTile(image, tileRect, compressor);
+        tileStream.close();
+        return bytes.toByteArray();
+    }
 
-                        if (!isBtiff) {
-                            stream.writeInt((int) pos);
-                            stripOrTileOffsetsPosition += 4;
+    /** Waits for a strip or tile being compressed, rethrowing the compression failures */
+    private static byte[] joinCompressedTile(CompletableFuture<byte[]> result) throws IOException {
+        try {
+            return result.join();
+        } catch (CompletionException e) {
+            Throwable t = e.getCause();
+            if (t instanceof IOException) {
+                throw new IIOException("I/O error writing TIFF file!", t);
+            } else if (t instanceof RuntimeException) {
+                throw (RuntimeException) t;
+            } else if (t instanceof Error) {
+                throw (Error) t;
+            }
+            throw e;
+        }
+    }
 
-                            stream.seek(stripOrTileByteCountsPosition);
-                            stream.writeInt(byteCount);
-                            stripOrTileByteCountsPosition += 4;
-                        } else {
-                            stream.writeLong(pos);
-                            stripOrTileOffsetsPosition += 8;
+    /**
+     * Writes a compressed strip or tile at the current stream position. In cloud optimized mode the tile is preceded by
+     * its byte count, as a little endian 4 bytes integer, and followed by a copy of its last 4 bytes, as the GDAL block
+     * leader and trailer conventions require.
+     */
+    private void writeCompressedTile(
+            byte[] data, int tileIndex, long stripOrTileOffsetsPosition, long stripOrTileByteCountsPosition)
+            throws IOException {
+        if (isCloudOptimized) {
+            int length = data.length;
+            stream.write(
+                    new byte[] {(byte) length, (byte) (length >>> 8), (byte) (length >>> 16), (byte) (length >>> 24)});
+        }
+        long pos = stream.getStreamPosition();
+        stream.write(data);
+        if (isCloudOptimized) {
+            byte[] trailer = new byte[4];
+            int n = Math.min(4, data.length);
+            System.arraycopy(data, data.length - n, trailer, 4 - n, n);
+            stream.write(trailer);
+            nextSpace = Math.max(nextSpace, stream.getStreamPosition());
+        }
+        tileWritten(
+                tileIndex,
+                pos,
+                data.length,
+                getTileRect(tileIndex % tilesAcross, tileIndex / tilesAcross),
+                stripOrTileOffsetsPosition,
+                stripOrTileByteCountsPosition);
+    }
 
-                            stream.seek(stripOrTileByteCountsPosition);
-                            stream.writeLong(byteCount);
-                            stripOrTileByteCountsPosition += 8;
-                        }
-                        stream.reset();
-                    } catch (IOException e) {
-                        throw new IIOException("I/O error writing TIFF file!", e);
+    private static TIFFCompressor takeCompressor(BlockingQueue<TIFFCompressor> compressors) throws IIOException {
+        try {
+            return compressors.take();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IIOException("Interrupted while encoding tiles", e);
+        }
+    }
+
+    /**
+     * Writes the image as a cloud optimized GeoTIFF: the header and the GDAL ghost area are followed by the IFDs of the
+     * image, of its mask and of each overview with its mask, and then by the tile data from the smallest overview to
+     * the full resolution image. Each overview halves the size of the previous level, resampled with the overview
+     * resampling, nearest neighbour by default, while mask overviews always use nearest neighbour.
+     */
+    private void writeCloudOptimized(IIOMetadata sm, IIOImage iioimage, TIFFImageWriteParam p) throws IOException {
+        if (stream == null) {
+            throw new IllegalStateException("output == null!");
+        }
+        if (iioimage == null) {
+            throw new IllegalArgumentException("image == null!");
+        }
+        RenderedImage image = iioimage.getRenderedImage();
+        RenderedImage mask = p.getMask();
+        if (mask != null) {
+            SampleModel maskSampleModel = mask.getSampleModel();
+            if (maskSampleModel.getNumBands() != 1
+                    || maskSampleModel.getSampleSize(0) != 1
+                    || mask.getMinX() != image.getMinX()
+                    || mask.getMinY() != image.getMinY()
+                    || mask.getWidth() != image.getWidth()
+                    || mask.getHeight() != image.getHeight()) {
+                throw new IllegalArgumentException(
+                        "The mask must be a single band 1 bit image with the same bounds as the image");
+            }
+        }
+
+        clearAbortRequest();
+        this.progressStep = 1;
+        processImageStarted(0);
+
+        this.isCloudOptimized = true;
+        try {
+            // Write the header and all the IFDs up front, the full resolution image first
+            List<CloudOptimizedImage> images = new ArrayList<>();
+            images.add(writeCloudOptimizedIFD(sm, iioimage, p, 0, true));
+
+            TIFFIFD rootIFD = imageMetadata.getRootIFD();
+            int width = rootIFD.getTIFFField(BaselineTIFFTagSet.TAG_IMAGE_WIDTH).getAsInt(0);
+            int height =
+                    rootIFD.getTIFFField(BaselineTIFFTagSet.TAG_IMAGE_LENGTH).getAsInt(0);
+            int levels = getOverviewLevels(p, width, height);
+            OverviewResampling resampling = p.getOverviewResampling();
+            if (resampling == null) {
+                resampling = OverviewResampling.NEAREST;
+            }
+            TIFFImageMetadata overviewMetadata = getOverviewMetadata(imageMetadata);
+            TIFFImageWriteParam overviewParam = getOverviewParam(p);
+            TIFFOverviewImage overview = new TIFFOverviewImage(
+                    image, sourceXOffset, sourceYOffset, width, height, periodX, periodY, tileLength, resampling);
+
+            TIFFImageWriteParam maskParam = null;
+            TIFFImageWriteParam maskOverviewParam = null;
+            TIFFOverviewImage maskOverview = null;
+            if (mask != null) {
+                maskOverview = new TIFFOverviewImage(
+                        mask,
+                        sourceXOffset,
+                        sourceYOffset,
+                        width,
+                        height,
+                        periodX,
+                        periodY,
+                        tileLength,
+                        OverviewResampling.NEAREST);
+                maskParam = getMaskParam(p);
+                images.add(writeCloudOptimizedIFD(null, getMaskImage(mask, maskParam, 0), maskParam, 0, false));
+                maskOverviewParam = getOverviewParam(maskParam);
+            }
+            for (int level = 1; level <= levels; level++) {
+                if (level > 1) {
+                    overview = overview.reduce(resampling);
+                }
+                images.add(writeCloudOptimizedIFD(
+                        null, new IIOImage(overview, null, overviewMetadata), overviewParam, level, false));
+                if (mask != null) {
+                    if (level > 1) {
+                        maskOverview = maskOverview.reduce(OverviewResampling.NEAREST);
                     }
+                    images.add(writeCloudOptimizedIFD(
+                            null,
+                            getMaskImage(maskOverview, maskOverviewParam, level),
+                            maskOverviewParam,
+                            level,
+                            false));
+                }
+            }
 
-                    if (abortRequested()) {
+            // Then the tile data, from the smallest overview to the full resolution image
+            this.totalPixels = 0;
+            this.pixelsDone = 0;
+            for (CloudOptimizedImage cogImage : images) {
+                totalPixels += cogImage.pixels;
+            }
+            stream.seek(nextSpace);
+            for (int level = levels; level >= 0; level--) {
+                for (CloudOptimizedImage cogImage : images) {
+                    if (cogImage.level == level && writeCloudOptimizedData(cogImage)) {
                         processWriteAborted();
                         return;
                     }
                 }
             }
         } finally {
-            if (compressor != null) compressor.dispose();
+            this.isCloudOptimized = false;
+        }
+
+        processImageComplete();
+    }
+
+    /** Writes the IFD of an image in cloud optimized mode, linking it to the previous one */
+    private CloudOptimizedImage writeCloudOptimizedIFD(
+            IIOMetadata sm, IIOImage iioimage, ImageWriteParam p, int level, boolean writeHeader) throws IOException {
+        if (!writeHeader) {
+            linkNextIFD();
+        }
+
+        TIFFCompressor compressor = prepareImage(sm, iioimage, p, writeHeader);
+        try {
+            initializeEncoding(iioimage.getRenderedImage(), compressor);
+            TIFFIFD rootIFD = writeIFD();
+            return new CloudOptimizedImage(
+                    iioimage,
+                    p,
+                    level,
+                    rootIFD.getStripOrTileOffsetsPosition(),
+                    rootIFD.getStripOrTileByteCountsPosition(),
+                    tileWidth * tileLength * tilesDown * tilesAcross);
+        } finally {
+            compressor.dispose();
+        }
+    }
+
+    /**
+     * Writes the tile data of an image in cloud optimized mode, setting up the writer state again as it was when its
+     * IFD got written.
+     *
+     * @return true if the write has been aborted
+     */
+    private boolean writeCloudOptimizedData(CloudOptimizedImage cogImage) throws IOException {
+        TIFFCompressor compressor = prepareImage(null, cogImage.image, cogImage.param, false);
+        try {
+            RenderedImage image = cogImage.image.getRenderedImage();
+            initializeEncoding(image, compressor);
+            return writeImageData(image, compressor, cogImage.offsetsPosition, cogImage.byteCountsPosition);
+        } finally {
+            compressor.dispose();
+        }
+    }
+
+    /** Returns the metadata of the overviews, marked as reduced resolution and without georeferencing */
+    private static TIFFImageMetadata getOverviewMetadata(TIFFImageMetadata metadata) {
+        TIFFImageMetadata overviewMetadata = metadata.getShallowClone();
+        TIFFIFD rootIFD = overviewMetadata.getRootIFD();
+        for (int tag : GEOREFERENCING_TAGS) {
+            rootIFD.removeTIFFField(tag);
+        }
+        rootIFD.addTIFFField(getNewSubfileTypeField(BaselineTIFFTagSet.NEW_SUBFILE_TYPE_REDUCED_RESOLUTION));
+        return overviewMetadata;
+    }
+
+    /**
+     * Returns the param used to write the mask of the image just set up, Deflate compressed and sharing the tiling and
+     * the TIFF flavour of the image.
+     */
+    private TIFFImageWriteParam getMaskParam(TIFFImageWriteParam p) {
+        TIFFImageWriteParam maskParam = new TIFFImageWriteParam(p.getLocale());
+        maskParam.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+        maskParam.setCompressionType("Deflate");
+        maskParam.setTilingMode(ImageWriteParam.MODE_EXPLICIT);
+        maskParam.setTiling(tileWidth, tileLength, 0, 0);
+        maskParam.setSourceRegion(p.getSourceRegion());
+        maskParam.setSourceSubsampling(
+                p.getSourceXSubsampling(),
+                p.getSourceYSubsampling(),
+                p.getSubsamplingXOffset(),
+                p.getSubsamplingYOffset());
+        maskParam.setForceToBigTIFF(isBtiff);
+        maskParam.setEncodingParallelism(p.getEncodingParallelism());
+        maskParam.setEncodingExecutor(p.getEncodingExecutor());
+        return maskParam;
+    }
+
+    /**
+     * Returns the param used to write the overviews of the image just set up with the given param. The overviews share
+     * the compression, tiling, bands, TIFF flavour and encoding settings of the image, while the source region and
+     * subsampling have already been applied to the image the first overview is computed from.
+     */
+    private TIFFImageWriteParam getOverviewParam(TIFFImageWriteParam p) {
+        TIFFImageWriteParam overviewParam = new TIFFImageWriteParam(p.getLocale());
+        overviewParam.setCompressionMode(p.getCompressionMode());
+        if (p.getCompressionMode() == ImageWriteParam.MODE_EXPLICIT) {
+            overviewParam.setTIFFCompressor(p.getTIFFCompressor());
+            if (p.getCompressionType() != null) {
+                overviewParam.setCompressionType(p.getCompressionType());
+                overviewParam.setCompressionQuality(p.getCompressionQuality());
+            }
+        }
+        if (isTiled) {
+            overviewParam.setTilingMode(ImageWriteParam.MODE_EXPLICIT);
+            overviewParam.setTiling(tileWidth, tileLength, 0, 0);
+        } else {
+            // strips get the rows per strip of the image, from the overview metadata
+            overviewParam.setTilingMode(ImageWriteParam.MODE_DISABLED);
+        }
+        overviewParam.setSourceBands(p.getSourceBands());
+        overviewParam.setDestinationType(p.getDestinationType());
+        if (p.getColorConverter() != null) {
+            overviewParam.setColorConverter(p.getColorConverter(), p.getPhotometricInterpretation());
+        }
+        overviewParam.setForceToBigTIFF(isBtiff);
+        overviewParam.setLercMaxZError(p.getLercMaxZError());
+        overviewParam.setEncodingParallelism(p.getEncodingParallelism());
+        overviewParam.setEncodingExecutor(p.getEncodingExecutor());
+        return overviewParam;
+    }
+
+    /**
+     * Returns the number of overviews of the image just set up, as set in the param or else halving its size until it
+     * fits in a single tile, or in a {@link #DEFAULT_OVERVIEW_SIZE} square when striped.
+     */
+    private int getOverviewLevels(TIFFImageWriteParam p, int width, int height) {
+        int levels = p.getOverviewLevels();
+        if (levels < 0) {
+            int maxWidth = isTiled ? tileWidth : DEFAULT_OVERVIEW_SIZE;
+            int maxHeight = isTiled ? tileLength : DEFAULT_OVERVIEW_SIZE;
+            levels = 0;
+            for (int w = width, h = height; w > maxWidth || h > maxHeight; w = (w + 1) / 2, h = (h + 1) / 2) {
+                levels++;
+            }
+        }
+        return levels;
+    }
+
+    /**
+     * Points the last IFD written to the next available space, aligned as the TIFF flavour requires, and seeks there
+     */
+    private void linkNextIFD() throws IOException {
+        stream.seek(nextIFDPointerPos);
+        if (!isBtiff) {
+            nextSpace = (nextSpace + 3) & ~0x3;
+            stream.writeInt((int) nextSpace);
+        } else {
+            nextSpace = (nextSpace + 7) & ~0x7;
+            stream.writeLong(nextSpace);
+        }
+        stream.seek(nextSpace);
+    }
+
+    /**
+     * Writes the image followed by its overviews, as reduced resolution IFDs, in a single pass over the image. All the
+     * IFDs are written up front, then each row of strips or tiles of the image is followed by the rows of each overview
+     * it completes. Each overview is computed from the previous level while they are written, holding only a few rows
+     * of strips or tiles per level, and is set up and written by a writer of its own sharing the output stream.
+     */
+    private void writeWithOverviews(IIOMetadata sm, IIOImage iioimage, TIFFImageWriteParam p) throws IOException {
+        if (stream == null) {
+            throw new IllegalStateException("output == null!");
+        }
+        if (iioimage == null) {
+            throw new IllegalArgumentException("image == null!");
+        }
+        if (p.getCompressionMode() == ImageWriteParam.MODE_EXPLICIT && p.getTIFFCompressor() != null) {
+            // the levels are encoded in turns, a single compressor cannot follow them
+            throw new IllegalArgumentException("Overviews cannot be written with a custom TIFFCompressor");
+        }
+
+        clearAbortRequest();
+        this.progressStep = 1;
+        processImageStarted(0);
+
+        RenderedImage image = iioimage.getRenderedImage();
+        TIFFCompressor compressor = prepareImage(sm, iioimage, p, true);
+        List<StreamedOverview> overviews = new ArrayList<>();
+        try {
+            initializeEncoding(image, compressor);
+            TIFFIFD rootIFD = writeIFD();
+            long stripOrTileByteCountsPosition = rootIFD.getStripOrTileByteCountsPosition();
+            long stripOrTileOffsetsPosition = rootIFD.getStripOrTileOffsetsPosition();
+            int width = rootIFD.getTIFFField(BaselineTIFFTagSet.TAG_IMAGE_WIDTH).getAsInt(0);
+            int height =
+                    rootIFD.getTIFFField(BaselineTIFFTagSet.TAG_IMAGE_LENGTH).getAsInt(0);
+
+            int levels = getOverviewLevels(p, width, height);
+            OverviewResampling resampling = p.getOverviewResampling();
+            TIFFImageMetadata overviewMetadata = getOverviewMetadata(imageMetadata);
+            TIFFImageWriteParam overviewParam = getOverviewParam(p);
+            TIFFOverviewImage overview = null;
+            for (int level = 1; level <= levels; level++) {
+                overview = level == 1
+                        ? new TIFFOverviewImage(
+                                image,
+                                sourceXOffset,
+                                sourceYOffset,
+                                width,
+                                height,
+                                periodX,
+                                periodY,
+                                tileLength,
+                                resampling)
+                        : overview.reduce(resampling);
+                overviews.add(writeOverviewIFD(new IIOImage(overview, null, overviewMetadata), overviewParam, level));
+            }
+
+            // Compute total number of pixels for progress notification
+            this.totalPixels = tileWidth * tileLength * tilesDown * tilesAcross;
+            this.pixelsDone = 0;
+
+            stream.seek(nextSpace);
+            for (int tj = 0; tj < tilesDown; tj++) {
+                if (writeImageData(
+                        image, compressor, tj, tj + 1, stripOrTileOffsetsPosition, stripOrTileByteCountsPosition)) {
+                    processWriteAborted();
+                    return;
+                }
+                boolean isImageComplete = tj == tilesDown - 1;
+                int rows = isImageComplete ? height : (tj + 1) * tileLength;
+                for (StreamedOverview streamed : overviews) {
+                    streamed.write(rows, isImageComplete);
+                }
+            }
+        } finally {
+            compressor.dispose();
+            for (StreamedOverview streamed : overviews) {
+                streamed.compressor.dispose();
+                nextSpace = Math.max(nextSpace, streamed.writer.nextSpace);
+            }
         }
 
         processImageComplete();
     }
 
+    /** Writes the IFD of an overview, linking it to the previous one, using a new writer sharing the output stream */
+    private StreamedOverview writeOverviewIFD(IIOImage overview, TIFFImageWriteParam overviewParam, int level)
+            throws IOException {
+        linkNextIFD();
+
+        TIFFImageWriter writer = new TIFFImageWriter(originatingProvider);
+        writer.stream = stream;
+        writer.streamMetadata = streamMetadata;
+        writer.byteOrder = byteOrder;
+        writer.nextSpace = nextSpace;
+        TIFFCompressor compressor = writer.prepareImage(null, overview, overviewParam, false);
+        TIFFIFD rootIFD;
+        try {
+            writer.initializeEncoding(overview.getRenderedImage(), compressor);
+            rootIFD = writer.writeIFD();
+        } catch (IOException | RuntimeException e) {
+            compressor.dispose();
+            throw e;
+        }
+
+        this.nextIFDPointerPos = writer.nextIFDPointerPos;
+        this.nextSpace = writer.nextSpace;
+        return new StreamedOverview(
+                writer,
+                overview.getRenderedImage(),
+                compressor,
+                level,
+                rootIFD.getStripOrTileOffsetsPosition(),
+                rootIFD.getStripOrTileByteCountsPosition());
+    }
+
+    /** Returns the mask image of the given level, marked as a transparency mask */
+    private IIOImage getMaskImage(RenderedImage mask, TIFFImageWriteParam maskParam, int level) {
+        TIFFImageMetadata metadata =
+                (TIFFImageMetadata) getDefaultImageMetadata(new ImageTypeSpecifier(mask), maskParam);
+        TIFFIFD rootIFD = metadata.getRootIFD();
+        int subfileType = BaselineTIFFTagSet.NEW_SUBFILE_TYPE_TRANSPARENCY;
+        if (level > 0) {
+            subfileType |= BaselineTIFFTagSet.NEW_SUBFILE_TYPE_REDUCED_RESOLUTION;
+        }
+        rootIFD.addTIFFField(getNewSubfileTypeField(subfileType));
+        rootIFD.addTIFFField(new TIFFField(
+                BaselineTIFFTagSet.getInstance().getTag(BaselineTIFFTagSet.TAG_PHOTOMETRIC_INTERPRETATION),
+                BaselineTIFFTagSet.PHOTOMETRIC_INTERPRETATION_TRANSPARENCY_MASK));
+        return new IIOImage(mask, null, metadata);
+    }
+
+    private static TIFFField getNewSubfileTypeField(int subfileType) {
+        return new TIFFField(
+                BaselineTIFFTagSet.getInstance().getTag(BaselineTIFFTagSet.TAG_NEW_SUBFILE_TYPE),
+                TIFFTag.TIFF_LONG,
+                1,
+                new long[] {subfileType});
+    }
+
+    /** An image written in cloud optimized mode, along with the position of its strip or tile offsets and counts */
+    private static final class CloudOptimizedImage {
+
+        final IIOImage image;
+
+        final ImageWriteParam param;
+
+        final int level;
+
+        final long offsetsPosition;
+
+        final long byteCountsPosition;
+
+        final long pixels;
+
+        CloudOptimizedImage(
+                IIOImage image,
+                ImageWriteParam param,
+                int level,
+                long offsetsPosition,
+                long byteCountsPosition,
+                long pixels) {
+            this.image = image;
+            this.param = param;
+            this.level = level;
+            this.offsetsPosition = offsetsPosition;
+            this.byteCountsPosition = byteCountsPosition;
+            this.pixels = pixels;
+        }
+    }
+
+    /** An overview being written along with the image, by a writer of its own */
+    private static final class StreamedOverview {
+
+        final TIFFImageWriter writer;
+
+        final RenderedImage image;
+
+        final TIFFCompressor compressor;
+
+        final int level;
+
+        final long offsetsPosition;
+
+        final long byteCountsPosition;
+
+        int tileRowsWritten = 0;
+
+        StreamedOverview(
+                TIFFImageWriter writer,
+                RenderedImage image,
+                TIFFCompressor compressor,
+                int level,
+                long offsetsPosition,
+                long byteCountsPosition) {
+            this.writer = writer;
+            this.image = image;
+            this.compressor = compressor;
+            this.level = level;
+            this.offsetsPosition = offsetsPosition;
+            this.byteCountsPosition = byteCountsPosition;
+        }
+
+        /**
+         * Writes the rows of strips or tiles not written yet which are computed from the given number of rows of the
+         * full resolution image, or all of them once the image is complete.
+         */
+        void write(int imageRows, boolean isImageComplete) throws IOException {
+            int endTileRow = isImageComplete
+                    ? writer.tilesDown
+                    : Math.min(writer.tilesDown, (imageRows >> level) / writer.tileLength);
+            if (endTileRow > tileRowsWritten) {
+                writer.writeImageData(
+                        image, compressor, tileRowsWritten, endTileRow, offsetsPosition, byteCountsPosition);
+                tileRowsWritten = endTileRow;
+            }
+        }
+    }
+
     public boolean canWriteSequence() {
         return true;
     }
@@ -0,0 +1,126 @@
+/*
+ *    ImageI/O-Ext - OpenSource Java Image translation Library
+ *    http://www.geo-solutions.it/
+ *    https://github.com/geosolutions-it/imageio-ext
+ *    (C) 2026, GeoSolutions
+ *    All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of GeoSolutions nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY GeoSolutions ``AS IS'' AND ANY
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL GeoSolutions BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package it.geosolutions.imageioimpl.plugins.tiff;
+
+import io.airlift.compress.zstd.ZstdCompressor;
+import it.geosolutions.imageio.compression.CompressionFinder;
+import it.geosolutions.imageio.compression.CompressionType;
+import it.geosolutions.imageio.compression.Compressor;
+import it.geosolutions.imageio.plugins.tiff.BaselineTIFFTagSet;
+import it.geosolutions.imageio.plugins.tiff.PrivateTIFFTagSet;
+import it.geosolutions.imageio.plugins.tiff.TIFFCompressor;
+import it.geosolutions.imageio.plugins.tiff.TIFFField;
+import it.geosolutions.imageio.plugins.tiff.TIFFImageWriteParam;
+import it.geosolutions.imageioimpl.plugins.tiff.lerc.Lerc2Encoder;
+import java.io.IOException;
+import java.util.zip.Deflater;
+import javax.imageio.ImageWriteParam;
+
+/**
+ * Compressor for LERC compression, optionally followed by Deflate or ZSTD. The maximum error is taken from
+ * {@link TIFFImageWriteParam#getLercMaxZError()}.
+ */
+public class TIFFLERCCompressor extends TIFFCompressor {
+
+    int additionalCompression;
+    Lerc2Encoder encoder;
+    Compressor deflateCompressor;
+    ZstdCompressor zstdCompressor;
+
+    public TIFFLERCCompressor(ImageWriteParam param, int additionalCompression) {
+        super(getCompressionType(additionalCompression), PrivateTIFFTagSet.COMPRESSION_LERC, false);
+        this.additionalCompression = additionalCompression;
+        double maxZError = param instanceof TIFFImageWriteParam ? ((TIFFImageWriteParam) param).getLercMaxZError() : 0;
+        this.encoder = new Lerc2Encoder(maxZError);
+        if (additionalCompression == PrivateTIFFTagSet.LERC_ADD_COMPRESSION_DEFLATE) {
+            int deflateLevel;
+            if (param != null && param.getCompressionMode() == ImageWriteParam.MODE_EXPLICIT) {
+                float quality = param.getCompressionQuality();
+                deflateLevel = (int) (1 + 8 * quality);
+            } else {
+                deflateLevel = Deflater.DEFAULT_COMPRESSION;
+            }
+            deflateCompressor = CompressionFinder.getCompressor(deflateLevel, CompressionType.DEFLATE);
+        } else if (additionalCompression == PrivateTIFFTagSet.LERC_ADD_COMPRESSION_ZSTD) {
+            zstdCompressor = new ZstdCompressor();
+        }
+    }
+
+    private static String getCompressionType(int additionalCompression) {
+        switch (additionalCompression) {
+            case PrivateTIFFTagSet.LERC_ADD_COMPRESSION_DEFLATE:
+                return "LERC_DEFLATE";
+            case PrivateTIFFTagSet.LERC_ADD_COMPRESSION_ZSTD:
+                return "LERC_ZSTD";
+            default:
+                return "LERC";
+        }
+    }
+
+    public int encode(byte[] b, int off, int width, int height, int[] bitsPerSample, int scanlineStride)
+            throws IOException {
+        int sampleFormat = BaselineTIFFTagSet.SAMPLE_FORMAT_UNSIGNED_INTEGER;
+        if (metadata instanceof TIFFImageMetadata) {
+            TIFFField f = ((TIFFImageMetadata) metadata).getTIFFField(BaselineTIFFTagSet.TAG_SAMPLE_FORMAT);
+            if (f != null) {
+                sampleFormat = f.getAsInt(0);
+            }
+        }
+        int dataType = TIFFLERCDecompressor.getLercDataType(sampleFormat, bitsPerSample[0]);
+        byte[] blob = encoder.encode(
+                b, off, scanlineStride, width, height, bitsPerSample.length, dataType, stream.getByteOrder());
+
+        byte[] compData = blob;
+        int numCompressedBytes = blob.length;
+        if (deflateCompressor != null) {
+            // Worst case for Zlib deflate is input size + 5 bytes per 32k block, plus 6 header bytes
+            compData = new byte[blob.length + 5 * ((blob.length + 32767) / 32768) + 6];
+            deflateCompressor.setInput(blob);
+            deflateCompressor.finish();
+            numCompressedBytes = deflateCompressor.compress(compData, 0, blob.length, 0, compData.length);
+        } else if (zstdCompressor != null) {
+            int maxOutputLength = zstdCompressor.maxCompressedLength(blob.length);
+            compData = new byte[maxOutputLength];
+            numCompressedBytes = zstdCompressor.compress(blob, 0, blob.length, compData, 0, maxOutputLength);
+        }
+        stream.write(compData, 0, numCompressedBytes);
+
+        return numCompressedBytes;
+    }
+
+    @Override
+    public void dispose() {
+        super.dispose();
+        if (deflateCompressor != null) {
+            deflateCompressor.done();
+            deflateCompressor = null;
+        }
+    }
+}
@@ -0,0 +1,184 @@
+/*
+ *    ImageI/O-Ext - OpenSource Java Image translation Library
+ *    http://www.geo-solutions.it/
+ *    https://github.com/geosolutions-it/imageio-ext
+ *    (C) 2026, GeoSolutions
+ *    All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of GeoSolutions nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY GeoSolutions ``AS IS'' AND ANY
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL GeoSolutions BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package it.geosolutions.imageioimpl.plugins.tiff;
+
+import io.airlift.compress.zstd.ZstdDecompressor;
+import it.geosolutions.imageio.plugins.tiff.BaselineTIFFTagSet;
+import it.geosolutions.imageio.plugins.tiff.TIFFDecompressor;
+import it.geosolutions.imageioimpl.plugins.tiff.lerc.Lerc2;
+import it.geosolutions.imageioimpl.plugins.tiff.lerc.Lerc2Decoder;
+import java.io.IOException;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+import javax.imageio.IIOException;
+
+/**
+ * Decompressor for LERC compression. The LERC blobs can be further compressed with Deflate or ZSTD, which is recognized
+ * from the data itself.
+ */
+public class TIFFLERCDecompressor extends TIFFDecompressor {
+
+    /** ZSTD decompressors, reused across reads */
+    private static final DecompressorPool<ZstdDecompressor> ZSTD_DECOMPRESSORS =
+            new DecompressorPool<>(ZstdDecompressor::new);
+
+    private final Lerc2Decoder lercDecoder = new Lerc2Decoder();
+    private Inflater inflater;
+
+    public TIFFLERCDecompressor() {}
+
+    @Override
+    public void decodeRaw(byte[] b, int dstOffset, int bitsPerPixel, int scanlineStride) throws IOException {
+        stream.seek(offset);
+        byte[] srcData = getScratchBuffer(SCRATCH_COMPRESSED, byteCount);
+        stream.readFully(srcData, 0, byteCount);
+
+        byte[] blob = srcData;
+        int blobLength = byteCount;
+        if (isZstd(srcData, byteCount)) {
+            long size = ZstdDecompressor.getDecompressedSize(srcData, 0, byteCount);
+            if (size < 0 || size > Integer.MAX_VALUE) {
+                throw new IIOException("Unable to determine the size of the ZSTD compressed LERC data");
+            }
+            blob = getScratchBuffer(SCRATCH_DECOMPRESSED, (int) size);
+            ZstdDecompressor zstd = ZSTD_DECOMPRESSORS.acquire();
+            try {
+                blobLength = zstd.decompress(srcData, 0, byteCount, blob, 0, (int) size);
+            } finally {
+                ZSTD_DECOMPRESSORS.release(zstd);
+            }
+        } else if (isZlib(srcData, byteCount)) {
+            blob = inflate(srcData);
+            blobLength = inflater.getTotalOut();
+        }
+
+        int numDims = planar ? 1 : samplesPerPixel;
+        int dataType = getLercDataType(sampleFormat[0], bitsPerSample[0]);
+        lercDecoder.decode(
+                blob,
+                0,
+                blobLength,
+                b,
+                dstOffset,
+                scanlineStride,
+                srcWidth,
+                srcHeight,
+                numDims,
+                dataType,
+                stream.getByteOrder());
+    }
+
+    private static boolean isZstd(byte[] data, int length) {
+        return length >= 4
+                && (data[0] & 0xFF) == 0x28
+                && (data[1] & 0xFF) == 0xB5
+                && (data[2] & 0xFF) == 0x2F
+                && (data[3] & 0xFF) == 0xFD;
+    }
+
+    private static boolean isZlib(byte[] data, int length) {
+        // deflate method, and header checksum
+        return length >= 2 && (data[0] & 0x0F) == 8 && (((data[0] & 0xFF) << 8) | (data[1] & 0xFF)) % 31 == 0;
+    }
+
+    /** Inflates the compressed bytes in a scratch buffer, growing it as needed */
+    private byte[] inflate(byte[] srcData) throws IIOException {
+        if (inflater == null) {
+            inflater = new Inflater();
+        } else {
+            inflater.reset();
+        }
+        inflater.setInput(srcData, 0, byteCount);
+        // LERC rarely compresses samples to less than a quarter of their size, start from there
+        int bytesPerSample = (bitsPerSample[0] + 7) / 8;
+        int expected = Math.max(1024, srcWidth * srcHeight * (planar ? 1 : samplesPerPixel) * bytesPerSample / 4);
+        byte[] out = getScratchBuffer(SCRATCH_DECOMPRESSED, expected);
+        try {
+            int length = 0;
+            while (!inflater.finished()) {
+                if (length == out.length) {
+                    byte[] larger = getScratchBuffer(SCRATCH_DECOMPRESSED, out.length * 2);
+                    System.arraycopy(out, 0, larger, 0, length);
+                    out = larger;
+                }
+                int n = inflater.inflate(out, length, out.length - length);
+                if (n == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    throw new IIOException("Truncated Deflate compressed LERC data");
+                }
+                length += n;
+            }
+        } catch (DataFormatException e) {
+            throw new IIOException("Invalid Deflate compressed LERC data", e);
+        }
+        return out;
+    }
+
+    /**
+     * Returns the LERC data type matching a TIFF sample format and size
+     *
+     * @throws IIOException if the sample format and size have no LERC equivalent
+     */
+    static int getLercDataType(int sampleFormat, int bitsPerSample) throws IIOException {
+        boolean floating = sampleFormat == BaselineTIFFTagSet.SAMPLE_FORMAT_FLOATING_POINT;
+        boolean signed = sampleFormat == BaselineTIFFTagSet.SAMPLE_FORMAT_SIGNED_INTEGER;
+        switch (bitsPerSample) {
+            case 8:
+                if (!floating) {
+                    return signed ? Lerc2.DT_CHAR : Lerc2.DT_BYTE;
+                }
+                break;
+            case 16:
+                if (!floating) {
+                    return signed ? Lerc2.DT_SHORT : Lerc2.DT_USHORT;
+                }
+                break;
+            case 32:
+                return floating ? Lerc2.DT_FLOAT : signed ? Lerc2.DT_INT : Lerc2.DT_UINT;
+            case 64:
+                if (floating) {
+                    return Lerc2.DT_DOUBLE;
+                }
+                break;
+            default:
+                break;
+        }
+        throw new IIOException(
+                "LERC compression does not support " + bitsPerSample + " bits samples with format " + sampleFormat);
+    }
+
+    @Override
+    public void dispose() {
+        super.dispose();
+        if (inflater != null) {
+            inflater.end();
+            inflater = null;
+        }
+    }
+}
@@ -73,19 +73,37 @@
  */
 package it.geosolutions.imageioimpl.plugins.tiff;
 
+import it.geosolutions.imageio.compression.CompressionFinder;
+import it.geosolutions.imageio.compression.CompressionType;
+import it.geosolutions.imageio.compression.Compressor;
 import it.geosolutions.imageio.plugins.tiff.BaselineTIFFTagSet;
 import it.geosolutions.imageio.plugins.tiff.TIFFCompressor;
 import java.io.IOException;
+import javax.imageio.IIOException;
 import javax.imageio.stream.ImageOutputStream;
 
-/** LZW Compressor. */
+/**
+ * LZW Compressor. The LZW compressor is looked up through the {@link CompressionFinder}, so that the highest priority
+ * implementation is used.
+ */
 public class TIFFLZWCompressor extends TIFFCompressor {
 
+    /** LZW has no compression levels, any level in the default SPI range will do */
+    private static final int LZW_LEVEL = 1;
+
     int predictor;
 
+    Compressor lzwCompressor;
+
+    /** Rows to be compressed, when they cannot be compressed in place */
+    byte[] rowData;
+
+    byte[] compData;
+
     public TIFFLZWCompressor(int predictorValue) {
         super("LZW", BaselineTIFFTagSet.COMPRESSION_LZW, true);
         this.predictor = predictorValue;
+        lzwCompressor = CompressionFinder.getCompressor(LZW_LEVEL, CompressionType.LZW);
     }
 
     public void setStream(ImageOutputStream stream) {
@@ -94,8 +112,9 @@ public class TIFFLZWCompressor extends TIFFCompressor {
 
     public int encode(byte[] b, int off, int width, int height, int[] bitsPerSample, int scanlineStride)
             throws IOException {
-
-        LZWCompressor lzwCompressor = new LZWCompressor(stream, 8, true);
+        if (lzwCompressor == null) {
+            throw new IIOException("No LZW compressor available");
+        }
 
         int samplesPerPixel = bitsPerSample.length;
         int bitsPerPixel = 0;
@@ -103,35 +122,50 @@ public class TIFFLZWCompressor extends TIFFCompressor {
             bitsPerPixel += bitsPerSample[i];
         }
         int bytesPerRow = (bitsPerPixel * width + 7) / 8;
-
-        long initialStreamPosition = stream.getStreamPosition();
+        int inputSize = bytesPerRow * height;
 
         boolean usePredictor = predictor == BaselineTIFFTagSet.PREDICTOR_HORIZONTAL_DIFFERENCING;
 
-        if (bytesPerRow == scanlineStride && !usePredictor) {
-            lzwCompressor.compress(b, off, bytesPerRow * height);
-        } else {
-            byte[] rowBuf = usePredictor ? new byte[bytesPerRow] : null;
-            for (int i = 0; i < height; i++) {
+        byte[] input = b;
+        int inputOffset = off;
+        if (bytesPerRow != scanlineStride || usePredictor) {
+            // Cannot modify b[] in place as it might be a data
+            // array from the image being written so make a copy.
+            if (rowData == null || rowData.length < inputSize) {
+                rowData = new byte[inputSize];
+            }
+            input = rowData;
+            inputOffset = 0;
+            for (int i = 0, rowOffset = 0; i < height; i++, rowOffset += bytesPerRow) {
+                System.arraycopy(b, off, rowData, rowOffset, bytesPerRow);
                 if (usePredictor) {
-                    // Cannot modify b[] in place as it might be a data
-                    // array from the image being written so make a copy.
-                    System.arraycopy(b, off, rowBuf, 0, bytesPerRow);
-                    for (int j = bytesPerRow - 1; j >= samplesPerPixel; j--) {
-                        rowBuf[j] -= rowBuf[j - samplesPerPixel];
+                    for (int j = rowOffset + bytesPerRow - 1; j >= rowOffset + samplesPerPixel; j--) {
+                        rowData[j] -= rowData[j - samplesPerPixel];
                     }
-                    lzwCompressor.compress(rowBuf, 0, bytesPerRow);
-                } else {
-                    lzwCompressor.compress(b, off, bytesPerRow);
                 }
                 off += scanlineStride;
             }
         }
 
-        lzwCompressor.flush();
+        // Worst case for LZW is a 12 bits code per input byte, plus clear and end of information codes
+        int maxSize = inputSize + inputSize / 2 + inputSize / 128 + 8;
+        if (compData == null || compData.length < maxSize) {
+            compData = new byte[maxSize];
+        }
+
+        lzwCompressor.setInput(input);
+        int numCompressedBytes = lzwCompressor.compress(compData, inputOffset, inputSize, 0, compData.length);
+        stream.write(compData, 0, numCompressedBytes);
 
-        int bytesWritten = (int) (stream.getStreamPosition() - initialStreamPosition);
+        return numCompressedBytes;
+    }
 
-        return bytesWritten;
+    @Override
+    public void dispose() {
+        super.dispose();
+        if (lzwCompressor != null) {
+            lzwCompressor.done();
+            lzwCompressor = null;
+        }
     }
 }
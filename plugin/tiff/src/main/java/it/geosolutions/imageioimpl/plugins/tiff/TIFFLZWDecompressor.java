@@ -73,30 +73,33 @@
  */
 package it.geosolutions.imageioimpl.plugins.tiff;
 
+import it.geosolutions.imageio.compression.CompressionFinder;
+import it.geosolutions.imageio.compression.CompressionType;
+import it.geosolutions.imageio.compression.Decompressor;
 import it.geosolutions.imageio.plugins.tiff.BaselineTIFFTagSet;
 import it.geosolutions.imageio.plugins.tiff.TIFFDecompressor;
 import java.io.IOException;
+import java.nio.ByteOrder;
+import java.util.zip.DataFormatException;
 import javax.imageio.IIOException;
 
+/**
+ * Decompressor for LZW compression. The LZW decompressor is looked up through the {@link CompressionFinder}, so that
+ * the highest priority implementation is used.
+ */
 public class TIFFLZWDecompressor extends TIFFDecompressor {
 
     private static final boolean DEBUG = false;
 
-    private static final int andTable[] = {511, 1023, 2047, 4095};
+    /** LZW decompressors, reused across reads */
+    private static final DecompressorPool<Decompressor> LZW_DECOMPRESSORS =
+            new DecompressorPool<>(() -> CompressionFinder.getDecompressor(CompressionType.LZW), Decompressor::dispose);
 
     int predictor;
 
-    byte[] srcData;
-    byte[] dstData;
-
-    int srcIndex;
-    int dstIndex;
-
-    byte stringTable[][];
-    int tableIndex, bitsToGet = 9;
+    Decompressor lzwDecompressor;
 
-    int nextData = 0;
-    int nextBits = 0;
+    PredictorDecompressor predictorDecompressor;
 
     public TIFFLZWDecompressor(int predictor) throws IIOException {
         super();
@@ -114,11 +117,12 @@ public class TIFFLZWDecompressor extends TIFFDecompressor {
         this.predictor = predictor;
     }
 
-    public void decodeRaw(byte[] b, int dstOffset, int bitsPerPixel, int scanlineStride) throws IOException {
+    public synchronized void decodeRaw(byte[] b, int dstOffset, int bitsPerPixel, int scanlineStride)
+            throws IOException {
         stream.seek(offset);
 
-        byte[] sdata = new byte[byteCount];
-        stream.readFully(sdata);
+        byte[] sdata = getScratchBuffer(SCRATCH_COMPRESSED, byteCount);
+        stream.readFully(sdata, 0, byteCount);
 
         int bytesPerRow = (srcWidth * bitsPerPixel + 7) / 8;
         byte[] buf;
@@ -127,11 +131,11 @@ public class TIFFLZWDecompressor extends TIFFDecompressor {
             buf = b;
             bufOffset = dstOffset;
         } else {
-            buf = new byte[bytesPerRow * srcHeight];
+            buf = getClearedScratchBuffer(SCRATCH_DECOMPRESSED, bytesPerRow * srcHeight);
             bufOffset = 0;
         }
 
-        int numBytesDecoded = decode(sdata, 0, buf, bufOffset, bytesPerRow);
+        decode(sdata, 0, byteCount, buf, bufOffset, bytesPerRow);
 
         if (bytesPerRow != scanlineStride) {
             if (DEBUG) {
@@ -146,151 +150,60 @@ public class TIFFLZWDecompressor extends TIFFDecompressor {
         }
     }
 
+    /**
+     * Decodes the whole compressed buffer into the destination, as srcHeight rows of bytesPerRow bytes, undoing the
+     * predictor if any.
+     *
+     * @return the size of the decoded region
+     */
     public int decode(byte[] sdata, int srcOffset, byte[] ddata, int dstOffset, int bytesPerRow) throws IOException {
-        if (sdata[0] == (byte) 0x00 && sdata[1] == (byte) 0x01) {
-            throw new IIOException("TIFF 5.0-style LZW compression is not supported!");
-        }
-
-        PredictorDecompressor predictorDecompressor = new PredictorDecompressor(
-                predictor, bitsPerSample, sampleFormat, planar ? 1 : samplesPerPixel, stream.getByteOrder());
-        predictorDecompressor.validate();
-
-        this.srcData = sdata;
-        this.dstData = ddata;
-
-        this.srcIndex = srcOffset;
-        this.dstIndex = dstOffset;
-
-        this.nextData = 0;
-        this.nextBits = 0;
-
-        initializeStringTable();
-
-        int code, oldCode = 0;
-        byte[] string;
-
-        while ((code = getNextCode()) != 257) {
-            if (code == 256) {
-                initializeStringTable();
-                code = getNextCode();
-                if (code == 257) {
-                    break;
-                }
-
-                writeString(stringTable[code]);
-                oldCode = code;
-            } else {
-                if (code < tableIndex) {
-                    string = stringTable[code];
-
-                    writeString(string);
-                    addStringToTable(stringTable[oldCode], string[0]);
-                    oldCode = code;
-                } else {
-                    string = stringTable[oldCode];
-                    string = composeString(string, string[0]);
-                    writeString(string);
-                    addStringToTable(string);
-                    oldCode = code;
-                }
-            }
-        }
-
-        predictorDecompressor.decompress(dstData, srcOffset, dstOffset, srcHeight, srcWidth, bytesPerRow);
-
-        return dstIndex - dstOffset;
+        return decode(sdata, srcOffset, sdata.length - srcOffset, ddata, dstOffset, bytesPerRow);
     }
 
-    /** Initialize the string table. */
-    public void initializeStringTable() {
-        stringTable = new byte[4096][];
-
-        for (int i = 0; i < 256; i++) {
-            stringTable[i] = new byte[1];
-            stringTable[i][0] = (byte) i;
+    private int decode(byte[] sdata, int srcOffset, int srcLength, byte[] ddata, int dstOffset, int bytesPerRow)
+            throws IOException {
+        if (srcLength > 1 && sdata[srcOffset] == (byte) 0x00 && sdata[srcOffset + 1] == (byte) 0x01) {
+            throw new IIOException("TIFF 5.0-style LZW compression is not supported!");
         }
 
-        tableIndex = 258;
-        bitsToGet = 9;
-    }
-
-    /** Write out the string just uncompressed. */
-    public void writeString(byte string[]) {
-        if (dstIndex < dstData.length) {
-            int maxIndex = Math.min(string.length, dstData.length - dstIndex);
-
-            for (int i = 0; i < maxIndex; i++) {
-                dstData[dstIndex++] = string[i];
+        PredictorDecompressor predictorDecompressor = getPredictorDecompressor();
+        if (lzwDecompressor == null) {
+            lzwDecompressor = LZW_DECOMPRESSORS.acquire();
+            if (lzwDecompressor == null) {
+                throw new IIOException("No LZW decompressor available");
             }
         }
-    }
 
-    /** Add a new string to the string table. */
-    public void addStringToTable(byte oldString[], byte newString) {
-        int length = oldString.length;
-        byte string[] = new byte[length + 1];
-        System.arraycopy(oldString, 0, string, 0, length);
-        string[length] = newString;
-
-        // Add this new String to the table
-        stringTable[tableIndex++] = string;
-
-        if (tableIndex == 511) {
-            bitsToGet = 10;
-        } else if (tableIndex == 1023) {
-            bitsToGet = 11;
-        } else if (tableIndex == 2047) {
-            bitsToGet = 12;
+        int size = Math.min(bytesPerRow * srcHeight, ddata.length - dstOffset);
+        lzwDecompressor.setInput(sdata, srcOffset, srcLength);
+        try {
+            lzwDecompressor.decompress(ddata, dstOffset, size);
+        } catch (DataFormatException dfe) {
+            throw new IIOException("Data format exception during LZW decompression", dfe);
+        } finally {
+            lzwDecompressor.done();
         }
-    }
 
-    /** Add a new string to the string table. */
-    public void addStringToTable(byte string[]) {
-        // Add this new String to the table
-        stringTable[tableIndex++] = string;
+        predictorDecompressor.decompress(ddata, dstOffset, dstOffset, srcHeight, srcWidth, bytesPerRow);
 
-        if (tableIndex == 511) {
-            bitsToGet = 10;
-        } else if (tableIndex == 1023) {
-            bitsToGet = 11;
-        } else if (tableIndex == 2047) {
-            bitsToGet = 12;
-        }
+        return size;
     }
 
-    /** Append <code>newString</code> to the end of <code>oldString</code>. */
-    public byte[] composeString(byte oldString[], byte newString) {
-        int length = oldString.length;
-        byte string[] = new byte[length + 1];
-        System.arraycopy(oldString, 0, string, 0, length);
-        string[length] = newString;
-
-        return string;
+    private PredictorDecompressor getPredictorDecompressor() throws IIOException {
+        int spp = planar ? 1 : samplesPerPixel;
+        ByteOrder byteOrder = stream.getByteOrder();
+        if (predictorDecompressor == null
+                || !predictorDecompressor.matches(predictor, bitsPerSample, sampleFormat, spp, byteOrder)) {
+            predictorDecompressor = new PredictorDecompressor(predictor, bitsPerSample, sampleFormat, spp, byteOrder);
+            predictorDecompressor.validate();
+        }
+        return predictorDecompressor;
     }
 
-    // Returns the next 9, 10, 11 or 12 bits
-    public int getNextCode() {
-        // Attempt to get the next code. The exception is caught to make
-        // this robust to cases wherein the EndOfInformation code has been
-        // omitted from a strip. Examples of such cases have been observed
-        // in practice.
-
-        try {
-            nextData = (nextData << 8) | (srcData[srcIndex++] & 0xff);
-            nextBits += 8;
-
-            if (nextBits < bitsToGet) {
-                nextData = (nextData << 8) | (srcData[srcIndex++] & 0xff);
-                nextBits += 8;
-            }
-
-            int code = (nextData >> (nextBits - bitsToGet)) & andTable[bitsToGet - 9];
-            nextBits -= bitsToGet;
-
-            return code;
-        } catch (ArrayIndexOutOfBoundsException e) {
-            // Strip not terminated as expected: return EndOfInformation code.
-            return 257;
-        }
+    @Override
+    public void dispose() {
+        super.dispose();
+        LZW_DECOMPRESSORS.release(lzwDecompressor);
+        lzwDecompressor = null;
     }
 }
@@ -31,18 +31,28 @@ package it.geosolutions.imageioimpl.plugins.tiff;
 
 import it.geosolutions.imageio.plugins.tiff.TIFFTag;
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.HashMap;
+import java.util.Map;
 import javax.imageio.stream.ImageInputStream;
 
 /**
  * Lazy loading for large tiff fields. We use this approach for loading much less data for a single request, namely for
  * tile position and lengths which in bigtiff can be enormous.
  *
- * <p>To perform this we retain an open stream to the data and we jump to read as less information as possible
+ * <p>To perform this we retain an open stream to the data and we jump to read as less information as possible. Values
+ * are read in blocks of {@link #BLOCK_SIZE} bytes, which are kept for later access: neighbouring tiles are usually
+ * requested together, and each block read on a remote stream (e.g., a COG one) costs a range request.
  *
  * @author Daniele Romagnoli, GeoSolutions SAS
  */
 public class TIFFLazyData {
 
+    /** Size in bytes of the blocks of values read at once, a multiple of 8 so that no value spans two blocks */
+    public static final int BLOCK_SIZE =
+            Math.max(8, Integer.getInteger("it.geosolutions.imageio.tiff.lazy.blocksize", 4096) & ~7);
+
     private ImageInputStream stream;
 
     private long startPosition;
@@ -51,7 +61,16 @@ public class TIFFLazyData {
 
     private int size;
 
+    private ByteOrder byteOrder;
+
+    private Map<Integer, ByteBuffer> blocks = new HashMap<>();
+
     public TIFFLazyData(ImageInputStream stream, int type, int count) throws IOException {
+        this(stream, type, count, stream == null ? -1 : stream.getStreamPosition());
+    }
+
+    /** Creates lazy data whose values start at the given stream position */
+    public TIFFLazyData(ImageInputStream stream, int type, int count, long startPosition) {
         // checks
         if (stream == null) {
             throw new IllegalArgumentException("Provided stream argument is null.");
@@ -61,42 +80,46 @@ public class TIFFLazyData {
         }
         this.size = TIFFTag.getSizeOfType(type);
         this.stream = stream;
-        this.startPosition = stream.getStreamPosition();
+        this.startPosition = startPosition;
         this.count = count;
+        this.byteOrder = stream.getByteOrder();
     }
 
     public long getAsLong(final int index) {
         checkIndex(index);
-        long val;
-        try {
-            stream.mark();
-            stream.seek(startPosition + index * size);
-            val = stream.readUnsignedInt();
-            stream.reset();
-        } catch (IOException e) {
-            throw new RuntimeException(e);
-        }
-
-        return val;
+        long position = (long) index * size;
+        return getBlock(position).getInt((int) (position % BLOCK_SIZE)) & 0xFFFFFFFFL;
     }
 
     public long getAsLong8(final int index) {
         checkIndex(index);
-        long val;
-        try {
-            stream.mark();
-            stream.seek(startPosition + index * size);
-            val = stream.readLong();
-            stream.reset();
-        } catch (IOException e) {
-            throw new RuntimeException(e);
-        }
+        long position = (long) index * size;
+        return getBlock(position).getLong((int) (position % BLOCK_SIZE));
+    }
 
-        return val;
+    /** Returns the block holding the value at the given position, relative to the start of the values */
+    private synchronized ByteBuffer getBlock(long position) {
+        int blockIndex = (int) (position / BLOCK_SIZE);
+        ByteBuffer block = blocks.get(blockIndex);
+        if (block == null) {
+            long blockStart = (long) blockIndex * BLOCK_SIZE;
+            byte[] bytes = new byte[(int) Math.min(BLOCK_SIZE, (long) count * size - blockStart)];
+            try {
+                stream.mark();
+                stream.seek(startPosition + blockStart);
+                stream.readFully(bytes);
+                stream.reset();
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+            block = ByteBuffer.wrap(bytes).order(byteOrder);
+            blocks.put(blockIndex, block);
+        }
+        return block;
     }
 
     private void checkIndex(final int index) {
-        if (index > count) {
+        if (index < 0 || index >= count) {
             throw new IllegalArgumentException("Specified index (" + index + ") must be lower than Count:" + count);
         }
     }
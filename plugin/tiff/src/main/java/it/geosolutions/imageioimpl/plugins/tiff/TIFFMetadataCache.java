@@ -0,0 +1,222 @@
+/*
+ *    ImageI/O-Ext - OpenSource Java Image translation Library
+ *    http://www.geo-solutions.it/
+ *    https://github.com/geosolutions-it/imageio-ext
+ *    (C) 2026, GeoSolutions
+ *    All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of GeoSolutions nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY GeoSolutions ``AS IS'' AND ANY
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL GeoSolutions BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package it.geosolutions.imageioimpl.plugins.tiff;
+
+import it.geosolutions.imageio.core.ExtCaches;
+import it.geosolutions.imageioimpl.plugins.tiff.TIFFImageReader.PageInfo;
+import java.nio.ByteOrder;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import javax.imageio.ImageTypeSpecifier;
+
+/**
+ * A process wide cache of the parsed structure of TIFF files, shared by all the {@link TIFFImageReader}s, so that a
+ * reader opened on an already seen file needs neither to walk its IFD chain nor to parse its IFDs again. For each file
+ * it holds the header, the IFD positions, and for each image its parsed metadata, including the strip or tile offsets
+ * and byte counts, along with the image types. None of them is modified once cached.
+ *
+ * <p>Files are identified by the key provided by the reader, made of path, size and last modification time for local
+ * files, or of the URL for cloud optimized GeoTIFFs. The cache holds the most recently used files, up to a maximum
+ * count, and is emptied by {@link ExtCaches#clean()}.
+ *
+ * <p>The cache is disabled by default, it can be enabled with the <code>it.geosolutions.imageio.tiff.metadata.cache
+ * </code> system property or with {@link #setEnabled(boolean)}, while the <code>
+ * it.geosolutions.imageio.tiff.metadata.cache.size</code> one sets the maximum number of files, 256 by default.
+ */
+public final class TIFFMetadataCache {
+
+    private static volatile boolean enabled = Boolean.getBoolean("it.geosolutions.imageio.tiff.metadata.cache");
+
+    private static volatile int maxFiles = Integer.getInteger("it.geosolutions.imageio.tiff.metadata.cache.size", 256);
+
+    private static final Map<String, CachedFile> FILES = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, CachedFile> eldest) {
+            return size() > maxFiles;
+        }
+    };
+
+    static {
+        ExtCaches.addListener(TIFFMetadataCache::clear);
+    }
+
+    private TIFFMetadataCache() {}
+
+    /** Returns true if the readers share the parsed metadata of the files they read */
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    /** Enables or disables the cache, readers already open keep using it until their input is set again */
+    public static void setEnabled(boolean enabled) {
+        TIFFMetadataCache.enabled = enabled;
+        if (!enabled) {
+            clear();
+        }
+    }
+
+    /** Returns the maximum number of files whose metadata is cached */
+    public static int getMaxFiles() {
+        return maxFiles;
+    }
+
+    /** Sets the maximum number of files whose metadata is cached, evicting the least recently used ones if needed */
+    public static void setMaxFiles(int maxFiles) {
+        if (maxFiles < 0) {
+            throw new IllegalArgumentException("The maximum number of files cannot be negative: " + maxFiles);
+        }
+        synchronized (FILES) {
+            TIFFMetadataCache.maxFiles = maxFiles;
+            FILES.keySet().removeIf(key -> FILES.size() > TIFFMetadataCache.maxFiles);
+        }
+    }
+
+    /** Removes the cached metadata of all files */
+    public static void clear() {
+        synchronized (FILES) {
+            FILES.clear();
+        }
+    }
+
+    /** Removes the cached metadata of the file with the given key */
+    public static void invalidate(String key) {
+        synchronized (FILES) {
+            FILES.remove(key);
+        }
+    }
+
+    /** Returns the number of files whose metadata is cached */
+    public static int size() {
+        synchronized (FILES) {
+            return FILES.size();
+        }
+    }
+
+    /** Returns the cached structure of the file with the given key, if its header has already been read */
+    static CachedFile get(String key) {
+        synchronized (FILES) {
+            return FILES.get(key);
+        }
+    }
+
+    /** Caches the header of a file, returning the entry to be filled as the file is read further */
+    static CachedFile put(String key, ByteOrder byteOrder, int magic, long firstIFDPosition) {
+        CachedFile file = new CachedFile(byteOrder, magic, firstIFDPosition);
+        synchronized (FILES) {
+            CachedFile previous = FILES.putIfAbsent(key, file);
+            return previous != null ? previous : file;
+        }
+    }
+
+    /** The cached structure of a TIFF file */
+    static final class CachedFile {
+
+        final ByteOrder byteOrder;
+
+        final int magic;
+
+        /** The positions of the IFDs located so far, from the first one */
+        private volatile long[] imagePositions;
+
+        /** The number of images, or -1 if the whole IFD chain has not been walked yet */
+        private volatile int numImages = -1;
+
+        private final Map<String, CachedPage> pages = new ConcurrentHashMap<>();
+
+        CachedFile(ByteOrder byteOrder, int magic, long firstIFDPosition) {
+            this.byteOrder = byteOrder;
+            this.magic = magic;
+            this.imagePositions = new long[] {firstIFDPosition};
+        }
+
+        long[] getImagePositions() {
+            return imagePositions;
+        }
+
+        int getNumImages() {
+            return numImages;
+        }
+
+        /** Records the IFD positions located by a reader, and the number of images once the chain end is reached */
+        synchronized void setImagePositions(List<Long> positions, boolean isComplete) {
+            if (positions.size() > imagePositions.length) {
+                long[] updated = new long[positions.size()];
+                for (int i = 0; i < updated.length; i++) {
+                    updated[i] = positions.get(i);
+                }
+                imagePositions = updated;
+            }
+            if (isComplete) {
+                numImages = imagePositions.length;
+            }
+        }
+
+        /**
+         * Returns the image at the given index, as parsed with the given profile, identifying the tag sets and the
+         * metadata policy in use
+         */
+        CachedPage getPage(String profile, int imageIndex) {
+            return pages.get(profile + '#' + imageIndex);
+        }
+
+        CachedPage putPage(String profile, int imageIndex, PageInfo info, TIFFImageMetadata metadata) {
+            CachedPage page = new CachedPage(info, metadata);
+            CachedPage previous = pages.putIfAbsent(profile + '#' + imageIndex, page);
+            return previous != null ? previous : page;
+        }
+    }
+
+    /** The cached metadata of an image */
+    static final class CachedPage {
+
+        final PageInfo info;
+
+        /** Held strongly, the soft reference of the page info would otherwise let it go */
+        final TIFFImageMetadata metadata;
+
+        private volatile List<ImageTypeSpecifier> imageTypes;
+
+        CachedPage(PageInfo info, TIFFImageMetadata metadata) {
+            this.info = info;
+            this.metadata = metadata;
+        }
+
+        List<ImageTypeSpecifier> getImageTypes() {
+            return imageTypes;
+        }
+
+        void setImageTypes(List<ImageTypeSpecifier> imageTypes) {
+            this.imageTypes = Collections.unmodifiableList(imageTypes);
+        }
+    }
+}
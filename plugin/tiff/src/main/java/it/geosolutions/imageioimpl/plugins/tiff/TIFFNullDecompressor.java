@@ -73,6 +73,7 @@
  */
 package it.geosolutions.imageioimpl.plugins.tiff;
 
+import it.geosolutions.imageio.plugins.tiff.BaselineTIFFTagSet;
 import it.geosolutions.imageio.plugins.tiff.TIFFDecompressor;
 import java.io.IOException;
 
@@ -171,6 +172,14 @@ public class TIFFNullDecompressor extends TIFFDecompressor {
         }
     }
 
+    /**
+     * Rows skipped by the vertical subsampling are never copied to the destination, so they need not be read. YCbCr
+     * data are not stored by rows, but by blocks of rows, so they are read as a whole.
+     */
+    private boolean isRowSkippingAllowed() {
+        return subsampleY > 1 && photometricInterpretation != BaselineTIFFTagSet.PHOTOMETRIC_INTERPRETATION_Y_CB_CR;
+    }
+
     public void decodeRaw(byte[] b, int dstOffset, int bitsPerPixel, int scanlineStride) throws IOException {
         if (isReadActiveOnly) {
             // Read the active source region only.
@@ -197,6 +206,16 @@ public class TIFFNullDecompressor extends TIFFDecompressor {
                     + (activeSrcMinY - originalSrcMinY) * totalBytesPerRow
                     + ((activeSrcMinX - originalSrcMinX) * bitsPerPixel) / 8);
 
+            if (isRowSkippingAllowed()) {
+                // Read only the rows surviving the vertical subsampling
+                long activeOffset = stream.getStreamPosition();
+                for (int y = 0; y < activeSrcHeight; y += subsampleY) {
+                    stream.seek(activeOffset + (long) y * totalBytesPerRow);
+                    stream.read(b, dstOffset + y * scanlineStride, activeBytesPerRow);
+                }
+                return;
+            }
+
             int lastRow = activeSrcHeight - 1;
             for (int y = 0; y < activeSrcHeight; y++) {
                 stream.read(b, dstOffset, activeBytesPerRow);
@@ -207,6 +226,14 @@ public class TIFFNullDecompressor extends TIFFDecompressor {
                     stream.skipBytes(bytesToSkipPerRow);
                 }
             }
+        } else if (isRowSkippingAllowed()) {
+            // Read only the rows surviving the vertical subsampling
+            int bytesPerRow = (srcWidth * bitsPerPixel + 7) / 8;
+            int lastRow = activeSrcMinY - srcMinY + activeSrcHeight;
+            for (int y = activeSrcMinY - srcMinY; y < lastRow; y += subsampleY) {
+                stream.seek(offset + (long) y * bytesPerRow);
+                stream.read(b, dstOffset + y * scanlineStride, bytesPerRow);
+            }
         } else {
             // Read the entire source region.
             stream.seek(offset);
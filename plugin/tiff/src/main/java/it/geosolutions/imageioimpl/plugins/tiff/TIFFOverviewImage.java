@@ -0,0 +1,236 @@
+/*
+ *    ImageI/O-Ext - OpenSource Java Image translation Library
+ *    http://www.geo-solutions.it/
+ *    https://github.com/geosolutions-it/imageio-ext
+ *    (C) 2026, GeoSolutions
+ *    All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of GeoSolutions nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY GeoSolutions ``AS IS'' AND ANY
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL GeoSolutions BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package it.geosolutions.imageioimpl.plugins.tiff;
+
+import it.geosolutions.imageio.plugins.tiff.TIFFImageWriteParam.OverviewResampling;
+import it.geosolutions.imageio.utilities.SimpleRenderedImage;
+import java.awt.Point;
+import java.awt.Rectangle;
+import java.awt.image.DataBuffer;
+import java.awt.image.IndexColorModel;
+import java.awt.image.Raster;
+import java.awt.image.RenderedImage;
+import java.awt.image.WritableRaster;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Vector;
+
+/**
+ * A reduced resolution level of an image, half its size in both directions, used to write overviews. The image has a
+ * single column of tiles, each one a band of rows spanning the whole width, which are computed on demand from the
+ * source and only the last few of which are retained. Writing the levels in row order thus keeps memory bounded to a
+ * few tile rows per level, whether each level is written in full or their tile rows are interleaved.
+ *
+ * <p>The first level reads the pixels of the image actually written, that is, its source region subsampled by the
+ * source subsampling factors, while each further level reads the previous one.
+ */
+final class TIFFOverviewImage extends SimpleRenderedImage {
+
+    /** Number of bands of rows retained, covering the tasks of parallel encoding still reading a previous band */
+    private static final int CACHED_BANDS = 4;
+
+    private final RenderedImage source;
+
+    private final int sourceX;
+
+    private final int sourceY;
+
+    private final int periodX;
+
+    private final int periodY;
+
+    private final int inputWidth;
+
+    private final int inputHeight;
+
+    private final boolean average;
+
+    private final boolean isFloatingPoint;
+
+    private final Map<Integer, Raster> bands = new LinkedHashMap<>(CACHED_BANDS, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Integer, Raster> eldest) {
+            return size() > CACHED_BANDS;
+        }
+    };
+
+    /**
+     * Creates the first overview of an image.
+     *
+     * @param source the image being written
+     * @param sourceX the x coordinate of the first source pixel written
+     * @param sourceY the y coordinate of the first source pixel written
+     * @param inputWidth the width of the image written, after subsampling
+     * @param inputHeight the height of the image written, after subsampling
+     * @param periodX the horizontal source subsampling
+     * @param periodY the vertical source subsampling
+     * @param bandHeight the number of rows computed at once, the tile or strip height of the overview
+     * @param resampling the resampling computing the overview pixels
+     */
+    TIFFOverviewImage(
+            RenderedImage source,
+            int sourceX,
+            int sourceY,
+            int inputWidth,
+            int inputHeight,
+            int periodX,
+            int periodY,
+            int bandHeight,
+            OverviewResampling resampling) {
+        this.source = source;
+        this.sourceX = sourceX;
+        this.sourceY = sourceY;
+        this.inputWidth = inputWidth;
+        this.inputHeight = inputHeight;
+        this.periodX = periodX;
+        this.periodY = periodY;
+
+        this.minX = 0;
+        this.minY = 0;
+        this.width = (inputWidth + 1) / 2;
+        this.height = (inputHeight + 1) / 2;
+        this.tileWidth = width;
+        this.tileHeight = bandHeight;
+        this.colorModel = source.getColorModel();
+        this.sampleModel = source.getSampleModel().createCompatibleSampleModel(tileWidth, tileHeight);
+
+        // averaging palette indices or packed bits makes no sense
+        int dataType = sampleModel.getDataType();
+        this.isFloatingPoint = dataType == DataBuffer.TYPE_FLOAT || dataType == DataBuffer.TYPE_DOUBLE;
+        this.average = resampling == OverviewResampling.AVERAGE
+                && !(colorModel instanceof IndexColorModel)
+                && sampleModel.getSampleSize(0) >= 8;
+    }
+
+    /** Returns the next overview, computed from this one */
+    TIFFOverviewImage reduce(OverviewResampling resampling) {
+        return new TIFFOverviewImage(this, 0, 0, width, height, 1, 1, tileHeight, resampling);
+    }
+
+    /** Overridden with the generic signature, the inherited one is raw */
+    @Override
+    public Vector<RenderedImage> getSources() {
+        return null;
+    }
+
+    @Override
+    public synchronized Raster getTile(int tileX, int tileY) {
+        if (tileX != 0 || tileY < 0 || tileY * tileHeight >= height) {
+            throw new IllegalArgumentException("Tile " + tileX + ", " + tileY + " is out of the image");
+        }
+        Raster band = bands.get(tileY);
+        if (band == null) {
+            band = computeBand(tileY);
+            bands.put(tileY, band);
+        }
+        return band;
+    }
+
+    @Override
+    public Raster getData(Rectangle rect) {
+        Raster data = super.getData(rect);
+        Rectangle bounds = data.getBounds();
+        if (bounds.width < width && bounds.width < data.getSampleModel().getWidth()) {
+            // a tile of the overview, copied so that its rows follow each other as the encoders expect
+            WritableRaster tile = data.createCompatibleWritableRaster(bounds.x, bounds.y, bounds.width, bounds.height);
+            tile.setRect(data);
+            return tile;
+        }
+        return data;
+    }
+
+    private Raster computeBand(int tileY) {
+        int y0 = tileY * tileHeight;
+        int rows = Math.min(tileHeight, height - y0);
+        WritableRaster band = Raster.createWritableRaster(sampleModel, new Point(0, y0));
+
+        // Read all the input rows reduced into the band at once
+        int inputY = 2 * y0;
+        int inputRows = Math.min(2 * rows, inputHeight - inputY);
+        int span = (inputWidth - 1) * periodX + 1;
+        Raster input = source.getData(new Rectangle(
+                sourceX, sourceY + inputY * periodY,
+                span, (inputRows - 1) * periodY + 1));
+
+        int numBands = sampleModel.getNumBands();
+        double[] row0 = new double[span * numBands];
+        double[] row1 = new double[span * numBands];
+        double[] reduced = new double[width * numBands];
+        for (int y = 0; y < rows; y++) {
+            int iy = 2 * y;
+            input.getPixels(sourceX, sourceY + (inputY + iy) * periodY, span, 1, row0);
+            boolean hasRow1 = average && iy + 1 < inputRows;
+            if (hasRow1) {
+                input.getPixels(sourceX, sourceY + (inputY + iy + 1) * periodY, span, 1, row1);
+            }
+            for (int x = 0; x < width; x++) {
+                int i0 = 2 * x * periodX * numBands;
+                boolean hasColumn1 = average && 2 * x + 1 < inputWidth;
+                int i1 = i0 + periodX * numBands;
+                for (int b = 0; b < numBands; b++) {
+                    if (!average) {
+                        reduced[x * numBands + b] = row0[i0 + b];
+                        continue;
+                    }
+                    double sum = 0;
+                    int count = 0;
+                    double v = row0[i0 + b];
+                    if (!Double.isNaN(v)) {
+                        sum += v;
+                        count++;
+                    }
+                    if (hasColumn1 && !Double.isNaN(v = row0[i1 + b])) {
+                        sum += v;
+                        count++;
+                    }
+                    if (hasRow1) {
+                        if (!Double.isNaN(v = row1[i0 + b])) {
+                            sum += v;
+                            count++;
+                        }
+                        if (hasColumn1 && !Double.isNaN(v = row1[i1 + b])) {
+                            sum += v;
+                            count++;
+                        }
+                    }
+                    if (count == 0) {
+                        reduced[x * numBands + b] = Double.NaN;
+                    } else if (isFloatingPoint) {
+                        reduced[x * numBands + b] = sum / count;
+                    } else {
+                        reduced[x * numBands + b] = Math.floor(sum / count + 0.5);
+                    }
+                }
+            }
+            band.setPixels(0, y0 + y, width, 1, reduced);
+        }
+        return band;
+    }
+}
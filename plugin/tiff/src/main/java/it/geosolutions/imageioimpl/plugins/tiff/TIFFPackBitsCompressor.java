@@ -73,67 +73,35 @@
  */
 package it.geosolutions.imageioimpl.plugins.tiff;
 
+import it.geosolutions.imageio.compression.CompressionFinder;
+import it.geosolutions.imageio.compression.CompressionType;
+import it.geosolutions.imageio.compression.Compressor;
 import it.geosolutions.imageio.plugins.tiff.BaselineTIFFTagSet;
 import it.geosolutions.imageio.plugins.tiff.TIFFCompressor;
 import java.io.IOException;
+import javax.imageio.IIOException;
 
-/** */
+/**
+ * PackBits Compressor, compressing each row on its own. The PackBits compressor is looked up through the
+ * {@link CompressionFinder}, so that the highest priority implementation is used.
+ */
 public class TIFFPackBitsCompressor extends TIFFCompressor {
 
-    public TIFFPackBitsCompressor() {
-        super("PackBits", BaselineTIFFTagSet.COMPRESSION_PACKBITS, true);
-    }
-
-    /**
-     * Performs PackBits compression for a single buffer of data. This should be called for each row of each tile. The
-     * returned value is the offset into the output buffer after compression.
-     */
-    private static int packBits(byte[] input, int inOffset, int inCount, byte[] output, int outOffset) {
-        int inMax = inOffset + inCount - 1;
-        int inMaxMinus1 = inMax - 1;
-
-        while (inOffset <= inMax) {
-            int run = 1;
-            byte replicate = input[inOffset];
-            while (run < 127 && inOffset < inMax && input[inOffset] == input[inOffset + 1]) {
-                run++;
-                inOffset++;
-            }
-            if (run > 1) {
-                inOffset++;
-                output[outOffset++] = (byte) (-(run - 1));
-                output[outOffset++] = replicate;
-            }
-
-            run = 0;
-            int saveOffset = outOffset;
-            while (run < 128
-                    && ((inOffset < inMax && input[inOffset] != input[inOffset + 1])
-                            || (inOffset < inMaxMinus1 && input[inOffset] != input[inOffset + 2]))) {
-                run++;
-                output[++outOffset] = input[inOffset++];
-            }
-            if (run > 0) {
-                output[saveOffset] = (byte) (run - 1);
-                outOffset++;
-            }
+    /** PackBits has no compression levels, any level in the default SPI range will do */
+    private static final int PACKBITS_LEVEL = 1;
 
-            if (inOffset == inMax) {
-                if (run > 0 && run < 128) {
-                    output[saveOffset]++;
-                    output[outOffset++] = input[inOffset++];
-                } else {
-                    output[outOffset++] = (byte) 0;
-                    output[outOffset++] = input[inOffset++];
-                }
-            }
-        }
+    Compressor packBitsCompressor;
 
-        return outOffset;
+    public TIFFPackBitsCompressor() {
+        super("PackBits", BaselineTIFFTagSet.COMPRESSION_PACKBITS, true);
+        packBitsCompressor = CompressionFinder.getCompressor(PACKBITS_LEVEL, CompressionType.PACKBITS);
     }
 
     public int encode(byte[] b, int off, int width, int height, int[] bitsPerSample, int scanlineStride)
             throws IOException {
+        if (packBitsCompressor == null) {
+            throw new IIOException("No PackBits compressor available");
+        }
         int bitsPerPixel = 0;
         for (int i = 0; i < bitsPerSample.length; i++) {
             bitsPerPixel += bitsPerSample[i];
@@ -144,8 +112,9 @@ public class TIFFPackBitsCompressor extends TIFFCompressor {
 
         int bytesWritten = 0;
 
+        packBitsCompressor.setInput(b);
         for (int i = 0; i < height; i++) {
-            int bytes = packBits(b, off, scanlineStride, compData, 0);
+            int bytes = packBitsCompressor.compress(compData, off, bytesPerRow, 0, bufSize);
             off += scanlineStride;
             bytesWritten += bytes;
             stream.write(compData, 0, bytes);
@@ -153,4 +122,13 @@ public class TIFFPackBitsCompressor extends TIFFCompressor {
 
         return bytesWritten;
     }
+
+    @Override
+    public void dispose() {
+        super.dispose();
+        if (packBitsCompressor != null) {
+            packBitsCompressor.done();
+            packBitsCompressor = null;
+        }
+    }
 }
@@ -73,59 +73,65 @@
  */
 package it.geosolutions.imageioimpl.plugins.tiff;
 
+import it.geosolutions.imageio.compression.CompressionFinder;
+import it.geosolutions.imageio.compression.CompressionType;
+import it.geosolutions.imageio.compression.Decompressor;
 import it.geosolutions.imageio.plugins.tiff.TIFFDecompressor;
 import java.io.IOException;
+import java.util.zip.DataFormatException;
+import javax.imageio.IIOException;
 
+/**
+ * Decompressor for PackBits compression. The PackBits decompressor is looked up through the {@link CompressionFinder},
+ * so that the highest priority implementation is used.
+ */
 public class TIFFPackBitsDecompressor extends TIFFDecompressor {
 
     private static final boolean DEBUG = false;
 
+    /** PackBits decompressors, reused across reads */
+    private static final DecompressorPool<Decompressor> PACKBITS_DECOMPRESSORS = new DecompressorPool<>(
+            () -> CompressionFinder.getDecompressor(CompressionType.PACKBITS), Decompressor::dispose);
+
+    Decompressor packBitsDecompressor;
+
     public TIFFPackBitsDecompressor() {}
 
     public int decode(byte[] srcData, int srcOffset, byte[] dstData, int dstOffset) throws IOException {
+        return decode(srcData, srcOffset, srcData.length - srcOffset, dstData, dstOffset, dstData.length - dstOffset);
+    }
 
-        int srcIndex = srcOffset;
-        int dstIndex = dstOffset;
+    private int decode(byte[] srcData, int srcOffset, int srcLength, byte[] dstData, int dstOffset, int size)
+            throws IOException {
+        if (packBitsDecompressor == null) {
+            packBitsDecompressor = PACKBITS_DECOMPRESSORS.acquire();
+            if (packBitsDecompressor == null) {
+                throw new IIOException("No PackBits decompressor available");
+            }
+        }
 
-        int dstArraySize = dstData.length;
-        int srcArraySize = srcData.length;
+        packBitsDecompressor.setInput(srcData, srcOffset, srcLength);
         try {
-            while (dstIndex < dstArraySize && srcIndex < srcArraySize) {
-                byte b = srcData[srcIndex++];
-
-                if (b >= 0 && b <= 127) { // second test not needed?
-                    // Literal run packet
-
-                    for (int i = 0; i < b + 1; i++) {
-                        dstData[dstIndex++] = srcData[srcIndex++];
-                    }
-                } else if (b <= -1 && b >= -127) {
-                    // 2-byte encoded run packet
-                    byte repeat = srcData[srcIndex++];
-                    for (int i = 0; i < (-b + 1); i++) {
-                        dstData[dstIndex++] = repeat;
-                    }
-                } else {
-                    // No-op packet, do nothing
-                    ++srcIndex;
-                }
-            }
-        } catch (ArrayIndexOutOfBoundsException e) {
+            packBitsDecompressor.decompress(dstData, dstOffset, size);
+        } catch (DataFormatException e) {
             if (reader instanceof TIFFImageReader) {
                 ((TIFFImageReader) reader)
                         .forwardWarningMessage(
-                                "ArrayIndexOutOfBoundsException ignored in TIFFPackBitsDecompressor.decode()");
+                                "Truncated data ignored in TIFFPackBitsDecompressor.decode(): " + e.getMessage());
             }
+        } finally {
+            packBitsDecompressor.done();
         }
 
-        return dstIndex - dstOffset;
+        return size;
     }
 
-    public void decodeRaw(byte[] b, int dstOffset, int bitsPerPixel, int scanlineStride) throws IOException {
+    public synchronized void decodeRaw(byte[] b, int dstOffset, int bitsPerPixel, int scanlineStride)
+            throws IOException {
         stream.seek(offset);
 
-        byte[] srcData = new byte[byteCount];
-        stream.readFully(srcData);
+        byte[] srcData = getScratchBuffer(SCRATCH_COMPRESSED, byteCount);
+        stream.readFully(srcData, 0, byteCount);
 
         int bytesPerRow = (srcWidth * bitsPerPixel + 7) / 8;
         byte[] buf;
@@ -134,11 +140,11 @@ public class TIFFPackBitsDecompressor extends TIFFDecompressor {
             buf = b;
             bufOffset = dstOffset;
         } else {
-            buf = new byte[bytesPerRow * srcHeight];
+            buf = getClearedScratchBuffer(SCRATCH_DECOMPRESSED, bytesPerRow * srcHeight);
             bufOffset = 0;
         }
 
-        decode(srcData, 0, buf, bufOffset);
+        decode(srcData, 0, byteCount, buf, bufOffset, Math.min(bytesPerRow * srcHeight, buf.length - bufOffset));
 
         if (bytesPerRow != scanlineStride) {
             if (DEBUG) {
@@ -152,4 +158,11 @@ public class TIFFPackBitsDecompressor extends TIFFDecompressor {
             }
         }
     }
+
+    @Override
+    public void dispose() {
+        super.dispose();
+        PACKBITS_DECOMPRESSORS.release(packBitsDecompressor);
+        packBitsDecompressor = null;
+    }
 }
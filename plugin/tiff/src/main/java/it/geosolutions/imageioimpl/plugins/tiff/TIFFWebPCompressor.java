@@ -0,0 +1,103 @@
+/*
+ *    ImageI/O-Ext - OpenSource Java Image translation Library
+ *    http://www.geo-solutions.it/
+ *    https://github.com/geosolutions-it/imageio-ext
+ *    (C) 2026, GeoSolutions
+ *    All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of GeoSolutions nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY GeoSolutions ``AS IS'' AND ANY
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL GeoSolutions BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package it.geosolutions.imageioimpl.plugins.tiff;
+
+import it.geosolutions.imageio.compression.CompressionFinder;
+import it.geosolutions.imageio.compression.CompressionType;
+import it.geosolutions.imageio.compression.Compressor;
+import it.geosolutions.imageio.plugins.tiff.PrivateTIFFTagSet;
+import it.geosolutions.imageio.plugins.tiff.TIFFCompressor;
+import java.io.IOException;
+import javax.imageio.IIOException;
+import javax.imageio.ImageWriteParam;
+
+/**
+ * Compressor for WebP compression, writing each strip or tile as a complete WebP image. The compression quality of the
+ * write param is mapped to the WebP levels, from 1 to 100, 75 being used by default. The WebP compressor is looked up
+ * through the {@link CompressionFinder}, so that the highest priority implementation is used.
+ */
+public class TIFFWebPCompressor extends TIFFCompressor {
+
+    /** Default WebP level, as used by libwebp */
+    static final int DEFAULT_LEVEL = 75;
+
+    Compressor webpCompressor;
+
+    public TIFFWebPCompressor(ImageWriteParam param) {
+        super("WebP", PrivateTIFFTagSet.COMPRESSION_WEBP, false);
+        int level;
+        if (param != null && param.getCompressionMode() == ImageWriteParam.MODE_EXPLICIT) {
+            float quality = param.getCompressionQuality();
+            level = Math.round(1 + 99 * quality);
+        } else {
+            level = DEFAULT_LEVEL;
+        }
+        webpCompressor = CompressionFinder.getCompressor(level, CompressionType.WEBP);
+    }
+
+    public int encode(byte[] b, int off, int width, int height, int[] bitsPerSample, int scanlineStride)
+            throws IOException {
+        if (webpCompressor == null) {
+            throw new IIOException("No WebP compressor available");
+        }
+        int numBands = bitsPerSample.length;
+        int bytesPerRow = width * numBands;
+        byte[] input = b;
+        int inputOffset = off;
+        if (bytesPerRow != scanlineStride) {
+            input = new byte[bytesPerRow * height];
+            inputOffset = 0;
+            for (int y = 0; y < height; y++) {
+                System.arraycopy(b, off + y * scanlineStride, input, y * bytesPerRow, bytesPerRow);
+            }
+        }
+
+        webpCompressor.setImageLayout(width, height, numBands);
+        webpCompressor.setInput(input);
+        byte[] compData = new byte[Math.min(bytesPerRow * height + 1024, 65536)];
+        int numCompressedBytes = 0;
+        int numBytes;
+        while ((numBytes = webpCompressor.compress(compData, inputOffset, bytesPerRow * height, 0, compData.length))
+                != 0) {
+            stream.write(compData, 0, numBytes);
+            numCompressedBytes += numBytes;
+        }
+        return numCompressedBytes;
+    }
+
+    @Override
+    public void dispose() {
+        super.dispose();
+        if (webpCompressor != null) {
+            webpCompressor.done();
+            webpCompressor = null;
+        }
+    }
+}
@@ -0,0 +1,109 @@
+/*
+ *    ImageI/O-Ext - OpenSource Java Image translation Library
+ *    http://www.geo-solutions.it/
+ *    https://github.com/geosolutions-it/imageio-ext
+ *    (C) 2026, GeoSolutions
+ *    All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of GeoSolutions nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY GeoSolutions ``AS IS'' AND ANY
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL GeoSolutions BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package it.geosolutions.imageioimpl.plugins.tiff;
+
+import it.geosolutions.imageio.compression.CompressionFinder;
+import it.geosolutions.imageio.compression.CompressionType;
+import it.geosolutions.imageio.compression.Decompressor;
+import it.geosolutions.imageio.plugins.tiff.TIFFDecompressor;
+import java.io.IOException;
+import java.util.zip.DataFormatException;
+import javax.imageio.IIOException;
+
+/**
+ * Decompressor for WebP compression, each strip or tile being a complete WebP image with 3 or 4 interleaved 8 bits
+ * bands. The WebP decompressor is looked up through the {@link CompressionFinder}, so that the highest priority
+ * implementation is used.
+ */
+public class TIFFWebPDecompressor extends TIFFDecompressor {
+
+    /** WebP decompressors, reused across reads */
+    private static final DecompressorPool<Decompressor> WEBP_DECOMPRESSORS = new DecompressorPool<>(
+            () -> CompressionFinder.getDecompressor(CompressionType.WEBP), Decompressor::dispose);
+
+    Decompressor webpDecompressor;
+
+    public TIFFWebPDecompressor() {}
+
+    @Override
+    public synchronized void decodeRaw(byte[] b, int dstOffset, int bitsPerPixel, int scanlineStride)
+            throws IOException {
+        if (planar || (samplesPerPixel != 3 && samplesPerPixel != 4) || bitsPerPixel != 8 * samplesPerPixel) {
+            throw new IIOException("WebP compression requires 3 or 4 interleaved 8 bits bands");
+        }
+        if (webpDecompressor == null) {
+            webpDecompressor = WEBP_DECOMPRESSORS.acquire();
+            if (webpDecompressor == null) {
+                throw new IIOException("No WebP decompressor available");
+            }
+        }
+
+        stream.seek(offset);
+        byte[] srcData = getScratchBuffer(SCRATCH_COMPRESSED, byteCount);
+        stream.readFully(srcData, 0, byteCount);
+
+        int bytesPerRow = srcWidth * samplesPerPixel;
+        byte[] buf;
+        int bufOffset;
+        if (bytesPerRow == scanlineStride) {
+            buf = b;
+            bufOffset = dstOffset;
+        } else {
+            buf = getScratchBuffer(SCRATCH_DECOMPRESSED, bytesPerRow * srcHeight);
+            bufOffset = 0;
+        }
+
+        webpDecompressor.setImageLayout(srcWidth, srcHeight, samplesPerPixel);
+        webpDecompressor.setInput(srcData, 0, byteCount);
+        try {
+            webpDecompressor.decompress(buf, bufOffset, bytesPerRow * srcHeight);
+        } catch (DataFormatException dfe) {
+            throw new IIOException("Data format exception during WebP decompression", dfe);
+        } finally {
+            webpDecompressor.done();
+        }
+
+        if (buf != b) {
+            int off = 0;
+            for (int y = 0; y < srcHeight; y++) {
+                System.arraycopy(buf, off, b, dstOffset, bytesPerRow);
+                off += bytesPerRow;
+                dstOffset += scanlineStride;
+            }
+        }
+    }
+
+    @Override
+    public void dispose() {
+        super.dispose();
+        WEBP_DECOMPRESSORS.release(webpDecompressor);
+        webpDecompressor = null;
+    }
+}
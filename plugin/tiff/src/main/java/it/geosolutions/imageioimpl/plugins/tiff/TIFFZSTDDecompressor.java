@@ -32,12 +32,19 @@ package it.geosolutions.imageioimpl.plugins.tiff;
 import io.airlift.compress.zstd.ZstdDecompressor;
 import it.geosolutions.imageio.plugins.tiff.TIFFDecompressor;
 import java.io.IOException;
+import java.nio.ByteOrder;
+import javax.imageio.IIOException;
 
 /** Decompressor for ZSTD compression */
 public class TIFFZSTDDecompressor extends TIFFDecompressor {
 
+    /** ZSTD decompressors, reused across reads */
+    private static final DecompressorPool<ZstdDecompressor> ZSTD_DECOMPRESSORS =
+            new DecompressorPool<>(ZstdDecompressor::new);
+
     private final int predictor;
-    ZstdDecompressor zstdDecompressor = new ZstdDecompressor();
+    ZstdDecompressor zstdDecompressor = ZSTD_DECOMPRESSORS.acquire();
+    PredictorDecompressor predictorDecompressor;
 
     public TIFFZSTDDecompressor(int predictor) {
         this.predictor = predictor;
@@ -45,13 +52,14 @@ public class TIFFZSTDDecompressor extends TIFFDecompressor {
 
     @Override
     public void decodeRaw(byte[] b, int dstOffset, int bitsPerPixel, int scanlineStride) throws IOException {
-        PredictorDecompressor predictorDecompressor = new PredictorDecompressor(
-                predictor, bitsPerSample, sampleFormat, planar ? 1 : samplesPerPixel, stream.getByteOrder());
-        predictorDecompressor.validate();
+        PredictorDecompressor predictorDecompressor = getPredictorDecompressor();
+        if (zstdDecompressor == null) {
+            zstdDecompressor = ZSTD_DECOMPRESSORS.acquire();
+        }
 
         stream.seek(offset);
-        byte[] srcData = new byte[byteCount];
-        stream.readFully(srcData);
+        byte[] srcData = getScratchBuffer(SCRATCH_COMPRESSED, byteCount);
+        stream.readFully(srcData, 0, byteCount);
 
         int bytesPerRow = (srcWidth * bitsPerPixel + 7) / 8;
         byte[] buf;
@@ -60,7 +68,7 @@ public class TIFFZSTDDecompressor extends TIFFDecompressor {
             buf = b;
             bufOffset = dstOffset;
         } else {
-            buf = new byte[bytesPerRow * srcHeight];
+            buf = getClearedScratchBuffer(SCRATCH_DECOMPRESSED, bytesPerRow * srcHeight);
             bufOffset = 0;
         }
 
@@ -76,4 +84,22 @@ public class TIFFZSTDDecompressor extends TIFFDecompressor {
             }
         }
     }
+
+    private PredictorDecompressor getPredictorDecompressor() throws IIOException {
+        int spp = planar ? 1 : samplesPerPixel;
+        ByteOrder byteOrder = stream.getByteOrder();
+        if (predictorDecompressor == null
+                || !predictorDecompressor.matches(predictor, bitsPerSample, sampleFormat, spp, byteOrder)) {
+            predictorDecompressor = new PredictorDecompressor(predictor, bitsPerSample, sampleFormat, spp, byteOrder);
+            predictorDecompressor.validate();
+        }
+        return predictorDecompressor;
+    }
+
+    @Override
+    public void dispose() {
+        super.dispose();
+        ZSTD_DECOMPRESSORS.release(zstdDecompressor);
+        zstdDecompressor = null;
+    }
 }
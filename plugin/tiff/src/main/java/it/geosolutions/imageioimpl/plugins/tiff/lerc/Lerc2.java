@@ -0,0 +1,274 @@
+/*
+ *    ImageI/O-Ext - OpenSource Java Image translation Library
+ *    http://www.geo-solutions.it/
+ *    https://github.com/geosolutions-it/imageio-ext
+ *    (C) 2026, GeoSolutions
+ *    All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of GeoSolutions nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY GeoSolutions ``AS IS'' AND ANY
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL GeoSolutions BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package it.geosolutions.imageioimpl.plugins.tiff.lerc;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Constants and helpers shared by the LERC2 encoder and decoder. LERC2 blobs are always little endian, while the raster
+ * data they are decoded to (or encoded from) follows the TIFF stream byte order.
+ */
+public final class Lerc2 {
+
+    /** The key opening every LERC2 blob */
+    static final byte[] FILE_KEY = "Lerc2 ".getBytes(StandardCharsets.US_ASCII);
+
+    // LERC2 data types
+    public static final int DT_CHAR = 0;
+    public static final int DT_BYTE = 1;
+    public static final int DT_SHORT = 2;
+    public static final int DT_USHORT = 3;
+    public static final int DT_INT = 4;
+    public static final int DT_UINT = 5;
+    public static final int DT_FLOAT = 6;
+    public static final int DT_DOUBLE = 7;
+
+    // image encode modes, following the "read data one sweep" flag for Huffman enabled blobs
+    static final int IEM_TILING = 0;
+    static final int IEM_DELTA_HUFFMAN = 1;
+    static final int IEM_HUFFMAN = 2;
+    static final int IEM_DELTA_DELTA_HUFFMAN = 3;
+
+    /** Size of the key, version and checksum, excluded from the checksum computation */
+    static final int CHECKSUM_START = 14;
+
+    static final VarHandle SHORT_LE = MethodHandles.byteArrayViewVarHandle(short[].class, ByteOrder.LITTLE_ENDIAN);
+    static final VarHandle INT_LE = MethodHandles.byteArrayViewVarHandle(int[].class, ByteOrder.LITTLE_ENDIAN);
+    static final VarHandle FLOAT_LE = MethodHandles.byteArrayViewVarHandle(float[].class, ByteOrder.LITTLE_ENDIAN);
+    static final VarHandle DOUBLE_LE = MethodHandles.byteArrayViewVarHandle(double[].class, ByteOrder.LITTLE_ENDIAN);
+    static final VarHandle SHORT_BE = MethodHandles.byteArrayViewVarHandle(short[].class, ByteOrder.BIG_ENDIAN);
+    static final VarHandle INT_BE = MethodHandles.byteArrayViewVarHandle(int[].class, ByteOrder.BIG_ENDIAN);
+    static final VarHandle FLOAT_BE = MethodHandles.byteArrayViewVarHandle(float[].class, ByteOrder.BIG_ENDIAN);
+    static final VarHandle DOUBLE_BE = MethodHandles.byteArrayViewVarHandle(double[].class, ByteOrder.BIG_ENDIAN);
+
+    private Lerc2() {}
+
+    /** Returns the size in bytes of a value of the given LERC2 data type */
+    static int sizeOf(int dataType) {
+        switch (dataType) {
+            case DT_CHAR:
+            case DT_BYTE:
+                return 1;
+            case DT_SHORT:
+            case DT_USHORT:
+                return 2;
+            case DT_INT:
+            case DT_UINT:
+            case DT_FLOAT:
+                return 4;
+            case DT_DOUBLE:
+                return 8;
+            default:
+                throw new IllegalArgumentException("Invalid LERC data type " + dataType);
+        }
+    }
+
+    /** Returns true if the data type holds floating point values */
+    static boolean isFloatingPoint(int dataType) {
+        return dataType == DT_FLOAT || dataType == DT_DOUBLE;
+    }
+
+    /**
+     * Returns the data type actually used to store a tile offset, given the image data type and the type code found in
+     * the upper two bits of the tile header
+     */
+    static int dataTypeUsed(int dataType, int typeCode) {
+        switch (dataType) {
+            case DT_SHORT:
+            case DT_INT:
+                return dataType - typeCode;
+            case DT_USHORT:
+            case DT_UINT:
+                return dataType - 2 * typeCode;
+            case DT_FLOAT:
+                return typeCode == 0 ? dataType : (typeCode == 1 ? DT_SHORT : DT_BYTE);
+            case DT_DOUBLE:
+                return typeCode == 0 ? dataType : dataType - 2 * typeCode + 1;
+            default:
+                return dataType;
+        }
+    }
+
+    /** Returns the type code allowing to store the given value with the smallest data type, without losses */
+    static int typeCode(int dataType, double z) {
+        switch (dataType) {
+            case DT_SHORT:
+                return z == (byte) z ? 2 : z == ((int) z & 0xFF) ? 1 : 0;
+            case DT_USHORT:
+                return z == ((int) z & 0xFF) ? 1 : 0;
+            case DT_INT:
+                return z == ((int) z & 0xFF) ? 3 : z == (short) z ? 2 : z == ((int) z & 0xFFFF) ? 1 : 0;
+            case DT_UINT:
+                return z == ((long) z & 0xFF) ? 2 : z == ((long) z & 0xFFFF) ? 1 : 0;
+            case DT_FLOAT:
+                return z == ((int) z & 0xFF) ? 2 : z == (short) z ? 1 : 0;
+            case DT_DOUBLE:
+                return z == (short) z ? 3 : z == (int) z ? 2 : z == (float) z ? 1 : 0;
+            default:
+                return 0;
+        }
+    }
+
+    /** Reads a little endian value of the given data type */
+    static double read(byte[] b, int offset, int dataType) {
+        switch (dataType) {
+            case DT_CHAR:
+                return b[offset];
+            case DT_BYTE:
+                return b[offset] & 0xFF;
+            case DT_SHORT:
+                return (short) SHORT_LE.get(b, offset);
+            case DT_USHORT:
+                return (short) SHORT_LE.get(b, offset) & 0xFFFF;
+            case DT_INT:
+                return (int) INT_LE.get(b, offset);
+            case DT_UINT:
+                return (int) INT_LE.get(b, offset) & 0xFFFFFFFFL;
+            case DT_FLOAT:
+                return (float) FLOAT_LE.get(b, offset);
+            case DT_DOUBLE:
+                return (double) DOUBLE_LE.get(b, offset);
+            default:
+                throw new IllegalArgumentException("Invalid LERC data type " + dataType);
+        }
+    }
+
+    /** Writes a little endian value of the given data type */
+    static void write(byte[] b, int offset, int dataType, double value) {
+        switch (dataType) {
+            case DT_CHAR:
+            case DT_BYTE:
+                b[offset] = (byte) (long) value;
+                break;
+            case DT_SHORT:
+            case DT_USHORT:
+                SHORT_LE.set(b, offset, (short) (long) value);
+                break;
+            case DT_INT:
+            case DT_UINT:
+                INT_LE.set(b, offset, (int) (long) value);
+                break;
+            case DT_FLOAT:
+                FLOAT_LE.set(b, offset, (float) value);
+                break;
+            case DT_DOUBLE:
+                DOUBLE_LE.set(b, offset, value);
+                break;
+            default:
+                throw new IllegalArgumentException("Invalid LERC data type " + dataType);
+        }
+    }
+
+    /** Reads a raster sample of the given data type, in the given byte order */
+    static double readSample(byte[] b, int offset, int dataType, boolean littleEndian) {
+        if (littleEndian) {
+            return read(b, offset, dataType);
+        }
+        switch (dataType) {
+            case DT_CHAR:
+                return b[offset];
+            case DT_BYTE:
+                return b[offset] & 0xFF;
+            case DT_SHORT:
+                return (short) SHORT_BE.get(b, offset);
+            case DT_USHORT:
+                return (short) SHORT_BE.get(b, offset) & 0xFFFF;
+            case DT_INT:
+                return (int) INT_BE.get(b, offset);
+            case DT_UINT:
+                return (int) INT_BE.get(b, offset) & 0xFFFFFFFFL;
+            case DT_FLOAT:
+                return (float) FLOAT_BE.get(b, offset);
+            case DT_DOUBLE:
+                return (double) DOUBLE_BE.get(b, offset);
+            default:
+                throw new IllegalArgumentException("Invalid LERC data type " + dataType);
+        }
+    }
+
+    /** Writes a raster sample of the given data type, in the given byte order */
+    static void writeSample(byte[] b, int offset, int dataType, boolean littleEndian, double value) {
+        if (littleEndian) {
+            write(b, offset, dataType, value);
+            return;
+        }
+        switch (dataType) {
+            case DT_CHAR:
+            case DT_BYTE:
+                b[offset] = (byte) (long) value;
+                break;
+            case DT_SHORT:
+            case DT_USHORT:
+                SHORT_BE.set(b, offset, (short) (long) value);
+                break;
+            case DT_INT:
+            case DT_UINT:
+                INT_BE.set(b, offset, (int) (long) value);
+                break;
+            case DT_FLOAT:
+                FLOAT_BE.set(b, offset, (float) value);
+                break;
+            case DT_DOUBLE:
+                DOUBLE_BE.set(b, offset, value);
+                break;
+            default:
+                throw new IllegalArgumentException("Invalid LERC data type " + dataType);
+        }
+    }
+
+    /** Fletcher32 checksum, as computed by LERC2 v3+ on the blob bytes following the checksum itself */
+    static int checksum(byte[] b, int offset, int length) {
+        int sum1 = 0xffff;
+        int sum2 = 0xffff;
+        int words = length / 2;
+        int p = offset;
+        while (words > 0) {
+            int chunk = Math.min(words, 359);
+            words -= chunk;
+            do {
+                sum1 += (b[p++] & 0xFF) << 8;
+                sum1 += b[p++] & 0xFF;
+                sum2 += sum1;
+            } while (--chunk > 0);
+            sum1 = (sum1 & 0xffff) + (sum1 >>> 16);
+            sum2 = (sum2 & 0xffff) + (sum2 >>> 16);
+        }
+        if ((length & 1) != 0) {
+            sum1 += (b[p] & 0xFF) << 8;
+            sum2 += sum1;
+        }
+        sum1 = (sum1 & 0xffff) + (sum1 >>> 16);
+        sum2 = (sum2 & 0xffff) + (sum2 >>> 16);
+        return sum2 << 16 | sum1;
+    }
+}
@@ -0,0 +1,777 @@
+/*
+ *    ImageI/O-Ext - OpenSource Java Image translation Library
+ *    http://www.geo-solutions.it/
+ *    https://github.com/geosolutions-it/imageio-ext
+ *    (C) 2026, GeoSolutions
+ *    All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of GeoSolutions nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY GeoSolutions ``AS IS'' AND ANY
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL GeoSolutions BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package it.geosolutions.imageioimpl.plugins.tiff.lerc;
+
+import static it.geosolutions.imageioimpl.plugins.tiff.lerc.Lerc2.DT_BYTE;
+import static it.geosolutions.imageioimpl.plugins.tiff.lerc.Lerc2.DT_CHAR;
+import static it.geosolutions.imageioimpl.plugins.tiff.lerc.Lerc2.DT_DOUBLE;
+import static it.geosolutions.imageioimpl.plugins.tiff.lerc.Lerc2.DT_FLOAT;
+import static it.geosolutions.imageioimpl.plugins.tiff.lerc.Lerc2.DT_INT;
+
+import java.nio.ByteOrder;
+import java.util.Arrays;
+import javax.imageio.IIOException;
+
+/**
+ * Pure Java decoder for LERC2 (Limited Error Raster Compression) blobs, versions 2 to 6, as found in TIFF files using
+ * compression 34887. Supports validity masks, multiple values per pixel, tiled and "one sweep" encodings, bit stuffing
+ * with and without lookup tables, and Huffman coding of 8 bit data. Multiple concatenated blobs are decoded as
+ * consecutive bands of the same pixels. The lossless floating point predictive coding introduced by version 6 is not
+ * supported.
+ *
+ * <p>Instances keep reusable work buffers, and are not thread safe.
+ */
+public final class Lerc2Decoder {
+
+    private int[] quantized = new int[64];
+    private int[] lut = new int[16];
+    private byte[] mask = new byte[0];
+    private double[] zMinVec = new double[1];
+    private double[] zMaxVec = new double[1];
+    private int[] values = new int[0];
+
+    /** Header of a single blob */
+    static final class Header {
+        int version;
+        int checksum;
+        int height;
+        int width;
+        int numDims;
+        int numValidPixel;
+        int microBlockSize;
+        int blobSize;
+        int dataType;
+        int numBlobsMore;
+        boolean passNoDataValues;
+        double maxZError;
+        double zMin;
+        double zMax;
+        double noDataValue;
+        double noDataValueOrig;
+        int size;
+    }
+
+    /**
+     * Decodes the LERC2 blobs found in <code>src</code> into the destination array, writing the samples in the given
+     * byte order. Each pixel is written as <code>numDims</code> consecutive samples, which are either found in a single
+     * blob, or spread across multiple blobs, one per band. Pixels marked as invalid get a NaN value for floating point
+     * data, zero otherwise.
+     *
+     * @param src the source bytes
+     * @param offset offset of the first blob in the source
+     * @param length number of source bytes
+     * @param dst the destination array
+     * @param dstOffset offset of the first sample in the destination
+     * @param scanlineStride number of bytes between the start of two consecutive rows in the destination
+     * @param width expected number of columns
+     * @param height maximum number of rows to be decoded
+     * @param numDims number of samples per pixel
+     * @param dataType the LERC data type of the destination samples
+     * @param byteOrder byte order of the destination samples
+     * @throws IIOException if the blobs are invalid, or do not match the expected layout
+     */
+    public void decode(
+            byte[] src,
+            int offset,
+            int length,
+            byte[] dst,
+            int dstOffset,
+            int scanlineStride,
+            int width,
+            int height,
+            int numDims,
+            int dataType,
+            ByteOrder byteOrder)
+            throws IIOException {
+        int end = offset + length;
+        int dim = 0;
+        while (dim < numDims) {
+            Header header = readHeader(src, offset, end - offset);
+            if (header.width != width) {
+                throw new IIOException("LERC blob has " + header.width + " columns, " + width + " expected");
+            }
+            if (header.dataType != dataType) {
+                throw new IIOException(
+                        "LERC blob data type is " + header.dataType + " while " + dataType + " was expected");
+            }
+            if (dim + header.numDims > numDims) {
+                throw new IIOException("LERC blobs hold more than the expected " + numDims + " values per pixel");
+            }
+            Target target = new Target(
+                    dst,
+                    dstOffset,
+                    scanlineStride,
+                    Math.min(height, header.height),
+                    numDims,
+                    dim,
+                    dataType,
+                    byteOrder == ByteOrder.LITTLE_ENDIAN);
+            decodeBlob(src, offset, header, target);
+            dim += header.numDims;
+            offset += header.blobSize;
+            if (dim < numDims && (offset >= end || !hasKey(src, offset, end))) {
+                throw new IIOException("LERC data holds " + dim + " values per pixel, " + numDims + " expected");
+            }
+        }
+    }
+
+    /** Reads and validates the header of the blob at the given offset */
+    static Header readHeader(byte[] src, int offset, int length) throws IIOException {
+        if (!hasKey(src, offset, offset + length) || length < Lerc2.CHECKSUM_START) {
+            throw new IIOException("Not a LERC2 blob");
+        }
+        Header h = new Header();
+        int p = offset + Lerc2.FILE_KEY.length;
+        h.version = readInt(src, p);
+        p += 4;
+        if (h.version < 2 || h.version > 6) {
+            throw new IIOException("Unsupported LERC2 version " + h.version);
+        }
+        if (h.version >= 3) {
+            h.checksum = readInt(src, p);
+            p += 4;
+        }
+        int numInts = h.version >= 6 ? 8 : h.version >= 4 ? 7 : 6;
+        int numDoubles = h.version >= 6 ? 5 : 3;
+        int headerSize = p - offset + numInts * 4 + (h.version >= 6 ? 4 : 0) + numDoubles * 8;
+        if (length < headerSize) {
+            throw new IIOException("Truncated LERC2 header");
+        }
+        h.height = readInt(src, p);
+        h.width = readInt(src, p + 4);
+        p += 8;
+        if (h.version >= 4) {
+            h.numDims = readInt(src, p);
+            p += 4;
+        } else {
+            h.numDims = 1;
+        }
+        h.numValidPixel = readInt(src, p);
+        h.microBlockSize = readInt(src, p + 4);
+        h.blobSize = readInt(src, p + 8);
+        h.dataType = readInt(src, p + 12);
+        p += 16;
+        if (h.version >= 6) {
+            h.numBlobsMore = readInt(src, p);
+            h.passNoDataValues = src[p + 4] != 0;
+            p += 8;
+        }
+        h.maxZError = (double) Lerc2.DOUBLE_LE.get(src, p);
+        h.zMin = (double) Lerc2.DOUBLE_LE.get(src, p + 8);
+        h.zMax = (double) Lerc2.DOUBLE_LE.get(src, p + 16);
+        if (h.version >= 6) {
+            h.noDataValue = (double) Lerc2.DOUBLE_LE.get(src, p + 24);
+            h.noDataValueOrig = (double) Lerc2.DOUBLE_LE.get(src, p + 32);
+        }
+        h.size = headerSize;
+
+        if (h.width <= 0 || h.height <= 0 || h.numDims <= 0 || h.microBlockSize <= 0) {
+            throw new IIOException("Invalid LERC2 raster size " + h.width + "x" + h.height + "x" + h.numDims);
+        }
+        if (h.dataType < DT_CHAR || h.dataType > DT_DOUBLE) {
+            throw new IIOException("Invalid LERC2 data type " + h.dataType);
+        }
+        if (h.blobSize < headerSize || h.blobSize > length) {
+            throw new IIOException("Invalid LERC2 blob size " + h.blobSize + ", " + length + " bytes available");
+        }
+        if (h.version >= 3) {
+            int checksum = Lerc2.checksum(src, offset + Lerc2.CHECKSUM_START, h.blobSize - Lerc2.CHECKSUM_START);
+            if (checksum != h.checksum) {
+                throw new IIOException("LERC2 blob checksum mismatch, data is corrupted");
+            }
+        }
+        return h;
+    }
+
+    private static boolean hasKey(byte[] src, int offset, int end) {
+        if (end - offset < Lerc2.FILE_KEY.length) {
+            return false;
+        }
+        for (int i = 0; i < Lerc2.FILE_KEY.length; i++) {
+            if (src[offset + i] != Lerc2.FILE_KEY[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void decodeBlob(byte[] src, int offset, Header h, Target target) throws IIOException {
+        Reader in = new Reader(src, offset + h.size, offset + h.blobSize);
+        int numPixels = Math.multiplyExact(h.width, h.height);
+
+        // validity mask
+        int maskBytes = in.readInt();
+        int maskStart = in.advance(Math.max(0, maskBytes));
+        boolean allValid = h.numValidPixel == numPixels;
+        if (!allValid) {
+            int size = (numPixels + 7) >> 3;
+            if (mask.length < size) {
+                mask = new byte[size];
+            }
+            if (h.numValidPixel == 0) {
+                Arrays.fill(mask, 0, size, (byte) 0);
+            } else if (maskBytes > 0) {
+                decodeMask(new Reader(src, maskStart, maskStart + maskBytes), size);
+            } else {
+                throw new IIOException("LERC2 blob misses the validity mask");
+            }
+        }
+        target.mask = allValid ? null : mask;
+        target.width = h.width;
+        target.blobDims = h.numDims;
+
+        if (h.numValidPixel == 0) {
+            target.fillInvalid();
+            return;
+        }
+        if (h.zMin == h.zMax) {
+            target.fillConstant(null, h.zMin);
+            target.fillInvalid();
+            return;
+        }
+
+        int numDims = h.numDims;
+        if (zMinVec.length < numDims) {
+            zMinVec = new double[numDims];
+            zMaxVec = new double[numDims];
+        }
+        if (h.version >= 4) {
+            int size = Lerc2.sizeOf(h.dataType);
+            boolean allConstant = true;
+            for (int i = 0; i < numDims; i++) {
+                zMinVec[i] = Lerc2.read(src, in.advance(size), h.dataType);
+            }
+            for (int i = 0; i < numDims; i++) {
+                zMaxVec[i] = Lerc2.read(src, in.advance(size), h.dataType);
+                allConstant &= zMinVec[i] == zMaxVec[i];
+            }
+            if (allConstant) {
+                target.fillConstant(zMinVec, 0);
+                target.fillInvalid();
+                return;
+            }
+        } else {
+            Arrays.fill(zMinVec, 0, numDims, h.zMin);
+            Arrays.fill(zMaxVec, 0, numDims, h.zMax);
+        }
+
+        boolean oneSweep = in.readByte() != 0;
+        if (oneSweep) {
+            readOneSweep(in, h, target);
+        } else {
+            boolean tiled = true;
+            if (tryHuffman(h)) {
+                int mode = in.readByte();
+                if (mode == Lerc2.IEM_DELTA_HUFFMAN || (h.version >= 4 && mode == Lerc2.IEM_HUFFMAN)) {
+                    decodeHuffman(in, h, target, mode);
+                    tiled = false;
+                } else if (mode != Lerc2.IEM_TILING) {
+                    throw new IIOException("Unsupported LERC2 encoding mode " + mode);
+                }
+            }
+            if (tiled) {
+                readTiles(in, h, target);
+            }
+        }
+        if (h.passNoDataValues && h.noDataValue != h.noDataValueOrig) {
+            target.replace(h.noDataValue, h.noDataValueOrig);
+        }
+        target.fillInvalid();
+    }
+
+    private static boolean tryHuffman(Header h) {
+        if (h.dataType == DT_CHAR || h.dataType == DT_BYTE) {
+            return h.maxZError == 0.5;
+        }
+        return h.version >= 6 && Lerc2.isFloatingPoint(h.dataType) && h.maxZError == 0;
+    }
+
+    /** Run length decoding of the validity bit mask */
+    private void decodeMask(Reader in, int size) throws IIOException {
+        int out = 0;
+        int count = in.readShort();
+        while (count != Short.MIN_VALUE) {
+            if (count > 0) {
+                if (out + count > size) {
+                    throw new IIOException("Corrupted LERC2 validity mask");
+                }
+                System.arraycopy(in.src, in.advance(count), mask, out, count);
+                out += count;
+            } else {
+                int repeat = -count;
+                if (out + repeat > size) {
+                    throw new IIOException("Corrupted LERC2 validity mask");
+                }
+                Arrays.fill(mask, out, out + repeat, (byte) in.readByte());
+                out += repeat;
+            }
+            count = in.readShort();
+        }
+    }
+
+    private static void readOneSweep(Reader in, Header h, Target target) throws IIOException {
+        int size = Lerc2.sizeOf(h.dataType);
+        for (int i = 0, k = 0; i < target.rows(h); i++) {
+            for (int j = 0; j < h.width; j++, k++) {
+                if (target.isValid(k)) {
+                    for (int m = 0; m < h.numDims; m++) {
+                        target.set(i, j, m, Lerc2.read(in.src, in.advance(size), h.dataType));
+                    }
+                }
+            }
+        }
+    }
+
+    private void readTiles(Reader in, Header h, Target target) throws IIOException {
+        int blockSize = h.microBlockSize;
+        int rows = target.rows(h);
+        for (int i0 = 0; i0 < h.height; i0 += blockSize) {
+            int i1 = Math.min(i0 + blockSize, h.height);
+            for (int j0 = 0; j0 < h.width; j0 += blockSize) {
+                int j1 = Math.min(j0 + blockSize, h.width);
+                for (int dim = 0; dim < h.numDims; dim++) {
+                    readTile(in, h, target, i0, Math.min(i1, rows), i1, j0, j1, dim);
+                }
+            }
+        }
+    }
+
+    /**
+     * Reads a single tile, writing out the rows up to <code>rowEnd</code> only, but consuming the data of all rows up
+     * to <code>i1</code>
+     */
+    private void readTile(Reader in, Header h, Target target, int i0, int rowEnd, int i1, int j0, int j1, int dim)
+            throws IIOException {
+        int flag = in.readByte();
+        int typeCode = flag >> 6;
+        // integrity check on the tile column, version 5 uses bit 2 to flag deltas from the previous dimension
+        boolean diff = false;
+        if (h.version >= 5) {
+            if (((flag >> 3) & 7) != ((j0 >> 4) & 7)) {
+                throw new IIOException("Corrupted LERC2 tile header");
+            }
+            diff = (flag & 4) != 0;
+            if (diff && dim == 0) {
+                throw new IIOException("Corrupted LERC2 tile header");
+            }
+        } else if (((flag >> 2) & 15) != ((j0 >> 3) & 15)) {
+            throw new IIOException("Corrupted LERC2 tile header");
+        }
+        flag &= 3;
+        int width = h.width;
+        if (flag == 2) {
+            // constant zero
+            for (int i = i0; i < rowEnd; i++) {
+                for (int j = j0, k = i * width + j0; j < j1; j++, k++) {
+                    if (target.isValid(k)) {
+                        target.set(i, j, dim, diff ? target.get(i, j, dim - 1) : 0);
+                    }
+                }
+            }
+        } else if (flag == 0) {
+            // raw values
+            int size = Lerc2.sizeOf(h.dataType);
+            for (int i = i0; i < i1; i++) {
+                for (int j = j0, k = i * width + j0; j < j1; j++, k++) {
+                    if (target.isValid(k)) {
+                        double z = Lerc2.read(in.src, in.advance(size), h.dataType);
+                        if (i < rowEnd) {
+                            target.set(i, j, dim, z);
+                        }
+                    }
+                }
+            }
+        } else {
+            // deltas of integer types can be negative, they are stored as signed integers
+            int dataTypeUsed = Lerc2.dataTypeUsed(diff && h.dataType < DT_FLOAT ? DT_INT : h.dataType, typeCode);
+            if (dataTypeUsed < DT_CHAR || dataTypeUsed > DT_DOUBLE) {
+                throw new IIOException("Corrupted LERC2 tile header");
+            }
+            double offset = Lerc2.read(in.src, in.advance(Lerc2.sizeOf(dataTypeUsed)), dataTypeUsed);
+            if (flag == 3) {
+                // constant offset
+                for (int i = i0; i < rowEnd; i++) {
+                    for (int j = j0, k = i * width + j0; j < j1; j++, k++) {
+                        if (target.isValid(k)) {
+                            target.set(i, j, dim, diff ? target.get(i, j, dim - 1) + offset : offset);
+                        }
+                    }
+                }
+            } else {
+                int count = bitUnstuff(in, (i1 - i0) * (j1 - j0), h.version);
+                double invScale = 2 * h.maxZError;
+                double zMax = h.version >= 4 && h.numDims > 1 ? zMaxVec[dim] : h.zMax;
+                int q = 0;
+                for (int i = i0; i < i1; i++) {
+                    for (int j = j0, k = i * width + j0; j < j1; j++, k++) {
+                        if (target.isValid(k)) {
+                            if (q >= count) {
+                                throw new IIOException("Corrupted LERC2 tile, not enough values");
+                            }
+                            double z = offset + (quantized[q++] & 0xFFFFFFFFL) * invScale;
+                            if (i < rowEnd) {
+                                if (diff) {
+                                    z += target.get(i, j, dim - 1);
+                                }
+                                target.set(i, j, dim, Math.min(z, zMax));
+                            }
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    /** Decodes a bit stuffed array of unsigned integers into {@link #quantized}, returning the number of values */
+    private int bitUnstuff(Reader in, int maxCount, int version) throws IIOException {
+        int header = in.readByte();
+        int countBytes = header >> 6 == 0 ? 4 : 3 - (header >> 6);
+        boolean useLut = (header & 32) != 0;
+        int numBits = header & 31;
+        long count;
+        if (countBytes == 1) {
+            count = in.readByte();
+        } else if (countBytes == 2) {
+            count = in.readShort() & 0xFFFF;
+        } else if (countBytes == 4) {
+            count = in.readInt() & 0xFFFFFFFFL;
+        } else {
+            throw new IIOException("Corrupted LERC2 bit stuffed array");
+        }
+        if (count > maxCount) {
+            throw new IIOException("Corrupted LERC2 bit stuffed array, too many values");
+        }
+        int n = (int) count;
+        if (quantized.length < n) {
+            quantized = new int[Math.max(n, quantized.length * 2)];
+        }
+        if (!useLut) {
+            if (numBits == 0) {
+                Arrays.fill(quantized, 0, n, 0);
+            } else {
+                unstuff(in, quantized, n, numBits, version);
+            }
+        } else {
+            if (numBits == 0) {
+                throw new IIOException("Corrupted LERC2 bit stuffed array");
+            }
+            int lutSize = in.readByte() - 1;
+            if (lutSize <= 0) {
+                throw new IIOException("Corrupted LERC2 bit stuffed lookup table");
+            }
+            if (lut.length < lutSize + 1) {
+                lut = new int[lutSize + 1];
+            }
+            // the lookup table is stored without its leading zero
+            unstuff(in, lut, lutSize, numBits, version);
+            System.arraycopy(lut, 0, lut, 1, lutSize);
+            lut[0] = 0;
+            int lutBits = 32 - Integer.numberOfLeadingZeros(lutSize);
+            unstuff(in, quantized, n, lutBits, version);
+            for (int i = 0; i < n; i++) {
+                int index = quantized[i];
+                if (index > lutSize) {
+                    throw new IIOException("Corrupted LERC2 bit stuffed lookup table index");
+                }
+                quantized[i] = lut[index];
+            }
+        }
+        return n;
+    }
+
+    /** Unpacks <code>n</code> values of <code>numBits</code> each */
+    private static void unstuff(Reader in, int[] out, int n, int numBits, int version) throws IIOException {
+        long totalBits = (long) n * numBits;
+        int numBytes = (int) ((totalBits + 7) >> 3);
+        int p = in.advance(numBytes);
+        byte[] src = in.src;
+        if (version >= 3) {
+            // least significant bits first, in a little endian byte stream
+            long buffer = 0;
+            int available = 0;
+            long bitMask = (1L << numBits) - 1;
+            for (int i = 0; i < n; i++) {
+                while (available < numBits) {
+                    buffer |= (src[p++] & 0xFFL) << available;
+                    available += 8;
+                }
+                out[i] = (int) (buffer & bitMask);
+                buffer >>>= numBits;
+                available -= numBits;
+            }
+        } else {
+            // most significant bits first, in little endian 32 bit words, with the unused bytes of the last word
+            // trimmed out of the stream
+            int numWords = (int) ((totalBits + 31) >> 5);
+            int tailBytes = (int) (((totalBits & 31) + 7) >> 3);
+            int word = 0;
+            int bitPos = 0;
+            int current = readWord(src, p, 0, numWords, tailBytes);
+            for (int i = 0; i < n; i++) {
+                int value = (current << bitPos) >>> (32 - numBits);
+                if (32 - bitPos >= numBits) {
+                    bitPos += numBits;
+                    if (bitPos == 32) {
+                        bitPos = 0;
+                        word++;
+                        current = readWord(src, p, word, numWords, tailBytes);
+                    }
+                } else {
+                    word++;
+                    current = readWord(src, p, word, numWords, tailBytes);
+                    bitPos -= 32 - numBits;
+                    value |= current >>> (32 - bitPos);
+                }
+                out[i] = value;
+            }
+        }
+    }
+
+    private static int readWord(byte[] src, int p, int word, int numWords, int tailBytes) {
+        if (word >= numWords) {
+            return 0;
+        }
+        int base = p + word * 4;
+        if (word < numWords - 1 || tailBytes == 0) {
+            return (int) Lerc2.INT_LE.get(src, base);
+        }
+        int value = 0;
+        for (int i = 0; i < tailBytes; i++) {
+            value |= (src[base + i] & 0xFF) << (8 * i);
+        }
+        return value << (8 * (4 - tailBytes));
+    }
+
+    /** Decodes Huffman coded 8 bit data, either plain or as deltas from the previous pixel */
+    private void decodeHuffman(Reader in, Header h, Target target, int mode) throws IIOException {
+        LercHuffman huffman = LercHuffman.read(in, h.version, this);
+        int width = h.width;
+        int height = h.height;
+        int numDims = h.numDims;
+        int offset = h.dataType == DT_CHAR ? 128 : 0;
+        int numPixels = width * height;
+        if (values.length < numPixels * numDims) {
+            values = new int[numPixels * numDims];
+        }
+        LercHuffman.BitReader bits = huffman.dataReader(in);
+        if (mode == Lerc2.IEM_DELTA_HUFFMAN) {
+            for (int dim = 0; dim < numDims; dim++) {
+                int prev = 0;
+                for (int i = 0, k = 0; i < height; i++) {
+                    for (int j = 0; j < width; j++, k++) {
+                        if (target.isValid(k)) {
+                            int delta = huffman.decode(bits) - offset;
+                            if (j > 0 && target.isValid(k - 1)) {
+                                delta += prev;
+                            } else if (i > 0 && target.isValid(k - width)) {
+                                delta += values[(k - width) * numDims + dim];
+                            } else {
+                                delta += prev;
+                            }
+                            prev = h.dataType == DT_CHAR ? (byte) delta : delta & 0xFF;
+                            values[k * numDims + dim] = prev;
+                        }
+                    }
+                }
+            }
+        } else {
+            for (int k = 0; k < numPixels; k++) {
+                if (target.isValid(k)) {
+                    for (int dim = 0; dim < numDims; dim++) {
+                        int v = huffman.decode(bits) - offset;
+                        values[k * numDims + dim] = h.dataType == DT_CHAR ? (byte) v : v & 0xFF;
+                    }
+                }
+            }
+        }
+        int rows = target.rows(h);
+        for (int i = 0, k = 0; i < rows; i++) {
+            for (int j = 0; j < width; j++, k++) {
+                if (target.isValid(k)) {
+                    for (int dim = 0; dim < numDims; dim++) {
+                        target.set(i, j, dim, values[k * numDims + dim]);
+                    }
+                }
+            }
+        }
+    }
+
+    int[] lutBuffer(int size) {
+        if (lut.length < size) {
+            lut = new int[size];
+        }
+        return lut;
+    }
+
+    int decodeBitStuffed(Reader in, int maxCount, int version) throws IIOException {
+        return bitUnstuff(in, maxCount, version);
+    }
+
+    int[] quantized() {
+        return quantized;
+    }
+
+    private static int readInt(byte[] b, int offset) {
+        return (int) Lerc2.INT_LE.get(b, offset);
+    }
+
+    /** Sequential reader over the bytes of a blob, checking bounds */
+    static final class Reader {
+        final byte[] src;
+        int position;
+        final int end;
+
+        Reader(byte[] src, int position, int end) {
+            this.src = src;
+            this.position = position;
+            this.end = end;
+        }
+
+        /** Advances by the given number of bytes, returning the previous position */
+        int advance(int n) throws IIOException {
+            int p = position;
+            if (n < 0 || p + n > end) {
+                throw new IIOException("Truncated LERC2 blob");
+            }
+            position = p + n;
+            return p;
+        }
+
+        int readByte() throws IIOException {
+            return src[advance(1)] & 0xFF;
+        }
+
+        int readShort() throws IIOException {
+            return (short) Lerc2.SHORT_LE.get(src, advance(2));
+        }
+
+        int readInt() throws IIOException {
+            return (int) Lerc2.INT_LE.get(src, advance(4));
+        }
+    }
+
+    /** The destination of the decoded samples */
+    private static final class Target {
+        final byte[] dst;
+        final int dstOffset;
+        final int scanlineStride;
+        final int rows;
+        final int numDims;
+        final int firstDim;
+        final int dataType;
+        final boolean littleEndian;
+        final int sampleSize;
+        byte[] mask;
+        int width;
+        int blobDims;
+
+        Target(
+                byte[] dst,
+                int dstOffset,
+                int scanlineStride,
+                int rows,
+                int numDims,
+                int firstDim,
+                int dataType,
+                boolean littleEndian) {
+            this.dst = dst;
+            this.dstOffset = dstOffset;
+            this.scanlineStride = scanlineStride;
+            this.rows = rows;
+            this.numDims = numDims;
+            this.firstDim = firstDim;
+            this.dataType = dataType;
+            this.littleEndian = littleEndian;
+            this.sampleSize = Lerc2.sizeOf(dataType);
+        }
+
+        int rows(Header h) {
+            return Math.min(rows, h.height);
+        }
+
+        boolean isValid(int k) {
+            return mask == null || (mask[k >> 3] & (128 >> (k & 7))) != 0;
+        }
+
+        void set(int row, int col, int dim, double value) {
+            int offset = dstOffset + row * scanlineStride + (col * numDims + firstDim + dim) * sampleSize;
+            Lerc2.writeSample(dst, offset, dataType, littleEndian, value);
+        }
+
+        double get(int row, int col, int dim) {
+            int offset = dstOffset + row * scanlineStride + (col * numDims + firstDim + dim) * sampleSize;
+            return Lerc2.readSample(dst, offset, dataType, littleEndian);
+        }
+
+        /** Fills the valid pixels with per dimension constants, or a single one if the array is null */
+        void fillConstant(double[] constants, double constant) {
+            for (int i = 0, k = 0; i < rows; i++) {
+                for (int j = 0; j < width; j++, k++) {
+                    if (isValid(k)) {
+                        for (int m = 0; m < blobDims; m++) {
+                            set(i, j, m, constants == null ? constant : constants[m]);
+                        }
+                    }
+                }
+            }
+        }
+
+        void replace(double value, double replacement) {
+            for (int i = 0, k = 0; i < rows; i++) {
+                for (int j = 0; j < width; j++, k++) {
+                    if (isValid(k)) {
+                        for (int m = 0; m < blobDims; m++) {
+                            if (get(i, j, m) == value) {
+                                set(i, j, m, replacement);
+                            }
+                        }
+                    }
+                }
+            }
+        }
+
+        /** Sets the invalid pixels to NaN for floating point data, zero otherwise */
+        void fillInvalid() {
+            if (mask == null) {
+                return;
+            }
+            double invalid = dataType == DT_FLOAT || dataType == DT_DOUBLE ? Double.NaN : 0;
+            for (int i = 0, k = 0; i < rows; i++) {
+                for (int j = 0; j < width; j++, k++) {
+                    if (!isValid(k)) {
+                        for (int m = 0; m < blobDims; m++) {
+                            set(i, j, m, invalid);
+                        }
+                    }
+                }
+            }
+        }
+    }
+}
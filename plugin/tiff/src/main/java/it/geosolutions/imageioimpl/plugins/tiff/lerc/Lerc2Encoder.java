@@ -0,0 +1,422 @@
+/*
+ *    ImageI/O-Ext - OpenSource Java Image translation Library
+ *    http://www.geo-solutions.it/
+ *    https://github.com/geosolutions-it/imageio-ext
+ *    (C) 2026, GeoSolutions
+ *    All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of GeoSolutions nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY GeoSolutions ``AS IS'' AND ANY
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL GeoSolutions BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package it.geosolutions.imageioimpl.plugins.tiff.lerc;
+
+import static it.geosolutions.imageioimpl.plugins.tiff.lerc.Lerc2.DT_BYTE;
+import static it.geosolutions.imageioimpl.plugins.tiff.lerc.Lerc2.DT_CHAR;
+
+import java.nio.ByteOrder;
+import java.util.Arrays;
+
+/**
+ * Pure Java encoder writing LERC2 version 4 blobs. Pixels whose samples are all NaN are marked as invalid in the
+ * validity mask. When only some of the samples of a pixel are NaN, each sample is encoded in its own blob, with its own
+ * mask, and the blobs are concatenated. Values are quantized so that the decoded ones differ from the original ones by
+ * at most the configured maximum error; a zero maximum error makes the encoding lossless. Tiles are bit stuffed, or
+ * stored raw when that is smaller, Huffman coding is not used.
+ *
+ * <p>Instances keep reusable work buffers, and are not thread safe.
+ */
+public final class Lerc2Encoder {
+
+    static final int VERSION = 4;
+
+    static final int MICRO_BLOCK_SIZE = 8;
+
+    /** Above this number of quantization steps tiles are stored raw */
+    private static final double MAX_QUANTIZED = 1 << 30;
+
+    private final double maxZError;
+
+    private byte[] out = new byte[1024];
+    private int size;
+    private byte[] mask = new byte[0];
+    private double[] tile = new double[MICRO_BLOCK_SIZE * MICRO_BLOCK_SIZE];
+    private int[] quantized = new int[MICRO_BLOCK_SIZE * MICRO_BLOCK_SIZE];
+
+    /**
+     * Creates a new encoder
+     *
+     * @param maxZError the maximum error allowed on each value, zero for lossless encoding. For integer data types it
+     *     is rounded down to an integer, values below one resulting in lossless encoding.
+     */
+    public Lerc2Encoder(double maxZError) {
+        if (!(maxZError >= 0)) {
+            throw new IllegalArgumentException("Invalid LERC max error " + maxZError);
+        }
+        this.maxZError = maxZError;
+    }
+
+    /**
+     * Encodes the samples of a raster into one or more LERC2 blobs.
+     *
+     * @param src the source samples, each pixel being made of <code>numDims</code> consecutive samples
+     * @param srcOffset offset of the first sample in the source
+     * @param scanlineStride number of bytes between the start of two consecutive rows in the source
+     * @param width number of columns
+     * @param height number of rows
+     * @param numDims number of samples per pixel
+     * @param dataType the LERC data type of the samples
+     * @param byteOrder byte order of the source samples
+     * @return the encoded bytes
+     */
+    public byte[] encode(
+            byte[] src,
+            int srcOffset,
+            int scanlineStride,
+            int width,
+            int height,
+            int numDims,
+            int dataType,
+            ByteOrder byteOrder) {
+        Source source = new Source(
+                src, srcOffset, scanlineStride, width, height, numDims, dataType, byteOrder == ByteOrder.LITTLE_ENDIAN);
+        size = 0;
+        if (Lerc2.isFloatingPoint(dataType) && numDims > 1 && hasPartialNoData(source)) {
+            for (int dim = 0; dim < numDims; dim++) {
+                encodeBlob(source, dim, 1);
+            }
+        } else {
+            encodeBlob(source, 0, numDims);
+        }
+        return Arrays.copyOf(out, size);
+    }
+
+    /** Returns true if some pixels have both NaN and valid samples */
+    private static boolean hasPartialNoData(Source source) {
+        for (int i = 0; i < source.height; i++) {
+            for (int j = 0; j < source.width; j++) {
+                int nan = 0;
+                for (int m = 0; m < source.numDims; m++) {
+                    if (Double.isNaN(source.get(i, j, m))) {
+                        nan++;
+                    }
+                }
+                if (nan > 0 && nan < source.numDims) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private void encodeBlob(Source source, int firstDim, int numDims) {
+        int width = source.width;
+        int height = source.height;
+        int dataType = source.dataType;
+        int numPixels = width * height;
+        source.firstDim = firstDim;
+
+        // validity mask and value ranges
+        int maskSize = (numPixels + 7) >> 3;
+        if (mask.length < maskSize) {
+            mask = new byte[maskSize];
+        }
+        Arrays.fill(mask, 0, maskSize, (byte) 0);
+        double[] zMinVec = new double[numDims];
+        double[] zMaxVec = new double[numDims];
+        Arrays.fill(zMinVec, Double.POSITIVE_INFINITY);
+        Arrays.fill(zMaxVec, Double.NEGATIVE_INFINITY);
+        int numValid = 0;
+        for (int i = 0, k = 0; i < height; i++) {
+            for (int j = 0; j < width; j++, k++) {
+                // a single NaN invalidates the pixel, partial ones have been split in separate blobs
+                if (Double.isNaN(source.get(i, j, 0))) {
+                    continue;
+                }
+                mask[k >> 3] |= (byte) (128 >> (k & 7));
+                numValid++;
+                for (int m = 0; m < numDims; m++) {
+                    double z = source.get(i, j, m);
+                    zMinVec[m] = Math.min(zMinVec[m], z);
+                    zMaxVec[m] = Math.max(zMaxVec[m], z);
+                }
+            }
+        }
+        double zMin = 0;
+        double zMax = 0;
+        if (numValid > 0) {
+            zMin = Arrays.stream(zMinVec).min().getAsDouble();
+            zMax = Arrays.stream(zMaxVec).max().getAsDouble();
+        }
+        double maxError = Lerc2.isFloatingPoint(dataType) ? maxZError : Math.max(0.5, Math.floor(maxZError));
+
+        // header, the checksum and blob size are filled in once done
+        int start = size;
+        writeBytes(Lerc2.FILE_KEY);
+        writeInt(VERSION);
+        writeInt(0);
+        writeInt(height);
+        writeInt(width);
+        writeInt(numDims);
+        writeInt(numValid);
+        writeInt(MICRO_BLOCK_SIZE);
+        int blobSizePosition = size;
+        writeInt(0);
+        writeInt(dataType);
+        writeDouble(maxError);
+        writeDouble(zMin);
+        writeDouble(zMax);
+
+        if (numValid > 0 && numValid < numPixels) {
+            encodeMask(maskSize);
+        } else {
+            writeInt(0);
+        }
+
+        if (numValid > 0 && zMin != zMax) {
+            int valueSize = Lerc2.sizeOf(dataType);
+            boolean allConstant = true;
+            for (int m = 0; m < numDims; m++) {
+                Lerc2.write(ensure(valueSize), size - valueSize, dataType, zMinVec[m]);
+            }
+            for (int m = 0; m < numDims; m++) {
+                Lerc2.write(ensure(valueSize), size - valueSize, dataType, zMaxVec[m]);
+                allConstant &= zMinVec[m] == zMaxVec[m];
+            }
+            if (!allConstant) {
+                // not a one sweep blob, and tiled encoding for types that could use Huffman coding
+                writeByte(0);
+                if ((dataType == DT_CHAR || dataType == DT_BYTE) && maxError == 0.5) {
+                    writeByte(Lerc2.IEM_TILING);
+                }
+                for (int i0 = 0; i0 < height; i0 += MICRO_BLOCK_SIZE) {
+                    int i1 = Math.min(i0 + MICRO_BLOCK_SIZE, height);
+                    for (int j0 = 0; j0 < width; j0 += MICRO_BLOCK_SIZE) {
+                        int j1 = Math.min(j0 + MICRO_BLOCK_SIZE, width);
+                        for (int m = 0; m < numDims; m++) {
+                            writeTile(source, i0, i1, j0, j1, m, maxError);
+                        }
+                    }
+                }
+            }
+        }
+
+        int blobSize = size - start;
+        Lerc2.INT_LE.set(out, blobSizePosition, blobSize);
+        int checksum = Lerc2.checksum(out, start + Lerc2.CHECKSUM_START, blobSize - Lerc2.CHECKSUM_START);
+        Lerc2.INT_LE.set(out, start + Lerc2.FILE_KEY.length + 4, checksum);
+    }
+
+    /** Run length encoding of the validity bit mask, preceded by its encoded size */
+    private void encodeMask(int maskSize) {
+        int sizePosition = size;
+        writeInt(0);
+        int start = size;
+        int literalStart = 0;
+        int i = 0;
+        while (i < maskSize) {
+            int run = 1;
+            while (i + run < maskSize && run < Short.MAX_VALUE && mask[i + run] == mask[i]) {
+                run++;
+            }
+            if (run >= 5) {
+                writeLiterals(literalStart, i);
+                writeShort(-run);
+                writeByte(mask[i]);
+                i += run;
+                literalStart = i;
+            } else {
+                i += run;
+            }
+        }
+        writeLiterals(literalStart, maskSize);
+        writeShort(Short.MIN_VALUE);
+        Lerc2.INT_LE.set(out, sizePosition, size - start);
+    }
+
+    private void writeLiterals(int from, int to) {
+        while (from < to) {
+            int count = Math.min(to - from, Short.MAX_VALUE);
+            writeShort(count);
+            System.arraycopy(mask, from, ensure(count), size - count, count);
+            from += count;
+        }
+    }
+
+    private void writeTile(Source source, int i0, int i1, int j0, int j1, int dim, double maxError) {
+        int dataType = source.dataType;
+        int width = source.width;
+        int count = 0;
+        double zMin = Double.POSITIVE_INFINITY;
+        double zMax = Double.NEGATIVE_INFINITY;
+        for (int i = i0; i < i1; i++) {
+            for (int j = j0, k = i * width + j0; j < j1; j++, k++) {
+                if ((mask[k >> 3] & (128 >> (k & 7))) != 0) {
+                    double z = source.get(i, j, dim);
+                    tile[count++] = z;
+                    zMin = Math.min(zMin, z);
+                    zMax = Math.max(zMax, z);
+                }
+            }
+        }
+        // the integrity check code on bits 2 to 5
+        int testCode = ((j0 >> 3) & 15) << 2;
+        if (count == 0 || (zMin == 0 && zMax == 0)) {
+            writeByte(testCode | 2);
+            return;
+        }
+
+        int valueSize = Lerc2.sizeOf(dataType);
+        int rawSize = 1 + count * valueSize;
+        double range = maxError > 0 ? (zMax - zMin) / (2 * maxError) : Double.POSITIVE_INFINITY;
+        if (range < MAX_QUANTIZED) {
+            int maxQuantized = (int) (range + 0.5);
+            int typeCode = Lerc2.typeCode(dataType, zMin);
+            int offsetType = Lerc2.dataTypeUsed(dataType, typeCode);
+            int offsetSize = Lerc2.sizeOf(offsetType);
+            if (maxQuantized == 0) {
+                // constant tile, within the error
+                if (zMin == 0) {
+                    writeByte(testCode | 2);
+                } else {
+                    writeByte(typeCode << 6 | testCode | 3);
+                    Lerc2.write(ensure(offsetSize), size - offsetSize, offsetType, zMin);
+                }
+                return;
+            }
+            int numBits = 32 - Integer.numberOfLeadingZeros(maxQuantized);
+            int countBytes = count < 256 ? 1 : count < 65536 ? 2 : 4;
+            int stuffedSize = 1 + offsetSize + 1 + countBytes + (int) (((long) count * numBits + 7) >> 3);
+            if (stuffedSize < rawSize) {
+                writeByte(typeCode << 6 | testCode | 1);
+                Lerc2.write(ensure(offsetSize), size - offsetSize, offsetType, zMin);
+                double scale = 1 / (2 * maxError);
+                for (int n = 0; n < count; n++) {
+                    quantized[n] = (int) ((tile[n] - zMin) * scale + 0.5);
+                }
+                bitStuff(count, countBytes, numBits);
+                return;
+            }
+        }
+
+        writeByte(testCode);
+        for (int n = 0; n < count; n++) {
+            Lerc2.write(ensure(valueSize), size - valueSize, dataType, tile[n]);
+        }
+    }
+
+    /** Writes the quantized values, least significant bits first */
+    private void bitStuff(int count, int countBytes, int numBits) {
+        writeByte((countBytes == 4 ? 0 : 3 - countBytes) << 6 | numBits);
+        if (countBytes == 1) {
+            writeByte(count);
+        } else if (countBytes == 2) {
+            writeShort(count);
+        } else {
+            writeInt(count);
+        }
+        int numBytes = (int) (((long) count * numBits + 7) >> 3);
+        byte[] b = ensure(numBytes);
+        int p = size - numBytes;
+        long buffer = 0;
+        int available = 0;
+        for (int n = 0; n < count; n++) {
+            buffer |= (quantized[n] & 0xFFFFFFFFL) << available;
+            available += numBits;
+            while (available >= 8) {
+                b[p++] = (byte) buffer;
+                buffer >>>= 8;
+                available -= 8;
+            }
+        }
+        if (available > 0) {
+            b[p] = (byte) buffer;
+        }
+    }
+
+    /** Grows the output by the given number of bytes, returning the output array */
+    private byte[] ensure(int length) {
+        if (size + length > out.length) {
+            out = Arrays.copyOf(out, Math.max(size + length, out.length * 2));
+        }
+        size += length;
+        return out;
+    }
+
+    private void writeByte(int value) {
+        ensure(1)[size - 1] = (byte) value;
+    }
+
+    private void writeShort(int value) {
+        Lerc2.SHORT_LE.set(ensure(2), size - 2, (short) value);
+    }
+
+    private void writeInt(int value) {
+        Lerc2.INT_LE.set(ensure(4), size - 4, value);
+    }
+
+    private void writeDouble(double value) {
+        Lerc2.DOUBLE_LE.set(ensure(8), size - 8, value);
+    }
+
+    private void writeBytes(byte[] bytes) {
+        System.arraycopy(bytes, 0, ensure(bytes.length), size - bytes.length, bytes.length);
+    }
+
+    /** Accessor to the source samples */
+    private static final class Source {
+        final byte[] src;
+        final int srcOffset;
+        final int scanlineStride;
+        final int width;
+        final int height;
+        final int numDims;
+        final int dataType;
+        final boolean littleEndian;
+        final int sampleSize;
+        int firstDim;
+
+        Source(
+                byte[] src,
+                int srcOffset,
+                int scanlineStride,
+                int width,
+                int height,
+                int numDims,
+                int dataType,
+                boolean littleEndian) {
+            this.src = src;
+            this.srcOffset = srcOffset;
+            this.scanlineStride = scanlineStride;
+            this.width = width;
+            this.height = height;
+            this.numDims = numDims;
+            this.dataType = dataType;
+            this.littleEndian = littleEndian;
+            this.sampleSize = Lerc2.sizeOf(dataType);
+        }
+
+        double get(int row, int col, int dim) {
+            int offset = srcOffset + row * scanlineStride + (col * numDims + firstDim + dim) * sampleSize;
+            return Lerc2.readSample(src, offset, dataType, littleEndian);
+        }
+    }
+}
@@ -0,0 +1,197 @@
+/*
+ *    ImageI/O-Ext - OpenSource Java Image translation Library
+ *    http://www.geo-solutions.it/
+ *    https://github.com/geosolutions-it/imageio-ext
+ *    (C) 2026, GeoSolutions
+ *    All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of GeoSolutions nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY GeoSolutions ``AS IS'' AND ANY
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL GeoSolutions BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package it.geosolutions.imageioimpl.plugins.tiff.lerc;
+
+import java.util.Arrays;
+import javax.imageio.IIOException;
+
+/** Huffman code table of LERC2 8 bit blobs, and the matching decoder */
+final class LercHuffman {
+
+    private static final int MAX_HISTO_SIZE = 1 << 15;
+
+    /** Decoding tree, children of each node, and leaf symbols (-1 for inner nodes) */
+    private int[] left;
+
+    private int[] right;
+    private int[] symbols;
+    private int numNodes;
+
+    private LercHuffman(int size) {
+        int capacity = 2 * size + 1;
+        left = new int[capacity];
+        right = new int[capacity];
+        symbols = new int[capacity];
+        Arrays.fill(symbols, -1);
+        numNodes = 1;
+    }
+
+    /** Reads the code table following the encode mode byte, leaving the reader at the start of the coded data */
+    static LercHuffman read(Lerc2Decoder.Reader in, int version, Lerc2Decoder decoder) throws IIOException {
+        int tableVersion = in.readInt();
+        int size = in.readInt();
+        int i0 = in.readInt();
+        int i1 = in.readInt();
+        if (tableVersion < 2 || i0 < 0 || i0 >= i1 || size <= 0 || size > MAX_HISTO_SIZE) {
+            throw new IIOException("Invalid LERC2 Huffman code table");
+        }
+        if (wrap(i0, size) >= size || wrap(i1 - 1, size) >= size) {
+            throw new IIOException("Invalid LERC2 Huffman code table range");
+        }
+
+        // code lengths are bit stuffed, codes follow as a most significant bit first stream
+        int count = i1 - i0;
+        if (decoder.decodeBitStuffed(in, count, version) != count) {
+            throw new IIOException("Invalid LERC2 Huffman code lengths");
+        }
+        int[] lengths = Arrays.copyOf(decoder.quantized(), count);
+        BitReader bits = new BitReader(in.src, in.position, in.end);
+        LercHuffman huffman = new LercHuffman(size);
+        for (int i = i0; i < i1; i++) {
+            int length = lengths[i - i0];
+            if (length > 32) {
+                throw new IIOException("Invalid LERC2 Huffman code length " + length);
+            }
+            if (length > 0) {
+                int code = bits.readBits(length);
+                huffman.add(wrap(i, size), code, length);
+            }
+        }
+        in.position = bits.alignedPosition();
+        return huffman;
+    }
+
+    private static int wrap(int i, int size) {
+        return i < size ? i : i - size;
+    }
+
+    private void add(int symbol, int code, int length) throws IIOException {
+        int node = 0;
+        for (int b = length - 1; b >= 0; b--) {
+            if (symbols[node] >= 0) {
+                throw new IIOException("Invalid LERC2 Huffman code table, codes are not prefix free");
+            }
+            int[] children = ((code >>> b) & 1) == 0 ? left : right;
+            int child = children[node];
+            if (child == 0) {
+                child = newNode();
+                // the arrays might have been grown
+                children = ((code >>> b) & 1) == 0 ? left : right;
+                children[node] = child;
+            }
+            node = child;
+        }
+        if (symbols[node] >= 0 || left[node] != 0 || right[node] != 0) {
+            throw new IIOException("Invalid LERC2 Huffman code table, codes are not prefix free");
+        }
+        symbols[node] = symbol;
+    }
+
+    private int newNode() {
+        if (numNodes == left.length) {
+            int capacity = left.length * 2;
+            left = Arrays.copyOf(left, capacity);
+            right = Arrays.copyOf(right, capacity);
+            int previous = symbols.length;
+            symbols = Arrays.copyOf(symbols, capacity);
+            Arrays.fill(symbols, previous, capacity, -1);
+        }
+        return numNodes++;
+    }
+
+    /** Returns a reader for the coded data starting at the current position */
+    BitReader dataReader(Lerc2Decoder.Reader in) {
+        return new BitReader(in.src, in.position, in.end);
+    }
+
+    /** Decodes the next symbol */
+    int decode(BitReader bits) throws IIOException {
+        int node = 0;
+        while (symbols[node] < 0) {
+            node = bits.readBit() == 0 ? left[node] : right[node];
+            if (node == 0) {
+                throw new IIOException("Invalid LERC2 Huffman code");
+            }
+        }
+        return symbols[node];
+    }
+
+    /** Reads bits most significant first, out of a sequence of little endian 32 bit words */
+    static final class BitReader {
+        private final byte[] src;
+        private final int start;
+        private final int end;
+        private int word = -1;
+        private int current;
+        private int bitPos = 32;
+
+        BitReader(byte[] src, int start, int end) {
+            this.src = src;
+            this.start = start;
+            this.end = end;
+        }
+
+        int readBit() throws IIOException {
+            if (bitPos == 32) {
+                word++;
+                current = load(start + 4 * word);
+                bitPos = 0;
+            }
+            return (current >>> (31 - bitPos++)) & 1;
+        }
+
+        int readBits(int n) throws IIOException {
+            int value = 0;
+            for (int i = 0; i < n; i++) {
+                value = (value << 1) | readBit();
+            }
+            return value;
+        }
+
+        /** Position following the last word that has been (even partially) read */
+        int alignedPosition() {
+            return Math.min(end, start + 4 * (word + 1));
+        }
+
+        private int load(int p) throws IIOException {
+            if (p >= end) {
+                throw new IIOException("Truncated LERC2 Huffman coded data");
+            }
+            if (p + 4 <= end) {
+                return (int) Lerc2.INT_LE.get(src, p);
+            }
+            int value = 0;
+            for (int i = 0; p + i < end; i++) {
+                value |= (src[p + i] & 0xFF) << (8 * i);
+            }
+            return value;
+        }
+    }
+}
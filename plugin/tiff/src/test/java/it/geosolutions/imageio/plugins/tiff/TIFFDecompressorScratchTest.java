@@ -0,0 +1,85 @@
+/*
+ *    ImageI/O-Ext - OpenSource Java Image translation Library
+ *    http://www.geo-solutions.it/
+ *    (C) 2026, GeoSolutions
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    either version 3 of the License, or (at your option) any later version.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package it.geosolutions.imageio.plugins.tiff;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import org.junit.Test;
+
+/** Tests the per thread scratch buffers of {@link TIFFDecompressor} */
+public class TIFFDecompressorScratchTest {
+
+    @Test
+    public void testReuse() {
+        byte[] buffer = TIFFDecompressor.getScratchBuffer(TIFFDecompressor.SCRATCH_RAW, 100);
+        assertTrue(buffer.length >= 100);
+        assertSame(buffer, TIFFDecompressor.getScratchBuffer(TIFFDecompressor.SCRATCH_RAW, 100));
+        // smaller requests are served by the same buffer
+        assertSame(buffer, TIFFDecompressor.getScratchBuffer(TIFFDecompressor.SCRATCH_RAW, 10));
+
+        // larger ones replace it
+        byte[] larger = TIFFDecompressor.getScratchBuffer(TIFFDecompressor.SCRATCH_RAW, buffer.length + 1);
+        assertTrue(larger.length > buffer.length);
+        assertSame(larger, TIFFDecompressor.getScratchBuffer(TIFFDecompressor.SCRATCH_RAW, 100));
+    }
+
+    @Test
+    public void testSlots() {
+        byte[] compressed = TIFFDecompressor.getScratchBuffer(TIFFDecompressor.SCRATCH_COMPRESSED, 100);
+        byte[] decompressed = TIFFDecompressor.getScratchBuffer(TIFFDecompressor.SCRATCH_DECOMPRESSED, 100);
+        byte[] raw = TIFFDecompressor.getScratchBuffer(TIFFDecompressor.SCRATCH_RAW, 100);
+        assertNotSame(compressed, decompressed);
+        assertNotSame(compressed, raw);
+        assertNotSame(decompressed, raw);
+    }
+
+    @Test
+    public void testThreads() throws Exception {
+        byte[] buffer = TIFFDecompressor.getScratchBuffer(TIFFDecompressor.SCRATCH_RAW, 100);
+        byte[] other = CompletableFuture.supplyAsync(
+                        () -> TIFFDecompressor.getScratchBuffer(TIFFDecompressor.SCRATCH_RAW, 100),
+                        r -> new Thread(r).start())
+                .get();
+        assertNotSame(buffer, other);
+    }
+
+    @Test
+    public void testLargeBuffersNotRetained() {
+        // larger than the 1MB default limit
+        int length = 2 * 1024 * 1024;
+        byte[] buffer = TIFFDecompressor.getScratchBuffer(TIFFDecompressor.SCRATCH_DECOMPRESSED, length);
+        assertEquals(length, buffer.length);
+        assertNotSame(buffer, TIFFDecompressor.getScratchBuffer(TIFFDecompressor.SCRATCH_DECOMPRESSED, length));
+    }
+
+    @Test
+    public void testCleared() {
+        byte[] buffer = TIFFDecompressor.getScratchBuffer(TIFFDecompressor.SCRATCH_RAW, 100);
+        Arrays.fill(buffer, (byte) 1);
+        byte[] cleared = TIFFDecompressor.getClearedScratchBuffer(TIFFDecompressor.SCRATCH_RAW, 50);
+        assertSame(buffer, cleared);
+        for (int i = 0; i < 50; i++) {
+            assertEquals(0, cleared[i]);
+        }
+        // only the requested length is cleared
+        assertEquals(1, cleared[50]);
+    }
+}
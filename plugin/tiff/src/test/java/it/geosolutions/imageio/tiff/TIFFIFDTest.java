@@ -0,0 +1,182 @@
+/*
+ *    ImageI/O-Ext - OpenSource Java Image translation Library
+ *    http://www.geo-solutions.it/
+ *    (C) 2026, GeoSolutions
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    either version 3 of the License, or (at your option) any later version.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package it.geosolutions.imageio.tiff;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.fail;
+
+import it.geosolutions.imageio.plugins.tiff.BaselineTIFFTagSet;
+import it.geosolutions.imageio.plugins.tiff.EXIFParentTIFFTagSet;
+import it.geosolutions.imageio.plugins.tiff.EXIFTIFFTagSet;
+import it.geosolutions.imageio.plugins.tiff.TIFFField;
+import it.geosolutions.imageio.plugins.tiff.TIFFTag;
+import it.geosolutions.imageioimpl.plugins.tiff.TIFFIFD;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.ImageOutputStream;
+import javax.imageio.stream.MemoryCacheImageInputStream;
+import javax.imageio.stream.MemoryCacheImageOutputStream;
+import org.junit.Test;
+
+public class TIFFIFDTest {
+
+    private static final int PRIVATE_TAG = 65000;
+
+    private static final long[] OFFSETS = {8, 0x80000000L, 0xfffffff0L, 1234567};
+
+    private static final double[] DOUBLES = {Math.PI, -1e300, 0, Double.MIN_VALUE};
+
+    private static List<Object> getTagSets() {
+        List<Object> tagSets = new ArrayList<>();
+        tagSets.add(BaselineTIFFTagSet.getInstance());
+        tagSets.add(EXIFParentTIFFTagSet.getInstance());
+        return tagSets;
+    }
+
+    private static TIFFIFD createIFD(boolean withExif) {
+        BaselineTIFFTagSet baseline = BaselineTIFFTagSet.getInstance();
+        TIFFIFD ifd = new TIFFIFD(getTagSets());
+        ifd.addTIFFField(new TIFFField(baseline.getTag(BaselineTIFFTagSet.TAG_IMAGE_WIDTH), 512));
+        ifd.addTIFFField(new TIFFField(
+                baseline.getTag(BaselineTIFFTagSet.TAG_BITS_PER_SAMPLE), TIFFTag.TIFF_SHORT, 3, new char[] {8, 16, 8}));
+        ifd.addTIFFField(new TIFFField(
+                baseline.getTag(BaselineTIFFTagSet.TAG_STRIP_OFFSETS), TIFFTag.TIFF_LONG, OFFSETS.length, OFFSETS));
+        ifd.addTIFFField(new TIFFField(
+                baseline.getTag(BaselineTIFFTagSet.TAG_X_RESOLUTION), TIFFTag.TIFF_RATIONAL, 1, new long[][] {{300, 1}
+                }));
+        ifd.addTIFFField(new TIFFField(
+                baseline.getTag(BaselineTIFFTagSet.TAG_IMAGE_DESCRIPTION), TIFFTag.TIFF_ASCII, 2, new String[] {
+                    "first", "second"
+                }));
+        ifd.addTIFFField(new TIFFField(
+                baseline.getTag(BaselineTIFFTagSet.TAG_SOFTWARE), TIFFTag.TIFF_ASCII, 1, new String[] {"ab"}));
+
+        if (withExif) {
+            TIFFIFD exif = new TIFFIFD(Collections.singletonList(EXIFTIFFTagSet.getInstance()));
+            exif.addTIFFField(new TIFFField(
+                    EXIFTIFFTagSet.getInstance().getTag(EXIFTIFFTagSet.TAG_EXPOSURE_TIME),
+                    TIFFTag.TIFF_RATIONAL,
+                    1,
+                    new long[][] {{1, 250}}));
+            ifd.addTIFFField(new TIFFField(
+                    EXIFParentTIFFTagSet.getInstance().getTag(EXIFParentTIFFTagSet.TAG_EXIF_IFD_POINTER),
+                    TIFFTag.TIFF_IFD_POINTER,
+                    1,
+                    exif));
+        }
+
+        TIFFTag privateTag = new TIFFTag("Private", PRIVATE_TAG, 1 << TIFFTag.TIFF_DOUBLE);
+        ifd.addTIFFField(new TIFFField(privateTag, TIFFTag.TIFF_DOUBLE, DOUBLES.length, DOUBLES));
+        return ifd;
+    }
+
+    private static byte[] write(TIFFIFD ifd, ByteOrder order, boolean isBTIFF) throws IOException {
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        try (ImageOutputStream os = new MemoryCacheImageOutputStream(bos)) {
+            os.setByteOrder(order);
+            ifd.writeToStream(os, isBTIFF);
+        }
+        return bos.toByteArray();
+    }
+
+    private static TIFFIFD read(byte[] bytes, ByteOrder order, boolean isBTIFF) throws IOException {
+        ImageInputStream stream = new MemoryCacheImageInputStream(new ByteArrayInputStream(bytes));
+        stream.setByteOrder(order);
+        TIFFIFD ifd = new TIFFIFD(getTagSets());
+        ifd.initialize(stream, false, isBTIFF);
+        // the stream is left at the end of the entry table
+        assertEquals(ifd.getLastPosition(), stream.getStreamPosition());
+        return ifd;
+    }
+
+    @Test
+    public void testRoundTrip() throws IOException {
+        for (ByteOrder order : new ByteOrder[] {ByteOrder.BIG_ENDIAN, ByteOrder.LITTLE_ENDIAN}) {
+            for (boolean isBTIFF : new boolean[] {false, true}) {
+                // the EXIF pointer is a 4 bytes IFD_POINTER, only meant for classic TIFF
+                byte[] bytes = write(createIFD(!isBTIFF), order, isBTIFF);
+                TIFFIFD ifd = read(bytes, order, isBTIFF);
+
+                assertEquals(
+                        512,
+                        ifd.getTIFFField(BaselineTIFFTagSet.TAG_IMAGE_WIDTH).getAsInt(0));
+                assertArrayEquals(
+                        new int[] {8, 16, 8},
+                        ifd.getTIFFField(BaselineTIFFTagSet.TAG_BITS_PER_SAMPLE).getAsInts());
+                TIFFField offsets = ifd.getTIFFField(BaselineTIFFTagSet.TAG_STRIP_OFFSETS);
+                assertArrayEquals(OFFSETS, offsets.getAsLongs());
+                assertArrayEquals(
+                        new long[] {300, 1},
+                        ifd.getTIFFField(BaselineTIFFTagSet.TAG_X_RESOLUTION).getAsRational(0));
+                TIFFField description = ifd.getTIFFField(BaselineTIFFTagSet.TAG_IMAGE_DESCRIPTION);
+                assertEquals(2, description.getCount());
+                assertEquals("first", description.getAsString(0));
+                assertEquals("second", description.getAsString(1));
+                assertEquals(
+                        "ab", ifd.getTIFFField(BaselineTIFFTagSet.TAG_SOFTWARE).getAsString(0));
+                assertArrayEquals(DOUBLES, ifd.getTIFFField(PRIVATE_TAG).getAsDoubles(), 0d);
+
+                if (!isBTIFF) {
+                    TIFFIFD exif = (TIFFIFD) ifd.getTIFFField(EXIFParentTIFFTagSet.TAG_EXIF_IFD_POINTER)
+                            .getData();
+                    assertArrayEquals(
+                            new long[] {1, 250},
+                            exif.getTIFFField(EXIFTIFFTagSet.TAG_EXPOSURE_TIME).getAsRational(0));
+                }
+
+                // the recorded position points to the offsets values
+                ImageInputStream stream = new MemoryCacheImageInputStream(new ByteArrayInputStream(bytes));
+                stream.setByteOrder(order);
+                stream.seek(ifd.getStripOrTileOffsetsPosition());
+                for (long offset : OFFSETS) {
+                    assertEquals(offset, stream.readUnsignedInt());
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testTruncatedValues() throws IOException {
+        // the private tag values are the last ones written, cut them away
+        byte[] bytes = write(createIFD(false), ByteOrder.BIG_ENDIAN, false);
+        byte[] truncated = Arrays.copyOf(bytes, bytes.length - 4);
+        try {
+            read(truncated, ByteOrder.BIG_ENDIAN, false);
+            fail("Expected an EOFException for the truncated private tag");
+        } catch (EOFException e) {
+            // expected
+        }
+
+        // without the private tag, the truncated baseline values are skipped instead
+        TIFFIFD ifd = createIFD(false);
+        ifd.removeTIFFField(PRIVATE_TAG);
+        bytes = write(ifd, ByteOrder.BIG_ENDIAN, false);
+        truncated = Arrays.copyOf(bytes, bytes.length - 4);
+        ifd = read(truncated, ByteOrder.BIG_ENDIAN, false);
+        assertNotNull(ifd.getTIFFField(BaselineTIFFTagSet.TAG_STRIP_OFFSETS));
+        assertEquals(512, ifd.getTIFFField(BaselineTIFFTagSet.TAG_IMAGE_WIDTH).getAsInt(0));
+    }
+}
@@ -0,0 +1,83 @@
+/*
+ *    ImageI/O-Ext - OpenSource Java Image translation Library
+ *    http://www.geo-solutions.it/
+ *    (C) 2026, GeoSolutions
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    either version 3 of the License, or (at your option) any later version.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package it.geosolutions.imageio.tiff;
+
+import static org.junit.Assert.assertEquals;
+
+import it.geosolutions.imageio.plugins.tiff.TIFFTag;
+import it.geosolutions.imageioimpl.plugins.tiff.TIFFLazyData;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.MemoryCacheImageInputStream;
+import org.junit.Test;
+
+public class TIFFLazyDataTest {
+
+    private static final int COUNT = 5000;
+
+    private static final int START = 100;
+
+    private ImageInputStream createStream(ByteOrder order, boolean long8) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(START + COUNT * 8).order(order);
+        buffer.position(START);
+        for (int i = 0; i < COUNT; i++) {
+            if (long8) {
+                buffer.putLong(0x100000000L + i * 3L);
+            } else {
+                buffer.putInt(0x80000000 + i * 3);
+            }
+        }
+        ImageInputStream stream = new MemoryCacheImageInputStream(new ByteArrayInputStream(buffer.array()));
+        stream.setByteOrder(order);
+        stream.seek(START);
+        return stream;
+    }
+
+    @Test
+    public void testLazyLong() throws IOException {
+        for (ByteOrder order : new ByteOrder[] {ByteOrder.BIG_ENDIAN, ByteOrder.LITTLE_ENDIAN}) {
+            ImageInputStream stream = createStream(order, false);
+            TIFFLazyData data = new TIFFLazyData(stream, TIFFTag.TIFF_LAZY_LONG, COUNT);
+            // values are unsigned, and span multiple blocks
+            for (int i = COUNT - 1; i >= 0; i -= 7) {
+                assertEquals(0x80000000L + i * 3, data.getAsLong(i));
+            }
+            assertEquals(0x80000000L, data.getAsLong(0));
+            // the stream position is preserved
+            assertEquals(START, stream.getStreamPosition());
+        }
+    }
+
+    @Test
+    public void testLazyLong8() throws IOException {
+        for (ByteOrder order : new ByteOrder[] {ByteOrder.BIG_ENDIAN, ByteOrder.LITTLE_ENDIAN}) {
+            ImageInputStream stream = createStream(order, true);
+            TIFFLazyData data = new TIFFLazyData(stream, TIFFTag.TIFF_LAZY_LONG8, COUNT);
+            for (int i = 0; i < COUNT; i += 11) {
+                assertEquals(0x100000000L + i * 3L, data.getAsLong8(i));
+            }
+            assertEquals(0x100000000L + (COUNT - 1) * 3L, data.getAsLong8(COUNT - 1));
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testIndexOutOfRange() throws IOException {
+        new TIFFLazyData(createStream(ByteOrder.BIG_ENDIAN, false), TIFFTag.TIFF_LAZY_LONG, COUNT).getAsLong(COUNT);
+    }
+}
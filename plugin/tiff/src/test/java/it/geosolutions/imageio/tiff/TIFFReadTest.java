@@ -16,12 +16,18 @@
 package it.geosolutions.imageio.tiff;
 
 import it.geosolutions.imageio.core.CoreCommonImageMetadata;
+import it.geosolutions.imageio.core.ExtCaches;
 import it.geosolutions.imageio.plugins.tiff.BaselineTIFFTagSet;
 import it.geosolutions.imageio.plugins.tiff.PrivateTIFFTagSet;
+import it.geosolutions.imageio.plugins.tiff.TIFFImageReadParam;
+import it.geosolutions.imageio.plugins.tiff.TIFFImageWriteParam;
 import it.geosolutions.imageio.stream.input.FileImageInputStreamExtImpl;
 import it.geosolutions.imageio.utilities.ImageIOUtilities;
 import it.geosolutions.imageioimpl.plugins.tiff.TIFFImageReader;
 import it.geosolutions.imageioimpl.plugins.tiff.TIFFImageReaderSpi;
+import it.geosolutions.imageioimpl.plugins.tiff.TIFFImageWriter;
+import it.geosolutions.imageioimpl.plugins.tiff.TIFFImageWriterSpi;
+import it.geosolutions.imageioimpl.plugins.tiff.TIFFMetadataCache;
 import it.geosolutions.imageioimpl.plugins.tiff.TIFFStreamMetadata.MetadataNode;
 import it.geosolutions.resources.TestData;
 import java.awt.Rectangle;
@@ -30,17 +36,30 @@ import java.awt.image.ColorModel;
 import java.awt.image.DataBuffer;
 import java.awt.image.RenderedImage;
 import java.awt.image.SampleModel;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.IOException;
 import java.lang.reflect.Array;
 import java.nio.ByteOrder;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.logging.Level;
 import java.util.logging.Logger;
+import javax.imageio.IIOImage;
 import javax.imageio.ImageReadParam;
+import javax.imageio.ImageWriteParam;
 import javax.imageio.metadata.IIOMetadata;
 import javax.imageio.metadata.IIOMetadataNode;
 import javax.imageio.stream.FileImageInputStream;
+import javax.imageio.stream.FileImageOutputStream;
 import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.ImageOutputStream;
+import javax.imageio.stream.MemoryCacheImageInputStream;
+import javax.imageio.stream.MemoryCacheImageOutputStream;
 import org.eclipse.imagen.PlanarImage;
 import org.eclipse.imagen.media.imageread.ImageReadDescriptor;
 import org.junit.Assert;
@@ -797,6 +816,356 @@ public class TIFFReadTest extends Assert {
         assertImagesEqual(readTiff("sampleRGBA.tif"), readTiff("zstd_rgba.tif"));
     }
 
+    @Test
+    public void readLERCOn32BitsFloat() throws IOException {
+        // This image has been created from test.tif converted to Float32, encoding 16x16 tiles with libLerc 4,
+        // lossless
+        assertImagesEqual(readTiff("test.tif"), readTiff("lerc.tif"));
+    }
+
+    @Test
+    public void readLERCOn16BitsInteger() throws IOException {
+        // This image has been created from test.tif converted to UInt16, encoding 16x16 tiles with libLerc 4,
+        // lossless
+        assertImagesEqual(readTiff("test.tif"), readTiff("lerc_uint16.tif"));
+    }
+
+    @Test
+    public void readLERCDeflateOnRGB() throws IOException {
+        // This image has been created from sampleRGBA.tif, encoding the 4 bands pixels with libLerc 4, and
+        // compressing the LERC blob with Deflate
+        assertImagesEqual(readTiff("sampleRGBA.tif"), readTiff("lerc_deflate_rgba.tif"));
+    }
+
+    @Test
+    public void readLERCWithMask() throws IOException {
+        // This image has been created from test.tif converted to Float32, with NaN on the first 3 columns, encoding
+        // 16x16 tiles with libLerc 4, max error 0.5
+        BufferedImage expected = readTiff("test.tif");
+        BufferedImage actual = readTiff("lerc_nan.tif");
+        for (int y = 0; y < expected.getHeight(); y++) {
+            for (int x = 0; x < expected.getWidth(); x++) {
+                float value = actual.getRaster().getSampleFloat(x, y, 0);
+                if (x < 3) {
+                    assertTrue(Float.isNaN(value));
+                } else {
+                    assertEquals(expected.getRaster().getSample(x, y, 0), value, 0.5);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void readWebPLossyWithAlpha() throws IOException {
+        // This image has been created encoding 32x32 RGBA tiles with libwebp 1.2.4, lossy with quality 75, the
+        // reference holding the pixels decoded by libwebp
+        assertImagesEqual(readTiff("webp_lossy_rgba_ref.tif"), readTiff("webp_lossy_rgba.tif"));
+    }
+
+    @Test
+    public void readWebPLossless() throws IOException {
+        // This image has been created encoding 20 rows RGB strips with libwebp 1.2.4, lossless
+        assertImagesEqual(readTiff("webp_lossless_ref.tif"), readTiff("webp_lossless.tif"));
+    }
+
+    @Test
+    public void readParallel() throws IOException {
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            for (String name : new String[] {"zstd_p2.tif", "lzwtest.tif", "sampleRGBA_DEFLATE_p2.tif"}) {
+                File file = TestData.file(this, name);
+                TIFFImageReadParam sequential = new TIFFImageReadParam();
+                sequential.setDecodingParallelism(0);
+                TIFFImageReadParam parallel = new TIFFImageReadParam();
+                parallel.setDecodingParallelism(4);
+                parallel.setDecodingExecutor(executor);
+                assertImagesEqual(readTiff(file, sequential), readTiff(file, parallel));
+
+                // subsampled region, not aligned with the tiles
+                for (TIFFImageReadParam param : new TIFFImageReadParam[] {sequential, parallel}) {
+                    param.setSourceRegion(new Rectangle(3, 5, 50, 40));
+                    param.setSourceSubsampling(3, 2, 1, 1);
+                }
+                assertImagesEqual(readTiff(file, sequential), readTiff(file, parallel));
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test(timeout = 60000)
+    public void readParallelTruncated() throws IOException {
+        BufferedImage image = new BufferedImage(256, 256, BufferedImage.TYPE_3BYTE_BGR);
+        for (int y = 0; y < 256; y++) {
+            for (int x = 0; x < 256; x++) {
+                image.setRGB(x, y, x * 7919 + y * 104729 + x * y);
+            }
+        }
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            for (boolean tiled : new boolean[] {false, true}) {
+                // multi strip LZW and tiled Deflate, missing the last part of the image data
+                TIFFImageWriteParam writeParam = new TIFFImageWriteParam(Locale.getDefault());
+                writeParam.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+                writeParam.setCompressionType(tiled ? "Deflate" : "LZW");
+                if (tiled) {
+                    writeParam.setTilingMode(ImageWriteParam.MODE_EXPLICIT);
+                    writeParam.setTiling(64, 64, 0, 0);
+                }
+                ByteArrayOutputStream bos = new ByteArrayOutputStream();
+                TIFFImageWriter writer = (TIFFImageWriter) new TIFFImageWriterSpi().createWriterInstance();
+                try (ImageOutputStream os = new MemoryCacheImageOutputStream(bos)) {
+                    writer.setOutput(os);
+                    writer.write(null, new IIOImage(image, null, null), writeParam);
+                } finally {
+                    writer.dispose();
+                }
+                byte[] bytes = bos.toByteArray();
+                byte[] truncated = Arrays.copyOf(bytes, bytes.length * 2 / 3);
+
+                for (int parallelism : new int[] {0, 4}) {
+                    TIFFImageReadParam param = new TIFFImageReadParam();
+                    param.setDecodingParallelism(parallelism);
+                    param.setDecodingExecutor(executor);
+                    TIFFImageReader reader = (TIFFImageReader) new TIFFImageReaderSpi().createReaderInstance();
+                    try (ImageInputStream is = new MemoryCacheImageInputStream(new ByteArrayInputStream(truncated))) {
+                        reader.setInput(is);
+                        reader.read(0, param);
+                        Assert.fail("Expected a failure reading a truncated file, parallelism " + parallelism);
+                    } catch (IOException e) {
+                        // expected
+                    } finally {
+                        reader.dispose();
+                    }
+                }
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void readWithOverviewSelection() throws IOException {
+        // a pyramid whose nearest neighbour overviews pick the top left pixel of each block
+        BufferedImage image = new BufferedImage(600, 500, BufferedImage.TYPE_BYTE_GRAY);
+        for (int y = 0; y < 500; y++) {
+            for (int x = 0; x < 600; x++) {
+                image.getRaster().setSample(x, y, 0, (x * 7 + y * 13 + x * y) & 0xFF);
+            }
+        }
+        File pyramid = TestData.temp(this, "pyramid.tif", true);
+        TIFFImageWriter writer = (TIFFImageWriter) new TIFFImageWriterSpi().createWriterInstance();
+        TIFFImageWriteParam writeParam = new TIFFImageWriteParam(Locale.getDefault());
+        writeParam.setTilingMode(ImageWriteParam.MODE_EXPLICIT);
+        writeParam.setTiling(128, 128, 0, 0);
+        writeParam.setOverviewResampling(TIFFImageWriteParam.OverviewResampling.NEAREST);
+        try (ImageOutputStream os = new FileImageOutputStream(pyramid)) {
+            writer.setOutput(os);
+            writer.write(null, new IIOImage(image, null, null), writeParam);
+        } finally {
+            writer.dispose();
+        }
+
+        TIFFImageReader reader = (TIFFImageReader) new TIFFImageReaderSpi().createReaderInstance();
+        try (ImageInputStream is = new FileImageInputStreamExtImpl(pyramid)) {
+            reader.setInput(is);
+            for (int subsampling : new int[] {2, 4, 8}) {
+                TIFFImageReadParam param = new TIFFImageReadParam();
+                param.setSourceRegion(new Rectangle(40, 16, 480, 400));
+                param.setSourceSubsampling(subsampling, subsampling, 0, 0);
+                BufferedImage expected = reader.read(0, param);
+                param.setOverviewSelection(true);
+                assertImagesEqual(expected, reader.read(0, param));
+            }
+            // no overview matches a subsampling of 3, the half resolution one is read as is
+            TIFFImageReadParam param = new TIFFImageReadParam();
+            param.setSourceRegion(new Rectangle(40, 16, 480, 400));
+            param.setSourceSubsampling(3, 3, 0, 0);
+            param.setOverviewSelection(true);
+            BufferedImage subsampled = reader.read(0, param);
+            assertEquals(240, subsampled.getWidth());
+            assertEquals(200, subsampled.getHeight());
+        } finally {
+            reader.dispose();
+        }
+
+        // internal masks are read from the mask overviews
+        reader = (TIFFImageReader) new TIFFImageReaderSpi().createReaderInstance();
+        try (ImageInputStream is = new FileImageInputStreamExtImpl(TestData.file(this, "masks.tif"))) {
+            reader.setInput(is);
+            TIFFImageReadParam param = new TIFFImageReadParam();
+            param.setSourceSubsampling(2, 2, 0, 0);
+            param.setOverviewSelection(true);
+            assertImagesEqual(reader.read(2), reader.read(0, param));
+            assertImagesEqual(reader.read(6), reader.read(1, param));
+        } finally {
+            reader.dispose();
+        }
+
+        // external overviews
+        File overviews = TestData.file(this, "external2.tif.msk.ovr");
+        reader = (TIFFImageReader) new TIFFImageReaderSpi().createReaderInstance();
+        BufferedImage expected;
+        try (ImageInputStream is = new FileImageInputStreamExtImpl(overviews)) {
+            reader.setInput(is);
+            expected = reader.read(1);
+        } finally {
+            reader.dispose();
+        }
+        reader = (TIFFImageReader) new TIFFImageReaderSpi().createReaderInstance();
+        try (ImageInputStream is = new FileImageInputStreamExtImpl(TestData.file(this, "external2.tif.msk"))) {
+            reader.setInput(is);
+            TIFFImageReadParam param = new TIFFImageReadParam();
+            param.setSourceSubsampling(4, 4, 0, 0);
+            param.setOverviewSelection(true);
+            assertImagesEqual(expected, reader.read(0, param));
+        } finally {
+            reader.dispose();
+        }
+    }
+
+    @Test
+    public void readSparseSubsampling() throws IOException {
+        BufferedImage image = new BufferedImage(700, 600, BufferedImage.TYPE_BYTE_GRAY);
+        for (int y = 0; y < 600; y++) {
+            for (int x = 0; x < 700; x++) {
+                image.getRaster().setSample(x, y, 0, (x * 7 + y * 13 + x * y) & 0xFF);
+            }
+        }
+        for (boolean tiled : new boolean[] {false, true}) {
+            File file = TestData.temp(this, "sparse.tif", true);
+            TIFFImageWriter writer = (TIFFImageWriter) new TIFFImageWriterSpi().createWriterInstance();
+            TIFFImageWriteParam writeParam = new TIFFImageWriteParam(Locale.getDefault());
+            if (tiled) {
+                writeParam.setTilingMode(ImageWriteParam.MODE_EXPLICIT);
+                writeParam.setTiling(128, 128, 0, 0);
+            }
+            try (ImageOutputStream os = new FileImageOutputStream(file)) {
+                writer.setOutput(os);
+                writer.write(null, new IIOImage(image, null, null), writeParam);
+            } finally {
+                writer.dispose();
+            }
+
+            for (int subsampling : new int[] {3, 50, 300}) {
+                AtomicLong bytesRead = new AtomicLong();
+                TIFFImageReader reader = (TIFFImageReader) new TIFFImageReaderSpi().createReaderInstance();
+                try (ImageInputStream is = new FileImageInputStreamExtImpl(file) {
+                    @Override
+                    public int read() throws IOException {
+                        bytesRead.incrementAndGet();
+                        return super.read();
+                    }
+
+                    @Override
+                    public int read(byte[] b, int off, int len) throws IOException {
+                        int read = super.read(b, off, len);
+                        bytesRead.addAndGet(Math.max(read, 0));
+                        return read;
+                    }
+                }) {
+                    reader.setInput(is);
+                    TIFFImageReadParam param = new TIFFImageReadParam();
+                    param.setSourceRegion(new Rectangle(5, 3, 690, 590));
+                    param.setSourceSubsampling(subsampling, subsampling, 1, 2);
+                    BufferedImage subsampled = reader.read(0, param);
+                    int width = (690 - 1 + subsampling - 1) / subsampling;
+                    int height = (590 - 2 + subsampling - 1) / subsampling;
+                    assertEquals(width, subsampled.getWidth());
+                    assertEquals(height, subsampled.getHeight());
+                    for (int y = 0; y < height; y++) {
+                        for (int x = 0; x < width; x++) {
+                            assertEquals(
+                                    image.getRaster().getSample(6 + x * subsampling, 5 + y * subsampling, 0),
+                                    subsampled.getRaster().getSample(x, y, 0));
+                        }
+                    }
+                }
+                if (subsampling == 300) {
+                    // only the sampled rows of the strips, or the sampled tiles, are read
+                    assertTrue(bytesRead.get() < (tiled ? 128 * 128 * 6 : 700 * 6) + 4096);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void readWithMetadataCache() throws IOException {
+        TIFFMetadataCache.setEnabled(true);
+        try {
+            File file = TestData.file(this, "masks.tif");
+            int numImages;
+            BufferedImage[] images;
+            TIFFImageReader reader = (TIFFImageReader) new TIFFImageReaderSpi().createReaderInstance();
+            try (ImageInputStream is = new FileImageInputStreamExtImpl(file)) {
+                reader.setInput(is);
+                numImages = reader.getNumImages(true);
+                images = new BufferedImage[numImages];
+                for (int i = 0; i < numImages; i++) {
+                    images[i] = reader.read(i);
+                }
+            } finally {
+                reader.dispose();
+            }
+            assertEquals(1, TIFFMetadataCache.size());
+
+            // another reader on the same file reads nothing but the pixels
+            AtomicLong bytesRead = new AtomicLong();
+            reader = (TIFFImageReader) new TIFFImageReaderSpi().createReaderInstance();
+            try (ImageInputStream is = new FileImageInputStreamExtImpl(file) {
+                @Override
+                public int read() throws IOException {
+                    bytesRead.incrementAndGet();
+                    return super.read();
+                }
+
+                @Override
+                public int read(byte[] b, int off, int len) throws IOException {
+                    int read = super.read(b, off, len);
+                    bytesRead.addAndGet(Math.max(read, 0));
+                    return read;
+                }
+            }) {
+                reader.setInput(is);
+                assertEquals(numImages, reader.getNumImages(true));
+                for (int i = 0; i < numImages; i++) {
+                    assertEquals(images[i].getWidth(), reader.getWidth(i));
+                    assertEquals(images[i].getHeight(), reader.getHeight(i));
+                    assertNotNull(reader.getImageMetadata(i));
+                    assertNotNull(reader.getImageTypes(i).next());
+                }
+                assertNotNull(reader.getStreamMetadata());
+                assertEquals(0, bytesRead.get());
+                for (int i = 0; i < numImages; i++) {
+                    assertImagesEqual(images[i], reader.read(i));
+                }
+            } finally {
+                reader.dispose();
+            }
+
+            // scales and offsets are restored along with the other image properties
+            File scaled = TestData.file(this, "scaleOffset.tif");
+            CoreCommonImageMetadata[] metadata = new CoreCommonImageMetadata[2];
+            for (int i = 0; i < 2; i++) {
+                reader = (TIFFImageReader) new TIFFImageReaderSpi().createReaderInstance();
+                try (ImageInputStream is = new FileImageInputStreamExtImpl(scaled)) {
+                    reader.setInput(is);
+                    metadata[i] = (CoreCommonImageMetadata) reader.getImageMetadata(0);
+                } finally {
+                    reader.dispose();
+                }
+            }
+            assertArrayEquals(metadata[0].getScales(), metadata[1].getScales());
+            assertArrayEquals(metadata[0].getOffsets(), metadata[1].getOffsets());
+            assertEquals(2, TIFFMetadataCache.size());
+
+            ExtCaches.clean();
+            assertEquals(0, TIFFMetadataCache.size());
+        } finally {
+            TIFFMetadataCache.setEnabled(false);
+        }
+    }
+
     static void assertImagesEqual(BufferedImage expected, BufferedImage actual) {
         assertEquals("Widths are different", expected.getWidth(), actual.getWidth());
         assertEquals("Heights are different", expected.getHeight(), actual.getHeight());
@@ -908,13 +1277,17 @@ public class TIFFReadTest extends Assert {
     }
 
     static BufferedImage readTiff(File file) throws IOException {
+        return readTiff(file, null);
+    }
+
+    static BufferedImage readTiff(File file, TIFFImageReadParam param) throws IOException {
 
         final TIFFImageReader reader = (TIFFImageReader) new TIFFImageReaderSpi().createReaderInstance();
 
         FileImageInputStream inputStream = new FileImageInputStream(file);
         try {
             reader.setInput(inputStream);
-            BufferedImage image = reader.read(0);
+            BufferedImage image = reader.read(0, param);
             image.flush();
             return image;
         } finally {
@@ -34,6 +34,12 @@ import it.geosolutions.imageio.compression.libdeflate.LibDeflateCompressor;
 import it.geosolutions.imageio.compression.libdeflate.LibDeflateCompressorSpi;
 import it.geosolutions.imageio.compression.libdeflate.LibDeflateDecompressor;
 import it.geosolutions.imageio.compression.libdeflate.LibDeflateDecompressorSpi;
+import it.geosolutions.imageio.compression.lzw.LZWCompressor;
+import it.geosolutions.imageio.compression.lzw.LZWDecompressor;
+import it.geosolutions.imageio.compression.packbits.PackBitsCompressor;
+import it.geosolutions.imageio.compression.packbits.PackBitsDecompressor;
+import it.geosolutions.imageio.compression.webp.WebPCompressor;
+import it.geosolutions.imageio.compression.webp.WebPDecompressor;
 import it.geosolutions.imageio.compression.zipdeflate.ZipDeflateCompressor;
 import it.geosolutions.imageio.compression.zipdeflate.ZipDeflateDecompressor;
 import it.geosolutions.imageio.plugins.tiff.TIFFImageWriteParam;
@@ -108,6 +114,19 @@ public class TIFFSPICompressionTest extends Assert {
         assertEquals(decompressor.getClass(), decompressorClass);
     }
 
+    @Test
+    public void testLookupByCompressionType() {
+        assertTrue(CompressionFinder.getDecompressor(CompressionType.WEBP) instanceof WebPDecompressor);
+        assertTrue(CompressionFinder.getCompressor(75, CompressionType.WEBP) instanceof WebPCompressor);
+        // no deflate compressor supports that level
+        assertNull(CompressionFinder.getCompressor(75, CompressionType.DEFLATE));
+        assertFalse(CompressionFinder.getDecompressor(CompressionType.DEFLATE) instanceof WebPDecompressor);
+        assertTrue(CompressionFinder.getDecompressor(CompressionType.LZW) instanceof LZWDecompressor);
+        assertTrue(CompressionFinder.getCompressor(1, CompressionType.LZW) instanceof LZWCompressor);
+        assertTrue(CompressionFinder.getDecompressor(CompressionType.PACKBITS) instanceof PackBitsDecompressor);
+        assertTrue(CompressionFinder.getCompressor(1, CompressionType.PACKBITS) instanceof PackBitsCompressor);
+    }
+
     @Test
     public void testReadWrite() throws IOException {
         TIFFImageReaderSpi readerSpi = new TIFFImageReaderSpi();
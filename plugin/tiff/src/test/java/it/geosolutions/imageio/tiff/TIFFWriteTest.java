@@ -15,8 +15,11 @@
  */
 package it.geosolutions.imageio.tiff;
 
+import it.geosolutions.imageio.plugins.tiff.BaselineTIFFTagSet;
+import it.geosolutions.imageio.plugins.tiff.TIFFField;
 import it.geosolutions.imageio.plugins.tiff.TIFFImageWriteParam;
 import it.geosolutions.imageio.utilities.ImageIOUtilities;
+import it.geosolutions.imageioimpl.plugins.tiff.TIFFImageMetadata;
 import it.geosolutions.imageioimpl.plugins.tiff.TIFFImageReader;
 import it.geosolutions.imageioimpl.plugins.tiff.TIFFImageReaderSpi;
 import it.geosolutions.imageioimpl.plugins.tiff.TIFFImageWriter;
@@ -27,8 +30,14 @@ import java.awt.image.BufferedImage;
 import java.awt.image.RenderedImage;
 import java.io.File;
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
 import java.util.Locale;
 import java.util.logging.Logger;
+import javax.imageio.IIOException;
 import javax.imageio.IIOImage;
 import javax.imageio.ImageReadParam;
 import javax.imageio.ImageTypeSpecifier;
@@ -368,6 +377,356 @@ public class TIFFWriteTest extends Assert {
         TIFFReadTest.assertImagesEqual(image, TIFFReadTest.readTiff(outputFile));
     }
 
+    @Test
+    public void writeLERC() throws IOException {
+        final File inputFile = TestData.file(this, "lerc.tif");
+        BufferedImage image = TIFFReadTest.readTiff(inputFile);
+        for (String compressionType : new String[] {"LERC", "LERC_DEFLATE", "LERC_ZSTD"}) {
+            final File outputFile = TestData.temp(this, "testw.tif", true);
+            final TIFFImageWriter writer = (TIFFImageWriter) new TIFFImageWriterSpi().createWriterInstance();
+            final ImageWriteParam writeParam = new TIFFImageWriteParam(Locale.getDefault());
+            writeParam.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+            writeParam.setCompressionType(compressionType);
+            writeParam.setTilingMode(ImageWriteParam.MODE_EXPLICIT);
+            writeParam.setTiling(16, 16, 0, 0);
+            writer.setOutput(new FileImageOutputStream(outputFile));
+            writer.write(null, new IIOImage(image, null, null), writeParam);
+            writer.dispose();
+            TIFFReadTest.assertImagesEqual(image, TIFFReadTest.readTiff(outputFile));
+        }
+    }
+
+    @Test
+    public void writeLERCWithMaxError() throws IOException {
+        final File inputFile = TestData.file(this, "lerc.tif");
+        final File outputFile = TestData.temp(this, "testw.tif", true);
+        BufferedImage image = TIFFReadTest.readTiff(inputFile);
+        final TIFFImageWriter writer = (TIFFImageWriter) new TIFFImageWriterSpi().createWriterInstance();
+        final TIFFImageWriteParam writeParam = new TIFFImageWriteParam(Locale.getDefault());
+        writeParam.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+        writeParam.setCompressionType("LERC");
+        writeParam.setLercMaxZError(2);
+        assertFalse(writeParam.isCompressionLossless());
+        writer.setOutput(new FileImageOutputStream(outputFile));
+        writer.write(null, new IIOImage(image, null, null), writeParam);
+        writer.dispose();
+
+        BufferedImage written = TIFFReadTest.readTiff(outputFile);
+        for (int y = 0; y < image.getHeight(); y++) {
+            for (int x = 0; x < image.getWidth(); x++) {
+                assertEquals(
+                        image.getRaster().getSampleFloat(x, y, 0),
+                        written.getRaster().getSampleFloat(x, y, 0),
+                        2.0001);
+            }
+        }
+    }
+
+    @Test
+    public void writeWebP() throws IOException {
+        for (String inputName : new String[] {"sampleRGBA.tif", "webp_lossless_ref.tif"}) {
+            BufferedImage image = TIFFReadTest.readTiff(TestData.file(this, inputName));
+            final File outputFile = TestData.temp(this, "testw.tif", true);
+            final TIFFImageWriter writer = (TIFFImageWriter) new TIFFImageWriterSpi().createWriterInstance();
+            final ImageWriteParam writeParam = new TIFFImageWriteParam(Locale.getDefault());
+            writeParam.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+            writeParam.setCompressionType("WebP");
+            writeParam.setCompressionQuality(0.5f);
+            writeParam.setTilingMode(ImageWriteParam.MODE_EXPLICIT);
+            writeParam.setTiling(16, 16, 0, 0);
+            writer.setOutput(new FileImageOutputStream(outputFile));
+            writer.write(null, new IIOImage(image, null, null), writeParam);
+            writer.dispose();
+            // the built-in compressor is lossless
+            TIFFReadTest.assertImagesEqual(image, TIFFReadTest.readTiff(outputFile));
+        }
+    }
+
+    @Test
+    public void writeLZWAndPackBits() throws IOException {
+        for (String compression : new String[] {"LZW", "PackBits"}) {
+            for (String inputName : new String[] {"sampleRGBA.tif", "test.tif"}) {
+                BufferedImage image = TIFFReadTest.readTiff(TestData.file(this, inputName));
+                for (boolean tiled : new boolean[] {false, true}) {
+                    final File outputFile = TestData.temp(this, "testw.tif", true);
+                    final TIFFImageWriter writer = (TIFFImageWriter) new TIFFImageWriterSpi().createWriterInstance();
+                    final ImageWriteParam writeParam = new TIFFImageWriteParam(Locale.getDefault());
+                    writeParam.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+                    writeParam.setCompressionType(compression);
+                    if (tiled) {
+                        writeParam.setTilingMode(ImageWriteParam.MODE_EXPLICIT);
+                        writeParam.setTiling(32, 16, 0, 0);
+                    }
+                    writer.setOutput(new FileImageOutputStream(outputFile));
+                    writer.write(null, new IIOImage(image, null, null), writeParam);
+                    writer.dispose();
+                    TIFFReadTest.assertImagesEqual(image, TIFFReadTest.readTiff(outputFile));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void writeInParallel() throws IOException {
+        BufferedImage image = TIFFReadTest.readTiff(TestData.file(this, "sampleRGBA.tif"));
+        for (String compression : new String[] {"Deflate", "LZW", "ZSTD"}) {
+            for (boolean tiled : new boolean[] {false, true}) {
+                byte[] serial = null;
+                for (int parallelism : new int[] {1, 4}) {
+                    final File outputFile = TestData.temp(this, "testw.tif", true);
+                    final TIFFImageWriter writer = (TIFFImageWriter) new TIFFImageWriterSpi().createWriterInstance();
+                    final TIFFImageWriteParam writeParam = new TIFFImageWriteParam(Locale.getDefault());
+                    writeParam.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+                    writeParam.setCompressionType(compression);
+                    if (tiled) {
+                        writeParam.setTilingMode(ImageWriteParam.MODE_EXPLICIT);
+                        writeParam.setTiling(32, 16, 0, 0);
+                    }
+                    writeParam.setEncodingParallelism(parallelism);
+                    writer.setOutput(new FileImageOutputStream(outputFile));
+                    writer.write(null, new IIOImage(image, null, null), writeParam);
+                    writer.dispose();
+                    TIFFReadTest.assertImagesEqual(image, TIFFReadTest.readTiff(outputFile));
+
+                    // tiles are written in order, the file must not depend on the parallelism
+                    byte[] bytes = Files.readAllBytes(outputFile.toPath());
+                    if (serial == null) {
+                        serial = bytes;
+                    } else {
+                        assertArrayEquals(serial, bytes);
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    public void writeCloudOptimized() throws IOException {
+        BufferedImage image = new BufferedImage(600, 500, BufferedImage.TYPE_3BYTE_BGR);
+        BufferedImage mask = new BufferedImage(600, 500, BufferedImage.TYPE_BYTE_BINARY);
+        for (int y = 0; y < 500; y++) {
+            for (int x = 0; x < 600; x++) {
+                image.getRaster().setPixel(x, y, new int[] {x & 0xFF, y & 0xFF, (x * y) & 0xFF});
+                mask.getRaster().setSample(x, y, 0, x < 400 ? 1 : 0);
+            }
+        }
+        for (boolean withMask : new boolean[] {false, true}) {
+            final File outputFile = TestData.temp(this, "testw.tif", true);
+            final TIFFImageWriter writer = (TIFFImageWriter) new TIFFImageWriterSpi().createWriterInstance();
+            final TIFFImageWriteParam writeParam = new TIFFImageWriteParam(Locale.getDefault());
+            writeParam.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+            writeParam.setCompressionType("Deflate");
+            writeParam.setTilingMode(ImageWriteParam.MODE_EXPLICIT);
+            writeParam.setTiling(256, 256, 0, 0);
+            writeParam.setCloudOptimized(true);
+            if (withMask) {
+                writeParam.setMask(mask);
+            }
+            writer.setOutput(new FileImageOutputStream(outputFile));
+            writer.write(null, new IIOImage(image, null, null), writeParam);
+            writer.dispose();
+
+            // the GDAL ghost area follows the header
+            byte[] bytes = Files.readAllBytes(outputFile.toPath());
+            assertTrue(
+                    new String(bytes, 8, 30, StandardCharsets.US_ASCII).startsWith("GDAL_STRUCTURAL_METADATA_SIZE="));
+
+            TIFFImageReader reader = (TIFFImageReader) new TIFFImageReaderSpi().createReaderInstance();
+            try (FileImageInputStream is = new FileImageInputStream(outputFile)) {
+                reader.setInput(is);
+                // full resolution and two overviews, halving the size until they fit in a tile
+                int step = withMask ? 2 : 1;
+                assertEquals(3 * step, reader.getNumImages(true));
+                TIFFReadTest.assertImagesEqual(image, reader.read(0));
+                long previousFirstOffset = Long.MAX_VALUE;
+                for (int i = 0; i < reader.getNumImages(false); i += step) {
+                    int level = i / step;
+                    assertEquals((600 + (1 << level) - 1) >> level, reader.getWidth(i));
+                    assertEquals((500 + (1 << level) - 1) >> level, reader.getHeight(i));
+                    TIFFImageMetadata metadata = (TIFFImageMetadata) reader.getImageMetadata(i);
+                    TIFFField subfileType = metadata.getTIFFField(BaselineTIFFTagSet.TAG_NEW_SUBFILE_TYPE);
+                    assertEquals(level > 0 ? 1 : 0, subfileType == null ? 0 : subfileType.getAsInt(0));
+
+                    // overviews data comes first, each tile preceded by its size and followed by its last 4 bytes
+                    long[][] tiles = getTileOffsetsAndByteCounts(bytes, i);
+                    long[] offsets = tiles[0];
+                    assertTrue(offsets[offsets.length - 1] < previousFirstOffset);
+                    previousFirstOffset = offsets[0];
+                    for (int t = 0; t < offsets.length; t++) {
+                        int offset = (int) offsets[t];
+                        int count = (int) tiles[1][t];
+                        assertEquals(
+                                count,
+                                ByteBuffer.wrap(bytes, offset - 4, 4)
+                                        .order(ByteOrder.LITTLE_ENDIAN)
+                                        .getInt());
+                        assertArrayEquals(
+                                Arrays.copyOfRange(bytes, offset + count - 4, offset + count),
+                                Arrays.copyOfRange(bytes, offset + count, offset + count + 4));
+                    }
+                }
+                if (withMask) {
+                    BufferedImage readMask = reader.read(1);
+                    assertEquals(1, readMask.getRaster().getSample(399, 0, 0));
+                    assertEquals(0, readMask.getRaster().getSample(400, 0, 0));
+                    TIFFImageMetadata metadata = (TIFFImageMetadata) reader.getImageMetadata(3);
+                    assertEquals(
+                            BaselineTIFFTagSet.NEW_SUBFILE_TYPE_TRANSPARENCY
+                                    | BaselineTIFFTagSet.NEW_SUBFILE_TYPE_REDUCED_RESOLUTION,
+                            metadata.getTIFFField(BaselineTIFFTagSet.TAG_NEW_SUBFILE_TYPE)
+                                    .getAsInt(0));
+                }
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    @Test
+    public void writeWithOverviews() throws IOException {
+        BufferedImage image = new BufferedImage(600, 500, BufferedImage.TYPE_BYTE_GRAY);
+        for (int y = 0; y < 500; y++) {
+            for (int x = 0; x < 600; x++) {
+                image.getRaster().setSample(x, y, 0, (x * 7 + y * 13 + x * y) & 0xFF);
+            }
+        }
+        for (boolean tiled : new boolean[] {false, true}) {
+            final File outputFile = TestData.temp(this, "testw.tif", true);
+            final TIFFImageWriter writer = (TIFFImageWriter) new TIFFImageWriterSpi().createWriterInstance();
+            final TIFFImageWriteParam writeParam = new TIFFImageWriteParam(Locale.getDefault());
+            writeParam.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+            writeParam.setCompressionType("Deflate");
+            if (tiled) {
+                writeParam.setTilingMode(ImageWriteParam.MODE_EXPLICIT);
+                writeParam.setTiling(128, 128, 0, 0);
+            }
+            writeParam.setOverviewResampling(TIFFImageWriteParam.OverviewResampling.AVERAGE);
+            writer.setOutput(new FileImageOutputStream(outputFile));
+            writer.write(null, new IIOImage(image, null, null), writeParam);
+            writer.dispose();
+
+            TIFFImageReader reader = (TIFFImageReader) new TIFFImageReaderSpi().createReaderInstance();
+            try (FileImageInputStream is = new FileImageInputStream(outputFile)) {
+                reader.setInput(is);
+                // halving the size until the overviews fit in a tile, or in 256x256 when striped
+                assertEquals(tiled ? 4 : 3, reader.getNumImages(true));
+                TIFFReadTest.assertImagesEqual(image, reader.read(0));
+                int[][] expected = new int[500][600];
+                for (int y = 0; y < 500; y++) {
+                    image.getRaster().getPixels(0, y, 600, 1, expected[y]);
+                }
+                for (int i = 1; i < reader.getNumImages(false); i++) {
+                    expected = averageBoxes(expected);
+                    assertEquals(expected[0].length, reader.getWidth(i));
+                    assertEquals(expected.length, reader.getHeight(i));
+                    assertEquals(tiled, reader.isImageTiled(i));
+                    TIFFImageMetadata metadata = (TIFFImageMetadata) reader.getImageMetadata(i);
+                    assertEquals(
+                            BaselineTIFFTagSet.NEW_SUBFILE_TYPE_REDUCED_RESOLUTION,
+                            metadata.getTIFFField(BaselineTIFFTagSet.TAG_NEW_SUBFILE_TYPE)
+                                    .getAsInt(0));
+                    BufferedImage overview = reader.read(i);
+                    for (int y = 0; y < expected.length; y++) {
+                        assertArrayEquals(
+                                expected[y], overview.getRaster().getPixels(0, y, expected[y].length, 1, (int[]) null));
+                    }
+                }
+            } finally {
+                reader.dispose();
+            }
+        }
+
+        // nearest neighbour overviews of a subsampled image pick the top left pixel of each block
+        final File outputFile = TestData.temp(this, "testw.tif", true);
+        final TIFFImageWriter writer = (TIFFImageWriter) new TIFFImageWriterSpi().createWriterInstance();
+        final TIFFImageWriteParam writeParam = new TIFFImageWriteParam(Locale.getDefault());
+        writeParam.setSourceSubsampling(2, 2, 0, 0);
+        writeParam.setOverviewResampling(TIFFImageWriteParam.OverviewResampling.NEAREST);
+        writeParam.setOverviewLevels(1);
+        writer.setOutput(new FileImageOutputStream(outputFile));
+        writer.write(null, new IIOImage(image, null, null), writeParam);
+        writer.dispose();
+
+        TIFFImageReader reader = (TIFFImageReader) new TIFFImageReaderSpi().createReaderInstance();
+        try (FileImageInputStream is = new FileImageInputStream(outputFile)) {
+            reader.setInput(is);
+            assertEquals(2, reader.getNumImages(true));
+            BufferedImage overview = reader.read(1);
+            assertEquals(150, overview.getWidth());
+            assertEquals(125, overview.getHeight());
+            for (int y = 0; y < 125; y++) {
+                for (int x = 0; x < 150; x++) {
+                    assertEquals(
+                            image.getRaster().getSample(4 * x, 4 * y, 0),
+                            overview.getRaster().getSample(x, y, 0));
+                }
+            }
+        } finally {
+            reader.dispose();
+        }
+    }
+
+    /** Halves the size of an image, averaging each 2x2 box of pixels */
+    private static int[][] averageBoxes(int[][] pixels) {
+        int height = pixels.length;
+        int width = pixels[0].length;
+        int[][] result = new int[(height + 1) / 2][(width + 1) / 2];
+        for (int y = 0; y < result.length; y++) {
+            for (int x = 0; x < result[y].length; x++) {
+                int sum = 0;
+                int count = 0;
+                for (int j = 2 * y; j < Math.min(2 * y + 2, height); j++) {
+                    for (int i = 2 * x; i < Math.min(2 * x + 2, width); i++) {
+                        sum += pixels[j][i];
+                        count++;
+                    }
+                }
+                result[y][x] = (int) Math.floor((double) sum / count + 0.5);
+            }
+        }
+        return result;
+    }
+
+    /** Returns the tile offsets and byte counts of an image in a classic TIFF, straight from its IFD */
+    private static long[][] getTileOffsetsAndByteCounts(byte[] bytes, int imageIndex) {
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        buffer.order(bytes[0] == 'I' ? ByteOrder.LITTLE_ENDIAN : ByteOrder.BIG_ENDIAN);
+        int ifd = buffer.getInt(4);
+        for (int i = 0; i < imageIndex; i++) {
+            ifd = buffer.getInt(ifd + 2 + 12 * buffer.getShort(ifd));
+        }
+        long[][] result = new long[2][];
+        for (int e = 0; e < buffer.getShort(ifd); e++) {
+            int entry = ifd + 2 + 12 * e;
+            int tag = buffer.getShort(entry) & 0xFFFF;
+            if (tag == BaselineTIFFTagSet.TAG_TILE_OFFSETS || tag == BaselineTIFFTagSet.TAG_TILE_BYTE_COUNTS) {
+                int count = buffer.getInt(entry + 4);
+                int values = count > 1 ? buffer.getInt(entry + 8) : entry + 8;
+                long[] data = new long[count];
+                for (int v = 0; v < count; v++) {
+                    data[v] = buffer.getInt(values + 4 * v) & 0xFFFFFFFFL;
+                }
+                result[tag == BaselineTIFFTagSet.TAG_TILE_OFFSETS ? 0 : 1] = data;
+            }
+        }
+        return result;
+    }
+
+    @Test(expected = IIOException.class)
+    public void writeWebPOnGray() throws IOException {
+        BufferedImage image = TIFFReadTest.readTiff(TestData.file(this, "test.tif"));
+        final TIFFImageWriter writer = (TIFFImageWriter) new TIFFImageWriterSpi().createWriterInstance();
+        final ImageWriteParam writeParam = new TIFFImageWriteParam(Locale.getDefault());
+        writeParam.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+        writeParam.setCompressionType("WebP");
+        writer.setOutput(new FileImageOutputStream(TestData.temp(this, "testw.tif", true)));
+        try {
+            writer.write(null, new IIOImage(image, null, null), writeParam);
+        } finally {
+            writer.dispose();
+        }
+    }
+
     @Test
     public void writeDeflatedTilled() throws IOException {
         final File inputFile = TestData.file(this, "test.tif");
@@ -0,0 +1,92 @@
+/*
+ *    ImageI/O-Ext - OpenSource Java Image translation Library
+ *    http://www.geo-solutions.it/
+ *    (C) 2026, GeoSolutions
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    either version 3 of the License, or (at your option) any later version.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package it.geosolutions.imageioimpl.plugins.tiff;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.Test;
+
+public class DecompressorPoolTest {
+
+    private final AtomicInteger created = new AtomicInteger();
+
+    private final List<Object> disposed = new ArrayList<>();
+
+    private DecompressorPool<Object> createPool(int size) {
+        return new DecompressorPool<>(
+                () -> {
+                    created.incrementAndGet();
+                    return new Object();
+                },
+                disposed::add,
+                size);
+    }
+
+    @Test
+    public void testReuse() {
+        DecompressorPool<Object> pool = createPool(2);
+        Object first = pool.acquire();
+        pool.release(first);
+        assertSame(first, pool.acquire());
+        assertEquals(1, created.get());
+
+        // instances in use are not shared
+        Object second = pool.acquire();
+        assertNotSame(first, second);
+        assertEquals(2, created.get());
+        pool.release(first);
+        pool.release(second);
+        assertTrue(disposed.isEmpty());
+    }
+
+    @Test
+    public void testDisposeWhenFull() {
+        DecompressorPool<Object> pool = createPool(1);
+        Object first = pool.acquire();
+        Object second = pool.acquire();
+        pool.release(first);
+        pool.release(second);
+        // only the instance that did not fit has been disposed
+        assertEquals(1, disposed.size());
+        assertSame(second, disposed.get(0));
+        assertSame(first, pool.acquire());
+    }
+
+    @Test
+    public void testNoPooling() {
+        DecompressorPool<Object> pool = createPool(0);
+        Object first = pool.acquire();
+        pool.release(first);
+        assertEquals(1, disposed.size());
+        assertSame(first, disposed.get(0));
+        assertNotSame(first, pool.acquire());
+        assertEquals(2, created.get());
+    }
+
+    @Test
+    public void testReleaseWithoutDisposer() {
+        DecompressorPool<Object> pool = new DecompressorPool<>(Object::new, null, 0);
+        // released instances are just dropped
+        pool.release(pool.acquire());
+        pool.release(null);
+    }
+}